@@ -50,6 +50,11 @@ public abstract class AbstractAnalysisPmdSubcommand<C extends AbstractConfigurat
                     + "Disable this option with '--no-fail-on-violation' to exit with 0 instead and just write the report.",
             defaultValue = "true", negatable = true)
     protected boolean failOnViolation;
+
+    @Option(names = "--use-gitignore",
+            description = "Skip the files and directories that are ignored by .gitignore files "
+                + "when exploring the directories given with --dir. Ignored directories are not explored.")
+    protected boolean useGitIgnore;
     
     @Parameters(arity = "*", description = "Path to a source file, or directory containing source files to analyze. "
             + "Equivalent to using --dir.")
@@ -0,0 +1,70 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cli.commands.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sourceforge.pmd.CompiledRuleSet;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.RuleSetLoadException;
+import net.sourceforge.pmd.RuleSetLoader;
+import net.sourceforge.pmd.cli.internal.CliExitCode;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Parameters;
+
+@Command(name = "compile-ruleset",
+    description = "Resolves the references of a ruleset and writes it in a compiled form, "
+        + "which 'pmd check' loads without parsing XML. The output file must have the extension '"
+        + CompiledRuleSet.FILE_EXTENSION + "', and can only be used by this version of PMD.")
+public class CompileRuleSetCommand extends AbstractPmdSubcommand {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompileRuleSetCommand.class);
+
+    @Parameters(arity = "1", paramLabel = "ruleset",
+                description = "Path to the ruleset to compile, e.g. 'rulesets/java/quickstart.xml'.")
+    private String ruleset;
+
+    @Option(names = { "--output", "-o" }, required = true,
+            description = "The file to write the compiled ruleset to.")
+    private Path output;
+
+    @Override
+    protected void validate() throws ParameterException {
+        super.validate();
+        if (!CompiledRuleSet.isCompiledRuleSet(output.toString())) {
+            throw new ParameterException(spec.commandLine(),
+                                         "The output file must have the extension " + CompiledRuleSet.FILE_EXTENSION);
+        }
+    }
+
+    @Override
+    protected CliExitCode execute() {
+        RuleSet ruleSet;
+        try {
+            ruleSet = new RuleSetLoader().loadFromResource(ruleset);
+        } catch (RuleSetLoadException e) {
+            LOG.error(e.getMessage(), e);
+            return CliExitCode.ERROR;
+        }
+
+        try (OutputStream out = Files.newOutputStream(output)) {
+            CompiledRuleSet.write(ruleSet, out);
+        } catch (IOException e) {
+            LOG.error("Cannot write compiled ruleset to {}", output, e);
+            return CliExitCode.ERROR;
+        }
+        LOG.info("Compiled {} rules from {} into {}", ruleSet.size(), ruleset, output);
+        return CliExitCode.OK;
+    }
+}
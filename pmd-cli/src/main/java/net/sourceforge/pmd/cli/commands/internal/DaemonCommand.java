@@ -0,0 +1,109 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cli.commands.internal;
+
+import static net.sourceforge.pmd.util.CollectionUtil.listOf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sourceforge.pmd.cli.commands.internal.DaemonProtocol.Request;
+import net.sourceforge.pmd.cli.internal.CliExitCode;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Parameters;
+
+@Command(name = "daemon", showDefaultValues = true,
+    description = "Starts a PMD daemon, or sends a command to a running daemon. "
+        + "The daemon keeps rulesets, language modules and type resolution state in memory "
+        + "between analyses, so that repeated analyses (e.g. in a pre-commit hook) start fast.%n"
+        + "Start the daemon with 'pmd daemon --port-file <file>', then run analyses with "
+        + "'pmd daemon --port-file <file> -- check <options>', and stop it with "
+        + "'pmd daemon --port-file <file> --stop'.")
+public class DaemonCommand extends AbstractPmdSubcommand {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DaemonCommand.class);
+
+    @Option(names = "--port-file", required = true,
+            description = "File in which the daemon publishes its port and access token. "
+                + "It is created when the daemon starts, and read by clients.")
+    private Path portFile;
+
+    @Option(names = "--port", defaultValue = "0",
+            description = "Local port the daemon listens on. The default picks a free port.")
+    private int port;
+
+    @Option(names = "--stop", description = "Stop the running daemon.")
+    private boolean stop;
+
+    @Parameters(arity = "*",
+                description = "Command to run in the daemon, e.g. '-- check -d src -R rulesets/java/quickstart.xml'. "
+                    + "Only the 'check' command is supported. If absent, a new daemon is started.")
+    private List<String> command;
+
+    @Override
+    protected void validate() throws ParameterException {
+        super.validate();
+        if (port < 0 || port > 0xFFFF) {
+            throw new ParameterException(spec.commandLine(), "Invalid port number: " + port);
+        }
+    }
+
+    @Override
+    protected CliExitCode execute() {
+        if (stop) {
+            return sendToDaemon(listOf("stop"));
+        } else if (command != null && !command.isEmpty()) {
+            return sendToDaemon(command);
+        }
+        return new DaemonServer(portFile, port).run();
+    }
+
+    private CliExitCode sendToDaemon(List<String> args) {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(portFile)) {
+            props.load(in);
+        } catch (NoSuchFileException e) {
+            LOG.error("No PMD daemon is running: port file {} does not exist", portFile);
+            return CliExitCode.ERROR;
+        } catch (IOException e) {
+            LOG.error("Cannot read port file {}", portFile, e);
+            return CliExitCode.ERROR;
+        }
+
+        int daemonPort = Integer.parseInt(props.getProperty(DaemonServer.PORT_PROPERTY));
+        Request request = new Request(props.getProperty(DaemonServer.TOKEN_PROPERTY),
+                                      Paths.get("").toAbsolutePath(),
+                                      args);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemonPort)) {
+            DaemonProtocol.writeRequest(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())), request);
+            int exitCode = DaemonProtocol.readResponse(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+                                                       System.out,
+                                                       System.err);
+            return CliExitCode.fromInt(exitCode);
+        } catch (IOException e) {
+            LOG.error("Cannot communicate with the PMD daemon on port {}", daemonPort, e);
+            return CliExitCode.ERROR;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cli.commands.internal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format between the {@linkplain DaemonCommand daemon} and its clients.
+ * A client sends a single request, made of the access token of the daemon,
+ * its working directory, and the command line to run. The daemon answers
+ * with a sequence of frames, each of which is either a chunk of the standard
+ * output or error stream of the command, or its exit code, which ends the
+ * response.
+ *
+ * <p>The daemon checks the token before it reads the rest of a request, so
+ * that a client that does not know the token cannot make it allocate or
+ * resolve anything.
+ */
+final class DaemonProtocol {
+
+    static final int VERSION = 1;
+
+    // a command line is far shorter, this bounds what a broken client can
+    // make the daemon allocate
+    static final int MAX_ARGS = 10_000;
+
+    private static final byte STDOUT = 'o';
+    private static final byte STDERR = 'e';
+    private static final byte EXIT = 'x';
+
+    private DaemonProtocol() {
+        // utility class
+    }
+
+    static void writeRequest(DataOutputStream out, Request request) throws IOException {
+        out.writeInt(VERSION);
+        out.writeUTF(request.token);
+        out.writeUTF(request.workingDir.toString());
+        out.writeInt(request.args.size());
+        for (String arg : request.args) {
+            out.writeUTF(arg);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a request sent with the given access token. The token is
+     * compared in constant time, before anything else is read.
+     *
+     * @throws InvalidTokenException If the request has another token
+     * @throws IOException           If the request is malformed, or cannot be read
+     */
+    static Request readRequest(DataInputStream in, String token) throws IOException {
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported protocol version " + version + ", expected " + VERSION);
+        }
+        byte[] actualToken = in.readUTF().getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(actualToken, token.getBytes(StandardCharsets.UTF_8))) {
+            throw new InvalidTokenException();
+        }
+        Path workingDir = readWorkingDir(in.readUTF());
+        int numArgs = in.readInt();
+        if (numArgs < 0 || numArgs > MAX_ARGS) {
+            throw new IOException("Invalid number of arguments " + numArgs);
+        }
+        List<String> args = new ArrayList<>(numArgs);
+        for (int i = 0; i < numArgs; i++) {
+            args.add(in.readUTF());
+        }
+        return new Request(token, workingDir, args);
+    }
+
+    private static Path readWorkingDir(String path) throws IOException {
+        try {
+            Path workingDir = Paths.get(path);
+            if (workingDir.isAbsolute()) {
+                return workingDir;
+            }
+        } catch (InvalidPathException e) {
+            throw new IOException("Invalid working directory " + path, e);
+        }
+        throw new IOException("Working directory is not absolute: " + path);
+    }
+
+    /**
+     * Copy the response frames to the given streams, and return the
+     * exit code of the command.
+     */
+    static int readResponse(DataInputStream in, OutputStream out, OutputStream err) throws IOException {
+        while (true) {
+            byte kind = in.readByte();
+            if (kind == EXIT) {
+                return in.readInt();
+            }
+            byte[] chunk = new byte[in.readInt()];
+            in.readFully(chunk);
+            OutputStream target = kind == STDOUT ? out : err;
+            target.write(chunk);
+            target.flush();
+        }
+    }
+
+    /**
+     * Thrown when a request does not have the access token of the daemon.
+     */
+    static final class InvalidTokenException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        InvalidTokenException() {
+            super("Invalid token");
+        }
+    }
+
+    static final class Request {
+
+        final String token;
+        final Path workingDir;
+        final List<String> args;
+
+        Request(String token, Path workingDir, List<String> args) {
+            this.token = token;
+            this.workingDir = workingDir;
+            this.args = args;
+        }
+    }
+
+    /**
+     * Writes the frames of a response. This is thread-safe, as the
+     * analysis may report messages from several threads.
+     */
+    static final class ResponseWriter {
+
+        private final DataOutputStream out;
+
+        ResponseWriter(OutputStream out) {
+            this.out = new DataOutputStream(out);
+        }
+
+        Writer stdout() {
+            return new FrameWriter(STDOUT);
+        }
+
+        Writer stderr() {
+            return new FrameWriter(STDERR);
+        }
+
+        void copyToStdout(Path file) throws IOException {
+            try (InputStream in = Files.newInputStream(file)) {
+                byte[] buf = new byte[8192];
+                int read;
+                while ((read = in.read(buf)) != -1) {
+                    writeFrame(STDOUT, buf, read);
+                }
+            }
+        }
+
+        synchronized void exit(int exitCode) throws IOException {
+            out.writeByte(EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+
+        private synchronized void writeFrame(byte kind, byte[] bytes, int len) throws IOException {
+            out.writeByte(kind);
+            out.writeInt(len);
+            out.write(bytes, 0, len);
+            out.flush();
+        }
+
+        private final class FrameWriter extends Writer {
+
+            private final byte kind;
+
+            FrameWriter(byte kind) {
+                this.kind = kind;
+            }
+
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                if (len > 0) {
+                    byte[] bytes = new String(cbuf, off, len).getBytes(StandardCharsets.UTF_8);
+                    writeFrame(kind, bytes, bytes.length);
+                }
+            }
+
+            @Override
+            public void flush() {
+                // frames are flushed eagerly
+            }
+
+            @Override
+            public void close() {
+                // the socket is closed by the daemon
+            }
+        }
+    }
+}
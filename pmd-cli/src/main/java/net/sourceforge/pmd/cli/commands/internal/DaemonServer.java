@@ -0,0 +1,487 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cli.commands.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.SecureRandom;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.PmdAnalysis;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.cli.commands.internal.DaemonProtocol.InvalidTokenException;
+import net.sourceforge.pmd.cli.commands.internal.DaemonProtocol.Request;
+import net.sourceforge.pmd.cli.commands.internal.DaemonProtocol.ResponseWriter;
+import net.sourceforge.pmd.cli.internal.CliExitCode;
+import net.sourceforge.pmd.internal.util.ClasspathClassLoader;
+import net.sourceforge.pmd.internal.util.IOUtil;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageProcessorRegistry;
+import net.sourceforge.pmd.lang.LanguageProcessorRegistry.LanguageTerminationException;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.util.log.MessageReporter;
+
+import picocli.CommandLine;
+
+/**
+ * Serves analysis requests sent by {@link DaemonCommand} clients. Requests
+ * are processed one at a time: connections are accepted on a single thread,
+ * and a client that does not send its request within
+ * {@value #REQUEST_TIMEOUT_MILLIS} ms is disconnected, so that it cannot
+ * block the others. Between requests, the daemon keeps the
+ * loaded rulesets and the language processors (and with them, eg the
+ * type system of the Java module) alive, so that only the first
+ * analysis pays for their initialization.
+ *
+ * <p>The rulesets are reloaded when the ruleset paths, the minimum
+ * priority, or the ruleset files change. The language processors are
+ * restarted when the auxiliary classpath, the language versions, or
+ * the contents of the auxiliary classpath change.
+ */
+final class DaemonServer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DaemonServer.class);
+
+    static final String PORT_PROPERTY = "port";
+    static final String TOKEN_PROPERTY = "token";
+
+    private static final int REQUEST_TIMEOUT_MILLIS = 10_000;
+
+    private final Path portFile;
+    private final int port;
+    private boolean running = true;
+
+    // resident state, only accessed by the thread of the accept loop
+    private @Nullable String environmentKey;
+    private @Nullable ClassLoader classLoader;
+    private @Nullable LanguageProcessorRegistry processors;
+    private @Nullable String ruleSetKey;
+    private List<RuleSet> ruleSets = Collections.emptyList();
+
+    DaemonServer(Path portFile, int port) {
+        this.portFile = portFile;
+        this.port = port;
+    }
+
+    CliExitCode run() {
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            String token = newToken();
+            publish(server.getLocalPort(), token);
+            LOG.info("PMD daemon listening on port {}", server.getLocalPort());
+
+            while (running) {
+                try (Socket socket = server.accept()) {
+                    serve(socket, token);
+                } catch (IOException | RuntimeException e) {
+                    // the daemon keeps serving other clients
+                    LOG.warn("Error while serving request", e);
+                }
+            }
+            return CliExitCode.OK;
+        } catch (IOException e) {
+            LOG.error("Could not start the PMD daemon", e);
+            return CliExitCode.ERROR;
+        } finally {
+            closeProcessors();
+            closeClassLoader(classLoader);
+            try {
+                Files.deleteIfExists(portFile);
+            } catch (IOException e) {
+                LOG.warn("Could not delete port file {}", portFile, e);
+            }
+        }
+    }
+
+    private void serve(Socket socket, String token) throws IOException {
+        // only bounds reads, the analysis may take longer
+        socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+        ResponseWriter response = new ResponseWriter(new BufferedOutputStream(socket.getOutputStream()));
+        Request request;
+        try {
+            request = DaemonProtocol.readRequest(new DataInputStream(new BufferedInputStream(socket.getInputStream())), token);
+        } catch (InvalidTokenException e) {
+            print(response, "Invalid token, the daemon may have been restarted");
+            response.exit(CliExitCode.USAGE_ERROR.getExitCode());
+            return;
+        }
+
+        int exitCode;
+        if (request.args.isEmpty()) {
+            print(response, "No command given");
+            exitCode = CliExitCode.USAGE_ERROR.getExitCode();
+        } else if ("stop".equals(request.args.get(0))) {
+            LOG.info("Stopping PMD daemon");
+            running = false;
+            exitCode = CliExitCode.OK.getExitCode();
+        } else if ("check".equals(request.args.get(0))) {
+            exitCode = runCheck(request, response);
+        } else {
+            print(response, "Unsupported command '" + request.args.get(0) + "', the daemon only runs 'check' and 'stop'");
+            exitCode = CliExitCode.USAGE_ERROR.getExitCode();
+        }
+        response.exit(exitCode);
+    }
+
+    private int runCheck(Request request, ResponseWriter response) {
+        Path workingDir = request.workingDir;
+        List<String> args = resolveAuxClasspath(workingDir, request.args.subList(1, request.args.size()));
+        try {
+            return new CommandLine(new ResidentPmdCommand(workingDir, response))
+                .setCaseInsensitiveEnumValuesAllowed(true)
+                // paths are relative to the working directory of the client
+                .registerConverter(Path.class, workingDir::resolve)
+                .setOut(new PrintWriter(response.stdout(), true))
+                .setErr(new PrintWriter(response.stderr(), true))
+                .execute(args.toArray(new String[0]));
+        } catch (RuntimeException e) {
+            LOG.error("Exception while running PMD", e);
+            print(response, "Exception while running PMD in the daemon: " + e);
+            return CliExitCode.ERROR.getExitCode();
+        }
+    }
+
+    /**
+     * The aux classpath is a string option, so it is not handled by the
+     * path converter.
+     */
+    private static List<String> resolveAuxClasspath(Path workingDir, List<String> args) {
+        List<String> result = new ArrayList<>(args.size());
+        boolean nextIsClasspath = false;
+        for (String arg : args) {
+            if (nextIsClasspath) {
+                result.add(resolveClasspath(workingDir, arg));
+                nextIsClasspath = false;
+            } else if (arg.startsWith("--aux-classpath=")) {
+                result.add("--aux-classpath=" + resolveClasspath(workingDir, arg.substring("--aux-classpath=".length())));
+            } else {
+                nextIsClasspath = "--aux-classpath".equals(arg);
+                result.add(arg);
+            }
+        }
+        return result;
+    }
+
+    private static String resolveClasspath(Path workingDir, String classpath) {
+        if (classpath.startsWith("file:")) {
+            return classpath;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                if (sb.length() > 0) {
+                    sb.append(File.pathSeparator);
+                }
+                sb.append(workingDir.resolve(entry));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void print(ResponseWriter response, String message) {
+        try (PrintWriter err = new PrintWriter(response.stderr())) {
+            err.println(message);
+        }
+    }
+
+    private void publish(int localPort, String token) throws IOException {
+        Properties props = new Properties();
+        props.setProperty(PORT_PROPERTY, String.valueOf(localPort));
+        props.setProperty(TOKEN_PROPERTY, token);
+        Path parent = portFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.deleteIfExists(portFile);
+        Files.createFile(portFile);
+        try {
+            // the token is a secret
+            Files.setPosixFilePermissions(portFile, EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE));
+        } catch (UnsupportedOperationException ignored) {
+            // not a posix file system
+        }
+        try (OutputStream out = Files.newOutputStream(portFile)) {
+            props.store(out, "PMD daemon");
+        }
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private void closeProcessors() {
+        if (processors != null) {
+            try {
+                processors.close();
+            } catch (LanguageTerminationException e) {
+                LOG.warn("Error while closing language processors", e);
+            }
+            processors = null;
+        }
+    }
+
+    private static void closeClassLoader(@Nullable ClassLoader loader) {
+        if (loader instanceof ClasspathClassLoader) {
+            IOUtil.tryCloseClassLoader(loader);
+        }
+    }
+
+    /**
+     * Identifies everything the language processors depend on: the
+     * language versions, the suppress marker, and the contents of the
+     * auxiliary classpath.
+     */
+    private static String environmentKey(PMDConfiguration config) {
+        StringBuilder key = new StringBuilder();
+        for (Language language : config.getLanguageRegistry()) {
+            LanguageVersion version = config.getLanguageVersionDiscoverer().getDefaultLanguageVersion(language);
+            key.append(language.getId()).append('=').append(version.getVersion()).append(';');
+        }
+        key.append("force=").append(config.getForceLanguageVersion()).append(';');
+        key.append("marker=").append(config.getSuppressMarker()).append(';');
+        ClassLoader loader = config.getClassLoader();
+        if (loader instanceof ClasspathClassLoader) {
+            for (URL url : ((URLClassLoader) loader).getURLs()) {
+                key.append(url).append('@').append(stamp(url)).append(';');
+            }
+        }
+        return key.toString();
+    }
+
+    private static String ruleSetKey(PMDConfiguration config) {
+        StringBuilder key = new StringBuilder();
+        key.append(config.getMinimumPriority()).append(';');
+        key.append(config.isRuleSetFactoryCompatibilityEnabled()).append(';');
+        for (String path : config.getRuleSetPaths()) {
+            key.append(path);
+            Path file = Paths.get(path);
+            if (Files.isRegularFile(file)) {
+                key.append('@').append(stamp(file));
+            }
+            key.append(';');
+        }
+        return key.toString();
+    }
+
+    private static String stamp(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return "";
+        }
+        try {
+            return stamp(Paths.get(url.toURI()));
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Size and modification time of the file. For directories, the
+     * number of files, the total size, and the latest modification time.
+     */
+    private static String stamp(Path path) {
+        try {
+            if (Files.isDirectory(path)) {
+                long[] stats = new long[3];
+                try (Stream<Path> files = Files.walk(path)) {
+                    files.forEach(f -> {
+                        try {
+                            BasicFileAttributes attrs = Files.readAttributes(f, BasicFileAttributes.class);
+                            stats[0]++;
+                            stats[1] += attrs.size();
+                            stats[2] = Math.max(stats[2], attrs.lastModifiedTime().toMillis());
+                        } catch (IOException ignored) {
+                            // deleted concurrently, will be picked up next time
+                        }
+                    });
+                }
+                return stats[0] + "/" + stats[1] + "/" + stats[2];
+            }
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            return attrs.size() + "/" + attrs.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return "missing";
+        }
+    }
+
+    /**
+     * The check command, run against the resident state of the daemon.
+     */
+    private final class ResidentPmdCommand extends PmdCommand {
+
+        private final Path workingDir;
+        private final ResponseWriter response;
+        private @Nullable Path clientReport;
+
+        ResidentPmdCommand(Path workingDir, ResponseWriter response) {
+            this.workingDir = workingDir;
+            this.response = response;
+        }
+
+        @Override
+        protected PMDConfiguration toConfiguration() {
+            PMDConfiguration config = super.toConfiguration();
+            // this would render on the console of the daemon
+            setShowProgressBar(false);
+
+            List<String> ruleSetPaths = new ArrayList<>();
+            for (String path : config.getRuleSetPaths()) {
+                // rulesets may also be classpath resources or URLs
+                Path file = workingDir.resolve(path);
+                ruleSetPaths.add(Files.isRegularFile(file) ? file.toString() : path);
+            }
+            config.setRuleSets(ruleSetPaths);
+            // git diff must run where the client was started, not where the daemon was
+            config.setDiffWorkingDir(workingDir);
+
+            if (config.getReportFilePath() == null) {
+                try {
+                    clientReport = Files.createTempFile("pmd-daemon", ".report");
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot create temporary report file", e);
+                }
+                config.setReportFile(clientReport);
+            }
+
+            shareClassLoader(config);
+            return config;
+        }
+
+        private void shareClassLoader(PMDConfiguration config) {
+            String key = environmentKey(config);
+            if (key.equals(environmentKey)) {
+                if (config.getClassLoader() != classLoader) { // NOPMD CompareObjectsWithEquals
+                    closeClassLoader(config.getClassLoader());
+                    config.setClassLoader(classLoader);
+                }
+            } else {
+                if (environmentKey != null) {
+                    LOG.info("Classpath or language versions changed, restarting language processors");
+                }
+                closeProcessors();
+                closeClassLoader(classLoader);
+                environmentKey = key;
+                classLoader = config.getClassLoader();
+            }
+        }
+
+        @Override
+        protected CliExitCode doExecute(PMDConfiguration configuration) {
+            configuration.setReporter(new ForwardingReporter(configuration.getReporter(), response));
+            try {
+                return super.doExecute(configuration);
+            } finally {
+                if (clientReport != null) {
+                    try {
+                        response.copyToStdout(clientReport);
+                        Files.delete(clientReport);
+                    } catch (IOException e) {
+                        LOG.warn("Could not send report to client", e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        PmdAnalysis createAnalysis(PMDConfiguration configuration) {
+            List<String> ruleSetPaths = configuration.getRuleSetPaths();
+            String key = ruleSetKey(configuration);
+            // the rulesets are added below
+            configuration.setRuleSets(Collections.emptyList());
+
+            PmdAnalysis pmd = PmdAnalysis.create(configuration);
+            if (!key.equals(ruleSetKey)) {
+                MessageReporter reporter = configuration.getReporter();
+                int errors = reporter.numErrors();
+                ruleSets = pmd.newRuleSetLoader().loadRuleSetsWithoutException(ruleSetPaths);
+                // retry next time if something went wrong
+                ruleSetKey = reporter.numErrors() == errors ? key : null;
+                // the rules may apply to other languages
+                closeProcessors();
+            }
+            pmd.addRuleSets(ruleSets);
+
+            if (processors == null) {
+                processors = pmd.createLanguageProcessors();
+            }
+            pmd.useLanguageProcessors(processors);
+            return pmd;
+        }
+    }
+
+    /**
+     * Logs messages on the daemon side, and sends them to the client.
+     */
+    private static final class ForwardingReporter implements MessageReporter {
+
+        private final MessageReporter delegate;
+        private final ResponseWriter response;
+
+        ForwardingReporter(MessageReporter delegate, ResponseWriter response) {
+            this.delegate = delegate;
+            this.response = response;
+        }
+
+        @Override
+        public boolean isLoggable(Level level) {
+            return delegate.isLoggable(level);
+        }
+
+        @Override
+        public void logEx(Level level, @Nullable String message, Object[] formatArgs, @Nullable Throwable error) {
+            delegate.logEx(level, message, formatArgs, error);
+            if (isLoggable(level)) {
+                print(response, "[" + level + "] " + format(message, formatArgs, error));
+            }
+        }
+
+        private static @NonNull String format(@Nullable String message, Object[] formatArgs, @Nullable Throwable error) {
+            String formatted = message == null ? "" : MessageFormat.format(message, formatArgs);
+            if (error == null) {
+                return formatted;
+            }
+            String errorMessage = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+            return formatted.isEmpty() ? errorMessage : formatted + ": " + errorMessage;
+        }
+
+        @Override
+        public int numErrors() {
+            return delegate.numErrors();
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -84,6 +85,12 @@ public class PmdCommand extends AbstractAnalysisPmdSubcommand<PMDConfiguration>
 
     private int threads;
 
+    private Long heapBudget;
+
+    private int fileTimeout;
+
+    private int ruleTimeout;
+
     private boolean benchmark;
 
     private boolean showSuppressed;
@@ -110,6 +117,12 @@ public class PmdCommand extends AbstractAnalysisPmdSubcommand<PMDConfiguration>
 
     private boolean showProgressBar;
 
+    private String diffBase;
+
+    private Path diffFile;
+
+    private boolean onlyChangedLines;
+
     @Option(names = { "--rulesets", "-R" },
                description = "Path to a ruleset xml file. "
                              + "The path may reference a resource on the classpath of the application, be a local file system path, or a URL. "
@@ -243,12 +256,68 @@ public class PmdCommand extends AbstractAnalysisPmdSubcommand<PMDConfiguration>
         this.threads = threads;
     }
 
+    @Option(names = "--heap-budget", paramLabel = "<megabytes>",
+            description = "Sets the memory in megabytes that the files analysed concurrently may use, "
+                + "as estimated from their size. Threads wait before analysing files that don't fit into the budget. "
+                + "By default, or with 0, there is no limit.")
+    public void setHeapBudget(final long heapBudget) {
+        if (heapBudget < 0) {
+            throw new ParameterException(spec.commandLine(), "Heap budget should be a positive number or zero, found " + heapBudget + " instead.");
+        }
+        this.heapBudget = heapBudget;
+    }
+
+    @Option(names = "--file-timeout", paramLabel = "<seconds>",
+            description = "Sets the maximum time in seconds the analysis of a single file may take. "
+                + "Files that exceed it are aborted and reported as processing errors. 0 (the default) disables the timeout.")
+    public void setFileTimeout(final int fileTimeout) {
+        if (fileTimeout < 0) {
+            throw new ParameterException(spec.commandLine(), "File timeout should be a positive number or zero, found " + fileTimeout + " instead.");
+        }
+        this.fileTimeout = fileTimeout;
+    }
+
+    @Option(names = "--rule-timeout", paramLabel = "<seconds>",
+            description = "Sets the maximum time in seconds a single rule may spend on a file. "
+                + "Rules that exceed it are not applied on the rest of the file and reported as processing errors. "
+                + "0 (the default) disables the timeout.")
+    public void setRuleTimeout(final int ruleTimeout) {
+        if (ruleTimeout < 0) {
+            throw new ParameterException(spec.commandLine(), "Rule timeout should be a positive number or zero, found " + ruleTimeout + " instead.");
+        }
+        this.ruleTimeout = ruleTimeout;
+    }
+
     @Option(names = "--no-progress", negatable = true, defaultValue = "true",
             description = "Enables / disables progress bar indicator of live analysis progress.")
     public void setShowProgressBar(final boolean showProgressBar) {
         this.showProgressBar = showProgressBar;
     }
 
+    @Option(names = "--diff-base",
+            description = "Only analyze the files that were changed or added since the given git revision, "
+                + "according to 'git diff <rev>' run in the current directory.")
+    public void setDiffBase(final String diffBase) {
+        if (diffBase.startsWith("-")) {
+            throw new ParameterException(spec.commandLine(), "Expected a git revision for option '--diff-base', found " + diffBase);
+        }
+        this.diffBase = diffBase;
+    }
+
+    @Option(names = "--diff-file",
+            description = "Only analyze the files that were changed or added according to the given unified diff, "
+                + "e.g. the output of 'git diff'. Paths in the diff are resolved against the root of the git repository "
+                + "containing the current directory.")
+    public void setDiffFile(final Path diffFile) {
+        this.diffFile = diffFile;
+    }
+
+    @Option(names = "--only-changed-lines",
+            description = "Only report violations that overlap a line changed in the diff given by --diff-base or --diff-file.")
+    public void setOnlyChangedLines(final boolean onlyChangedLines) {
+        this.onlyChangedLines = onlyChangedLines;
+    }
+
     /**
      * Converts these parameters into a configuration.
      *
@@ -264,6 +333,7 @@ public class PmdCommand extends AbstractAnalysisPmdSubcommand<PMDConfiguration>
         }
         configuration.setInputFilePath(fileListPath);
         configuration.setIgnoreFilePath(ignoreListPath);
+        configuration.setUseGitIgnore(useGitIgnore);
         configuration.setInputUri(uri);
         configuration.setReportFormat(format);
         configuration.setSourceEncoding(encoding.getEncoding());
@@ -278,9 +348,17 @@ public class PmdCommand extends AbstractAnalysisPmdSubcommand<PMDConfiguration>
         configuration.setShowSuppressedViolations(showSuppressed);
         configuration.setSuppressMarker(suppressMarker);
         configuration.setThreads(threads);
+        if (heapBudget != null) {
+            configuration.setHeapBudget(heapBudget * 1024 * 1024);
+        }
+        configuration.setFileTimeout(Duration.ofSeconds(fileTimeout));
+        configuration.setRuleTimeout(Duration.ofSeconds(ruleTimeout));
         configuration.setFailOnViolation(failOnViolation);
         configuration.setAnalysisCacheLocation(cacheLocation != null ? cacheLocation.toString() : null);
         configuration.setIgnoreIncrementalAnalysis(noCache);
+        configuration.setDiffBase(diffBase);
+        configuration.setDiffFile(diffFile);
+        configuration.setReportOnlyChangedLines(onlyChangedLines);
 
         if (languageVersion != null) {
             configuration.setDefaultLanguageVersions(languageVersion);
@@ -317,7 +395,7 @@ public class PmdCommand extends AbstractAnalysisPmdSubcommand<PMDConfiguration>
             PmdAnalysis pmd = null;
             try {
                 try {
-                    pmd = PmdAnalysis.create(configuration);
+                    pmd = createAnalysis(configuration);
                 } catch (final Exception e) {
                     pmdReporter.errorEx("Could not initialize analysis", e);
                     return CliExitCode.ERROR;
@@ -358,6 +436,14 @@ public class PmdCommand extends AbstractAnalysisPmdSubcommand<PMDConfiguration>
         }
     }
 
+    /**
+     * Create the analysis for the given configuration. The daemon overrides
+     * this to reuse rulesets and language processors between invocations.
+     */
+    PmdAnalysis createAnalysis(PMDConfiguration configuration) {
+        return PmdAnalysis.create(configuration);
+    }
+
     private void printErrorDetected(MessageReporter reporter, int errors) {
         String msg = LogMessages.errorDetectedMessage(errors, "pmd");
         // note: using error level here increments the error count of the reporter,
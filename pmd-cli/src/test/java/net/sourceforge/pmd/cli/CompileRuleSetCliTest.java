@@ -0,0 +1,58 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cli;
+
+import static net.sourceforge.pmd.cli.PmdCliTest.RULESET_WITH_VIOLATION;
+import static net.sourceforge.pmd.cli.internal.CliExitCode.ERROR;
+import static net.sourceforge.pmd.cli.internal.CliExitCode.USAGE_ERROR;
+import static net.sourceforge.pmd.cli.internal.CliExitCode.VIOLATIONS_FOUND;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CompileRuleSetCliTest extends BaseCliTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testCompiledRuleSetCanBeUsedForAnalysis() throws Exception {
+        Path srcDir = Files.createDirectories(tempDir.resolve("src"));
+        Files.write(srcDir.resolve("someSource.dummy"), "dummy text".getBytes(StandardCharsets.UTF_8));
+        Path compiled = tempDir.resolve("ruleset.pmdrs");
+
+        runCliSuccessfully("compile-ruleset", RULESET_WITH_VIOLATION, "-o", compiled.toString());
+        assertTrue(Files.exists(compiled));
+
+        runCli(VIOLATIONS_FOUND, "check", "--no-cache", "--no-progress", "-f", "text",
+               "-d", srcDir.toString(), "-R", compiled.toString())
+            .verify(r -> r.checkStdOut(containsString("Violation from ReportAllRootNodes")));
+    }
+
+    @Test
+    void testOutputMustHaveExtension() throws Exception {
+        runCli(USAGE_ERROR, "compile-ruleset", RULESET_WITH_VIOLATION, "-o", tempDir.resolve("ruleset.xml").toString())
+            .verify(r -> r.checkStdErr(containsString("must have the extension .pmdrs")));
+    }
+
+    @Test
+    void testInvalidRuleSet() throws Exception {
+        runCli(ERROR, "compile-ruleset", "notaruleset.xml", "-o", tempDir.resolve("ruleset.pmdrs").toString())
+            .verify(r -> r.checkStdErr(containsString("Cannot load ruleset")));
+    }
+
+    @Override
+    protected List<String> cliStandardArgs() {
+        return Collections.emptyList();
+    }
+}
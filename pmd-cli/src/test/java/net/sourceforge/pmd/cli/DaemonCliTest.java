@@ -0,0 +1,177 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cli;
+
+import static net.sourceforge.pmd.cli.PmdCliTest.RULESET_WITH_VIOLATION;
+import static net.sourceforge.pmd.cli.internal.CliExitCode.ERROR;
+import static net.sourceforge.pmd.cli.internal.CliExitCode.OK;
+import static net.sourceforge.pmd.cli.internal.CliExitCode.USAGE_ERROR;
+import static net.sourceforge.pmd.cli.internal.CliExitCode.VIOLATIONS_FOUND;
+import static net.sourceforge.pmd.util.CollectionUtil.listOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.sourceforge.pmd.cli.commands.internal.PmdRootCommand;
+
+import picocli.CommandLine;
+
+class DaemonCliTest extends BaseCliTest {
+
+    @TempDir
+    private Path tempDir;
+    private Path portFile;
+    private Path srcDir;
+    private CompletableFuture<Integer> daemon;
+
+    @BeforeEach
+    void startDaemon() throws Exception {
+        srcDir = Files.createDirectories(tempDir.resolve("src"));
+        Files.write(srcDir.resolve("someSource.dummy"), "dummy text".getBytes(StandardCharsets.UTF_8));
+
+        portFile = tempDir.resolve("daemon.port");
+        daemon = CompletableFuture.supplyAsync(
+            () -> new CommandLine(new PmdRootCommand()).execute("daemon", "--port-file", portFile.toString())
+        );
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!Files.exists(portFile) || Files.size(portFile) == 0) {
+            if (System.currentTimeMillis() > deadline || daemon.isDone()) {
+                throw new AssertionError("Daemon did not start");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    @AfterEach
+    void stopDaemon() throws Exception {
+        if (!daemon.isDone()) {
+            runCli(OK, "--stop");
+        }
+        assertEquals(OK.getExitCode(), daemon.get(10, TimeUnit.SECONDS));
+        assertFalse(Files.exists(portFile), "Port file should have been deleted");
+    }
+
+    @Test
+    void testAnalysesReuseDaemon() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            runCli(VIOLATIONS_FOUND, "--", "check", "-d", srcDir.toString(), "-f", "text", "-R", RULESET_WITH_VIOLATION)
+                .verify(r -> r.checkStdOut(containsString("Violation from ReportAllRootNodes")));
+        }
+    }
+
+    @Test
+    void testReportFileIsWrittenByDaemon() throws Exception {
+        Path reportFile = tempDir.resolve("report.txt");
+        runCli(OK, "--", "check", "-d", srcDir.toString(), "-R", RULESET_WITH_VIOLATION,
+               "-r", reportFile.toString(), "--no-fail-on-violation");
+
+        String report = new String(Files.readAllBytes(reportFile), StandardCharsets.UTF_8);
+        assertThat(report, containsString("Violation from ReportAllRootNodes"));
+    }
+
+    @Test
+    void testInvalidArgumentsAreReportedToClient() throws Exception {
+        runCli(USAGE_ERROR, "--", "check", "-d", srcDir.toString())
+            .verify(r -> r.checkStdErr(containsString("Missing required option: '--rulesets=<rulesets>'")));
+    }
+
+    @Test
+    void testUnsupportedCommand() throws Exception {
+        runCli(USAGE_ERROR, "--", "cpd", "--minimum-tokens", "10")
+            .verify(r -> r.checkStdErr(containsString("only runs 'check' and 'stop'")));
+    }
+
+    @Test
+    void testNoDaemonRunning() throws Exception {
+        runCli(OK, "--stop");
+        daemon.get(10, TimeUnit.SECONDS);
+
+        runCli(ERROR, "--", "check", "-d", srcDir.toString(), "-R", RULESET_WITH_VIOLATION)
+            .verify(r -> r.checkStdErr(containsString("No PMD daemon is running")));
+    }
+
+    @Test
+    void testInvalidTokenIsRejected() throws Exception {
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(1);
+            out.writeUTF("not the token");
+            out.flush();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            // the error message, then the exit code
+            while (in.readByte() != 'x') {
+                in.skipBytes(in.readInt());
+            }
+            assertEquals(USAGE_ERROR.getExitCode(), in.readInt());
+        }
+    }
+
+    @Test
+    void testMalformedRequestsDoNotStopDaemon() throws Exception {
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(1);
+            out.writeUTF(readDaemonProperties().getProperty("token"));
+            out.writeUTF(tempDir.toAbsolutePath().toString());
+            out.writeInt(Integer.MAX_VALUE);
+            out.flush();
+
+            // the daemon closes the connection without allocating the arguments
+            assertThrows(IOException.class, () -> new DataInputStream(socket.getInputStream()).readByte());
+        }
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(1);
+            out.writeUTF(readDaemonProperties().getProperty("token"));
+            out.writeUTF("relative/dir");
+            out.flush();
+
+            assertThrows(IOException.class, () -> new DataInputStream(socket.getInputStream()).readByte());
+        }
+
+        runCli(VIOLATIONS_FOUND, "--", "check", "-d", srcDir.toString(), "-f", "text", "-R", RULESET_WITH_VIOLATION)
+            .verify(r -> r.checkStdOut(containsString("Violation from ReportAllRootNodes")));
+    }
+
+    private Socket connect() throws Exception {
+        int port = Integer.parseInt(readDaemonProperties().getProperty("port"));
+        return new Socket(InetAddress.getLoopbackAddress(), port);
+    }
+
+    private Properties readDaemonProperties() throws Exception {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(portFile)) {
+            props.load(in);
+        }
+        return props;
+    }
+
+    @Override
+    protected List<String> cliStandardArgs() {
+        return listOf("daemon", "--port-file", portFile.toString());
+    }
+}
@@ -47,6 +47,7 @@ public abstract class AbstractConfiguration {
     private Path ignoreFilePath;
     private List<Path> excludes = new ArrayList<>();
     private boolean collectRecursive = true;
+    private boolean useGitIgnore;
 
 
     protected AbstractConfiguration(LanguageRegistry languageRegistry, MessageReporter messageReporter) {
@@ -419,4 +420,25 @@ public abstract class AbstractConfiguration {
     public void collectFilesRecursively(boolean collectRecursive) {
         this.collectRecursive = collectRecursive;
     }
+
+    /**
+     * Whether files and directories that are ignored by {@code .gitignore}
+     * files are skipped when collecting the files of the input directories.
+     * This is false by default.
+     */
+    public boolean isUseGitIgnore() {
+        return useGitIgnore;
+    }
+
+    /**
+     * Sets whether files and directories that are ignored by {@code .gitignore}
+     * files are skipped when collecting the files of the input directories.
+     * Ignored directories are not explored. Files that are mentioned
+     * explicitly, eg in a file list, are never ignored.
+     *
+     * @param useGitIgnore Whether to honor .gitignore files
+     */
+    public void setUseGitIgnore(boolean useGitIgnore) {
+        this.useGitIgnore = useGitIgnore;
+    }
 }
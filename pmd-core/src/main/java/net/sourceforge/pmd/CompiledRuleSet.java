@@ -0,0 +1,355 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.zip.Adler32;
+import java.util.zip.CheckedInputStream;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.RuleSet.RuleSetBuilder;
+import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.properties.NumericConstraints;
+import net.sourceforge.pmd.properties.PropertyBuilder;
+import net.sourceforge.pmd.properties.PropertyConstraint;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
+import net.sourceforge.pmd.properties.PropertySerializer;
+import net.sourceforge.pmd.properties.PropertyTypeId;
+import net.sourceforge.pmd.properties.PropertyTypeId.BuilderAndMapper;
+import net.sourceforge.pmd.util.ResourceLoader;
+import net.sourceforge.pmd.util.internal.xml.SchemaConstants;
+
+/**
+ * A binary format for rulesets whose references have already been
+ * resolved. A compiled ruleset lists the effective definition of each
+ * of its rules, so that loading it only instantiates the rule classes
+ * and parses the property values that differ from their default. No
+ * XML is parsed and no other ruleset is read.
+ *
+ * <p>Compiled rulesets are recognized by their {@linkplain #FILE_EXTENSION extension}
+ * in {@link RuleSetLoader#loadFromResource(String)}. They can only be
+ * read by the PMD version that wrote them, as rule implementations and
+ * their properties change between versions.
+ *
+ * @see RuleSetLoader
+ */
+@InternalApi
+public final class CompiledRuleSet {
+
+    /** Extension of compiled rulesets. */
+    public static final String FILE_EXTENSION = ".pmdrs";
+
+    private static final int MAGIC = 0x504d4452; // "PMDR"
+    private static final int FORMAT_VERSION = 1;
+
+    private CompiledRuleSet() {
+        // utility class
+    }
+
+    /**
+     * Whether the given ruleset path designates a compiled ruleset.
+     */
+    public static boolean isCompiledRuleSet(String path) {
+        return path.endsWith(FILE_EXTENSION);
+    }
+
+    /**
+     * Writes the given ruleset in the compiled format. Rule references
+     * are flattened into the rule they reference, with the overridden
+     * metadata and property values applied. The stream is not closed.
+     *
+     * @param ruleSet Ruleset to write
+     * @param output  Output stream
+     *
+     * @throws IOException If writing fails
+     */
+    public static void write(RuleSet ruleSet, OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, PMDVersion.VERSION);
+
+        writeString(out, ruleSet.getName());
+        writeString(out, ruleSet.getDescription());
+        writePatterns(out, ruleSet.getFileExclusions());
+        writePatterns(out, ruleSet.getFileInclusions());
+
+        out.writeInt(ruleSet.getRules().size());
+        for (Rule rule : ruleSet.getRules()) {
+            writeRule(out, rule);
+        }
+        out.flush();
+    }
+
+    private static void writeRule(DataOutputStream out, Rule rule) throws IOException {
+        writeString(out, rule.getRuleClass());
+        writeString(out, rule.getLanguage().getId());
+        writeString(out, rule.getName());
+        writeString(out, rule.getRuleSetName());
+        writeString(out, versionOf(rule.getMinimumLanguageVersion()));
+        writeString(out, versionOf(rule.getMaximumLanguageVersion()));
+        writeString(out, rule.getSince());
+        writeString(out, rule.getMessage());
+        writeString(out, rule.getExternalInfoUrl());
+        writeString(out, rule.getDescription());
+        out.writeBoolean(rule.isDeprecated());
+        out.writeInt(rule.getPriority().getPriority());
+
+        List<String> examples = rule.getExamples();
+        out.writeInt(examples.size());
+        for (String example : examples) {
+            writeString(out, example);
+        }
+
+        List<PropertyDescriptor<?>> descriptors = new ArrayList<>();
+        for (PropertyDescriptor<?> descriptor : rule.getPropertyDescriptors()) {
+            if (descriptor.getTypeId() != null || !isDefaultValue(rule, descriptor)) {
+                descriptors.add(descriptor);
+            }
+        }
+        out.writeInt(descriptors.size());
+        for (PropertyDescriptor<?> descriptor : descriptors) {
+            writeProperty(out, rule, descriptor);
+        }
+    }
+
+    private static <T> boolean isDefaultValue(Rule rule, PropertyDescriptor<T> descriptor) {
+        return Objects.equals(rule.getProperty(descriptor), descriptor.defaultValue());
+    }
+
+    private static <T> void writeProperty(DataOutputStream out, Rule rule, PropertyDescriptor<T> descriptor) throws IOException {
+        PropertySerializer<T> serializer = descriptor.serializer();
+        writeString(out, descriptor.name());
+
+        // properties defined in the ruleset, like those of XPath rules
+        PropertyTypeId typeId = descriptor.getTypeId();
+        out.writeBoolean(typeId != null);
+        if (typeId != null) {
+            writeString(out, typeId.getStringId());
+            writeString(out, descriptor.description());
+            writeString(out, serializer.toString(descriptor.defaultValue()));
+            Map<String, String> bounds = new HashMap<>();
+            for (PropertyConstraint<? super T> constraint : serializer.getConstraints()) {
+                bounds.putAll(constraint.getXmlConstraint());
+            }
+            writeString(out, bounds.get(SchemaConstants.PROPERTY_MIN.xmlName()));
+            writeString(out, bounds.get(SchemaConstants.PROPERTY_MAX.xmlName()));
+        }
+
+        T value = rule.getProperty(descriptor);
+        boolean isDefault = Objects.equals(value, descriptor.defaultValue());
+        writeString(out, isDefault ? null : serializer.toString(value));
+    }
+
+    private static @Nullable String versionOf(@Nullable LanguageVersion version) {
+        return version == null ? null : version.getVersion();
+    }
+
+    private static void writePatterns(DataOutputStream out, List<Pattern> patterns) throws IOException {
+        out.writeInt(patterns.size());
+        for (Pattern pattern : patterns) {
+            writeString(out, pattern.pattern());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String str) throws IOException {
+        // writeUTF is limited to 64KB, which descriptions or XPath
+        // expressions may exceed
+        if (str == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a compiled ruleset. Rules under the minimum priority are
+     * dropped, like when loading an XML ruleset.
+     *
+     * @throws IOException If reading fails, or the input is not a compiled
+     *                     ruleset of this version of PMD
+     */
+    static RuleSet read(InputStream input,
+                        String fileName,
+                        ResourceLoader resourceLoader,
+                        LanguageRegistry languageRegistry,
+                        RulePriority minimumPriority) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(input), new Adler32());
+        DataInputStream in = new DataInputStream(checked);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a compiled ruleset");
+        }
+        int formatVersion = in.readInt();
+        String pmdVersion = readString(in);
+        if (formatVersion != FORMAT_VERSION || !PMDVersion.VERSION.equals(pmdVersion)) {
+            throw new IOException("Ruleset was compiled with PMD " + pmdVersion
+                                      + ", compile it again with PMD " + PMDVersion.VERSION);
+        }
+
+        String name = readString(in);
+        String description = readString(in);
+        List<Pattern> exclusions = readPatterns(in);
+        List<Pattern> inclusions = readPatterns(in);
+
+        int numRules = in.readInt();
+        List<Rule> rules = new ArrayList<>(numRules);
+        for (int i = 0; i < numRules; i++) {
+            rules.add(readRule(in, resourceLoader, languageRegistry));
+        }
+
+        RuleSetBuilder builder = new RuleSetBuilder(checked.getChecksum().getValue())
+            .withName(name)
+            .withDescription(description)
+            .withFileName(fileName)
+            .replaceFileExclusions(exclusions)
+            .replaceFileInclusions(inclusions);
+        for (Rule rule : rules) {
+            builder.addRule(rule);
+        }
+        builder.filterRulesByPriority(minimumPriority);
+        return builder.build();
+    }
+
+    private static Rule readRule(DataInputStream in, ResourceLoader resourceLoader, LanguageRegistry languageRegistry) throws IOException {
+        String ruleClass = readString(in);
+        Rule rule;
+        try {
+            rule = resourceLoader.loadRuleFromClassPath(ruleClass);
+        } catch (ClassNotFoundException | IllegalAccessException | InstantiationException e) {
+            throw new IOException("Cannot instantiate rule class " + ruleClass, e);
+        }
+
+        String languageId = readString(in);
+        Language language = languageRegistry.getLanguageById(languageId);
+        if (language == null) {
+            throw new IOException("Language '" + languageId + "' is not available");
+        }
+        if (rule.getLanguage() == null) {
+            rule.setLanguage(language);
+        }
+        rule.setName(readString(in));
+        rule.setRuleSetName(readString(in));
+        rule.setMinimumLanguageVersion(readVersion(in, language));
+        rule.setMaximumLanguageVersion(readVersion(in, language));
+        rule.setSince(readString(in));
+        rule.setMessage(readString(in));
+        rule.setExternalInfoUrl(readString(in));
+        rule.setDescription(readString(in));
+        rule.setDeprecated(in.readBoolean());
+        rule.setPriority(RulePriority.valueOf(in.readInt()));
+
+        int numExamples = in.readInt();
+        for (int i = 0; i < numExamples; i++) {
+            rule.addExample(readString(in));
+        }
+
+        int numProperties = in.readInt();
+        for (int i = 0; i < numProperties; i++) {
+            readProperty(in, rule);
+        }
+        return rule;
+    }
+
+    private static void readProperty(DataInputStream in, Rule rule) throws IOException {
+        String name = readString(in);
+        if (in.readBoolean()) {
+            String typeId = readString(in);
+            PropertyTypeId type = PropertyTypeId.lookupMnemonic(typeId);
+            if (type == null) {
+                throw new IOException("Unsupported property type '" + typeId + "'");
+            }
+            String description = readString(in);
+            String defaultValue = readString(in);
+            String min = readString(in);
+            String max = readString(in);
+            rule.definePropertyDescriptor(defineProperty(type.getBuilderUtils(), name, description, defaultValue, min, max));
+        }
+
+        PropertyDescriptor<?> descriptor = rule.getPropertyDescriptor(name);
+        if (descriptor == null) {
+            throw new IOException("Property '" + name + "' does not exist on rule " + rule.getName());
+        }
+        String value = readString(in);
+        if (value != null) {
+            setProperty(rule, descriptor, value);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T> PropertyDescriptor<T> defineProperty(BuilderAndMapper<T> factory,
+                                                            String name,
+                                                            String description,
+                                                            String defaultValue,
+                                                            @Nullable String min,
+                                                            @Nullable String max) {
+        PropertySerializer<T> mapper = factory.getXmlMapper();
+        PropertyBuilder<?, T> builder = factory.newBuilder(name).desc(description);
+        // the bounds were validated when the XML was loaded
+        if (min != null && max != null) {
+            builder.require((PropertyConstraint<T>) NumericConstraints.inRange((Comparable) mapper.fromString(min),
+                                                                               (Comparable) mapper.fromString(max)));
+        } else if (min != null) {
+            builder.require((PropertyConstraint<T>) NumericConstraints.above((Comparable) mapper.fromString(min)));
+        } else if (max != null) {
+            builder.require((PropertyConstraint<T>) NumericConstraints.below((Comparable) mapper.fromString(max)));
+        }
+        builder.defaultValue(mapper.fromString(defaultValue));
+        return builder.build();
+    }
+
+    private static <T> void setProperty(Rule rule, PropertyDescriptor<T> descriptor, String value) {
+        rule.setProperty(descriptor, descriptor.serializer().fromString(value));
+    }
+
+    private static @Nullable LanguageVersion readVersion(DataInputStream in, Language language) throws IOException {
+        String version = readString(in);
+        if (version == null) {
+            return null;
+        }
+        LanguageVersion languageVersion = language.getVersion(version);
+        if (languageVersion == null) {
+            throw new IOException("Unknown version '" + version + "' of " + language.getName());
+        }
+        return languageVersion;
+    }
+
+    private static List<Pattern> readPatterns(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<Pattern> patterns = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            patterns.add(Pattern.compile(readString(in)));
+        }
+        return patterns;
+    }
+
+    private static @Nullable String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.document.FileCollector;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.util.IteratorUtil.AbstractIterator;
+
+/**
+ * Dispatches the files streamed by a {@link FileCollector} to one queue
+ * per language, so that the processor of each language can analyze the
+ * first files while the others are still being discovered. Files are
+ * only referenced until a processor takes them.
+ *
+ * <p>The queues are bounded: discovery waits while the queue of a file
+ * is full, so the processors of all languages must take their files
+ * concurrently, or be {@linkplain #close(Language) closed}.
+ */
+final class LanguageFileQueues implements Consumer<TextFile> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LanguageFileQueues.class);
+
+    /** Marks the end of a queue. */
+    private static final Object END = new Object();
+
+    private static final int CAPACITY = 1024;
+
+    private final Map<Language, FileQueue> queues = new HashMap<>();
+
+    LanguageFileQueues(Iterable<Language> languages) {
+        for (Language language : languages) {
+            queues.put(language, new FileQueue());
+        }
+    }
+
+    /**
+     * Adds a file to the queue of its language, waiting while the queue
+     * is full. This may be called concurrently.
+     */
+    @Override
+    public void accept(TextFile file) {
+        FileQueue queue = queues.get(file.getLanguageVersion().getLanguage());
+        if (queue == null) {
+            LOG.trace("Skipping {}, no processor for its language", file.getFileId());
+        } else {
+            queue.put(file);
+        }
+    }
+
+    /**
+     * Signals that all files have been discovered.
+     */
+    void finish() {
+        for (FileQueue queue : queues.values()) {
+            queue.put(END);
+        }
+    }
+
+    /**
+     * Drops the files of the given language, and the ones discovered
+     * later. This is called once the processor of the language does not
+     * take files anymore, so that discovery does not wait for it.
+     */
+    void close(Language language) {
+        FileQueue queue = queues.get(language);
+        if (queue != null) {
+            queue.closed = true;
+            queue.elements.clear();
+        }
+    }
+
+    /**
+     * Returns the files of the given language. The iterable can only be
+     * iterated once. Its iterator blocks until a file is available, or
+     * {@link #finish()} has been called.
+     */
+    Iterable<TextFile> filesOf(Language language) {
+        FileQueue fileQueue = queues.get(language);
+        if (fileQueue == null) {
+            throw new IllegalArgumentException("No queue for language " + language);
+        }
+        BlockingQueue<Object> queue = fileQueue.elements;
+        return () -> new AbstractIterator<TextFile>() {
+            @Override
+            protected void computeNext() {
+                Object next;
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    done();
+                    return;
+                }
+                if (next == END) { // NOPMD CompareObjectsWithEquals
+                    // leave the marker for later iterators
+                    queue.add(END);
+                    done();
+                } else {
+                    setNext((TextFile) next);
+                }
+            }
+        };
+    }
+
+    private static final class FileQueue {
+
+        private final BlockingQueue<Object> elements = new ArrayBlockingQueue<>(CAPACITY);
+        private volatile boolean closed;
+
+        void put(Object element) {
+            try {
+                boolean added = false;
+                // wait while the processor is busy, unless it is closed
+                while (!added && !closed) {
+                    added = elements.offer(element, 100, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
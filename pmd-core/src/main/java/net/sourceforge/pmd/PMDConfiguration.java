@@ -10,6 +10,7 @@ import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -89,6 +90,10 @@ import net.sourceforge.pmd.util.log.internal.SimpleMessageReporter;
  * <ul>
  * <li>Use {@link #setThreads(int)} to control the parallelism of the analysis. Defaults
  * one thread per available processor. {@link #getThreads()}</li>
+ * <li>Use {@link #setHeapBudget(long)} to limit the memory used by the files that are
+ * analysed concurrently. By default there is no limit.</li>
+ * <li>Use {@link #setFileTimeout(Duration)} and {@link #setRuleTimeout(Duration)} to abort
+ * the analysis of files or rules that take too long. By default there is no timeout.</li>
  * </ul>
  */
 public class PMDConfiguration extends AbstractConfiguration {
@@ -96,11 +101,16 @@ public class PMDConfiguration extends AbstractConfiguration {
 
     /** The default suppress marker string. */
     public static final String DEFAULT_SUPPRESS_MARKER = "NOPMD";
+    /** The heap budget that is derived from the maximum heap size, see {@link #setHeapBudget(long)}. */
+    public static final long AUTOMATIC_HEAP_BUDGET = -1;
     private Path reportFile;
 
     // General behavior options
     private String suppressMarker = DEFAULT_SUPPRESS_MARKER;
     private int threads = Runtime.getRuntime().availableProcessors();
+    private long heapBudget;
+    private Duration fileTimeout = Duration.ZERO;
+    private Duration ruleTimeout = Duration.ZERO;
     private ClassLoader classLoader = getClass().getClassLoader();
 
     // Rule and source file options
@@ -117,6 +127,12 @@ public class PMDConfiguration extends AbstractConfiguration {
     private AnalysisCache analysisCache = new NoopAnalysisCache();
     private boolean ignoreIncrementalAnalysis;
 
+    // Changed files options
+    private String diffBase;
+    private Path diffFile;
+    private Path diffWorkingDir;
+    private boolean reportOnlyChangedLines;
+
     public PMDConfiguration() {
         this(DEFAULT_REGISTRY);
     }
@@ -165,6 +181,104 @@ public class PMDConfiguration extends AbstractConfiguration {
         this.threads = threads;
     }
 
+    /**
+     * Returns the heap budget in bytes, see {@link #setHeapBudget(long)}.
+     *
+     * @return The heap budget
+     */
+    public long getHeapBudget() {
+        return heapBudget;
+    }
+
+    /**
+     * Set the memory in bytes that the files analysed concurrently may use.
+     * The memory used by a file is estimated from its size, and from the
+     * files of the same language that were already analysed. A thread waits
+     * before analysing a file if the file doesn't fit into the remaining
+     * budget, which prevents several large files from being analysed at
+     * the same time. A file is always analysed if no other file is being
+     * analysed. The time threads waited is reported in the
+     * {@linkplain net.sourceforge.pmd.benchmark.TimingReport timing report}.
+     *
+     * <p>The default, zero, disables the limit. {@link #AUTOMATIC_HEAP_BUDGET}
+     * sets it to half of the maximum heap size of the JVM.
+     *
+     * @param heapBudget The heap budget in bytes, zero, or {@link #AUTOMATIC_HEAP_BUDGET}
+     *
+     * @throws IllegalArgumentException If the budget is negative and not {@link #AUTOMATIC_HEAP_BUDGET}
+     */
+    public void setHeapBudget(long heapBudget) {
+        if (heapBudget < 0 && heapBudget != AUTOMATIC_HEAP_BUDGET) {
+            throw new IllegalArgumentException("Negative heap budget: " + heapBudget);
+        }
+        this.heapBudget = heapBudget;
+    }
+
+    /**
+     * Returns the maximum time the analysis of a single file may take,
+     * see {@link #setFileTimeout(Duration)}.
+     *
+     * @return The timeout, zero if there is none
+     */
+    public Duration getFileTimeout() {
+        return fileTimeout;
+    }
+
+    /**
+     * Set the maximum time the analysis of a single file may take. When
+     * it is exceeded, the thread analysing the file is interrupted, the
+     * analysis of the file is aborted, and a processing error naming the
+     * phase that took too long (e.g. parsing) is reported. Parsers and
+     * rules abort when they notice the interruption. If the thread doesn't
+     * abort within another timeout period, PMD stops waiting for it,
+     * so that the analysis still completes. This needs multithreaded
+     * processing, see {@link #setThreads(int)}.
+     *
+     * @param fileTimeout The timeout, zero to disable it
+     *
+     * @throws IllegalArgumentException If the timeout is negative
+     */
+    public void setFileTimeout(Duration fileTimeout) {
+        this.fileTimeout = checkTimeout(fileTimeout);
+    }
+
+    /**
+     * Returns the maximum time a single rule may spend on a file,
+     * see {@link #setRuleTimeout(Duration)}.
+     *
+     * @return The timeout, zero if there is none
+     */
+    public Duration getRuleTimeout() {
+        return ruleTimeout;
+    }
+
+    /**
+     * Set the maximum time a single rule may spend on a file. When it is
+     * exceeded, the rule is not applied on the rest of the file, and a
+     * processing error naming the rule is reported. The other rules are
+     * still applied. The time is checked each time the rule is done with
+     * a node, so a rule that is stuck on a single node is only
+     * stopped by the {@linkplain #setFileTimeout(Duration) file timeout}.
+     * This is also the case with the experimental node-major dispatch
+     * (see {@code pmd.node_major_dispatch}), where the time of a rule
+     * is the sum of its calls on the nodes of the file.
+     *
+     * @param ruleTimeout The timeout, zero to disable it
+     *
+     * @throws IllegalArgumentException If the timeout is negative
+     */
+    public void setRuleTimeout(Duration ruleTimeout) {
+        this.ruleTimeout = checkTimeout(ruleTimeout);
+    }
+
+    private static Duration checkTimeout(Duration timeout) {
+        Objects.requireNonNull(timeout, "Timeout was null");
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("Negative timeout: " + timeout);
+        }
+        return timeout;
+    }
+
     /**
      * Get the ClassLoader being used by PMD when processing Rules.
      *
@@ -576,4 +690,90 @@ public class PMDConfiguration extends AbstractConfiguration {
     public void setReportFile(Path reportFile) {
         this.reportFile = reportFile;
     }
+
+    /**
+     * Returns the git revision against which changes are computed, if any.
+     *
+     * @see #setDiffBase(String)
+     */
+    public @Nullable String getDiffBase() {
+        return diffBase;
+    }
+
+    /**
+     * Only analyze the files that were changed or added since the given
+     * git revision. The changes are computed by running {@code git diff}
+     * in the {@linkplain #setDiffWorkingDir(Path) diff working directory}, between the revision and the working tree.
+     * Files that are not part of the diff are removed from the collected
+     * files. This is ignored if a {@linkplain #setDiffFile(Path) diff file}
+     * is set.
+     *
+     * @param diffBase A git revision, e.g. a branch name, or null
+     */
+    public void setDiffBase(@Nullable String diffBase) {
+        this.diffBase = diffBase;
+    }
+
+    /**
+     * Returns the file containing a unified diff of the changes to analyze, if any.
+     *
+     * @see #setDiffFile(Path)
+     */
+    public @Nullable Path getDiffFile() {
+        return diffFile;
+    }
+
+    /**
+     * Only analyze the files that were changed or added according to
+     * the given unified diff, e.g. the output of {@code git diff}. Paths
+     * in the diff are resolved against the root of the git repository
+     * containing the {@linkplain #setDiffWorkingDir(Path) diff working directory},
+     * like git does, or against that directory if it is not in a git repository.
+     *
+     * @param diffFile Path to a diff file, or null
+     */
+    public void setDiffFile(@Nullable Path diffFile) {
+        this.diffFile = diffFile;
+    }
+
+    /**
+     * Returns the directory in which the changes are computed. This is
+     * the current directory unless {@linkplain #setDiffWorkingDir(Path) set}.
+     */
+    public @NonNull Path getDiffWorkingDir() {
+        return diffWorkingDir != null ? diffWorkingDir : Paths.get("").toAbsolutePath();
+    }
+
+    /**
+     * Sets the directory in which {@code git diff} is run for the
+     * {@linkplain #setDiffBase(String) diff base}, and from which the
+     * repository root is looked up to resolve the paths of the
+     * {@linkplain #setDiffFile(Path) diff file}.
+     *
+     * @param diffWorkingDir A directory, or null to use the current directory
+     */
+    public void setDiffWorkingDir(@Nullable Path diffWorkingDir) {
+        this.diffWorkingDir = diffWorkingDir == null ? null : diffWorkingDir.toAbsolutePath();
+    }
+
+    /**
+     * Returns whether violations that are not on a changed line are dropped.
+     *
+     * @see #setReportOnlyChangedLines(boolean)
+     */
+    public boolean isReportOnlyChangedLines() {
+        return reportOnlyChangedLines;
+    }
+
+    /**
+     * Sets whether violations that do not overlap a line changed in the
+     * diff are dropped from the report. This only has an effect if a
+     * {@linkplain #setDiffBase(String) diff base} or a {@linkplain #setDiffFile(Path) diff file}
+     * is set. The analysis cache still records all violations.
+     *
+     * @param reportOnlyChangedLines Whether to only report violations on changed lines
+     */
+    public void setReportOnlyChangedLines(boolean reportOnlyChangedLines) {
+        this.reportOnlyChangedLines = reportOnlyChangedLines;
+    }
 }
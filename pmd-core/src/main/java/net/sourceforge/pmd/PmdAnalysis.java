@@ -6,28 +6,35 @@ package net.sourceforge.pmd;
 
 import static net.sourceforge.pmd.util.CollectionUtil.listOf;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.event.Level;
 
 import net.sourceforge.pmd.Report.GlobalReportBuilderListener;
+import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.benchmark.TimeTracker;
 import net.sourceforge.pmd.benchmark.TimedOperation;
 import net.sourceforge.pmd.benchmark.TimedOperationCategory;
 import net.sourceforge.pmd.cache.AnalysisCacheListener;
 import net.sourceforge.pmd.cache.NoopAnalysisCache;
 import net.sourceforge.pmd.internal.LogMessages;
+import net.sourceforge.pmd.internal.util.ChangedLines;
 import net.sourceforge.pmd.internal.util.ClasspathClassLoader;
 import net.sourceforge.pmd.internal.util.FileCollectionUtil;
 import net.sourceforge.pmd.internal.util.IOUtil;
@@ -42,6 +49,8 @@ import net.sourceforge.pmd.lang.LanguageVersion;
 import net.sourceforge.pmd.lang.LanguageVersionDiscoverer;
 import net.sourceforge.pmd.lang.document.FileCollector;
 import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.impl.AnalysisWatchdog;
+import net.sourceforge.pmd.lang.impl.HeapAdmissionController;
 import net.sourceforge.pmd.renderers.Renderer;
 import net.sourceforge.pmd.reporting.ConfigurableFileNameRenderer;
 import net.sourceforge.pmd.reporting.FileAnalysisListener;
@@ -141,6 +150,8 @@ public final class PmdAnalysis implements AutoCloseable {
     private final Map<Language, LanguagePropertyBundle> langProperties = new HashMap<>();
     private boolean closed;
     private final ConfigurableFileNameRenderer fileNameRenderer = new ConfigurableFileNameRenderer();
+    private @Nullable LanguageProcessorRegistry sharedProcessors;
+    private @Nullable ChangedLines changedLines;
 
     /**
      * Constructs a new instance. The files paths (input files, filelist,
@@ -155,7 +166,8 @@ public final class PmdAnalysis implements AutoCloseable {
             config.getLanguageVersionDiscoverer(),
             reporter
         );
-
+        // directories are explored while the analysis runs
+        this.collector.setDeferDirectories(true);
     }
 
     /**
@@ -166,6 +178,9 @@ public final class PmdAnalysis implements AutoCloseable {
      * exclude list, etc) are explored and the files to analyse are
      * collected into the file collector ({@link #files()}).
      * More can be added programmatically using the file collector.
+     * Directories are only explored when the analysis starts, so that
+     * their first files are analysed while the rest are being found
+     * (see {@link FileCollector#setDeferDirectories(boolean)}).
      * <li>The rulesets given in the configuration are loaded ({@link PMDConfiguration#getRuleSets()})
      * <li>A renderer corresponding to the parameters of the configuration
      * is created and added (but not started).
@@ -180,6 +195,15 @@ public final class PmdAnalysis implements AutoCloseable {
         // So the files should not be pruned in advance
         FileCollectionUtil.collectFiles(config, pmd.files());
 
+        try {
+            pmd.changedLines = ChangedLines.fromConfiguration(config);
+        } catch (IOException | IllegalArgumentException e) {
+            pmd.reporter.errorEx("Cannot determine the changed files, analyzing all files", e);
+        }
+        if (pmd.changedLines != null) {
+            pmd.files().filterFiles(pmd.changedLines::isChanged);
+        }
+
         if (config.getReportFormat() != null) {
             Renderer renderer = config.createRenderer(true);
             pmd.addRenderer(renderer);
@@ -248,6 +272,68 @@ public final class PmdAnalysis implements AutoCloseable {
         return RuleSetLoader.fromPmdConfig(configuration);
     }
 
+    /**
+     * Start new language processors for the languages this analysis
+     * applies to, using the language properties of this instance.
+     * The caller is responsible for closing the returned registry.
+     */
+    @InternalApi
+    public LanguageProcessorRegistry createLanguageProcessors() {
+        // only start the applicable languages (and dependencies)
+        return createLanguageProcessors(getApplicableLanguages(true));
+    }
+
+    /**
+     * Start processors only for the applicable languages that have files
+     * to analyze, and their dependencies. Starting a processor loads the
+     * parser of its language, which is costly for a language that has no
+     * file, eg when analyzing a single file.
+     */
+    private LanguageProcessorRegistry createLanguageProcessors(List<TextFile> textFiles) {
+        Set<Language> languages = new HashSet<>();
+        for (TextFile file : textFiles) {
+            languages.add(file.getLanguageVersion().getLanguage());
+        }
+        languages.retainAll(getApplicableLanguages(true));
+        addDependencies(languages);
+        return createLanguageProcessors(languages);
+    }
+
+    /**
+     * Registers processors for all applicable languages, but only starts
+     * them once they are used, eg when the first file of their language
+     * is discovered.
+     */
+    private LanguageProcessorRegistry createLanguageProcessorsLazily() {
+        Set<Language> languages = getApplicableLanguages(true);
+        LOG.debug("Registering language processors for {}, they start with their first file", languages);
+        return LanguageProcessorRegistry.createLazily(new LanguageRegistry(languages), langProperties, reporter);
+    }
+
+    private LanguageProcessorRegistry createLanguageProcessors(Set<Language> languages) {
+        LOG.debug("Starting language processors for {}", languages);
+        try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.START_LANGUAGE_PROCESSORS)) {
+            return LanguageProcessorRegistry.create(
+                new LanguageRegistry(languages),
+                langProperties,
+                reporter
+            );
+        }
+    }
+
+    /**
+     * Run the analysis with the given language processors, instead of
+     * starting new ones. The processors are not closed at the end of
+     * the analysis, so that they and their caches can be reused by later
+     * analyses (see {@link #createLanguageProcessors()}). For the same
+     * reason, the class loader of the configuration is not closed by
+     * {@link #close()}, as it is in use by the processors.
+     */
+    @InternalApi
+    public void useLanguageProcessors(LanguageProcessorRegistry processors) {
+        this.sharedProcessors = Objects.requireNonNull(processors);
+    }
+
     /**
      * Add a new renderer. The given renderer must not already be started,
      * it will be started by {@link #performAnalysis()}.
@@ -367,11 +453,34 @@ public final class PmdAnalysis implements AutoCloseable {
     void performAnalysisImpl(List<? extends GlobalReportBuilderListener> extraListeners) {
         try (FileCollector files = collector) {
             files.filterLanguages(getApplicableLanguages(false));
-            performAnalysisImpl(extraListeners, files.getCollectedFiles());
+            if (files.hasPendingDirectories() && configuration.getThreads() > 0) {
+                // analyze the first files while directories are explored.
+                // Files are analyzed in the order they are discovered,
+                // which is not deterministic, but with several threads
+                // the order of the reported files was not deterministic
+                // anyway. A single thread analyzes the files sorted by id.
+                performAnalysisImpl(extraListeners, Collections.emptyList(), files);
+            } else {
+                performAnalysisImpl(extraListeners, files.getCollectedFiles());
+            }
+        }
+        if (changedLines != null && changedLines.getChangedFileCount() > 0 && !changedLines.hasMatchedAnyFile()) {
+            reporter.warn("None of the {0} files changed according to the diff is part of the analysis",
+                          changedLines.getChangedFileCount());
         }
     }
 
     void performAnalysisImpl(List<? extends GlobalReportBuilderListener> extraListeners, List<TextFile> textFiles) {
+        performAnalysisImpl(extraListeners, textFiles, null);
+    }
+
+    /**
+     * Runs the analysis on the given files, or if the collector is
+     * not null, on the files it streams. In that case the list is empty.
+     */
+    private void performAnalysisImpl(List<? extends GlobalReportBuilderListener> extraListeners,
+                                     List<TextFile> textFiles,
+                                     @Nullable FileCollector streamedFiles) {
         RuleSets rulesets = new RuleSets(this.ruleSets);
 
         GlobalAnalysisListener listener;
@@ -381,14 +490,19 @@ public final class PmdAnalysis implements AutoCloseable {
                                                                             rulesets,
                                                                             configuration.getClassLoader(),
                                                                             textFiles);
-            listener = GlobalAnalysisListener.tee(listOf(createComposedRendererListener(renderers),
-                                                         GlobalAnalysisListener.tee(listeners),
-                                                         GlobalAnalysisListener.tee(extraListeners),
-                                                         cacheListener));
+            GlobalAnalysisListener reportListener = GlobalAnalysisListener.tee(listOf(createComposedRendererListener(renderers),
+                                                                                      GlobalAnalysisListener.tee(listeners),
+                                                                                      GlobalAnalysisListener.tee(extraListeners)));
+            if (changedLines != null && configuration.isReportOnlyChangedLines()) {
+                // the cache still sees all violations
+                reportListener = changedLines.filterViolations(reportListener);
+            }
+            listener = GlobalAnalysisListener.tee(listOf(reportListener, cacheListener));
             
             // Initialize listeners
             try (ListenerInitializer initializer = listener.initializer()) {
-                initializer.setNumberOfFilesToAnalyze(textFiles.size());
+                // the number of streamed files is not known in advance
+                initializer.setNumberOfFilesToAnalyze(streamedFiles != null ? -1 : textFiles.size());
                 initializer.setFileNameRenderer(fileNameRenderer());
             }
         } catch (Exception e) {
@@ -407,12 +521,18 @@ public final class PmdAnalysis implements AutoCloseable {
 
             encourageToUseIncrementalAnalysis(configuration);
 
-            try (LanguageProcessorRegistry lpRegistry = LanguageProcessorRegistry.create(
-                // only start the applicable languages (and dependencies)
-                new LanguageRegistry(getApplicableLanguages(true)),
-                langProperties,
-                reporter
-            )) {
+            @SuppressWarnings("PMD.CloseResource")
+            LanguageProcessorRegistry lpRegistry;
+            if (sharedProcessors != null) {
+                lpRegistry = sharedProcessors;
+            } else if (streamedFiles != null) {
+                // the languages of the files are not known yet, the
+                // processor of a language starts with its first file
+                lpRegistry = createLanguageProcessorsLazily();
+            } else {
+                lpRegistry = createLanguageProcessors(textFiles);
+            }
+            try (AnalysisWatchdog watchdog = createWatchdog()) {
                 // Note the analysis task is shared: all processors see
                 // the same file list, which may contain files for other
                 // languages.
@@ -423,23 +543,32 @@ public final class PmdAnalysis implements AutoCloseable {
                     configuration.getThreads(),
                     configuration.getAnalysisCache(),
                     reporter,
-                    lpRegistry
+                    lpRegistry,
+                    createHeapAdmission(),
+                    watchdog
                 );
 
-                List<AutoCloseable> analyses = new ArrayList<>();
-                try {
-                    for (Language lang : lpRegistry.getLanguages()) {
-                        analyses.add(lpRegistry.getProcessor(lang).launchAnalysis(analysisTask));
-                    }
-                } finally {
-                    Exception e = IOUtil.closeAll(analyses);
-                    if (e != null) {
-                        reporter.errorEx("Error while joining analysis", e);
+                if (streamedFiles == null && configuration.getThreads() > 0) {
+                    launchAnalysesConcurrently(lpRegistry, lang -> launchAnalyses(
+                        lpRegistry, listOf(lang), l -> taskForLanguage(analysisTask, l, textFiles)));
+                } else if (streamedFiles == null) {
+                    launchAnalyses(lpRegistry, lang -> taskForLanguage(analysisTask, lang, textFiles));
+                } else {
+                    // each processor gets a task with its own queue of files
+                    LanguageFileQueues queues = new LanguageFileQueues(lpRegistry.getLanguages());
+                    Thread discovery = new Thread(() -> streamFiles(streamedFiles, queues), "PmdFileDiscovery");
+                    discovery.start();
+                    try {
+                        launchStreamedAnalyses(lpRegistry, analysisTask, queues);
+                    } finally {
+                        joinThread(discovery);
                     }
                 }
 
-            } catch (LanguageTerminationException e) {
-                reporter.errorEx("Error while closing language processors", e);
+            } finally {
+                if (sharedProcessors == null) {
+                    closeProcessors(lpRegistry);
+                }
             }
         } finally {
             try {
@@ -453,6 +582,147 @@ public final class PmdAnalysis implements AutoCloseable {
     }
 
 
+    private HeapAdmissionController createHeapAdmission() {
+        long budget = configuration.getHeapBudget();
+        if (budget == PMDConfiguration.AUTOMATIC_HEAP_BUDGET) {
+            long maxMemory = Runtime.getRuntime().maxMemory();
+            // maxMemory is Long.MAX_VALUE if the heap is not limited
+            budget = maxMemory == Long.MAX_VALUE ? 0 : maxMemory / 2;
+        }
+        if (budget > 0) {
+            LOG.debug("Limiting the estimated memory of files analysed concurrently to {} MB", budget / (1024 * 1024));
+        }
+        return HeapAdmissionController.withBudget(budget);
+    }
+
+    private AnalysisWatchdog createWatchdog() {
+        long fileTimeout = configuration.getFileTimeout().toMillis();
+        long ruleTimeout = configuration.getRuleTimeout().toMillis();
+        if (fileTimeout > 0 && configuration.getThreads() == 0) {
+            LOG.debug("Files that don't react to the file timeout cannot be abandoned without multithreaded processing");
+        }
+        return AnalysisWatchdog.withTimeouts(fileTimeout, ruleTimeout);
+    }
+
+    private void launchAnalyses(LanguageProcessorRegistry lpRegistry, Function<Language, AnalysisTask> taskForLanguage) {
+        launchAnalyses(lpRegistry, lpRegistry.getLanguages(), taskForLanguage);
+    }
+
+    private void launchAnalyses(LanguageProcessorRegistry lpRegistry,
+                                Iterable<Language> languages,
+                                Function<Language, AnalysisTask> taskForLanguage) {
+        List<AutoCloseable> analyses = new ArrayList<>();
+        try {
+            for (Language lang : languages) {
+                analyses.add(lpRegistry.getProcessor(lang).launchAnalysis(taskForLanguage.apply(lang)));
+            }
+        } finally {
+            Exception e = IOUtil.closeAll(analyses);
+            if (e != null) {
+                reporter.errorEx("Error while joining analysis", e);
+            }
+        }
+    }
+
+    private void streamFiles(FileCollector files, LanguageFileQueues queues) {
+        TimeTracker.initThread();
+        try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.COLLECT_FILES)) {
+            files.streamFiles(queues);
+        } catch (RuntimeException e) {
+            reporter.errorEx("Error while collecting files", e);
+        } finally {
+            // otherwise the processors would wait forever
+            queues.finish();
+            TimeTracker.finishThread();
+        }
+    }
+
+    /**
+     * Launches the analysis of each language on its own thread, with
+     * the files of its queue. The queues are bounded, so that discovery
+     * cannot get ahead of the analysis. The analysis of a language, and
+     * so its processor, only starts once its first file is discovered.
+     */
+    private void launchStreamedAnalyses(LanguageProcessorRegistry lpRegistry, AnalysisTask analysisTask, LanguageFileQueues queues) {
+        launchAnalysesConcurrently(lpRegistry, lang -> {
+            try {
+                // the queue can only be iterated once
+                Iterator<TextFile> files = queues.filesOf(lang).iterator();
+                if (files.hasNext()) {
+                    try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.START_LANGUAGE_PROCESSORS)) {
+                        lpRegistry.getProcessor(lang);
+                    }
+                    launchAnalyses(lpRegistry, listOf(lang), l -> taskForLanguage(analysisTask, l, () -> files));
+                } else {
+                    LOG.debug("No {} file found, its analysis is not launched", lang.getId());
+                }
+            } finally {
+                // otherwise discovery would wait for this language
+                queues.close(lang);
+            }
+        });
+    }
+
+    /**
+     * Runs the given analysis for each language on its own thread. The
+     * processor of a language only returns once it has submitted all
+     * of its files, and it waits while its executor queue is full, so
+     * languages launched one after the other would be analysed one
+     * after the other.
+     */
+    private void launchAnalysesConcurrently(LanguageProcessorRegistry lpRegistry, Consumer<Language> analysis) {
+        List<Thread> threads = new ArrayList<>();
+        for (Language lang : lpRegistry.getLanguages()) {
+            Thread thread = new Thread(() -> {
+                try {
+                    analysis.accept(lang);
+                } catch (RuntimeException e) {
+                    reporter.errorEx("Error while analyzing " + lang.getName() + " files", e);
+                }
+            }, "PmdAnalysis-" + lang.getId());
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            joinThread(thread);
+        }
+    }
+
+    /**
+     * Returns a task for the files of the given language. It has its
+     * own rulesets, with the rules of the language only, because the
+     * processors of the languages initialize their rules concurrently.
+     */
+    private static AnalysisTask taskForLanguage(AnalysisTask task, Language language, Iterable<TextFile> files) {
+        return new AnalysisTask(
+            task.getRulesets().filterByLanguage(language),
+            files,
+            task.getListener(),
+            task.getThreadCount(),
+            task.getAnalysisCache(),
+            task.getMessageReporter(),
+            task.getLpRegistry(),
+            task.getHeapAdmission(),
+            task.getWatchdog()
+        );
+    }
+
+    private void joinThread(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeProcessors(LanguageProcessorRegistry lpRegistry) {
+        try {
+            lpRegistry.close();
+        } catch (LanguageTerminationException e) {
+            reporter.errorEx("Error while closing language processors", e);
+        }
+    }
+
     private GlobalAnalysisListener createComposedRendererListener(List<Renderer> renderers) throws Exception {
         if (renderers.isEmpty()) {
             return GlobalAnalysisListener.noop();
@@ -496,6 +766,11 @@ public final class PmdAnalysis implements AutoCloseable {
         }
 
         // collect all dependencies, they shouldn't be filtered out
+        addDependencies(languages);
+        return languages;
+    }
+
+    private void addDependencies(Set<Language> languages) {
         LanguageRegistry reg = configuration.getLanguageRegistry();
         boolean changed;
         do {
@@ -514,7 +789,6 @@ public final class PmdAnalysis implements AutoCloseable {
                 }
             }
         } while (changed);
-        return languages;
     }
 
     /**
@@ -554,7 +828,7 @@ public final class PmdAnalysis implements AutoCloseable {
          * Maven + Jacoco provide us with a cloaseable classloader that if closed
          * will throw a ClassNotFoundException.
          */
-        if (configuration.getClassLoader() instanceof ClasspathClassLoader) {
+        if (sharedProcessors == null && configuration.getClassLoader() instanceof ClasspathClassLoader) {
             IOUtil.tryCloseClassLoader(configuration.getClassLoader());
         }
     }
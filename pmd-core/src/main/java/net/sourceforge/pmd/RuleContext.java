@@ -7,9 +7,12 @@ package net.sourceforge.pmd;
 import static net.sourceforge.pmd.util.CollectionUtil.listOf;
 
 import java.text.MessageFormat;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -19,9 +22,11 @@ import net.sourceforge.pmd.Report.SuppressedViolation;
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.LanguageVersionHandler;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.RootNode;
 import net.sourceforge.pmd.lang.document.FileLocation;
 import net.sourceforge.pmd.lang.document.TextRange2d;
 import net.sourceforge.pmd.lang.rule.AbstractRule;
+import net.sourceforge.pmd.lang.rule.AbstractTokenRule;
 import net.sourceforge.pmd.lang.rule.ParametricRuleViolation;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
 import net.sourceforge.pmd.reporting.FileAnalysisListener;
@@ -50,12 +55,18 @@ public final class RuleContext {
 
     private final FileAnalysisListener listener;
     private final Rule rule;
+    // the root of the file, if it was parsed, see addViolationAt
+    private final @Nullable RootNode root;
+    // suppression comments of a file that was not parsed, by line
+    private final Map<Integer, String> suppressionComments;
 
-    private RuleContext(FileAnalysisListener listener, Rule rule) {
+    private RuleContext(FileAnalysisListener listener, Rule rule, @Nullable RootNode root, Map<Integer, String> suppressionComments) {
         Objects.requireNonNull(listener, "Listener was null");
         Objects.requireNonNull(rule, "Rule was null");
         this.listener = listener;
         this.rule = rule;
+        this.root = root;
+        this.suppressionComments = suppressionComments;
     }
 
     /**
@@ -134,15 +145,64 @@ public final class RuleContext {
      */
     public void addViolationWithPosition(Node node, int beginLine, int endLine, String message, Object... formatArgs) {
         Objects.requireNonNull(node, "Node was null");
-        Objects.requireNonNull(message, "Message was null");
-        Objects.requireNonNull(formatArgs, "Format arguments were null, use an empty array");
-
-        LanguageVersionHandler handler = node.getAstInfo().getLanguageProcessor().services();
 
         FileLocation location = node.getReportLocation();
         if (beginLine != -1 && endLine != -1) {
             location = FileLocation.range(location.getFileId(), TextRange2d.range2d(beginLine, 1, endLine, 1));
         }
+        reportViolation(node, location, message, formatArgs);
+    }
+
+    /**
+     * Record a new violation of the contextual rule, at the given location.
+     * This is for violations that are not reported on a node, like those
+     * of {@link AbstractTokenRule}. If the file was parsed, the violation
+     * is suppressed like a violation reported on the root node. Otherwise,
+     * it is only suppressed by a suppression comment on its line, or by
+     * the {@link Rule#VIOLATION_SUPPRESS_REGEX_DESCRIPTOR violationSuppressRegex}
+     * property of the rule. The default violation message ({@link Rule#getMessage()})
+     * is formatted using the given format arguments.
+     *
+     * @param location   Location of the violation
+     * @param formatArgs Format arguments for the message
+     */
+    public void addViolationAt(FileLocation location, Object... formatArgs) {
+        Objects.requireNonNull(location, "Location was null");
+        if (root != null) {
+            reportViolation(root, location, getDefaultMessage(), formatArgs);
+            return;
+        }
+        Objects.requireNonNull(formatArgs, "Format arguments were null, use an empty array");
+
+        final String description = makeMessage(getDefaultMessage(), formatArgs, Collections.emptyMap());
+        final RuleViolation violation = new ParametricRuleViolation(rule, location, description);
+
+        final SuppressedViolation suppressed = suppressWithoutTreeOrNull(violation);
+
+        if (suppressed != null) {
+            listener.onSuppressedRuleViolation(suppressed);
+        } else {
+            listener.onRuleViolation(violation);
+        }
+    }
+
+    private @Nullable SuppressedViolation suppressWithoutTreeOrNull(RuleViolation rv) {
+        String comment = suppressionComments.get(rv.getBeginLine());
+        if (comment != null) {
+            return new SuppressedViolation(rv, ViolationSuppressor.NOPMD_COMMENT_SUPPRESSOR, comment);
+        }
+        Optional<Pattern> regex = rule.getProperty(Rule.VIOLATION_SUPPRESS_REGEX_DESCRIPTOR);
+        if (regex.isPresent() && regex.get().matcher(rv.getDescription()).matches()) {
+            return new SuppressedViolation(rv, ViolationSuppressor.REGEX_SUPPRESSOR, regex.get().pattern());
+        }
+        return null;
+    }
+
+    private void reportViolation(Node node, FileLocation location, String message, Object[] formatArgs) {
+        Objects.requireNonNull(message, "Message was null");
+        Objects.requireNonNull(formatArgs, "Format arguments were null, use an empty array");
+
+        LanguageVersionHandler handler = node.getAstInfo().getLanguageProcessor().services();
 
         final Map<String, String> extraVariables = ViolationDecorator.apply(handler.getViolationDecorator(), node);
         final String description = makeMessage(message, formatArgs, extraVariables);
@@ -223,7 +283,29 @@ public final class RuleContext {
      */
     @InternalApi
     public static RuleContext create(FileAnalysisListener listener, Rule rule) {
-        return new RuleContext(listener, rule);
+        return new RuleContext(listener, rule, null, Collections.emptyMap());
+    }
+
+    /**
+     * Create a new RuleContext for a file that is not parsed. Violations
+     * reported with {@link #addViolationAt(FileLocation, Object...)} are
+     * suppressed by the given suppression comments.
+     *
+     * @param suppressionComments Text of the suppression comments of the file, by line
+     */
+    @InternalApi
+    public static RuleContext createWithoutTree(FileAnalysisListener listener, Rule rule, Map<Integer, String> suppressionComments) {
+        return new RuleContext(listener, rule, null, suppressionComments);
+    }
+
+    /**
+     * Returns a context that reports the violations of {@link #addViolationAt(FileLocation, Object...)}
+     * on the given root node, to suppress them like other violations of
+     * the file.
+     */
+    @InternalApi
+    public RuleContext withRoot(RootNode root) {
+        return new RuleContext(listener, rule, root, suppressionComments);
     }
 
 }
@@ -160,15 +160,28 @@ public final class RuleSetLoader {
     /**
      * Parses and returns a ruleset from its location. The location may
      * be a file system path, or a resource path (see {@link #loadResourcesWith(ClassLoader)}).
+     * If the path has the extension of {@linkplain CompiledRuleSet compiled rulesets},
+     * the ruleset is read without parsing XML.
      *
      * @param rulesetPath A reference to a single ruleset
      *
      * @throws RuleSetLoadException If any error occurs (eg, invalid syntax, or resource not found)
      */
     public RuleSet loadFromResource(String rulesetPath) {
+        if (CompiledRuleSet.isCompiledRuleSet(rulesetPath)) {
+            return loadCompiled(rulesetPath);
+        }
         return loadFromResource(new RuleSetReferenceId(rulesetPath, null, filteredReporter()));
     }
 
+    private RuleSet loadCompiled(String rulesetPath) {
+        try (InputStream inputStream = resourceLoader.loadResourceAsStream(rulesetPath)) {
+            return CompiledRuleSet.read(inputStream, rulesetPath, resourceLoader, languageRegistry, minimumPriority);
+        } catch (IOException | RuntimeException e) {
+            throw new RuleSetLoadException(new RuleSetReferenceId(rulesetPath, null, null), e);
+        }
+    }
+
     /**
      * Parses and returns a ruleset from string content.
      *
@@ -12,14 +12,21 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import net.sourceforge.pmd.RuleSet.RuleSetBuilder;
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.benchmark.TimeTracker;
 import net.sourceforge.pmd.benchmark.TimedOperation;
 import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageProcessor;
 import net.sourceforge.pmd.lang.LanguageProcessorRegistry;
+import net.sourceforge.pmd.lang.LanguageVersion;
 import net.sourceforge.pmd.lang.ast.RootNode;
+import net.sourceforge.pmd.lang.document.TextDocument;
 import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.rule.AbstractTokenRule;
 import net.sourceforge.pmd.lang.rule.internal.RuleApplicator;
+import net.sourceforge.pmd.lang.rule.internal.TokenRules;
 import net.sourceforge.pmd.reporting.FileAnalysisListener;
 import net.sourceforge.pmd.util.log.MessageReporter;
 
@@ -93,6 +100,31 @@ public class RuleSets {
         return ruleSets.toArray(new RuleSet[0]);
     }
 
+    /**
+     * Returns rulesets that only contain the rules of the given language.
+     * The rules are shared with this instance, but not the rulesets, so
+     * that the processors of several languages can initialize their rules
+     * concurrently.
+     */
+    RuleSets filterByLanguage(Language language) {
+        List<RuleSet> filtered = new ArrayList<>(ruleSets.size());
+        for (RuleSet ruleSet : ruleSets) {
+            RuleSetBuilder builder = new RuleSetBuilder(ruleSet.getChecksum())
+                .withName(ruleSet.getName())
+                .withDescription(ruleSet.getDescription())
+                .withFileName(ruleSet.getFileName())
+                .replaceFileExclusions(ruleSet.getFileExclusions())
+                .replaceFileInclusions(ruleSet.getFileInclusions());
+            for (Rule rule : ruleSet.getRules()) {
+                if (rule.getLanguage().equals(language)) {
+                    builder.addRule(rule);
+                }
+            }
+            filtered.add(builder.build());
+        }
+        return new RuleSets(filtered);
+    }
+
     // internal
     List<RuleSet> getRuleSetsInternal() {
         return ruleSets;
@@ -142,6 +174,19 @@ public class RuleSets {
      * @param listener Listener that will handle events while analysing.
      */
     public void apply(RootNode root, FileAnalysisListener listener) {
+        apply(root, listener, 0);
+    }
+
+    /**
+     * Apply all applicable rules to the compilation units, like {@link #apply(RootNode, FileAnalysisListener)}.
+     * A rule that takes longer than the given timeout on the file is
+     * stopped, and a processing error is reported for it.
+     *
+     * @param root              the List of compilation units
+     * @param listener          Listener that will handle events while analysing.
+     * @param ruleTimeoutMillis Maximum time a rule may spend on the file, zero if there is none
+     */
+    public void apply(RootNode root, FileAnalysisListener listener, long ruleTimeoutMillis) {
         if (ruleApplicator == null) {
             // initialize here instead of ctor, because some rules properties
             // are set after creating the ruleset, and jaxen xpath queries
@@ -153,6 +198,7 @@ public class RuleSets {
             ruleApplicator.index(root);
         }
 
+        ruleApplicator.setRuleTimeout(ruleTimeoutMillis);
         for (RuleSet ruleSet : ruleSets) {
             if (ruleSet.applies(root.getTextDocument().getFileId())) {
                 ruleApplicator.apply(ruleSet.getRules(), listener);
@@ -160,6 +206,37 @@ public class RuleSets {
         }
     }
 
+    /**
+     * Applies the rules to the given file without parsing it, if all the
+     * rules that apply to the file are {@link AbstractTokenRule}s. The file
+     * is then only tokenized. Otherwise, this does nothing and returns false,
+     * and the file must be parsed and analysed with {@link #apply(RootNode, FileAnalysisListener, long)}.
+     *
+     * @param document  The file
+     * @param processor Processor of the language of the file
+     * @param listener  Listener that will handle events while analysing.
+     *
+     * @return Whether the rules have been applied
+     */
+    public boolean applyTokenRulesOnly(TextDocument document, LanguageProcessor processor, FileAnalysisListener listener) {
+        LanguageVersion version = document.getLanguageVersion();
+        List<Rule> rules = new ArrayList<>();
+        for (RuleSet ruleSet : ruleSets) {
+            if (ruleSet.applies(document.getFileId())) {
+                for (Rule rule : ruleSet.getRules()) {
+                    if (RuleSet.applies(rule, version)) {
+                        if (!TokenRules.isTokenRule(rule)) {
+                            return false;
+                        }
+                        rules.add(rule);
+                    }
+                }
+            }
+        }
+        // if no rule applies, parse anyway to report parse errors
+        return !rules.isEmpty() && TokenRules.applyWithoutParsing(document, processor, rules, listener);
+    }
+
     /**
      * Returns the first Rule found with the given name.
      *
@@ -144,12 +144,7 @@ public final class TimeTracker {
         final Queue<TimerEntry> queue = TIMER_ENTRIES.get();
         final TimerEntry timerEntry = queue.remove();
 
-        // Compute if absent
-        TimedResult result = ACCUMULATED_RESULTS.get(timerEntry.operation);
-        if (result == null) {
-            ACCUMULATED_RESULTS.putIfAbsent(timerEntry.operation, new TimedResult());
-            result = ACCUMULATED_RESULTS.get(timerEntry.operation);
-        }
+        TimedResult result = getResult(timerEntry.operation);
 
         // Update counters and let next element on the stack ignore the time we spent
         final long delta = result.accumulate(timerEntry, extraDataCounter);
@@ -158,6 +153,51 @@ public final class TimeTracker {
         }
     }
 
+    private static TimedResult getResult(final TimedOperationKey operation) {
+        // Compute if absent
+        TimedResult result = ACCUMULATED_RESULTS.get(operation);
+        if (result == null) {
+            ACCUMULATED_RESULTS.putIfAbsent(operation, new TimedResult());
+            result = ACCUMULATED_RESULTS.get(operation);
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if time is being tracked. This may be used to avoid
+     * measuring time with {@link #recordOperation(TimedOperationCategory, String, long, long)}
+     * when nothing would be recorded.
+     */
+    public static boolean isTrackingTime() {
+        return trackTime;
+    }
+
+    /**
+     * Records an operation whose time was measured by the caller. This is
+     * useful for operations that are interleaved with each other, and
+     * cannot be tracked with {@link #startOperation(TimedOperationCategory, String)}.
+     * The time is accounted as spent in an operation nested in the current
+     * operation.
+     *
+     * @param category         The category under which to track the operation.
+     * @param label            A label to be added to the category.
+     * @param nanos            The time spent in the operation, in nanoseconds
+     * @param extraDataCounter An optional additional data counter to track along the measurements.
+     */
+    public static void recordOperation(final TimedOperationCategory category, final String label,
+                                       final long nanos, final long extraDataCounter) {
+        if (!trackTime) {
+            return;
+        }
+
+        getResult(new TimedOperationKey(category, label)).accumulate(nanos, 0, extraDataCounter);
+
+        final Queue<TimerEntry> queue = TIMER_ENTRIES.get();
+        if (!queue.isEmpty()) {
+            queue.peek().inNestedOperationsNanos += nanos;
+        }
+    }
+
     public static void bench(String label, Runnable runnable) {
         try (TimedOperation ignored = startOperation(TimedOperationCategory.LANGUAGE_SPECIFIC_PROCESSING, label)) {
             runnable.run();
@@ -206,13 +246,15 @@ public final class TimeTracker {
          */
         /* package */ long accumulate(final TimerEntry timerEntry, final long extraData) {
             final long delta = System.nanoTime() - timerEntry.start;
+            accumulate(delta, timerEntry.inNestedOperationsNanos, extraData);
+            return delta;
+        }
 
+        /* package */ void accumulate(final long delta, final long nestedNanos, final long extraData) {
             totalTimeNanos.getAndAdd(delta);
-            selfTimeNanos.getAndAdd(delta - timerEntry.inNestedOperationsNanos);
+            selfTimeNanos.getAndAdd(delta - nestedNanos);
             callCount.getAndIncrement();
             extraDataCounter.getAndAdd(extraData);
-
-            return delta;
         }
 
         /**
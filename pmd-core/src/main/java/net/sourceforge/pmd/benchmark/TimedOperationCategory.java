@@ -18,14 +18,22 @@ import org.apache.commons.lang3.StringUtils;
 public enum TimedOperationCategory {
     /** Rule execution proper. */
     RULE,
+    /** Calls to memoized XPath functions, the counter is the number of memoized results used. */
+    XPATH_FUNCTION,
+    /** Overload resolution of method calls that can be memoized, the counter is the number of results reused from the memo. */
+    OVERLOAD_RESOLUTION,
     COLLECT_FILES,
     LOAD_RULES,
+    /** Creation of the language processors, which loads the language implementations. */
+    START_LANGUAGE_PROCESSORS,
     PARSER,
     /** Subdivided into one label for each stage. */
     LANGUAGE_SPECIFIC_PROCESSING,
     RULE_AST_INDEXATION,
     REPORTING,
     FILE_PROCESSING,
+    /** Time worker threads waited for heap budget before analysing a file, the counter is the number of delayed files. */
+    HEAP_ADMISSION,
     ANALYSIS_CACHE,
     UNACCOUNTED;
 
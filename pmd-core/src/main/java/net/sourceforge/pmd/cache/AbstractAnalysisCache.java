@@ -14,6 +14,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -22,6 +23,7 @@ import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,10 +53,18 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
 
     protected static final Logger LOG = LoggerFactory.getLogger(AbstractAnalysisCache.class);
     protected static final ClasspathFingerprinter FINGERPRINTER = new ClasspathFingerprinter();
+    /**
+     * Files modified less than this before their attributes are read may
+     * be modified again without their modification time changing, as
+     * file systems only record it with a limited precision.
+     */
+    private static final long MODIFICATION_TIME_PRECISION_MILLIS = 2000;
     protected final String pmdVersion;
     protected final ConcurrentMap<FileId, AnalysisResult> fileResultsCache = new ConcurrentHashMap<>();
     protected final ConcurrentMap<FileId, AnalysisResult> updatedResultsCache = new ConcurrentHashMap<>();
     protected final CachedRuleMapper ruleMapper = new CachedRuleMapper();
+    // attributes read by isUpToDateWithoutReading, to be recorded by isUpToDate
+    private final ConcurrentMap<FileId, FileStat> currentStats = new ConcurrentHashMap<>();
     protected long rulesetChecksum;
     protected long auxClassPathChecksum;
     protected long executionClassPathChecksum;
@@ -66,6 +76,29 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
         pmdVersion = PMDVersion.VERSION;
     }
 
+    @Override
+    public boolean isUpToDateWithoutReading(final TextFile file) {
+        try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "up-to-date check")) {
+            final FileStat stat = FileStat.read(file);
+            if (stat == null) {
+                return false;
+            }
+            currentStats.put(file.getFileId(), stat);
+
+            final AnalysisResult cachedResult = fileResultsCache.get(file.getFileId());
+            if (cachedResult != null
+                && cachedResult.getFileSize() == stat.size
+                && cachedResult.getLastModified() == stat.lastModified) {
+                LOG.trace("Incremental Analysis cache HIT - file attributes unchanged");
+
+                // copy results over
+                updatedResultsCache.put(file.getFileId(), cachedResult);
+                return true;
+            }
+            return false;
+        }
+    }
+
     @Override
     public boolean isUpToDate(final TextDocument document) {
         try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "up-to-date check")) {
@@ -76,17 +109,24 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
             final boolean upToDate = cachedResult != null
                 && cachedResult.getFileChecksum() == document.getCheckSum();
 
+            // if known, record the current attributes so that the next
+            // analysis doesn't need to read the file if it doesn't change
+            final FileStat stat = currentStats.remove(document.getFileId());
+            final long fileSize = stat == null ? AnalysisResult.UNKNOWN : stat.size;
+            final long lastModified = stat == null ? AnalysisResult.UNKNOWN : stat.lastModified;
+
             if (upToDate) {
                 LOG.trace("Incremental Analysis cache HIT");
                 
                 // copy results over
-                updatedResult = cachedResult;
+                updatedResult = new AnalysisResult(cachedResult.getFileChecksum(), fileSize, lastModified,
+                                                   cachedResult.getViolations());
             } else {
                 LOG.trace("Incremental Analysis cache MISS - {}",
                           cachedResult != null ? "file changed" : "no previous result found");
                 
                 // New file being analyzed, create new empty entry
-                updatedResult = new AnalysisResult(document.getCheckSum(), new ArrayList<>());
+                updatedResult = new AnalysisResult(document.getCheckSum(), fileSize, lastModified, new ArrayList<>());
             }
 
             updatedResultsCache.put(document.getFileId(), updatedResult);
@@ -97,19 +137,32 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
 
     @Override
     public List<RuleViolation> getCachedViolations(final TextDocument sourceFile) {
-        final AnalysisResult analysisResult = fileResultsCache.get(sourceFile.getFileId());
+        return getCachedViolations(sourceFile.getFileId());
+    }
+
+    @Override
+    public List<RuleViolation> getCachedViolations(final FileId fileId) {
+        final AnalysisResult analysisResult = fileResultsCache.get(fileId);
 
         if (analysisResult == null) {
             // new file, avoid nulls
             return Collections.emptyList();
         }
 
-        return analysisResult.getViolations();
+        // the cached violations may have been loaded with another id for the same file
+        List<RuleViolation> violations = new ArrayList<>(analysisResult.getViolations().size());
+        for (RuleViolation violation : analysisResult.getViolations()) {
+            violations.add(violation instanceof CachedRuleViolation
+                           ? ((CachedRuleViolation) violation).withFileId(fileId)
+                           : violation);
+        }
+        return violations;
     }
 
     @Override
     public void analysisFailed(final TextDocument sourceFile) {
         updatedResultsCache.remove(sourceFile.getFileId());
+        currentStats.remove(sourceFile.getFileId());
     }
 
 
@@ -232,4 +285,41 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
             }
         };
     }
+
+    /**
+     * The size and last modification time of a file.
+     */
+    private static final class FileStat {
+
+        final long size;
+        final long lastModified;
+
+        private FileStat(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Reads the attributes of the file. Returns null if they are not
+         * available, or if the file was modified too recently for them to
+         * be trusted.
+         */
+        static @Nullable FileStat read(TextFile file) {
+            final BasicFileAttributes attrs;
+            try {
+                attrs = file.readAttributes();
+            } catch (IOException e) {
+                LOG.trace("Could not read file attributes of {}", file.getFileId(), e);
+                return null;
+            }
+            if (attrs == null || !attrs.isRegularFile()) {
+                return null;
+            }
+            FileTime lastModified = attrs.lastModifiedTime();
+            if (lastModified.toMillis() > System.currentTimeMillis() - MODIFICATION_TIME_PRECISION_MILLIS) {
+                return null;
+            }
+            return new FileStat(attrs.size(), lastModified.toMillis());
+        }
+    }
 }
@@ -6,11 +6,13 @@ package net.sourceforge.pmd.cache;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.RuleViolation;
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.lang.document.FileId;
 import net.sourceforge.pmd.lang.document.TextDocument;
 import net.sourceforge.pmd.lang.document.TextFile;
 import net.sourceforge.pmd.reporting.FileAnalysisListener;
@@ -43,6 +45,31 @@ public interface AnalysisCache {
      */
     boolean isUpToDate(TextDocument document);
 
+    /**
+     * Checks if a given file is up to date in the cache, only from its
+     * size and last modification time, that is, without reading it. If this
+     * returns true, the file can be skipped from analysis, and its violations
+     * are those returned by {@link #getCachedViolations(FileId)}. Otherwise,
+     * the file must be read and checked with {@link #isUpToDate(TextDocument)},
+     * which compares the checksum of its contents.
+     *
+     * @param file The file to check in the cache
+     * @return True if the cache is a hit, false if the file must be read to know
+     */
+    default boolean isUpToDateWithoutReading(TextFile file) {
+        return false;
+    }
+
+    /**
+     * Retrieves cached violations for the given file. Make sure to call
+     * {@link #isUpToDateWithoutReading(TextFile)} first.
+     * @param fileId The ID of the file
+     * @return The list of cached violations.
+     */
+    default List<RuleViolation> getCachedViolations(FileId fileId) {
+        return Collections.emptyList();
+    }
+
     /**
      * Retrieves cached violations for the given file. Make sure to call {@link #isUpToDate(TextDocument)} first.
      * @param sourceFile The file to check in the cache
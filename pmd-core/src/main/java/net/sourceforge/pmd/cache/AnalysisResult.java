@@ -13,20 +13,34 @@ import net.sourceforge.pmd.annotation.InternalApi;
 /**
  * The result of a single file analysis.
  * Includes a checksum of the file and the complete list of violations detected.
+ * The size and last modification time of the file may also be recorded,
+ * to find out that a file has not changed without reading it.
  * @deprecated This is internal API, will be hidden with 7.0.0
  */
 @Deprecated
 @InternalApi
 public class AnalysisResult {
 
+    /** Value of the file size and modification time when they are unknown. */
+    public static final long UNKNOWN = -1;
+
     private final long fileChecksum;
+    private final long fileSize;
+    private final long lastModified;
     private final List<RuleViolation> violations;
 
-    public AnalysisResult(final long fileChecksum, final List<RuleViolation> violations) {
+    public AnalysisResult(final long fileChecksum, final long fileSize, final long lastModified,
+                          final List<RuleViolation> violations) {
         this.fileChecksum = fileChecksum;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
         this.violations = violations;
     }
 
+    public AnalysisResult(final long fileChecksum, final List<RuleViolation> violations) {
+        this(fileChecksum, UNKNOWN, UNKNOWN, violations);
+    }
+
     public AnalysisResult(final long fileChecksum) {
         this(fileChecksum, new ArrayList<>());
     }
@@ -35,6 +49,16 @@ public class AnalysisResult {
         return fileChecksum;
     }
 
+    /** Returns the size of the file in bytes, or {@link #UNKNOWN}. */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /** Returns the last modification time of the file in milliseconds, or {@link #UNKNOWN}. */
+    public long getLastModified() {
+        return lastModified;
+    }
+
     public List<RuleViolation> getViolations() {
         return violations;
     }
@@ -42,13 +42,12 @@ public final class CachedRuleViolation implements RuleViolation {
     private final FileLocation location;
 
     private CachedRuleViolation(final CachedRuleMapper mapper, final String description,
-                                final FileId fileFileId, final String ruleClassName, final String ruleName,
-                                final String ruleTargetLanguage, final int beginLine, final int beginColumn,
-                                final int endLine, final int endColumn,
+                                final FileLocation location, final String ruleClassName, final String ruleName,
+                                final String ruleTargetLanguage,
                                 final Map<String, String> additionalInfo) {
         this.mapper = mapper;
         this.description = description;
-        this.location = FileLocation.range(fileFileId, TextRange2d.range2d(beginLine, beginColumn, endLine, endColumn));
+        this.location = location;
         this.ruleClassName = ruleClassName;
         this.ruleName = ruleName;
         this.ruleTargetLanguage = ruleTargetLanguage;
@@ -99,8 +98,25 @@ public final class CachedRuleViolation implements RuleViolation {
         int endLine = stream.readInt();
         int endColumn = stream.readInt();
         Map<String, String> additionalInfo = readAdditionalInfo(stream);
-        return new CachedRuleViolation(mapper, description, fileFileId, ruleClassName, ruleName, ruleTargetLanguage,
-                                       beginLine, beginColumn, endLine, endColumn, additionalInfo);
+        TextRange2d range = TextRange2d.range2d(beginLine, beginColumn, endLine, endColumn);
+        FileLocation location = FileLocation.range(fileFileId, range);
+        return new CachedRuleViolation(mapper, description, location, ruleClassName, ruleName, ruleTargetLanguage,
+                                       additionalInfo);
+    }
+
+    /**
+     * Returns this violation, reported on the given file id instead. The
+     * cache only stores the URI of files, so the ids of the violations it
+     * loads do not have the display name of the file in the current analysis.
+     *
+     * @param fileId An id with the same URI as the file of this violation
+     */
+    /* package */ CachedRuleViolation withFileId(FileId fileId) {
+        if (fileId == location.getFileId()) { // NOPMD CompareObjectsWithEquals
+            return this;
+        }
+        return new CachedRuleViolation(mapper, description, FileLocation.range(fileId, location.toRange2d()),
+                                       ruleClassName, ruleName, ruleTargetLanguage, additionalInfo);
     }
 
     private static @NonNull Map<String, String> readAdditionalInfo(DataInputStream stream) throws IOException {
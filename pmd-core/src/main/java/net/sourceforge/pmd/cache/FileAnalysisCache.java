@@ -11,9 +11,12 @@ import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UTFDataFormatException;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -37,6 +40,15 @@ import net.sourceforge.pmd.lang.document.TextFile;
 @InternalApi
 public class FileAnalysisCache extends AbstractAnalysisCache {
 
+    /**
+     * Starts every cache file, so that files written in another format
+     * (eg by an earlier build of the same PMD version) are not misread.
+     * Change {@link #CACHE_FORMAT_VERSION} whenever the layout of the
+     * file changes.
+     */
+    private static final int CACHE_MAGIC = 0x504D4443; // "PMDC"
+    private static final int CACHE_FORMAT_VERSION = 2;
+
     private final File cacheFile;
 
     /**
@@ -71,17 +83,23 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
                     DataInputStream inputStream = new DataInputStream(
                         new BufferedInputStream(Files.newInputStream(cacheFile.toPath())));
                 ) {
+                    if (inputStream.readInt() != CACHE_MAGIC || inputStream.readInt() != CACHE_FORMAT_VERSION) {
+                        LOG.debug("Analysis cache invalidated, cache format changed.");
+                        return;
+                    }
+
                     final String cacheVersion = inputStream.readUTF();
 
                     if (PMDVersion.VERSION.equals(cacheVersion)) {
                         // Cache seems valid, load the rest
 
                         // Get checksums
-                        rulesetChecksum = inputStream.readLong();
-                        auxClassPathChecksum = inputStream.readLong();
-                        executionClassPathChecksum = inputStream.readLong();
+                        final long cachedRulesetChecksum = inputStream.readLong();
+                        final long cachedAuxClassPathChecksum = inputStream.readLong();
+                        final long cachedExecutionClassPathChecksum = inputStream.readLong();
 
-                        // Cached results
+                        // Cached results, only used if the whole file can be read
+                        final Map<FileId, AnalysisResult> results = new HashMap<>();
                         while (inputStream.available() > 0) {
                             final String filePathId = inputStream.readUTF();
                             FileId fileId = idMap.get(filePathId);
@@ -91,21 +109,32 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
                                 fileId = FileId.fromURI(filePathId);
                             }
                             final long checksum = inputStream.readLong();
+                            final long fileSize = inputStream.readLong();
+                            final long lastModified = inputStream.readLong();
 
                             final int countViolations = inputStream.readInt();
+                            if (countViolations < 0 || countViolations > cacheFile.length()) {
+                                throw new StreamCorruptedException("Invalid violation count " + countViolations);
+                            }
                             final List<RuleViolation> violations = new ArrayList<>(countViolations);
                             for (int i = 0; i < countViolations; i++) {
                                 violations.add(CachedRuleViolation.loadFromStream(inputStream, fileId, ruleMapper));
                             }
 
-                            fileResultsCache.put(fileId, new AnalysisResult(checksum, violations));
+                            results.put(fileId, new AnalysisResult(checksum, fileSize, lastModified, violations));
                         }
 
+                        rulesetChecksum = cachedRulesetChecksum;
+                        auxClassPathChecksum = cachedAuxClassPathChecksum;
+                        executionClassPathChecksum = cachedExecutionClassPathChecksum;
+                        fileResultsCache.putAll(results);
+
                         LOG.debug("Analysis cache loaded from {}", cacheFile);
                     } else {
                         LOG.debug("Analysis cache invalidated, PMD version changed.");
                     }
-                } catch (final EOFException e) {
+                } catch (final EOFException | StreamCorruptedException | UTFDataFormatException | RuntimeException e) {
+                    // eg an invalid file id, treat it like a truncated file
                     LOG.warn("Cache file {} is malformed, will not be used for current analysis", cacheFile.getPath());
                 } catch (final IOException e) {
                     LOG.error("Could not load analysis cache from file: {}", e.getMessage());
@@ -138,6 +167,8 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
                 DataOutputStream outputStream = new DataOutputStream(
                     new BufferedOutputStream(Files.newOutputStream(cacheFile.toPath())))
             ) {
+                outputStream.writeInt(CACHE_MAGIC);
+                outputStream.writeInt(CACHE_FORMAT_VERSION);
                 outputStream.writeUTF(pmdVersion);
 
                 outputStream.writeLong(rulesetChecksum);
@@ -149,6 +180,8 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
 
                     outputStream.writeUTF(resultEntry.getKey().getUriString()); // the path id
                     outputStream.writeLong(resultEntry.getValue().getFileChecksum());
+                    outputStream.writeLong(resultEntry.getValue().getFileSize());
+                    outputStream.writeLong(resultEntry.getValue().getLastModified());
 
                     outputStream.writeInt(violations.size());
                     for (final RuleViolation rv : violations) {
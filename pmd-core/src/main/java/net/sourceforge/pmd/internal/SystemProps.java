@@ -7,6 +7,7 @@ package net.sourceforge.pmd.internal;
 public final class SystemProps {
 
     public static final String PMD_ERROR_RECOVERY = "pmd.error_recovery";
+    public static final String PMD_NODE_MAJOR_DISPATCH = "pmd.node_major_dispatch";
 
     private SystemProps() {
     }
@@ -25,4 +26,17 @@ public final class SystemProps {
     public static boolean isErrorRecoveryMode() {
         return System.getProperty(PMD_ERROR_RECOVERY) != null;
     }
+
+    /**
+     * By default, rules are applied in rule-major order: each rule is
+     * applied to all its target nodes in turn. In node-major order, nodes
+     * are visited once in document order, and each node is handed to all
+     * the rules that target it. This is experimental: violations are the
+     * same, but they are reported in a different order.
+     * <p>
+     * The System Property is called {@code pmd.node_major_dispatch}.
+     */
+    public static boolean isNodeMajorDispatch() {
+        return System.getProperty(PMD_NODE_MAJOR_DISPATCH) != null;
+    }
 }
@@ -0,0 +1,405 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.internal.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.Report.ConfigurationError;
+import net.sourceforge.pmd.Report.ProcessingError;
+import net.sourceforge.pmd.Report.SuppressedViolation;
+import net.sourceforge.pmd.RuleViolation;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.reporting.FileAnalysisListener;
+import net.sourceforge.pmd.reporting.GlobalAnalysisListener;
+import net.sourceforge.pmd.reporting.ListenerInitializer;
+
+/**
+ * The files and lines that were changed according to a unified diff,
+ * as output by {@code git diff}. This is used to only analyze the files
+ * changed since a revision (see {@link PMDConfiguration#setDiffBase(String)}),
+ * and optionally to only report the violations on changed lines.
+ *
+ * <p>Lines are numbered as in the new version of the files. Lines that
+ * surround a deletion are considered changed. Deleted files are not
+ * recorded.
+ */
+public final class ChangedLines {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangedLines.class);
+
+    private static final Pattern HUNK_HEADER = Pattern.compile("@@ -\\d+(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@.*");
+    private static final String NEW_FILE_PREFIX = "+++ ";
+    private static final String DEV_NULL = "/dev/null";
+
+    private final Map<Path, BitSet> linesByFile;
+    private volatile boolean matchedAnyFile;
+
+    private ChangedLines(Map<Path, BitSet> linesByFile) {
+        this.linesByFile = linesByFile;
+    }
+
+    /**
+     * Reads the changes of the configuration, either from its
+     * {@linkplain PMDConfiguration#getDiffFile() diff file}, or by
+     * running {@code git diff} against its {@linkplain PMDConfiguration#getDiffBase() diff base}
+     * in its {@linkplain PMDConfiguration#getDiffWorkingDir() diff working directory}.
+     * Paths of the diff file are resolved against the root of the git
+     * repository containing that directory, or against that directory if
+     * it is not in a git repository.
+     * Returns null if neither is set.
+     *
+     * @throws IOException If the diff cannot be read, git fails, or none of
+     *                     the files named in the diff exists
+     */
+    public static @Nullable ChangedLines fromConfiguration(PMDConfiguration configuration) throws IOException {
+        Path workDir = configuration.getDiffWorkingDir();
+        ChangedLines changes;
+        if (configuration.getDiffFile() != null) {
+            Path baseDir = findRepoRoot(workDir);
+            try (Reader reader = Files.newBufferedReader(configuration.getDiffFile(), StandardCharsets.UTF_8)) {
+                changes = parse(reader, baseDir);
+            }
+            changes.checkFilesExist(baseDir);
+        } else if (configuration.getDiffBase() != null) {
+            changes = fromGitDiff(workDir, configuration.getDiffBase());
+        } else {
+            return null;
+        }
+        LOG.debug("{} files changed according to the diff", changes.linesByFile.size());
+        return changes;
+    }
+
+    private static Path findRepoRoot(Path dir) {
+        for (Path candidate = dir; candidate != null; candidate = candidate.getParent()) {
+            // .git is a file in worktrees and submodules
+            if (Files.exists(candidate.resolve(".git"))) {
+                return candidate;
+            }
+        }
+        LOG.debug("{} is not inside a git repository, resolving the paths of the diff against it", dir);
+        return dir;
+    }
+
+    private void checkFilesExist(Path baseDir) throws IOException {
+        // deleted files are not recorded, so this means paths are resolved against the wrong directory
+        if (!linesByFile.isEmpty() && linesByFile.keySet().stream().noneMatch(Files::exists)) {
+            throw new IOException("None of the " + linesByFile.size() + " files named in the diff exist under "
+                                      + baseDir + ", paths must be relative to the root of the repository");
+        }
+    }
+
+    /**
+     * Runs {@code git diff} between the given revision and the working
+     * tree of the git repository that contains the given directory.
+     *
+     * @param workDir  Directory inside of a git repository
+     * @param revision Revision to compare the working tree with
+     *
+     * @throws IOException If git cannot be run, or fails, or none of the
+     *                     files named in the diff exists
+     */
+    public static ChangedLines fromGitDiff(Path workDir, String revision) throws IOException {
+        if (revision.isEmpty() || revision.charAt(0) == '-') {
+            throw new IllegalArgumentException("Not a revision: '" + revision + "'");
+        }
+        // paths in the diff are relative to the root of the repository
+        String cdup = runGit(workDir, "rev-parse", "--show-cdup").trim();
+        Path repoRoot = workDir.resolve(cdup).normalize();
+        // the prefixes are fixed, as diff.noprefix or diff.mnemonicPrefix would change them
+        String diff = runGit(workDir, "-c", "core.quotePath=false", "diff", "--no-color", "--no-ext-diff",
+                             "--src-prefix=a/", "--dst-prefix=b/", "--unified=0", "--diff-filter=d", revision, "--");
+        ChangedLines changes = parse(new StringReader(diff), repoRoot);
+        changes.checkFilesExist(repoRoot);
+        return changes;
+    }
+
+    private static String runGit(Path workDir, String... args) throws IOException {
+        List<String> command = new ArrayList<>(args.length + 1);
+        command.add("git");
+        command.addAll(Arrays.asList(args));
+        LOG.debug("Running {}", command);
+        Process process = new ProcessBuilder(command)
+            .directory(workDir.toFile())
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+        String output = IOUtil.readToString(process.getInputStream(), StandardCharsets.UTF_8);
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("Command " + command + " failed with exit code " + exitCode);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + command, e);
+        }
+        return output;
+    }
+
+    /**
+     * Parses a unified diff. The paths of the new files are resolved
+     * against the given directory, after removing the {@code b/} prefix
+     * git puts on them, if any. Hunks may have context lines.
+     *
+     * @param diff    Reader for the diff, which is not closed
+     * @param baseDir Directory against which paths are resolved
+     *
+     * @throws IOException If reading fails
+     */
+    public static ChangedLines parse(Reader diff, Path baseDir) throws IOException {
+        Map<Path, BitSet> linesByFile = new HashMap<>();
+        BufferedReader reader = new BufferedReader(diff);
+        BitSet currentFile = null;
+        // position in the new file, and lines left in the current hunk
+        int newLine = 0;
+        int oldRemaining = 0;
+        int newRemaining = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (oldRemaining > 0 || newRemaining > 0) {
+                char kind = line.isEmpty() ? ' ' : line.charAt(0);
+                if (kind == '+') {
+                    markChanged(currentFile, newLine, newLine);
+                    newLine++;
+                    newRemaining--;
+                    continue;
+                } else if (kind == '-') {
+                    // the lines around the deletion are now next to each other
+                    markChanged(currentFile, newLine - 1, newLine);
+                    oldRemaining--;
+                    continue;
+                } else if (kind == ' ') {
+                    newLine++;
+                    oldRemaining--;
+                    newRemaining--;
+                    continue;
+                } else if (kind == '\\') {
+                    // "\ No newline at end of file"
+                    continue;
+                }
+                // truncated hunk
+                oldRemaining = 0;
+                newRemaining = 0;
+            }
+
+            Matcher hunk = HUNK_HEADER.matcher(line);
+            if (line.startsWith(NEW_FILE_PREFIX)) {
+                Path path = parseNewPath(line.substring(NEW_FILE_PREFIX.length()), baseDir);
+                currentFile = path == null ? null : linesByFile.computeIfAbsent(path, p -> new BitSet());
+            } else if (hunk.matches()) {
+                oldRemaining = parseCount(hunk.group(1));
+                newLine = Integer.parseInt(hunk.group(2));
+                newRemaining = parseCount(hunk.group(3));
+                if (newRemaining == 0) {
+                    // then the start is the line before the deletion
+                    newLine++;
+                }
+            }
+        }
+        return new ChangedLines(linesByFile);
+    }
+
+    private static int parseCount(@Nullable String count) {
+        return count == null ? 1 : Integer.parseInt(count);
+    }
+
+    private static void markChanged(@Nullable BitSet lines, int from, int to) {
+        if (lines != null) {
+            lines.set(Math.max(from, 1), to + 1);
+        }
+    }
+
+    private static @Nullable Path parseNewPath(String pathPart, Path baseDir) {
+        String path = pathPart;
+        int tab = path.indexOf('\t');
+        if (tab >= 0) {
+            // some tools append a timestamp
+            path = path.substring(0, tab);
+        }
+        if (path.length() >= 2 && path.charAt(0) == '"' && path.charAt(path.length() - 1) == '"') {
+            path = unquote(path.substring(1, path.length() - 1));
+        }
+        if (DEV_NULL.equals(path)) {
+            return null;
+        }
+        if (path.startsWith("b/")) {
+            path = path.substring(2);
+        }
+        try {
+            return baseDir.resolve(path).toAbsolutePath().normalize();
+        } catch (InvalidPathException e) {
+            LOG.debug("Ignoring changes of unknown path {}", pathPart);
+            return null;
+        }
+    }
+
+    private static String unquote(String quoted) {
+        StringBuilder sb = new StringBuilder(quoted.length());
+        for (int i = 0; i < quoted.length(); i++) {
+            char c = quoted.charAt(i);
+            if (c == '\\' && i + 1 < quoted.length()) {
+                char escaped = quoted.charAt(++i);
+                switch (escaped) {
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                default:
+                    sb.append(escaped);
+                    break;
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private @Nullable BitSet linesOf(FileId fileId) {
+        try {
+            return linesByFile.get(Paths.get(fileId.getAbsolutePath()).normalize());
+        } catch (InvalidPathException e) {
+            // eg a file inside a zip file
+            return null;
+        }
+    }
+
+    /**
+     * Whether the file was changed or added.
+     */
+    public boolean isChanged(FileId fileId) {
+        if (linesOf(fileId) != null) {
+            matchedAnyFile = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of files changed or added by the diff.
+     */
+    public int getChangedFileCount() {
+        return linesByFile.size();
+    }
+
+    /**
+     * Whether {@link #isChanged(FileId)} was true for some file, ie
+     * whether some analyzed file is part of the diff.
+     */
+    public boolean hasMatchedAnyFile() {
+        return matchedAnyFile;
+    }
+
+    /**
+     * Whether any line of the given range was changed in the file.
+     *
+     * @param fileId    File
+     * @param beginLine First line of the range (1-based)
+     * @param endLine   Last line of the range (inclusive)
+     */
+    public boolean isChanged(FileId fileId, int beginLine, int endLine) {
+        BitSet lines = linesOf(fileId);
+        if (lines == null) {
+            return false;
+        }
+        int firstChanged = lines.nextSetBit(beginLine);
+        return firstChanged >= 0 && firstChanged <= Math.max(beginLine, endLine);
+    }
+
+    /**
+     * Returns a listener that forwards the events of the given listener,
+     * except violations that do not overlap any changed line. Processing
+     * errors are always forwarded.
+     */
+    public GlobalAnalysisListener filterViolations(GlobalAnalysisListener listener) {
+        return new ChangedLinesListener(listener);
+    }
+
+    private boolean isChanged(RuleViolation violation) {
+        return isChanged(violation.getLocation().getFileId(), violation.getBeginLine(), violation.getEndLine());
+    }
+
+    private final class ChangedLinesListener implements GlobalAnalysisListener {
+
+        private final GlobalAnalysisListener delegate;
+
+        ChangedLinesListener(GlobalAnalysisListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ListenerInitializer initializer() {
+            return delegate.initializer();
+        }
+
+        @Override
+        public FileAnalysisListener startFileAnalysis(TextFile file) {
+            FileAnalysisListener fileListener = delegate.startFileAnalysis(file);
+            return new FileAnalysisListener() {
+                @Override
+                public void onRuleViolation(RuleViolation violation) {
+                    if (isChanged(violation)) {
+                        fileListener.onRuleViolation(violation);
+                    }
+                }
+
+                @Override
+                public void onSuppressedRuleViolation(SuppressedViolation violation) {
+                    if (isChanged(violation.getRuleViolation())) {
+                        fileListener.onSuppressedRuleViolation(violation);
+                    }
+                }
+
+                @Override
+                public void onError(ProcessingError error) {
+                    fileListener.onError(error);
+                }
+
+                @Override
+                public void close() throws Exception {
+                    fileListener.close();
+                }
+            };
+        }
+
+        @Override
+        public void onConfigError(ConfigurationError error) {
+            delegate.onConfigError(error);
+        }
+
+        @Override
+        public void close() throws Exception {
+            delegate.close();
+        }
+
+        @Override
+        public String toString() {
+            return "ChangedLinesListener{" + delegate + '}';
+        }
+    }
+}
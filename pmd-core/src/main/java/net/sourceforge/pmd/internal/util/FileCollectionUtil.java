@@ -40,7 +40,11 @@ public final class FileCollectionUtil {
             collector.setCharset(configuration.getSourceEncoding());
             collector.setRecursive(configuration.collectFilesRecursively());
         }
-
+        collector.setUseGitIgnore(configuration.isUseGitIgnore());
+        for (Path exclude : configuration.getExcludes()) {
+            // excluded directories are not explored
+            collector.excludePath(exclude);
+        }
 
         collectFiles(collector, configuration.getInputPathList());
 
@@ -53,18 +57,15 @@ public final class FileCollectionUtil {
             collectFileList(collector, configuration.getInputFile());
         }
 
-        if (configuration.getIgnoreFile() != null || !configuration.getExcludes().isEmpty()) {
+        if (configuration.getIgnoreFile() != null) {
             // This is to be able to interpret the log (will report 'adding' xxx)
             LOG.debug("Now collecting files to exclude.");
             // errors like "excluded file does not exist" are reported as warnings.
             MessageReporter mutedLog = new ErrorsAsWarningsReporter(collector.getReporter());
             try (FileCollector excludeCollector = collector.newCollector(mutedLog)) {
 
-                if (configuration.getIgnoreFile() != null) {
-                    // todo better reporting of *where* exactly the path is
-                    collectFileList(excludeCollector, configuration.getIgnoreFile());
-                }
-                collectFiles(excludeCollector, configuration.getExcludes());
+                // todo better reporting of *where* exactly the path is
+                collectFileList(excludeCollector, configuration.getIgnoreFile());
                 collector.exclude(excludeCollector);
             }
         }
@@ -4,6 +4,7 @@
 
 package net.sourceforge.pmd.lang;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -13,6 +14,8 @@ import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.cache.AnalysisCache;
 import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.impl.AnalysisWatchdog;
+import net.sourceforge.pmd.lang.impl.HeapAdmissionController;
 import net.sourceforge.pmd.reporting.GlobalAnalysisListener;
 import net.sourceforge.pmd.util.log.MessageReporter;
 
@@ -61,12 +64,14 @@ public interface LanguageProcessor extends AutoCloseable {
     class AnalysisTask {
 
         private final RuleSets rulesets;
-        private final List<TextFile> files;
+        private final Iterable<TextFile> files;
         private final GlobalAnalysisListener listener;
         private final int threadCount;
         private final AnalysisCache analysisCache;
         private final MessageReporter messageReporter;
         private final LanguageProcessorRegistry lpRegistry;
+        private final HeapAdmissionController heapAdmission;
+        private final AnalysisWatchdog watchdog;
 
 
         /**
@@ -75,12 +80,30 @@ public interface LanguageProcessor extends AutoCloseable {
          */
         @InternalApi
         public AnalysisTask(RuleSets rulesets,
-                            List<TextFile> files,
+                            Iterable<TextFile> files,
                             GlobalAnalysisListener listener,
                             int threadCount,
                             AnalysisCache analysisCache,
                             MessageReporter messageReporter,
                             LanguageProcessorRegistry lpRegistry) {
+            this(rulesets, files, listener, threadCount, analysisCache, messageReporter, lpRegistry,
+                 HeapAdmissionController.unlimited(), AnalysisWatchdog.none());
+        }
+
+        /**
+         * Create a new task. This constructor is internal and will be
+         * called by PMD.
+         */
+        @InternalApi
+        public AnalysisTask(RuleSets rulesets,
+                            Iterable<TextFile> files,
+                            GlobalAnalysisListener listener,
+                            int threadCount,
+                            AnalysisCache analysisCache,
+                            MessageReporter messageReporter,
+                            LanguageProcessorRegistry lpRegistry,
+                            HeapAdmissionController heapAdmission,
+                            AnalysisWatchdog watchdog) {
             this.rulesets = rulesets;
             this.files = files;
             this.listener = listener;
@@ -88,14 +111,37 @@ public interface LanguageProcessor extends AutoCloseable {
             this.analysisCache = analysisCache;
             this.messageReporter = messageReporter;
             this.lpRegistry = lpRegistry;
+            this.heapAdmission = heapAdmission;
+            this.watchdog = watchdog;
         }
 
         public RuleSets getRulesets() {
             return rulesets;
         }
 
+        /**
+         * Returns the files to process. If the files of this task are
+         * {@linkplain #getFileSource() streamed}, this consumes the
+         * source, and blocks until all files have been discovered.
+         */
         public List<TextFile> getFiles() {
-            return Collections.unmodifiableList(files);
+            if (files instanceof List) {
+                return Collections.unmodifiableList((List<TextFile>) files);
+            }
+            List<TextFile> list = new ArrayList<>();
+            files.forEach(list::add);
+            return Collections.unmodifiableList(list);
+        }
+
+        /**
+         * Returns the files to process. The returned iterable may be a
+         * stream of files that are still being discovered, in which case
+         * it can only be iterated once, and its iterator blocks until the
+         * next file is available. This allows processing the first files
+         * before all the files are known.
+         */
+        public Iterable<TextFile> getFileSource() {
+            return files;
         }
 
         public GlobalAnalysisListener getListener() {
@@ -118,10 +164,29 @@ public interface LanguageProcessor extends AutoCloseable {
             return lpRegistry;
         }
 
+        /**
+         * Returns the controller that limits the memory used by the files
+         * that are analysed concurrently. It is shared by the tasks of all
+         * languages of an analysis.
+         */
+        @InternalApi
+        public HeapAdmissionController getHeapAdmission() {
+            return heapAdmission;
+        }
+
+        /**
+         * Returns the watchdog that enforces the timeouts of the analysis.
+         * It is shared by the tasks of all languages of an analysis.
+         */
+        @InternalApi
+        public AnalysisWatchdog getWatchdog() {
+            return watchdog;
+        }
+
         /**
          * Produce a new analysis task with just different files.
          */
-        public AnalysisTask withFiles(List<TextFile> newFiles) {
+        public AnalysisTask withFiles(Iterable<TextFile> newFiles) {
             return new AnalysisTask(
                 rulesets,
                 newFiles,
@@ -129,7 +194,9 @@ public interface LanguageProcessor extends AutoCloseable {
                 threadCount,
                 analysisCache,
                 messageReporter,
-                lpRegistry
+                lpRegistry,
+                heapAdmission,
+                watchdog
             );
         }
     }
@@ -13,11 +13,15 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.internal.util.IOUtil;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
 import net.sourceforge.pmd.properties.PropertySource;
@@ -37,6 +41,8 @@ public final class LanguageProcessorRegistry implements AutoCloseable {
 
     private final Map<PmdCapableLanguage, LanguageProcessor> processors;
     private final LanguageRegistry languages;
+    /** Starts the processors that are not started yet, null if they are all started. */
+    private final @Nullable Function<PmdCapableLanguage, LanguageProcessor> processorFactory;
 
 
     private LanguageProcessorRegistry(Set<LanguageProcessor> processors) {
@@ -44,7 +50,19 @@ public final class LanguageProcessorRegistry implements AutoCloseable {
             CollectionUtil.associateBy(processors, LanguageProcessor::getLanguage)
         );
         this.languages = new LanguageRegistry(this.processors.keySet());
+        this.processorFactory = null;
+        checkDependencies();
+    }
+
+    private LanguageProcessorRegistry(LanguageRegistry languages,
+                                      Function<PmdCapableLanguage, LanguageProcessor> processorFactory) {
+        this.processors = new ConcurrentHashMap<>();
+        this.languages = languages;
+        this.processorFactory = processorFactory;
+        checkDependencies();
+    }
 
+    private void checkDependencies() {
         for (Language language : languages.getLanguages()) {
             for (String id : language.getDependencies()) {
                 if (languages.getLanguageById(id) == null) {
@@ -72,12 +90,25 @@ public final class LanguageProcessorRegistry implements AutoCloseable {
      */
     public @NonNull LanguageProcessor getProcessor(Language l) {
         LanguageProcessor obj = processors.get(l);
+        if (obj == null && processorFactory != null && languages.getLanguages().contains(l)) {
+            obj = startProcessor((PmdCapableLanguage) l);
+        }
         if (obj == null) {
             throw new IllegalArgumentException("Language " + l.getId() + " is not initialized in " + this);
         }
         return obj;
     }
 
+    private synchronized LanguageProcessor startProcessor(PmdCapableLanguage language) {
+        LanguageProcessor processor = processors.get(language);
+        if (processor == null) {
+            LOG.debug("Starting language processor for {}", language.getId());
+            processor = processorFactory.apply(language);
+            processors.put(language, processor);
+        }
+        return processor;
+    }
+
     /**
      * Close all processors in this registry.
      *
@@ -126,21 +157,10 @@ public final class LanguageProcessorRegistry implements AutoCloseable {
                                             MessageReporter messageReporter,
                                             Map<String, String> env) {
         Set<LanguageProcessor> processors = new HashSet<>();
-        for (Language language : registry) {
-            if (!(language instanceof PmdCapableLanguage)) {
-                LOG.trace("Not instantiating language {} because it does not support PMD", language);
-                continue;
-            }
-            LanguagePropertyBundle properties = languageProperties.getOrDefault(language, language.newPropertyBundle());
-            if (!properties.getLanguage().equals(language)) {
-                throw new IllegalArgumentException("Mismatched language");
-            }
-
+        for (PmdCapableLanguage language : pmdCapableLanguages(registry)) {
+            LanguagePropertyBundle properties = getProperties(language, languageProperties);
             try {
-                //
-                readLanguagePropertiesFromEnv(properties, messageReporter, env);
-
-                processors.add(((PmdCapableLanguage) language).createProcessor(properties));
+                processors.add(createProcessor(language, properties, messageReporter, env));
             } catch (IllegalArgumentException e) {
                 messageReporter.error(e); // todo
             }
@@ -149,6 +169,71 @@ public final class LanguageProcessorRegistry implements AutoCloseable {
         return new LanguageProcessorRegistry(processors);
     }
 
+    /**
+     * Create a new instance that creates the processor of a language in
+     * the given language registry the first time it is {@linkplain #getProcessor(Language) requested}.
+     * Starting a processor loads the implementation of its language, which
+     * is wasted for a language without files. Otherwise, this is like
+     * {@link #create(LanguageRegistry, Map, MessageReporter)}, except that
+     * errors are thrown by {@link #getProcessor(Language)}.
+     *
+     * @throws IllegalStateException    If any language in the registry depends on
+     *                                  languages that are not found in it (see {@link Language#getDependencies()}).
+     * @throws IllegalArgumentException If some entry in the map maps a language
+     *                                  to an incompatible property bundle
+     */
+    @InternalApi
+    public static LanguageProcessorRegistry createLazily(LanguageRegistry registry,
+                                                         Map<Language, LanguagePropertyBundle> languageProperties,
+                                                         MessageReporter messageReporter) {
+        return createLazily(registry, languageProperties, messageReporter, System.getenv());
+    }
+
+    // overload for testing to allow mocking the system env vars.
+    static LanguageProcessorRegistry createLazily(LanguageRegistry registry,
+                                                  Map<Language, LanguagePropertyBundle> languageProperties,
+                                                  MessageReporter messageReporter,
+                                                  Map<String, String> env) {
+        Set<PmdCapableLanguage> languages = pmdCapableLanguages(registry);
+        Map<PmdCapableLanguage, LanguagePropertyBundle> properties = new HashMap<>();
+        for (PmdCapableLanguage language : languages) {
+            properties.put(language, getProperties(language, languageProperties));
+        }
+        return new LanguageProcessorRegistry(
+            new LanguageRegistry(languages),
+            language -> createProcessor(language, properties.get(language), messageReporter, env)
+        );
+    }
+
+    private static Set<PmdCapableLanguage> pmdCapableLanguages(LanguageRegistry registry) {
+        Set<PmdCapableLanguage> languages = new HashSet<>();
+        for (Language language : registry) {
+            if (language instanceof PmdCapableLanguage) {
+                languages.add((PmdCapableLanguage) language);
+            } else {
+                LOG.trace("Not instantiating language {} because it does not support PMD", language);
+            }
+        }
+        return languages;
+    }
+
+    private static LanguagePropertyBundle getProperties(Language language,
+                                                        Map<Language, LanguagePropertyBundle> languageProperties) {
+        LanguagePropertyBundle properties = languageProperties.getOrDefault(language, language.newPropertyBundle());
+        if (!properties.getLanguage().equals(language)) {
+            throw new IllegalArgumentException("Mismatched language");
+        }
+        return properties;
+    }
+
+    private static LanguageProcessor createProcessor(PmdCapableLanguage language,
+                                                     LanguagePropertyBundle properties,
+                                                     MessageReporter messageReporter,
+                                                     Map<String, String> env) {
+        readLanguagePropertiesFromEnv(properties, messageReporter, env);
+        return language.createProcessor(properties);
+    }
+
     // TODO this should be reused when implementing the CLI
     public static Map<Language, LanguagePropertyBundle> derivePropertiesFromStrings(
         Map<Language, Properties> stringProperties,
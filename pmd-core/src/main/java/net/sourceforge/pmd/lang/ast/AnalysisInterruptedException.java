@@ -0,0 +1,68 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.ast;
+
+/**
+ * An exception that aborts the analysis of a file because the thread
+ * analysing it was interrupted, usually because the analysis exceeded
+ * its timeout. Parsers and the rule applicator check the interruption
+ * status of the thread regularly with {@link #checkInterrupted(String)}.
+ * The exception records the phase of the analysis that was interrupted.
+ */
+public class AnalysisInterruptedException extends FileAnalysisException {
+
+    private final String phase;
+
+    /**
+     * Create a new exception.
+     *
+     * @param phase The phase that was interrupted, e.g. "parsing"
+     */
+    public AnalysisInterruptedException(String phase) {
+        this(phase, "interrupted while " + phase);
+    }
+
+    private AnalysisInterruptedException(String phase, String message) {
+        super(message);
+        this.phase = phase;
+    }
+
+    /**
+     * Returns an exception for a phase that was interrupted because it
+     * exceeded the given timeout.
+     *
+     * @param phase         The phase that was interrupted, e.g. "parsing"
+     * @param timeoutMillis The timeout in milliseconds
+     */
+    public static AnalysisInterruptedException timeout(String phase, long timeoutMillis) {
+        return new AnalysisInterruptedException(phase, "timed out after " + timeoutMillis + " ms while " + phase);
+    }
+
+    /**
+     * Returns the phase that was interrupted, e.g. "parsing" or "applying rule X".
+     */
+    public String getPhase() {
+        return phase;
+    }
+
+    @Override
+    protected String errorKind() {
+        return "Analysis aborted";
+    }
+
+    /**
+     * Throws an exception if the current thread has been interrupted. The
+     * interruption status of the thread is not cleared.
+     *
+     * @param phase The current phase of the analysis, e.g. "parsing"
+     *
+     * @throws AnalysisInterruptedException If the current thread has been interrupted
+     */
+    public static void checkInterrupted(String phase) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new AnalysisInterruptedException(phase);
+        }
+    }
+}
@@ -20,6 +20,8 @@ import net.sourceforge.pmd.lang.document.FileLocation;
  * <li>{@link ParseException}: syntax errors
  * <li>{@link SemanticException}: exceptions occurring after the parsing
  * phase, because the source code is semantically invalid
+ * <li>{@link AnalysisInterruptedException}: the analysis was aborted,
+ * e.g. because it exceeded its timeout
  * </ul>
  */
 public class FileAnalysisException extends RuntimeException {
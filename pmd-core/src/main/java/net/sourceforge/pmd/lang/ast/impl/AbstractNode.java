@@ -32,13 +32,16 @@ public abstract class AbstractNode<B extends AbstractNode<B, N>,
 
     private static final Node[] EMPTY_ARRAY = new Node[0];
 
-    // lazy initialized, many nodes don't need it
+    // lazy initialized, many nodes don't need it. The maps of all
+    // nodes of a tree share their storage with the map of the root.
     private @Nullable DataMap<DataKey<?, ?>> userData;
 
     // never null, never contains null elements
     private Node[] children = EMPTY_ARRAY;
     private B parent;
     private int childIndex;
+    // number of this node in the PreorderIndex of its tree, -1 if not indexed
+    private int preorderIndex = -1;
 
     protected AbstractNode() {
         // only for subclassing
@@ -107,6 +110,9 @@ public abstract class AbstractNode<B extends AbstractNode<B, N>,
      */
     protected void setChild(final B child, final int index) {
         assert index >= 0 && index < children.length : "Invalid index " + index + " for length " + children.length;
+        if (preorderIndex >= 0) {
+            PreorderIndex.invalidate(this);
+        }
         children[index] = child;
         child.setChildIndex(index);
         child.setParent(asSelf(this));
@@ -124,6 +130,9 @@ public abstract class AbstractNode<B extends AbstractNode<B, N>,
     protected void insertChild(final B child, final int index) {
         assert index >= 0 && index <= children.length
             : "Invalid index for insertion into array of length " + children.length + ": " + index;
+        if (preorderIndex >= 0) {
+            PreorderIndex.invalidate(this);
+        }
 
         Node[] newChildren = new Node[children.length + 1];
         if (index != 0) {
@@ -154,6 +163,9 @@ public abstract class AbstractNode<B extends AbstractNode<B, N>,
 
     protected void removeChildAtIndex(final int childIndex) {
         if (0 <= childIndex && childIndex < getNumChildren()) {
+            if (preorderIndex >= 0) {
+                PreorderIndex.invalidate(this);
+            }
             // Remove the child at the given index
             children = ArrayUtils.remove(children, childIndex);
             // Update the remaining & left-shifted children indexes
@@ -173,14 +185,34 @@ public abstract class AbstractNode<B extends AbstractNode<B, N>,
         childIndex = index;
     }
 
+    int getPreorderIndex() {
+        return preorderIndex;
+    }
+
+    void setPreorderIndex(int preorderIndex) {
+        this.preorderIndex = preorderIndex;
+    }
+
     @Override
     public DataMap<DataKey<?, ?>> getUserMap() {
         if (userData == null) {
-            userData = DataMap.newDataMap();
+            userData = newUserMap();
         }
         return userData;
     }
 
+    private DataMap<DataKey<?, ?>> newUserMap() {
+        AbstractNode<?, ?> top = this;
+        while (top.parent != null) {
+            top = top.parent;
+        }
+        // The top is usually the root node, but we might also be called
+        // on a tree that is still being built. This is only a matter of
+        // how compact the storage is, so that doesn't matter.
+        return top == this ? DataMap.newDataMap() // NOPMD CompareObjectsWithEquals
+                           : top.getUserMap().newSharedMap();
+    }
+
 
     @Override
     public String toString() {
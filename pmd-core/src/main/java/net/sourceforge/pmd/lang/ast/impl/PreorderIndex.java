@@ -0,0 +1,197 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.ast.impl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.RootNode;
+import net.sourceforge.pmd.util.DataMap;
+import net.sourceforge.pmd.util.DataMap.SimpleDataKey;
+
+/**
+ * Numbers the nodes of a tree in preorder. The descendants of a node
+ * then have consecutive numbers, so that the descendants of a given
+ * type can be found with a binary search in the sorted numbers of all
+ * the nodes of that type. The numbers of the nodes of a type are
+ * computed the first time that type is queried.
+ *
+ * <p>The index is built when rules are applied, once the tree is not
+ * modified anymore. It is dropped if the tree is modified anyway. The
+ * index is only used for large enough subtrees, otherwise walking the
+ * subtree is cheaper.
+ */
+@InternalApi
+public final class PreorderIndex {
+
+    private static final int MIN_SUBTREE_SIZE = 32;
+    private static final SimpleDataKey<PreorderIndex> INDEX_KEY = DataMap.simpleDataKey("preorder index");
+
+    private final Node[] nodes;
+    // exclusive end of the subtree of each node
+    private final int[] ends;
+    // number of the nearest strict ancestor that is a find boundary, or -1
+    private final int[] boundaryAncestors;
+    private final ConcurrentMap<Class<?>, int[]> byClass = new ConcurrentHashMap<>();
+
+    private PreorderIndex(int size) {
+        this.nodes = new Node[size];
+        this.ends = new int[size];
+        this.boundaryAncestors = new int[size];
+    }
+
+    /**
+     * Indexes the given tree, replacing any previous index. This does
+     * nothing if the nodes of the tree do not extend {@link AbstractNode}.
+     */
+    public static void index(RootNode root) {
+        if (!(root instanceof AbstractNode)) {
+            return;
+        }
+        PreorderIndex index = new PreorderIndex(countNodes(root));
+        index.number((AbstractNode<?, ?>) root, 0, -1);
+        root.getUserMap().set(INDEX_KEY, index);
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            count += countNodes(node.getChild(i));
+        }
+        return count;
+    }
+
+    /** Numbers the subtree of the node, and returns the end of the subtree. */
+    private int number(AbstractNode<?, ?> node, int num, int boundaryAncestor) {
+        node.setPreorderIndex(num);
+        nodes[num] = node;
+        boundaryAncestors[num] = boundaryAncestor;
+        int childBoundary = node.isFindBoundary() ? num : boundaryAncestor;
+        int next = num + 1;
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            next = number((AbstractNode<?, ?>) node.getChild(i), next, childBoundary);
+        }
+        ends[num] = next;
+        return next;
+    }
+
+    /**
+     * Drops the index of the tree of the given node, because the tree
+     * is being modified.
+     */
+    static void invalidate(AbstractNode<?, ?> node) {
+        Node top = node;
+        while (top.getParent() != null) {
+            top = top.getParent();
+        }
+        top.getUserMap().set(INDEX_KEY, null);
+    }
+
+    /**
+     * Returns the index of the tree of the given node, if the tree is
+     * indexed and the subtree of the node is large enough for the index
+     * to be worth using. Returns null otherwise.
+     */
+    public static @Nullable PreorderIndex forSubtree(Node node) {
+        if (!(node instanceof AbstractNode) || node.getNumChildren() == 0) {
+            return null;
+        }
+        int num = ((AbstractNode<?, ?>) node).getPreorderIndex();
+        if (num < 0) {
+            return null;
+        }
+        Node top = node;
+        while (top.getParent() != null) {
+            top = top.getParent();
+        }
+        PreorderIndex index = top.getUserMap().get(INDEX_KEY);
+        if (index == null
+            || num >= index.nodes.length
+            || index.nodes[num] != node // NOPMD CompareObjectsWithEquals
+            || index.ends[num] - num < MIN_SUBTREE_SIZE) {
+            return null;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the descendants of the node that are instances of the given
+     * type, in document order. The node must be part of this index.
+     *
+     * @param node                Node
+     * @param type                Type of the returned nodes
+     * @param includeSelf         Whether the node itself may be returned
+     * @param crossFindBoundaries Whether to return the descendants of find boundaries
+     */
+    public Iterator<Node> descendants(Node node, Class<?> type, boolean includeSelf, boolean crossFindBoundaries) {
+        int num = ((AbstractNode<?, ?>) node).getPreorderIndex();
+        int[] positions = byClass.computeIfAbsent(type, this::positionsOf);
+
+        int start = Arrays.binarySearch(positions, includeSelf ? num : num + 1);
+        return new RangeIterator(positions, start < 0 ? -start - 1 : start, ends[num], crossFindBoundaries ? Integer.MAX_VALUE : num);
+    }
+
+    private int[] positionsOf(Class<?> type) {
+        int[] positions = new int[16];
+        int n = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            if (type.isInstance(nodes[i])) {
+                if (n == positions.length) {
+                    positions = Arrays.copyOf(positions, 2 * n);
+                }
+                positions[n++] = i;
+            }
+        }
+        return Arrays.copyOf(positions, n);
+    }
+
+    /**
+     * Iterates over the positions in a range, skipping the nodes that
+     * are below a find boundary that is itself below the top of the range.
+     */
+    private final class RangeIterator implements Iterator<Node> {
+
+        private final int[] positions;
+        private final int end;
+        private final int maxBoundary;
+        private int i;
+
+        RangeIterator(int[] positions, int start, int end, int maxBoundary) {
+            this.positions = positions;
+            this.end = end;
+            this.maxBoundary = maxBoundary;
+            this.i = start;
+            skipHidden();
+        }
+
+        private void skipHidden() {
+            while (i < positions.length && positions[i] < end && boundaryAncestors[positions[i]] > maxBoundary) {
+                i++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return i < positions.length && positions[i] < end;
+        }
+
+        @Override
+        public Node next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node node = nodes[positions[i++]];
+            skipHidden();
+            return node;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
 
 import net.sourceforge.pmd.lang.TokenManager;
+import net.sourceforge.pmd.lang.ast.AnalysisInterruptedException;
 import net.sourceforge.pmd.lang.ast.TokenMgrError;
 import net.sourceforge.pmd.lang.document.TextDocument;
 
@@ -39,6 +40,7 @@ public class AntlrTokenManager implements TokenManager<AntlrToken> {
     }
 
     private AntlrToken getNextTokenFromAnyChannel() {
+        AnalysisInterruptedException.checkInterrupted("parsing");
         final AntlrToken previousComment = previousToken != null && previousToken.isHidden() ? previousToken : null;
         final AntlrToken currentToken = new AntlrToken(lexer.nextToken(), previousComment, textDoc);
         if (previousToken != null) {
@@ -7,6 +7,7 @@ package net.sourceforge.pmd.lang.ast.impl.javacc;
 
 import java.io.EOFException;
 
+import net.sourceforge.pmd.lang.ast.AnalysisInterruptedException;
 import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccTokenDocument.TokenDocumentBehavior;
 import net.sourceforge.pmd.lang.document.Chars;
 import net.sourceforge.pmd.lang.document.FileLocation;
@@ -74,6 +75,7 @@ public final class CharStream {
      * backup correctly.
      */
     public char markTokenStart() throws EOFException {
+        AnalysisInterruptedException.checkInterrupted("parsing");
         markOffset = curOffset;
         return readChar();
     }
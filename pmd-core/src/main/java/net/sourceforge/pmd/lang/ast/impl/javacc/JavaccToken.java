@@ -47,6 +47,7 @@ public class JavaccToken implements GenericToken<JavaccToken> {
     public final int kind;
 
     private final JavaccTokenDocument document;
+    // null if the image is the text of the token in the document, see getImageCs
     private final CharSequence image;
     private final int startOffset;
     private final int endOffset;
@@ -79,7 +80,7 @@ public class JavaccToken implements GenericToken<JavaccToken> {
     // common constructor, with a CharSequence parameter
     JavaccToken(int kind, CharSequence image, int startInclusive, int endExclusive, JavaccTokenDocument document) {
         assert document != null : "Null document";
-        assert image instanceof String || image instanceof Chars : "Null image";
+        assert image == null || image instanceof String || image instanceof Chars : "Image is " + image;
         assert TextRegion.isValidRegion(startInclusive, endExclusive, document.getTextDocument());
 
         this.kind = kind;
@@ -109,6 +110,17 @@ public class JavaccToken implements GenericToken<JavaccToken> {
         this(kind, (CharSequence) image, startInclusive, endExclusive, document);
     }
 
+    /**
+     * Builds a token whose image is the text it spans in the document.
+     * The image is sliced out of the text when it is needed, instead of
+     * being kept by the token. Identifiers, literals and comments, which
+     * are most of the tokens that don't have a fixed image, are built this
+     * way, so that they do not retain a {@link Chars} instance each.
+     */
+    static JavaccToken sliceOfDocument(int kind, int startInclusive, int endExclusive, JavaccTokenDocument document) {
+        return new JavaccToken(kind, (CharSequence) null, startInclusive, endExclusive, document);
+    }
+
     /**
      * Returns the document owning this token.
      */
@@ -138,13 +150,16 @@ public class JavaccToken implements GenericToken<JavaccToken> {
 
     @Override
     public Chars getImageCs() {
+        if (image == null) {
+            return document.getTextDocument().getText().slice(startOffset, endOffset - startOffset);
+        }
         // wrap it: it's zero cost (images are either Chars or String) and Chars has a nice API
         return Chars.wrap(image);
     }
 
     @Override
     public String getImage() {
-        return image.toString();
+        return image == null ? getImageCs().toString() : image.toString();
     }
 
     @Override
@@ -11,6 +11,7 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import net.sourceforge.pmd.cpd.impl.JavaCCTokenizer;
+import net.sourceforge.pmd.lang.TokenManager;
 import net.sourceforge.pmd.lang.ast.impl.TokenDocument;
 import net.sourceforge.pmd.lang.document.TextDocument;
 
@@ -123,13 +124,10 @@ public final class JavaccTokenDocument extends TokenDocument<JavaccToken> {
          * @return A new token
          */
         public JavaccToken createToken(JavaccTokenDocument self, int kind, CharStream cs, @Nullable String image) {
-            return new JavaccToken(
-                kind,
-                image == null ? cs.getTokenImageCs() : image,
-                cs.getStartOffset(),
-                cs.getEndOffset(),
-                self
-            );
+            if (image == null) {
+                return JavaccToken.sliceOfDocument(kind, cs.getStartOffset(), cs.getEndOffset(), self);
+            }
+            return new JavaccToken(kind, image, cs.getStartOffset(), cs.getEndOffset(), self);
         }
     }
 
@@ -156,6 +154,33 @@ public final class JavaccTokenDocument extends TokenDocument<JavaccToken> {
         return first;
     }
 
+    /**
+     * Reads all the tokens of the document with the given token manager,
+     * and links them into the token chain like a parser does when it
+     * consumes them. This is used to tokenize a file without parsing it.
+     * The token manager may already have opened the document.
+     *
+     * @return The first token of the document, which is EOF if the document is empty
+     *
+     * @throws IllegalStateException If the tokens have already been read
+     */
+    public JavaccToken readAllTokens(TokenManager<JavaccToken> tokenManager) {
+        JavaccToken token;
+        synchronized (this) {
+            if (first == null) {
+                first = JavaccToken.newImplicit(0, this);
+            } else if (first.next != null) {
+                throw new IllegalStateException("Tokens have already been read");
+            }
+            token = first;
+        }
+        do {
+            JavaccToken next = tokenManager.getNextToken();
+            token.next = next;
+            token = next;
+        } while (!token.isEof());
+        return first.next;
+    }
 
     @Override
     public JavaccToken getFirstToken() {
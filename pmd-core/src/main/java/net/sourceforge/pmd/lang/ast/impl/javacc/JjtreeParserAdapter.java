@@ -4,10 +4,14 @@
 
 package net.sourceforge.pmd.lang.ast.impl.javacc;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.lang.TokenManager;
 import net.sourceforge.pmd.lang.ast.FileAnalysisException;
 import net.sourceforge.pmd.lang.ast.ParseException;
 import net.sourceforge.pmd.lang.ast.Parser;
 import net.sourceforge.pmd.lang.ast.RootNode;
+import net.sourceforge.pmd.lang.document.TextDocument;
 
 /**
  * Base implementation of the {@link Parser} interface for JavaCC language
@@ -41,6 +45,46 @@ public abstract class JjtreeParserAdapter<R extends RootNode> implements Parser
 
     protected abstract R parseImpl(CharStream cs, ParserTask task) throws ParseException;
 
+    /**
+     * Reads the tokens of the document with the token manager of the
+     * language, without parsing it. The tokens, including special tokens
+     * like comments, are linked from {@link JavaccTokenDocument#getFirstToken()}.
+     *
+     * @param document The document to tokenize
+     *
+     * @return The token document, or null if this parser cannot tokenize
+     *     documents on their own
+     *
+     * @throws FileAnalysisException If the document cannot be tokenized
+     */
+    public final @Nullable JavaccTokenDocument tokenize(TextDocument document) {
+        try {
+            CharStream charStream = CharStream.create(document, tokenBehavior());
+            TokenManager<JavaccToken> tokenManager = newTokenManager(charStream);
+            if (tokenManager == null) {
+                return null;
+            }
+            JavaccTokenDocument tokenDocument = charStream.getTokenDocument();
+            tokenDocument.readAllTokens(tokenManager);
+            return tokenDocument;
+        } catch (FileAnalysisException e) {
+            throw e.setFileId(document.getFileId());
+        }
+    }
+
+    /**
+     * Returns a new token manager that reads the given char stream, for
+     * {@link #tokenize(TextDocument)}. This is usually the one created by
+     * {@code newTokenManager} in the generated {@code TokenKinds} class of
+     * the language. The default returns null, in which case documents
+     * cannot be tokenized on their own.
+     *
+     * @param cs Char stream of the document
+     */
+    protected @Nullable TokenManager<JavaccToken> newTokenManager(CharStream cs) {
+        return null;
+    }
+
 
     @Override
     public String toString() {
@@ -20,6 +20,8 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.NodeStream;
+import net.sourceforge.pmd.lang.ast.NodeStream.DescendantNodeStream;
+import net.sourceforge.pmd.lang.ast.impl.PreorderIndex;
 import net.sourceforge.pmd.util.AssertionUtil;
 import net.sourceforge.pmd.util.IteratorUtil;
 
@@ -277,6 +279,13 @@ abstract class AxisStream<T extends Node> extends IteratorBasedNStream<T> {
             return new DescendantStream(node, walker.crossFindBoundaries(cross));
         }
 
+        @Override
+        public <S extends Node> NodeStream<S> filterIs(Class<? extends S> rClass) {
+            PreorderIndex index = PreorderIndex.forSubtree(node);
+            return index != null ? IndexedDescendantStream.create(index, node, rClass, false, walker)
+                                 : super.filterIs(rClass);
+        }
+
 
         @Override
         public boolean nonEmpty() {
@@ -325,6 +334,13 @@ abstract class AxisStream<T extends Node> extends IteratorBasedNStream<T> {
             return new DescendantOrSelfStream(node, walker.crossFindBoundaries(cross));
         }
 
+        @Override
+        public <S extends Node> NodeStream<S> filterIs(Class<? extends S> rClass) {
+            PreorderIndex index = PreorderIndex.forSubtree(node);
+            return index != null ? IndexedDescendantStream.create(index, node, rClass, true, walker)
+                                 : super.filterIs(rClass);
+        }
+
         @Nullable
         @Override
         public Node first() {
@@ -338,6 +354,52 @@ abstract class AxisStream<T extends Node> extends IteratorBasedNStream<T> {
     }
 
 
+    /**
+     * Descendants (or self) of a node that are instances of a type. They
+     * are found with the {@link PreorderIndex} of the tree, instead of
+     * walking the subtree.
+     */
+    static final class IndexedDescendantStream<T extends Node> extends DescendantStreamBase<T> {
+
+        private final PreorderIndex index;
+        private final Class<?> type;
+        private final boolean includeSelf;
+
+        IndexedDescendantStream(PreorderIndex index,
+                                Node node,
+                                Class<?> type,
+                                boolean includeSelf,
+                                TreeWalker walker,
+                                Filtermap<Node, ? extends T> filter) {
+            super(node, walker, filter);
+            this.index = index;
+            this.type = type;
+            this.includeSelf = includeSelf;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T extends Node> DescendantNodeStream<T> create(PreorderIndex index,
+                                                               Node node,
+                                                               Class<? extends T> type,
+                                                               boolean includeSelf,
+                                                               TreeWalker walker) {
+            // the index only yields instances of the type, no need to check it again
+            Filtermap<Node, T> identity = (Filtermap<Node, T>) Filtermap.NODE_IDENTITY;
+            return new IndexedDescendantStream<>(index, node, type, includeSelf, walker, identity);
+        }
+
+        @Override
+        protected Iterator<Node> baseIterator() {
+            return index.descendants(node, type, includeSelf, walker.isCrossFindBoundaries());
+        }
+
+        @Override
+        protected <S extends Node> DescendantNodeStream<S> copyWithWalker(Filtermap<Node, ? extends S> filterMap, TreeWalker walker) {
+            return new IndexedDescendantStream<>(index, node, type, includeSelf, walker, filterMap);
+        }
+    }
+
+
     /**
      * Implements following/preceding sibling streams, and children streams.
      */
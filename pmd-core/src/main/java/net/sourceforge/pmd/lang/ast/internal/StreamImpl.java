@@ -23,6 +23,7 @@ import net.sourceforge.pmd.lang.ast.NodeStream;
 import net.sourceforge.pmd.lang.ast.NodeStream.DescendantNodeStream;
 import net.sourceforge.pmd.lang.ast.impl.AbstractNode;
 import net.sourceforge.pmd.lang.ast.impl.GenericNode;
+import net.sourceforge.pmd.lang.ast.impl.PreorderIndex;
 import net.sourceforge.pmd.lang.ast.internal.AxisStream.AncestorOrSelfStream;
 import net.sourceforge.pmd.lang.ast.internal.AxisStream.ChildrenStream;
 import net.sourceforge.pmd.lang.ast.internal.AxisStream.DescendantOrSelfStream;
@@ -30,6 +31,7 @@ import net.sourceforge.pmd.lang.ast.internal.AxisStream.DescendantStream;
 import net.sourceforge.pmd.lang.ast.internal.AxisStream.FilteredAncestorOrSelfStream;
 import net.sourceforge.pmd.lang.ast.internal.AxisStream.FilteredChildrenStream;
 import net.sourceforge.pmd.lang.ast.internal.AxisStream.FilteredDescendantStream;
+import net.sourceforge.pmd.lang.ast.internal.AxisStream.IndexedDescendantStream;
 import net.sourceforge.pmd.lang.ast.internal.GreedyNStream.GreedyKnownNStream;
 import net.sourceforge.pmd.util.IteratorUtil;
 
@@ -113,8 +115,12 @@ public final class StreamImpl {
     }
 
     public static <R extends Node> DescendantNodeStream<R> descendants(@NonNull Node node, Class<? extends R> rClass) {
-        return node.getNumChildren() == 0 ? empty()
-                                          : new FilteredDescendantStream<>(node, TreeWalker.DEFAULT, Filtermap.isInstance(rClass));
+        if (node.getNumChildren() == 0) {
+            return empty();
+        }
+        PreorderIndex index = PreorderIndex.forSubtree(node);
+        return index != null ? IndexedDescendantStream.create(index, node, rClass, false, TreeWalker.DEFAULT)
+                             : new FilteredDescendantStream<>(node, TreeWalker.DEFAULT, Filtermap.isInstance(rClass));
     }
 
     public static DescendantNodeStream<Node> descendantsOrSelf(@NonNull Node node) {
@@ -0,0 +1,202 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.document;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Explores a directory tree for a {@link FileCollector}. Subdirectories
+ * are listed in parallel, and excluded or ignored directories are not
+ * explored at all. Symbolic links are followed, but links to one of their
+ * own parents are skipped.
+ *
+ * <p>Files are either collected in the order of the walk, and only
+ * added to the collector at the end, on the thread that started the walk,
+ * or handed to a consumer as soon as they are found.
+ */
+final class DirectoryWalker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DirectoryWalker.class);
+
+    private final FileCollector collector;
+    private final boolean recurse;
+    private final boolean useGitIgnore;
+    private final Charset charset;
+    private @Nullable Consumer<? super TextFile> sink;
+
+    DirectoryWalker(FileCollector collector, boolean recurse, boolean useGitIgnore, Charset charset) {
+        this.collector = collector;
+        this.recurse = recurse;
+        this.useGitIgnore = useGitIgnore;
+        this.charset = charset;
+    }
+
+    /**
+     * Hands the files of the directory to the consumer as soon as they
+     * are found. The consumer is called concurrently, from the threads
+     * that explore the directories. IO errors are thrown at the end.
+     */
+    void walk(Path root, Consumer<? super TextFile> sink) throws IOException {
+        this.sink = sink;
+        walk(root, new ArrayList<>());
+    }
+
+    /**
+     * Collects the files of the directory. The files found before an
+     * IO error are still returned. Errors are thrown afterwards.
+     */
+    void walk(Path root, List<TextFile> result) throws IOException {
+        Path absoluteRoot = root.toAbsolutePath().normalize();
+        GitIgnoreRules rules = useGitIgnore ? GitIgnoreRules.forParentsOf(absoluteRoot) : null;
+        Ancestor self = new Ancestor(Files.readAttributes(root, BasicFileAttributes.class).fileKey(), null);
+        WalkTask task = new WalkTask(root, absoluteRoot, rules, self);
+        ForkJoinPool.commonPool().invoke(task);
+
+        List<IOException> errors = new ArrayList<>();
+        task.collectResults(result, errors);
+        if (!errors.isEmpty()) {
+            IOException first = errors.get(0);
+            for (IOException e : errors.subList(1, errors.size())) {
+                first.addSuppressed(e);
+            }
+            throw first;
+        }
+    }
+
+    private final class WalkTask extends RecursiveAction {
+
+        private final Path dir;
+        private final Path absoluteDir;
+        private final @Nullable GitIgnoreRules parentRules;
+        private final Ancestor self;
+
+        private final List<TextFile> files = new ArrayList<>();
+        private List<WalkTask> subtasks = Collections.emptyList();
+        private @Nullable IOException error;
+
+        WalkTask(Path dir, Path absoluteDir, @Nullable GitIgnoreRules parentRules, Ancestor self) {
+            this.dir = dir;
+            this.absoluteDir = absoluteDir;
+            this.parentRules = parentRules;
+            this.self = self;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                listDirectory();
+            } catch (IOException e) {
+                error = e;
+            }
+            invokeAll(subtasks);
+        }
+
+        private void listDirectory() throws IOException {
+            GitIgnoreRules rules = useGitIgnore ? GitIgnoreRules.forDirectory(absoluteDir, parentRules) : null;
+            List<WalkTask> children = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                    } catch (IOException e) {
+                        // eg a broken symbolic link
+                        LOG.debug("Skipping {}: {}", entry, e.toString());
+                        continue;
+                    }
+                    boolean isDirectory = attrs.isDirectory();
+                    if (isDirectory && !recurse || !isDirectory && !attrs.isRegularFile()) {
+                        continue;
+                    }
+                    Path absoluteEntry = absoluteDir.resolve(entry.getFileName().toString());
+                    if (isSkipped(absoluteEntry, isDirectory, rules)) {
+                        continue;
+                    }
+                    if (isDirectory) {
+                        if (self.contains(attrs.fileKey())) {
+                            LOG.debug("Skipping {}: it is a link to one of its parents", entry);
+                        } else {
+                            children.add(new WalkTask(entry, absoluteEntry, rules, new Ancestor(attrs.fileKey(), self)));
+                        }
+                    } else {
+                        TextFile file = collector.newTextFile(entry, charset);
+                        if (file == null) {
+                            continue;
+                        } else if (sink != null) {
+                            sink.accept(file);
+                        } else {
+                            files.add(file);
+                        }
+                    }
+                }
+            } finally {
+                subtasks = children;
+            }
+        }
+
+        private boolean isSkipped(Path absoluteEntry, boolean isDirectory, @Nullable GitIgnoreRules rules) {
+            if (collector.isExcluded(absoluteEntry)) {
+                LOG.trace("Excluding {}", absoluteEntry);
+                return true;
+            } else if (useGitIgnore && isDirectory && GitIgnoreRules.GIT_DIR.equals(absoluteEntry.getFileName().toString())) {
+                return true;
+            } else if (rules != null && rules.isIgnored(absoluteEntry, isDirectory)) {
+                LOG.trace("Ignoring {}", absoluteEntry);
+                return true;
+            }
+            return false;
+        }
+
+        void collectResults(List<TextFile> result, List<IOException> errors) {
+            if (error != null) {
+                errors.add(error);
+            }
+            result.addAll(files);
+            for (WalkTask subtask : subtasks) {
+                subtask.collectResults(result, errors);
+            }
+        }
+    }
+
+    /** Keys of the directories that lead to a directory, to detect cycles. */
+    private static final class Ancestor {
+
+        private final @Nullable Object fileKey;
+        private final @Nullable Ancestor parent;
+
+        Ancestor(@Nullable Object fileKey, @Nullable Ancestor parent) {
+            this.fileKey = fileKey;
+            this.parent = parent;
+        }
+
+        boolean contains(@Nullable Object key) {
+            if (key == null) {
+                // not supported by the file system
+                return false;
+            }
+            for (Ancestor a = this; a != null; a = a.parent) {
+                if (key.equals(a.fileKey)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
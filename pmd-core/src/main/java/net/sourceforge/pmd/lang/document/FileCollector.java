@@ -13,24 +13,23 @@ import java.nio.file.FileSystem;
 import java.nio.file.FileSystemAlreadyExistsException;
 import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.FileSystems;
-import java.nio.file.FileVisitOption;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.ProviderNotFoundException;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,6 +62,10 @@ public final class FileCollector implements AutoCloseable {
     private final FileId outerFsPath;
     private boolean closed;
     private boolean recursive = true;
+    private boolean useGitIgnore;
+    private final List<Path> excludedPaths = new ArrayList<>();
+    private boolean deferDirectories;
+    private final List<PendingDirectory> pendingDirectories = new ArrayList<>();
 
     // construction
 
@@ -76,6 +79,30 @@ public final class FileCollector implements AutoCloseable {
         this.recursive = collectFilesRecursively;
     }
 
+    /**
+     * If true, {@link #addDirectory(Path)} skips the files and directories
+     * that are ignored by the {@code .gitignore} files of the directory
+     * and its subdirectories, and of its parents up to the root of the
+     * git repository. {@code .git} directories are skipped as well.
+     * Files added explicitly are never ignored. This is false by default.
+     */
+    public void setUseGitIgnore(boolean useGitIgnore) {
+        this.useGitIgnore = useGitIgnore;
+    }
+
+    /**
+     * If true, {@link #addDirectory(Path)} does not explore the directory
+     * right away. Its files are collected when they are needed, either
+     * by {@link #getCollectedFiles()}, or by {@link #streamFiles(Consumer)},
+     * which lets the analysis start before the directories have been
+     * fully explored. Filters like {@link #filterLanguages(Set)} still
+     * apply to these files. This is false by default.
+     */
+    @InternalApi
+    public void setDeferDirectories(boolean deferDirectories) {
+        this.deferDirectories = deferDirectories;
+    }
+
     /**
      * Internal API: please use {@link PmdAnalysis#files()} instead of
      * creating a collector yourself.
@@ -107,6 +134,7 @@ public final class FileCollector implements AutoCloseable {
         if (closed) {
             throw new IllegalStateException("Collector was closed!");
         }
+        explorePendingDirectories();
         List<TextFile> allFilesToProcess = new ArrayList<>(this.allFilesToProcess);
         allFilesToProcess.sort(Comparator.comparing(TextFile::getFileId));
         return Collections.unmodifiableList(allFilesToProcess);
@@ -152,11 +180,26 @@ public final class FileCollector implements AutoCloseable {
             reporter.error("Not a regular file: {0}", file);
             return false;
         }
+        if (isExcluded(file)) {
+            LOG.trace("Excluding file {}", file);
+            return false;
+        }
+        TextFile textFile = newTextFile(file, charset);
+        return textFile != null && addFileImpl(textFile);
+    }
+
+    /**
+     * Returns a text file for the given path, or null if its language
+     * is unknown. This may be called concurrently.
+     */
+    @Nullable TextFile newTextFile(Path file, Charset charset) {
         LanguageVersion languageVersion = discoverLanguage(file.toString());
-        return languageVersion != null
-            && addFileImpl(TextFile.builderForPath(file, charset, languageVersion)
-                                   .setParentFsPath(outerFsPath)
-                                   .build());
+        if (languageVersion == null) {
+            return null;
+        }
+        return TextFile.builderForPath(file, charset, languageVersion)
+                       .setParentFsPath(outerFsPath)
+                       .build();
     }
 
     /**
@@ -261,7 +304,9 @@ public final class FileCollector implements AutoCloseable {
 
     /**
      * Add a directory recursively using {@link #addFile(Path)} on
-     * all regular files.
+     * all regular files. Subdirectories are explored in parallel, and
+     * excluded or ignored directories are not explored at all (see
+     * {@link #excludePath(Path)} and {@link #setUseGitIgnore(boolean)}).
      *
      * @param dir Directory path
      *
@@ -276,19 +321,133 @@ public final class FileCollector implements AutoCloseable {
             reporter.error("Not a directory {0}", dir);
             return false;
         }
-        int maxDepth = recurse ? Integer.MAX_VALUE : 1;
-        Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), maxDepth, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                if (attrs.isRegularFile()) {
-                    FileCollector.this.addFile(file);
-                }
-                return super.visitFile(file, attrs);
+        if (isExcluded(dir)) {
+            LOG.trace("Excluding directory {}", dir);
+            return false;
+        }
+        PendingDirectory pending = new PendingDirectory(dir, recurse, useGitIgnore, charset);
+        if (deferDirectories) {
+            LOG.trace("Deferring exploration of directory {}", dir);
+            pendingDirectories.add(pending);
+            return true;
+        }
+        List<TextFile> files = new ArrayList<>();
+        try {
+            pending.newWalker().walk(dir, files);
+        } finally {
+            // files found before an error are kept
+            for (TextFile file : files) {
+                addFileImpl(file);
             }
-        });
+        }
         return true;
     }
 
+    /**
+     * Whether some directories added with {@link #addDirectory(Path)}
+     * have not been explored yet (see {@link #setDeferDirectories(boolean)}).
+     */
+    @InternalApi
+    public boolean hasPendingDirectories() {
+        return !pendingDirectories.isEmpty();
+    }
+
+    private void explorePendingDirectories() {
+        if (pendingDirectories.isEmpty()) {
+            return;
+        }
+        List<PendingDirectory> pending = new ArrayList<>(pendingDirectories);
+        pendingDirectories.clear();
+        for (PendingDirectory dir : pending) {
+            List<TextFile> files = new ArrayList<>();
+            try {
+                dir.newWalker().walk(dir.path, files);
+            } catch (IOException e) {
+                reporter.errorEx("Error collecting " + dir.path, e);
+            }
+            for (TextFile file : files) {
+                if (dir.accepts(file)) {
+                    addFileImpl(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands all collected files to the consumer, then explores the
+     * pending directories, and hands their files to the consumer as
+     * soon as they are found. The consumer is called concurrently from
+     * several threads. Files are not sorted. After this, this collector
+     * is empty, but must still be closed after the files have been
+     * processed.
+     *
+     * @param consumer A thread-safe consumer
+     */
+    @InternalApi
+    public void streamFiles(Consumer<? super TextFile> consumer) {
+        if (closed) {
+            throw new IllegalStateException("Collector was closed!");
+        }
+        // only ids are kept to filter out duplicates
+        Set<FileId> seen = ConcurrentHashMap.newKeySet();
+        for (TextFile file : allFilesToProcess) {
+            seen.add(file.getFileId());
+            consumer.accept(file);
+        }
+        allFilesToProcess.clear();
+
+        List<PendingDirectory> pending = new ArrayList<>(pendingDirectories);
+        pendingDirectories.clear();
+        for (PendingDirectory dir : pending) {
+            try {
+                dir.newWalker().walk(dir.path, file -> {
+                    if (dir.accepts(file) && seen.add(file.getFileId())) {
+                        consumer.accept(file);
+                    }
+                });
+            } catch (IOException e) {
+                reporter.errorEx("Error collecting " + dir.path, e);
+            }
+        }
+    }
+
+    private void filterPendingDirectories(Predicate<? super TextFile> filter) {
+        for (PendingDirectory dir : pendingDirectories) {
+            dir.filters.add(filter);
+        }
+    }
+
+    /** A directory whose exploration is deferred, with the settings it was added with. */
+    private final class PendingDirectory {
+
+        private final Path path;
+        private final boolean recurse;
+        private final boolean useGitIgnore;
+        private final Charset charset;
+        // filters that were applied to the collector after this was added
+        private final List<Predicate<? super TextFile>> filters = new ArrayList<>();
+
+        PendingDirectory(Path path, boolean recurse, boolean useGitIgnore, Charset charset) {
+            this.path = path;
+            this.recurse = recurse;
+            this.useGitIgnore = useGitIgnore;
+            this.charset = charset;
+        }
+
+        DirectoryWalker newWalker() {
+            return new DirectoryWalker(FileCollector.this, recurse, useGitIgnore, charset);
+        }
+
+        boolean accepts(TextFile file) {
+            for (Predicate<? super TextFile> filter : filters) {
+                if (!filter.test(file)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
 
     /**
      * Add a file or directory recursively. Language is determined automatically
@@ -354,6 +513,10 @@ public final class FileCollector implements AutoCloseable {
         if (!Files.isRegularFile(zipFile)) {
             throw new IllegalArgumentException("Not a regular file: " + zipFile);
         }
+        if (isExcluded(zipFile)) {
+            LOG.trace("Excluding zip file {}", zipFile);
+            return false;
+        }
         URI zipUri = URI.create("jar:" + zipFile.toUri());
         FileSystem fs;
         boolean isNewFileSystem = false;
@@ -409,10 +572,42 @@ public final class FileCollector implements AutoCloseable {
 
     // filtering
 
+    /**
+     * Excludes a file or directory from the files added by subsequent
+     * calls to {@link #addFile(Path)}, {@link #addDirectory(Path)}
+     * and {@link #addZipFileWithContent(Path)}. Excluded directories
+     * are not explored. Unlike {@link #exclude(FileCollector)}, this
+     * must be called before the files are collected.
+     *
+     * @param path Path of a file or directory, which need not exist
+     */
+    public void excludePath(Path path) {
+        excludedPaths.add(path.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Whether the path is one of the {@linkplain #excludePath(Path) excluded paths},
+     * or is inside of one of them. This may be called concurrently.
+     */
+    boolean isExcluded(Path path) {
+        if (excludedPaths.isEmpty()) {
+            return false;
+        }
+        Path absolute = path.toAbsolutePath().normalize();
+        for (Path excluded : excludedPaths) {
+            if (absolute.startsWith(excluded)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Remove all files collected by the given collector from this one.
      */
     public void exclude(FileCollector excludeCollector) {
+        explorePendingDirectories();
+        excludeCollector.explorePendingDirectories();
         Set<TextFile> toExclude = new HashSet<>(excludeCollector.allFilesToProcess);
         for (Iterator<TextFile> iterator = allFilesToProcess.iterator(); iterator.hasNext();) {
             TextFile file = iterator.next();
@@ -428,6 +623,7 @@ public final class FileCollector implements AutoCloseable {
      * Transfers resources to close as well. The parameter is left empty.
      */
     public void absorb(FileCollector otherCollector) {
+        otherCollector.explorePendingDirectories();
         this.allFilesToProcess.addAll(otherCollector.allFilesToProcess);
         this.resourcesToClose.addAll(otherCollector.resourcesToClose);
         otherCollector.allFilesToProcess.clear();
@@ -439,6 +635,7 @@ public final class FileCollector implements AutoCloseable {
      * collection.
      */
     public void filterLanguages(Set<Language> languages) {
+        filterPendingDirectories(file -> languages.contains(file.getLanguageVersion().getLanguage()));
         for (Iterator<TextFile> iterator = allFilesToProcess.iterator(); iterator.hasNext();) {
             TextFile file = iterator.next();
             Language lang = file.getLanguageVersion().getLanguage();
@@ -449,6 +646,21 @@ public final class FileCollector implements AutoCloseable {
         }
     }
 
+    /**
+     * Exclude all collected files whose id does not satisfy the given
+     * predicate.
+     */
+    public void filterFiles(Predicate<? super FileId> filter) {
+        filterPendingDirectories(file -> filter.test(file.getFileId()));
+        for (Iterator<TextFile> iterator = allFilesToProcess.iterator(); iterator.hasNext();) {
+            TextFile file = iterator.next();
+            if (!filter.test(file.getFileId())) {
+                LOG.trace("Filtering out {}", file.getFileId());
+                iterator.remove();
+            }
+        }
+    }
+
 
     @Override
     public String toString() {
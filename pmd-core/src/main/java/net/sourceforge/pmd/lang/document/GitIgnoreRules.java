@@ -0,0 +1,238 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.document;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The patterns of a {@code .gitignore} file, which apply to the files
+ * of the directory that contains it. Patterns are matched against the
+ * path of files relative to that directory, using the syntax of git:
+ * blank lines and lines starting with {@code #} are ignored, {@code !}
+ * negates a pattern, a trailing {@code /} restricts it to directories,
+ * patterns that contain a {@code /} are anchored to the directory, and
+ * {@code *}, {@code ?}, {@code [a-z]} and {@code **} are wildcards.
+ *
+ * <p>Rules of a subdirectory take precedence over those of its parents,
+ * and among the rules of a file, the last one that matches wins. Note
+ * that since ignored directories are not explored, a file inside them
+ * cannot be re-included with a negated pattern. This is also how git
+ * behaves.
+ */
+final class GitIgnoreRules {
+
+    static final String GITIGNORE = ".gitignore";
+    static final String GIT_DIR = ".git";
+
+    private final Path baseDir;
+    private final @Nullable GitIgnoreRules parent;
+    private final List<IgnorePattern> patterns;
+
+    private GitIgnoreRules(Path baseDir, @Nullable GitIgnoreRules parent, List<IgnorePattern> patterns) {
+        this.baseDir = baseDir;
+        this.parent = parent;
+        this.patterns = patterns;
+    }
+
+    /**
+     * Returns the rules that apply to the files of the given directory.
+     * These are the rules of the {@code .gitignore} file of the directory,
+     * if any, followed by the given rules of the parent directory.
+     *
+     * @param absoluteDir Normalized absolute path of the directory
+     * @param parent      Rules of the parent directory, may be null
+     */
+    static @Nullable GitIgnoreRules forDirectory(Path absoluteDir, @Nullable GitIgnoreRules parent) throws IOException {
+        Path ignoreFile = absoluteDir.resolve(GITIGNORE);
+        if (!Files.isRegularFile(ignoreFile)) {
+            return parent;
+        }
+        return parse(absoluteDir, Files.readAllLines(ignoreFile, StandardCharsets.UTF_8), parent);
+    }
+
+    /**
+     * Returns the rules of the parent directories of the given directory,
+     * up to the root of the git repository that contains it. Returns null
+     * if the directory is not inside a git repository, or is its root.
+     *
+     * @param absoluteDir Normalized absolute path of the directory
+     */
+    static @Nullable GitIgnoreRules forParentsOf(Path absoluteDir) throws IOException {
+        Deque<Path> parents = new ArrayDeque<>();
+        Path repoRoot = null;
+        for (Path dir = absoluteDir; dir != null; dir = dir.getParent()) {
+            if (Files.exists(dir.resolve(GIT_DIR))) {
+                repoRoot = dir;
+                break;
+            }
+            parents.push(dir);
+        }
+        if (repoRoot == null || repoRoot.equals(absoluteDir)) {
+            return null;
+        }
+        // the directory itself is handled by the walk
+        parents.removeLast();
+        GitIgnoreRules rules = forDirectory(repoRoot, null);
+        for (Path dir : parents) {
+            rules = forDirectory(dir, rules);
+        }
+        return rules;
+    }
+
+    static GitIgnoreRules parse(Path baseDir, List<String> lines, @Nullable GitIgnoreRules parent) {
+        List<IgnorePattern> patterns = new ArrayList<>();
+        for (String line : lines) {
+            IgnorePattern pattern = IgnorePattern.parse(line);
+            if (pattern != null) {
+                patterns.add(pattern);
+            }
+        }
+        return new GitIgnoreRules(baseDir, parent, patterns);
+    }
+
+    /**
+     * Whether the file is ignored.
+     *
+     * @param absolutePath Normalized absolute path of the file
+     * @param isDirectory  Whether the file is a directory
+     */
+    boolean isIgnored(Path absolutePath, boolean isDirectory) {
+        for (GitIgnoreRules rules = this; rules != null; rules = rules.parent) {
+            if (!absolutePath.startsWith(rules.baseDir)) {
+                continue;
+            }
+            String relative = rules.baseDir.relativize(absolutePath).toString();
+            String separator = absolutePath.getFileSystem().getSeparator();
+            if (!"/".equals(separator)) {
+                relative = relative.replace(separator, "/");
+            }
+            for (int i = rules.patterns.size() - 1; i >= 0; i--) {
+                IgnorePattern pattern = rules.patterns.get(i);
+                if (pattern.matches(relative, isDirectory)) {
+                    return !pattern.negated;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static final class IgnorePattern {
+
+        private final Pattern regex;
+        private final boolean negated;
+        private final boolean directoryOnly;
+
+        IgnorePattern(Pattern regex, boolean negated, boolean directoryOnly) {
+            this.regex = regex;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+        }
+
+        boolean matches(String relativePath, boolean isDirectory) {
+            return (isDirectory || !directoryOnly) && regex.matcher(relativePath).matches();
+        }
+
+        static @Nullable IgnorePattern parse(String line) {
+            String pattern = trimTrailingSpaces(line);
+            if (pattern.isEmpty() || pattern.charAt(0) == '#') {
+                return null;
+            }
+            boolean negated = pattern.charAt(0) == '!';
+            if (negated) {
+                pattern = pattern.substring(1);
+            }
+            boolean directoryOnly = pattern.endsWith("/");
+            if (directoryOnly) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            if (pattern.isEmpty()) {
+                return null;
+            }
+            String regex;
+            if (pattern.indexOf('/') >= 0) {
+                // anchored to the directory of the .gitignore file
+                regex = globToRegex(pattern.charAt(0) == '/' ? pattern.substring(1) : pattern);
+            } else {
+                // matches at any depth
+                regex = "(?:.*/)?" + globToRegex(pattern);
+            }
+            return new IgnorePattern(Pattern.compile(regex), negated, directoryOnly);
+        }
+
+        private static String trimTrailingSpaces(String line) {
+            int end = line.length();
+            while (end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) {
+                end--;
+            }
+            return line.substring(0, end);
+        }
+
+        private static String globToRegex(String glob) {
+            StringBuilder sb = new StringBuilder(glob.length() * 2);
+            int n = glob.length();
+            int i = 0;
+            while (i < n) {
+                char c = glob.charAt(i);
+                if (c == '*') {
+                    boolean wholeSegment = (i == 0 || glob.charAt(i - 1) == '/')
+                        && i + 1 < n && glob.charAt(i + 1) == '*'
+                        && (i + 2 == n || glob.charAt(i + 2) == '/');
+                    if (!wholeSegment) {
+                        sb.append("[^/]*");
+                        i++;
+                    } else if (i + 2 == n) {
+                        // trailing /**, everything inside
+                        sb.append(".*");
+                        i += 2;
+                    } else {
+                        // **/, zero or more directories
+                        sb.append("(?:.*/)?");
+                        i += 3;
+                    }
+                } else if (c == '?') {
+                    sb.append("[^/]");
+                    i++;
+                } else if (c == '[' && glob.indexOf(']', i + 2) > 0) {
+                    int end = glob.indexOf(']', i + 2);
+                    sb.append('[');
+                    int start = i + 1;
+                    if (glob.charAt(start) == '!' || glob.charAt(start) == '^') {
+                        sb.append('^');
+                        start++;
+                    }
+                    for (int j = start; j < end; j++) {
+                        char d = glob.charAt(j);
+                        if (d == '[' || d == '&' || d == '\\') {
+                            sb.append('\\');
+                        }
+                        sb.append(d);
+                    }
+                    sb.append(']');
+                    i = end + 1;
+                } else {
+                    if (c == '\\' && i + 1 < n) {
+                        c = glob.charAt(++i);
+                    }
+                    if (!Character.isLetterOrDigit(c)) {
+                        sb.append('\\');
+                    }
+                    sb.append(c);
+                    i++;
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
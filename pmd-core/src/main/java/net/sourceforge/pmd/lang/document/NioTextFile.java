@@ -10,6 +10,7 @@ import java.nio.charset.Charset;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -86,7 +87,13 @@ class NioTextFile extends BaseCloseable implements TextFile {
             throw new IOException("Not a regular file: " + path);
         }
 
-        return TextFileContent.fromInputStream(Files.newInputStream(path), charset);
+        return TextFileContent.fromBytes(Files.readAllBytes(path), charset);
+    }
+
+    @Override
+    public BasicFileAttributes readAttributes() throws IOException {
+        ensureOpen();
+        return Files.readAttributes(path, BasicFileAttributes.class);
     }
 
 
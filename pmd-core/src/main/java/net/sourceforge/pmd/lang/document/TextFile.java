@@ -13,8 +13,10 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import net.sourceforge.pmd.PMDConfiguration;
 import net.sourceforge.pmd.annotation.DeprecatedUntil700;
@@ -103,6 +105,21 @@ public interface TextFile extends Closeable {
     TextFileContent readContents() throws IOException;
 
 
+    /**
+     * Reads the attributes of the underlying file, or returns null if
+     * this text file is not backed by a file. The analysis cache uses
+     * the size and last modification time of the file to find out
+     * whether it has changed, without reading its contents.
+     *
+     * @return The attributes of the file, or null
+     *
+     * @throws IOException If reading the attributes causes an IOException
+     */
+    default @Nullable BasicFileAttributes readAttributes() throws IOException {
+        return null;
+    }
+
+
     /**
      * Release resources associated with this text file. Is a noop if
      * it is called several times.
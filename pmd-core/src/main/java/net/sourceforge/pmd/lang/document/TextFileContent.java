@@ -6,6 +6,7 @@ package net.sourceforge.pmd.lang.document;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.CharArrayReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -14,6 +15,7 @@ import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.Adler32;
@@ -157,6 +159,92 @@ public final class TextFileContent {
         }
     }
 
+    /**
+     * Produces a {@link TextFileContent} from the bytes of a file. The
+     * checksum is computed on the whole array at once. If the encoding is
+     * a superset of ASCII, and the bytes are all ASCII, they are copied
+     * into the text without going through a decoder, and lines are found
+     * in the same pass. Otherwise, this falls back to decoding the bytes.
+     *
+     * @param bytes          Contents of the file
+     * @param sourceEncoding Encoding to use to decode the bytes
+     */
+    static TextFileContent fromBytes(byte[] bytes, Charset sourceEncoding) throws IOException {
+        return fromBytes(bytes, sourceEncoding, FALLBACK_LINESEP);
+    }
+
+    // test only
+    static TextFileContent fromBytes(byte[] bytes, Charset sourceEncoding, String fallbackLineSep) throws IOException {
+        Checksum checksum = newChecksum();
+        checksum.update(bytes, 0, bytes.length);
+
+        if (isAsciiSuperset(sourceEncoding)) {
+            TextFileContent ascii = readAscii(bytes, fallbackLineSep, checksum.getValue());
+            if (ascii != null) {
+                return ascii;
+            }
+        }
+        // like InputStreamReader, this replaces malformed input
+        CharBuffer chars = sourceEncoding.decode(ByteBuffer.wrap(bytes));
+        try (Reader reader = new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining())) {
+            return normalizingRead(reader, DEFAULT_BUFSIZE, fallbackLineSep, checksum, false);
+        }
+    }
+
+    private static boolean isAsciiSuperset(Charset charset) {
+        return StandardCharsets.UTF_8.equals(charset)
+            || StandardCharsets.ISO_8859_1.equals(charset)
+            || StandardCharsets.US_ASCII.equals(charset);
+    }
+
+    /**
+     * Reads the text from bytes that should all be ASCII, or returns
+     * null if they are not. The bytes are left untouched in that case.
+     */
+    private static @Nullable TextFileContent readAscii(byte[] bytes, String fallbackLineSep, long checksum) {
+        SourceCodePositioner.Builder positionerBuilder = new SourceCodePositioner.Builder();
+        String detectedLineTerm = null;
+        // only copied if some line terminators need to be normalized
+        byte[] normalized = bytes;
+        int length = 0;
+        int i = 0;
+        while (i < bytes.length) {
+            byte b = bytes[i++];
+            if (b < 0) {
+                return null; // not ASCII
+            } else if (b == '\r') {
+                if (normalized == bytes) { // NOPMD CompareObjectsWithEquals
+                    normalized = Arrays.copyOf(bytes, bytes.length);
+                }
+                final String newLineTerm;
+                if (i < bytes.length && bytes[i] == NORMALIZED_LINE_TERM_CHAR) {
+                    newLineTerm = CRLF;
+                    i++;
+                } else {
+                    newLineTerm = CR;
+                }
+                normalized[length++] = NORMALIZED_LINE_TERM_CHAR;
+                positionerBuilder.addLineEndAtOffset(length);
+                detectedLineTerm = detectLineTerm(detectedLineTerm, newLineTerm, fallbackLineSep);
+            } else {
+                normalized[length++] = b;
+                if (b == NORMALIZED_LINE_TERM_CHAR) {
+                    positionerBuilder.addLineEndAtOffset(length);
+                    detectedLineTerm = detectLineTerm(detectedLineTerm, LF, fallbackLineSep);
+                }
+            }
+        }
+
+        if (detectedLineTerm == null) {
+            // no line terminator in text
+            detectedLineTerm = fallbackLineSep;
+        }
+
+        // ASCII is a subset of latin-1, which strings may store as is
+        String text = new String(normalized, 0, length, StandardCharsets.ISO_8859_1);
+        return new TextFileContent(Chars.wrap(text), detectedLineTerm, checksum, positionerBuilder.build(length));
+    }
+
     // test only
     static @NonNull TextFileContent normalizeCharSeq(CharSequence text, String fallBackLineSep) {
         long checksum = getCheckSum(text); // the checksum is computed on the original file
@@ -0,0 +1,261 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sourceforge.pmd.Report.ProcessingError;
+import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.lang.ast.AnalysisInterruptedException;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.impl.HeapAdmissionController.Admission;
+import net.sourceforge.pmd.reporting.FileAnalysisListener;
+import net.sourceforge.pmd.reporting.GlobalAnalysisListener;
+
+/**
+ * Enforces the timeouts of an analysis. If the analysis of a file takes
+ * longer than the file timeout, the thread analysing it is interrupted.
+ * Parsers and the rule applicator check the interruption status of the
+ * thread regularly, and abort the file with an {@link AnalysisInterruptedException},
+ * which is reported as a processing error naming the interrupted phase.
+ *
+ * <p>A file whose thread is stuck in code that doesn't check for interruption
+ * (e.g. a catastrophic regular expression) is considered stuck once it
+ * exceeds its timeout a second time. The multithreaded processor then
+ * stops waiting for it, so that the analysis still completes.
+ *
+ * <p>The rule timeout is enforced by the {@link net.sourceforge.pmd.lang.rule.internal.RuleApplicator},
+ * which measures the time spent by each rule on each file.
+ *
+ * @since 7.0.0
+ */
+@InternalApi
+public final class AnalysisWatchdog implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AnalysisWatchdog.class);
+    private static final AnalysisWatchdog NONE = new AnalysisWatchdog(0, 0);
+
+    private final long fileTimeoutMillis;
+    private final long ruleTimeoutMillis;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Set<FileWatch> openWatches = ConcurrentHashMap.newKeySet();
+
+    private AnalysisWatchdog(long fileTimeoutMillis, long ruleTimeoutMillis) {
+        this.fileTimeoutMillis = fileTimeoutMillis;
+        this.ruleTimeoutMillis = ruleTimeoutMillis;
+        if (fileTimeoutMillis > 0) {
+            scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "PmdWatchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Returns a watchdog that enforces no timeout.
+     */
+    public static AnalysisWatchdog none() {
+        return NONE;
+    }
+
+    /**
+     * Returns a watchdog with the given timeouts in milliseconds. A timeout
+     * that is zero or negative is not enforced. The watchdog must be closed
+     * when the analysis is done.
+     */
+    public static AnalysisWatchdog withTimeouts(long fileTimeoutMillis, long ruleTimeoutMillis) {
+        if (fileTimeoutMillis <= 0 && ruleTimeoutMillis <= 0) {
+            return NONE;
+        }
+        return new AnalysisWatchdog(Math.max(0, fileTimeoutMillis), Math.max(0, ruleTimeoutMillis));
+    }
+
+    /**
+     * Returns the maximum time in milliseconds the analysis of a file may
+     * take, zero if there is none.
+     */
+    public long getFileTimeoutMillis() {
+        return fileTimeoutMillis;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds a rule may spend on a file,
+     * zero if there is none.
+     */
+    public long getRuleTimeoutMillis() {
+        return ruleTimeoutMillis;
+    }
+
+    /**
+     * Starts watching the analysis of a file by the current thread. The
+     * returned watch must be closed by the same thread when the analysis
+     * of the file is done. The heap admission of the file is released
+     * early if the file gets stuck.
+     */
+    FileWatch watchFile(TextFile file, Admission admission) {
+        FileWatch watch = new FileWatch(file, Thread.currentThread(), admission);
+        if (scheduler != null) {
+            openWatches.add(watch);
+            watch.timeoutTask = scheduler.schedule(watch::timeOut, fileTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return watch;
+    }
+
+    /**
+     * Returns the files that are stuck, among those analysed by the threads
+     * matching the given predicate.
+     */
+    List<FileWatch> getStuckFiles(Predicate<Thread> threadFilter) {
+        List<FileWatch> result = new ArrayList<>();
+        for (FileWatch watch : openWatches) {
+            if (threadFilter.test(watch.thread) && watch.isStuck()) {
+                result.add(watch);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Watches the analysis of a single file.
+     */
+    final class FileWatch implements AutoCloseable {
+
+        private final TextFile file;
+        private final Thread thread;
+        private final Admission admission;
+        private volatile String phase = "starting";
+        private ScheduledFuture<?> timeoutTask;
+
+        // guarded by this
+        private boolean done;
+        private boolean abandoned;
+        private long timedOutAtNanos = -1;
+
+        FileWatch(TextFile file, Thread thread, Admission admission) {
+            this.file = file;
+            this.thread = thread;
+            this.admission = admission;
+        }
+
+        /**
+         * Records the current phase of the analysis, which is reported
+         * if the file gets stuck.
+         */
+        void enterPhase(String phase) {
+            this.phase = phase;
+        }
+
+        private synchronized void timeOut() {
+            if (!done) {
+                LOG.debug("Analysis of {} timed out while {}, interrupting {}", file.getFileId().getAbsolutePath(), phase, thread.getName());
+                timedOutAtNanos = System.nanoTime();
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * Whether the file timed out and its thread has not aborted after
+         * another timeout period.
+         */
+        synchronized boolean isStuck() {
+            return !done && timedOutAtNanos >= 0
+                && System.nanoTime() - timedOutAtNanos > TimeUnit.MILLISECONDS.toNanos(fileTimeoutMillis);
+        }
+
+        /**
+         * If the interruption was caused by this watch, returns an exception
+         * that describes the timeout. Otherwise returns the parameter.
+         */
+        AnalysisInterruptedException describe(AnalysisInterruptedException e) {
+            synchronized (this) {
+                if (timedOutAtNanos < 0) {
+                    return e;
+                }
+            }
+            AnalysisInterruptedException timeout = AnalysisInterruptedException.timeout(e.getPhase(), fileTimeoutMillis);
+            timeout.setFileId(file.getFileId());
+            return timeout;
+        }
+
+        /**
+         * Releases the share of the heap budget taken by a stuck file, so that
+         * the other files are not blocked by it.
+         */
+        void releaseHeapShare() {
+            admission.close();
+        }
+
+        /**
+         * Whether the file was abandoned. The thread analysing the file must
+         * hold the lock of this watch while it checks this and reports an
+         * event, because once the file is abandoned, the analysis listener
+         * may be closed.
+         */
+        boolean isAbandoned() {
+            assert Thread.holdsLock(this);
+            return abandoned;
+        }
+
+        /**
+         * Stops waiting for a stuck file. A processing error is reported for
+         * it. The thread analysing it is left running, but it does not report
+         * anything more if it completes later.
+         */
+        void abandon(GlobalAnalysisListener listener) {
+            openWatches.remove(this);
+            synchronized (this) {
+                if (done) {
+                    // completed in the meantime, it reported its own results
+                    return;
+                }
+                abandoned = true;
+            }
+            LOG.warn("Analysis of {} is stuck while {}, giving up on thread {}", file.getFileId().getAbsolutePath(), phase, thread.getName());
+            AnalysisInterruptedException error = AnalysisInterruptedException.timeout(phase, fileTimeoutMillis);
+            error.setFileId(file.getFileId());
+            try (FileAnalysisListener fileListener = listener.startFileAnalysis(file)) {
+                fileListener.onError(new ProcessingError(error, file.getFileId()));
+            } catch (Exception e) {
+                LOG.error("Exception while reporting stuck file {}", file.getFileId().getAbsolutePath(), e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (timeoutTask != null) {
+                timeoutTask.cancel(false);
+                openWatches.remove(this);
+            }
+            synchronized (this) {
+                done = true;
+                if (timedOutAtNanos >= 0) {
+                    // clear the interruption we caused, the thread goes on with the next file
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+}
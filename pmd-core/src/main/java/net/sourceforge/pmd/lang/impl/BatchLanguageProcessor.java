@@ -4,9 +4,6 @@
 
 package net.sourceforge.pmd.lang.impl;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import net.sourceforge.pmd.lang.LanguageProcessor;
@@ -14,6 +11,7 @@ import net.sourceforge.pmd.lang.LanguagePropertyBundle;
 import net.sourceforge.pmd.lang.LanguageVersion;
 import net.sourceforge.pmd.lang.PmdCapableLanguage;
 import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.util.IteratorUtil;
 
 /**
  * A base class for language processors. It processes all files of the
@@ -58,16 +56,21 @@ public abstract class BatchLanguageProcessor<P extends LanguagePropertyBundle> i
     @Override
     public @NonNull AutoCloseable launchAnalysis(@NonNull AnalysisTask task) {
         // The given analysis task has all files to analyse, not only the ones for this language.
-        List<TextFile> files = new ArrayList<>(task.getFiles());
-        files.removeIf(it -> !it.getLanguageVersion().getLanguage().equals(getLanguage()));
+        // The files are filtered lazily, as they may still be being discovered.
+        Iterable<TextFile> source = task.getFileSource();
+        Iterable<TextFile> files = () -> IteratorUtil.filter(
+            source.iterator(),
+            it -> it.getLanguageVersion().getLanguage().equals(getLanguage())
+        );
         AnalysisTask newTask = task.withFiles(files);
 
         task.getRulesets().initializeRules(task.getLpRegistry(), task.getMessageReporter());
 
         // launch processing.
         AbstractPMDProcessor processor = AbstractPMDProcessor.newFileProcessor(newTask);
-        // If this is a multi-threaded processor, this call is non-blocking,
-        // the call to close on the returned instance blocks instead.
+        // If this is a multi-threaded processor, this call only blocks
+        // until all files have been discovered and submitted, the call
+        // to close on the returned instance blocks instead.
         processor.processFiles();
         return processor;
     }
@@ -0,0 +1,199 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.impl;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.lang.Language;
+
+/**
+ * Limits the memory used by the files that are analysed concurrently.
+ * Before a file is parsed, its memory usage is estimated from its size,
+ * and the file is only admitted if the estimates of all the files in
+ * flight fit into the heap budget. Otherwise the worker thread waits
+ * until enough files complete. Files are admitted in the order they
+ * asked, and a file is always admitted if no other file is in flight,
+ * so that files whose estimate exceeds the budget are analysed alone.
+ *
+ * <p>The estimate is the number of characters of the file times a ratio
+ * that is learned for each language. Where the JVM supports it, the ratio
+ * is updated with the number of bytes the worker thread allocated while
+ * analysing each file. That is all the memory allocated, not the memory
+ * that is retained, and the first files of a language also allocate what
+ * is initialized once. So each observation is capped, and the ratio starts
+ * from a default rather than from the first observation. The estimate thus
+ * stays in the order of magnitude of the memory retained by an analysis.
+ *
+ * <p>The time spent waiting is recorded in the timing report under
+ * {@link TimedOperationCategory#HEAP_ADMISSION}.
+ *
+ * @since 7.0.0
+ */
+@InternalApi
+public final class HeapAdmissionController {
+
+    /** Ratio of bytes of heap per character of text, used before a file of the language has been analysed. */
+    static final double DEFAULT_BYTES_PER_CHAR = 64;
+    /** Upper bound of the bytes allocated per character that one analysed file contributes to the ratio. */
+    static final double MAX_BYTES_PER_CHAR = 4 * DEFAULT_BYTES_PER_CHAR;
+    /** Weight of the last analysed file in the ratio of its language. */
+    private static final double HISTORY_WEIGHT = 0.2;
+
+    private static final Logger LOG = LoggerFactory.getLogger(HeapAdmissionController.class);
+    private static final HeapAdmissionController UNLIMITED = new HeapAdmissionController(0);
+    private static final Admission NOOP_ADMISSION = () -> { };
+
+    private final long budget;
+    private final ConcurrentMap<Language, Double> bytesPerChar = new ConcurrentHashMap<>();
+    private final com.sun.management.ThreadMXBean allocationTracker = allocationTracker();
+
+    // guarded by this
+    private final Deque<Thread> waitingThreads = new ArrayDeque<>();
+    private long bytesInFlight;
+    private int filesInFlight;
+
+    private HeapAdmissionController(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Returns a controller that admits all files immediately.
+     */
+    public static HeapAdmissionController unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Returns a controller with the given budget in bytes. If the budget
+     * is zero or negative, the returned controller admits all files immediately.
+     */
+    public static HeapAdmissionController withBudget(long budgetInBytes) {
+        return budgetInBytes > 0 ? new HeapAdmissionController(budgetInBytes) : UNLIMITED;
+    }
+
+    /**
+     * Returns the budget in bytes, zero if this controller admits all files.
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns the estimated memory usage of analysing a file of the given
+     * language and size.
+     */
+    long estimate(Language language, int lengthInChars) {
+        return (long) (bytesPerChar.getOrDefault(language, DEFAULT_BYTES_PER_CHAR) * lengthInChars);
+    }
+
+    /**
+     * Blocks until a file of the given language and length can be analysed.
+     * The returned admission must be closed when the analysis of the file
+     * is done, to release its share of the budget.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    Admission admit(Language language, int lengthInChars) throws InterruptedException {
+        if (budget <= 0) {
+            return NOOP_ADMISSION;
+        }
+
+        long estimate = estimate(language, lengthInChars);
+        long waitedNanos = 0;
+        synchronized (this) {
+            Thread self = Thread.currentThread();
+            waitingThreads.addLast(self);
+            try {
+                while (waitingThreads.peekFirst() != self || filesInFlight > 0 && bytesInFlight + estimate > budget) {
+                    long start = System.nanoTime();
+                    wait();
+                    waitedNanos += System.nanoTime() - start;
+                }
+            } catch (InterruptedException e) {
+                // let the next thread in line have its turn
+                waitingThreads.remove(self);
+                notifyAll();
+                throw e;
+            }
+            waitingThreads.removeFirst();
+            bytesInFlight += estimate;
+            filesInFlight++;
+            // the next file in line may fit as well
+            notifyAll();
+        }
+
+        if (waitedNanos > 0) {
+            LOG.trace("Waited {} ms for {} bytes of heap budget", waitedNanos / 1_000_000, estimate);
+            TimeTracker.recordOperation(TimedOperationCategory.HEAP_ADMISSION, null, waitedNanos, 1);
+        }
+
+        long allocatedBefore = allocatedBytes();
+        Thread owner = Thread.currentThread();
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (this) {
+                bytesInFlight -= estimate;
+                filesInFlight--;
+                notifyAll();
+            }
+            // the allocations can only be measured on the thread that analysed the file
+            if (allocatedBefore >= 0 && lengthInChars > 0 && Thread.currentThread() == owner) {
+                long allocated = allocatedBytes() - allocatedBefore;
+                recordUsage(language, (double) allocated / lengthInChars);
+            }
+        };
+    }
+
+    void recordUsage(Language language, double observedBytesPerChar) {
+        double observed = Math.min(observedBytesPerChar, MAX_BYTES_PER_CHAR);
+        bytesPerChar.compute(language, (lang, old) -> {
+            double previous = old != null ? old : DEFAULT_BYTES_PER_CHAR;
+            return previous * (1 - HISTORY_WEIGHT) + observed * HISTORY_WEIGHT;
+        });
+    }
+
+    private long allocatedBytes() {
+        return allocationTracker != null
+               ? allocationTracker.getThreadAllocatedBytes(Thread.currentThread().getId())
+               : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationTracker() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The share of the budget taken by a file. Closing it releases the share,
+     * closing it again has no effect.
+     */
+    @FunctionalInterface
+    interface Admission extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
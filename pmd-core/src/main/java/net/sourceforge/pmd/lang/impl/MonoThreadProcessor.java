@@ -20,7 +20,7 @@ final class MonoThreadProcessor extends AbstractPMDProcessor {
     @Override
     @SuppressWarnings("PMD.CloseResource") // closed by the PMDRunnable
     public void processFiles() {
-        for (TextFile file : task.getFiles()) {
+        for (TextFile file : task.getFileSource()) {
             new MonothreadRunnable(file, task).run();
         }
     }
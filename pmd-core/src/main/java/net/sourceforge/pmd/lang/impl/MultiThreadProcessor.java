@@ -4,13 +4,20 @@
 
 package net.sourceforge.pmd.lang.impl;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.lang.LanguageProcessor.AnalysisTask;
 import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.impl.AnalysisWatchdog.FileWatch;
 import net.sourceforge.pmd.util.log.MessageReporter;
 
 
@@ -19,12 +26,25 @@ import net.sourceforge.pmd.util.log.MessageReporter;
  */
 final class MultiThreadProcessor extends AbstractPMDProcessor {
 
-    private final ExecutorService executor;
+    private static final Logger LOG = LoggerFactory.getLogger(MultiThreadProcessor.class);
+
+    /** Number of files waiting for a thread, per thread. */
+    private static final int QUEUED_FILES_PER_THREAD = 4;
+
+    private final PmdThreadFactory threadFactory = new PmdThreadFactory();
+    private final BlockingQueue<Runnable> queue;
+    private final ThreadPoolExecutor executor;
 
     MultiThreadProcessor(final AnalysisTask task) {
         super(task);
 
-        executor = Executors.newFixedThreadPool(task.getThreadCount(), new PmdThreadFactory());
+        queue = new ArrayBlockingQueue<>(task.getThreadCount() * QUEUED_FILES_PER_THREAD);
+        executor = new ThreadPoolExecutor(task.getThreadCount(), task.getThreadCount(),
+                                          0L, TimeUnit.MILLISECONDS,
+                                          queue,
+                                          threadFactory);
+        // files are put into the queue directly
+        executor.prestartAllCoreThreads();
     }
 
     @Override
@@ -41,23 +61,55 @@ final class MultiThreadProcessor extends AbstractPMDProcessor {
             return copy;
         });
 
-        for (final TextFile textFile : task.getFiles()) {
-            executor.submit(new PmdRunnable(textFile, task) {
+        for (final TextFile textFile : task.getFileSource()) {
+            PmdRunnable runnable = new PmdRunnable(textFile, task) {
                 @Override
                 protected RuleSets getRulesets() {
                     return ruleSetCopy.get();
                 }
-            });
+            };
+            try {
+                enqueue(new FutureTask<>(runnable, null));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits until there is room in the queue for the file. The queue is
+     * bounded, so that files are only taken from the file source (which
+     * may still be discovering them) as fast as they are analysed.
+     * While waiting, stuck threads are replaced.
+     */
+    private void enqueue(Runnable runnable) throws InterruptedException {
+        long fileTimeout = task.getWatchdog().getFileTimeoutMillis();
+        if (fileTimeout <= 0) {
+            queue.put(runnable);
+            return;
+        }
+        while (!queue.offer(runnable, Math.min(fileTimeout, 1000), TimeUnit.MILLISECONDS)) {
+            giveUpOnStuckFiles();
         }
     }
 
     @Override
     public void close() {
+        long fileTimeout = task.getWatchdog().getFileTimeoutMillis();
         try {
             executor.shutdown();
-            while (!executor.awaitTermination(10, TimeUnit.HOURS)) {
-                // still waiting
-                Thread.yield();
+            if (fileTimeout <= 0) {
+                while (!executor.awaitTermination(10, TimeUnit.HOURS)) {
+                    // still waiting
+                    Thread.yield();
+                }
+            } else {
+                while (!executor.awaitTermination(Math.min(fileTimeout, 1000), TimeUnit.MILLISECONDS)) {
+                    if (giveUpOnStuckFiles()) {
+                        break;
+                    }
+                }
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -65,4 +117,40 @@ final class MultiThreadProcessor extends AbstractPMDProcessor {
             executor.shutdownNow();
         }
     }
+
+    /**
+     * Handles the files whose threads don't react to the interruption
+     * that follows their timeout. Their share of the heap budget is released.
+     * While files are waiting to be analysed, a new thread is started for
+     * each stuck one, so that the other files are analysed with the
+     * configured number of threads. Once only stuck
+     * files remain, a processing error is reported for them, and this
+     * returns true to stop waiting for them.
+     */
+    private boolean giveUpOnStuckFiles() {
+        List<FileWatch> stuck = task.getWatchdog().getStuckFiles(threadFactory::isOwnThread);
+        if (stuck.isEmpty()) {
+            return false;
+        }
+        for (FileWatch watch : stuck) {
+            watch.releaseHeapShare();
+        }
+        if (!executor.getQueue().isEmpty()) {
+            int poolSize = task.getThreadCount() + stuck.size();
+            if (executor.getMaximumPoolSize() < poolSize) {
+                LOG.debug("Starting {} more threads to replace stuck ones", poolSize - executor.getMaximumPoolSize());
+                executor.setMaximumPoolSize(poolSize);
+                executor.setCorePoolSize(poolSize);
+            }
+            return false;
+        }
+        if (executor.getActiveCount() > stuck.size()) {
+            // other files are still being analysed
+            return false;
+        }
+        for (FileWatch watch : stuck) {
+            watch.abandon(task.getListener());
+        }
+        return true;
+    }
 }
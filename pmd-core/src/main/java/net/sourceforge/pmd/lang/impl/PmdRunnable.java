@@ -6,10 +6,13 @@ package net.sourceforge.pmd.lang.impl;
 
 import static net.sourceforge.pmd.util.CollectionUtil.listOf;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.Report.ProcessingError;
+import net.sourceforge.pmd.Report.SuppressedViolation;
 import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.RuleViolation;
 import net.sourceforge.pmd.benchmark.TimeTracker;
@@ -20,14 +23,18 @@ import net.sourceforge.pmd.internal.SystemProps;
 import net.sourceforge.pmd.lang.LanguageProcessor;
 import net.sourceforge.pmd.lang.LanguageProcessor.AnalysisTask;
 import net.sourceforge.pmd.lang.LanguageVersionHandler;
+import net.sourceforge.pmd.lang.ast.AnalysisInterruptedException;
 import net.sourceforge.pmd.lang.ast.FileAnalysisException;
 import net.sourceforge.pmd.lang.ast.Parser;
 import net.sourceforge.pmd.lang.ast.Parser.ParserTask;
 import net.sourceforge.pmd.lang.ast.RootNode;
 import net.sourceforge.pmd.lang.ast.SemanticErrorReporter;
 import net.sourceforge.pmd.lang.ast.SemanticException;
+import net.sourceforge.pmd.lang.document.FileId;
 import net.sourceforge.pmd.lang.document.TextDocument;
 import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.impl.AnalysisWatchdog.FileWatch;
+import net.sourceforge.pmd.lang.impl.HeapAdmissionController.Admission;
 import net.sourceforge.pmd.reporting.FileAnalysisListener;
 
 /**
@@ -38,6 +45,8 @@ abstract class PmdRunnable implements Runnable {
     private static final Logger LOG = LoggerFactory.getLogger(PmdRunnable.class);
     private final TextFile textFile;
     private final AnalysisTask task;
+    /** The watch of the file while it is analysed, it may abandon the file. */
+    private volatile @Nullable FileWatch watch;
 
     PmdRunnable(TextFile textFile, AnalysisTask task) {
         this.textFile = textFile;
@@ -56,36 +65,47 @@ abstract class PmdRunnable implements Runnable {
         TimeTracker.initThread();
 
         try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.FILE_PROCESSING);
-             FileAnalysisListener listener = task.getListener().startFileAnalysis(textFile)) {
+             FileAnalysisListener listener = new UnlessAbandoned(task.getListener().startFileAnalysis(textFile))) {
 
             RuleSets ruleSets = getRulesets();
 
             // Coarse check to see if any RuleSet applies to file, will need to do a finer RuleSet specific check later
             if (ruleSets.applies(textFile)) {
                 AnalysisCache analysisCache = task.getAnalysisCache();
-                try (TextDocument textDocument = TextDocument.create(textFile);
-                     FileAnalysisListener cacheListener = analysisCache.startFileAnalysis(textDocument)) {
-
-                    @SuppressWarnings("PMD.CloseResource")
-                    FileAnalysisListener completeListener = FileAnalysisListener.tee(listOf(listener, cacheListener));
-
-                    if (analysisCache.isUpToDate(textDocument)) {
-                        LOG.trace("Skipping file (lang: {}) because it was found in the cache: {}", textFile.getLanguageVersion(), textFile.getFileId().getAbsolutePath());
-                        // note: no cache listener here
-                        //                         vvvvvvvv
-                        reportCachedRuleViolations(listener, textDocument);
-                    } else {
-                        LOG.trace("Processing file (lang: {}): {}", textFile.getLanguageVersion(), textFile.getFileId().getAbsolutePath());
-                        try {
-                            processSource(completeListener, textDocument, ruleSets);
-                        } catch (Exception | StackOverflowError | AssertionError e) {
-                            if (e instanceof Error && !SystemProps.isErrorRecoveryMode()) { // NOPMD:
-                                throw e;
+                if (analysisCache.isUpToDateWithoutReading(textFile)) {
+                    LOG.trace("Skipping file (lang: {}) because it is unchanged since the cached analysis: {}", textFile.getLanguageVersion(), textFile.getFileId().getAbsolutePath());
+                    reportCachedRuleViolations(listener, textFile.getFileId());
+                } else {
+                    try (TextDocument textDocument = TextDocument.create(textFile);
+                         FileAnalysisListener cacheListener = new UnlessAbandoned(analysisCache.startFileAnalysis(textDocument))) {
+
+                        @SuppressWarnings("PMD.CloseResource")
+                        FileAnalysisListener completeListener = FileAnalysisListener.tee(listOf(listener, cacheListener));
+
+                        if (analysisCache.isUpToDate(textDocument)) {
+                            LOG.trace("Skipping file (lang: {}) because it was found in the cache: {}", textFile.getLanguageVersion(), textFile.getFileId().getAbsolutePath());
+                            // note: no cache listener here
+                            //                         vvvvvvvv
+                            reportCachedRuleViolations(listener, textDocument.getFileId());
+                        } else {
+                            LOG.trace("Processing file (lang: {}): {}", textFile.getLanguageVersion(), textFile.getFileId().getAbsolutePath());
+                            try (Admission admission = admit(textDocument);
+                                 FileWatch watch = task.getWatchdog().watchFile(textFile, admission)) {
+                                this.watch = watch;
+                                try {
+                                    processSource(completeListener, textDocument, ruleSets, watch);
+                                } catch (AnalysisInterruptedException e) {
+                                    throw watch.describe(e);
+                                }
+                            } catch (Exception | StackOverflowError | AssertionError e) {
+                                if (e instanceof Error && !SystemProps.isErrorRecoveryMode()) { // NOPMD:
+                                    throw e;
+                                }
+
+                                // The listener handles logging if needed,
+                                // it may also rethrow the error, as a FileAnalysisException (which we let through below)
+                                completeListener.onError(new Report.ProcessingError(e, textFile.getFileId()));
                             }
-
-                            // The listener handles logging if needed,
-                            // it may also rethrow the error, as a FileAnalysisException (which we let through below)
-                            completeListener.onError(new Report.ProcessingError(e, textFile.getFileId()));
                         }
                     }
                 }
@@ -101,12 +121,19 @@ abstract class PmdRunnable implements Runnable {
         TimeTracker.finishThread();
     }
 
-    private void reportCachedRuleViolations(final FileAnalysisListener ctx, TextDocument file) {
-        for (final RuleViolation rv : task.getAnalysisCache().getCachedViolations(file)) {
+    private void reportCachedRuleViolations(final FileAnalysisListener ctx, FileId fileId) {
+        for (final RuleViolation rv : task.getAnalysisCache().getCachedViolations(fileId)) {
             ctx.onRuleViolation(rv);
         }
     }
 
+    /**
+     * Waits until the file fits into the heap budget of the analysis.
+     */
+    private Admission admit(TextDocument textDocument) throws InterruptedException {
+        return task.getHeapAdmission().admit(textDocument.getLanguageVersion().getLanguage(), textDocument.getLength());
+    }
+
     private RootNode parse(Parser parser, ParserTask task) {
         try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.PARSER)) {
             return parser.parse(task);
@@ -116,11 +143,19 @@ abstract class PmdRunnable implements Runnable {
 
     private void processSource(FileAnalysisListener listener,
                                TextDocument textDocument,
-                               RuleSets ruleSets) throws FileAnalysisException {
+                               RuleSets ruleSets,
+                               FileWatch watch) throws FileAnalysisException {
 
-        SemanticErrorReporter reporter = SemanticErrorReporter.reportToLogger(task.getMessageReporter());
         @SuppressWarnings("PMD.CloseResource")
         LanguageProcessor processor = task.getLpRegistry().getProcessor(textDocument.getLanguageVersion().getLanguage());
+
+        watch.enterPhase("applying token rules");
+        if (ruleSets.applyTokenRulesOnly(textDocument, processor, listener)) {
+            // no need to parse the file
+            return;
+        }
+
+        SemanticErrorReporter reporter = SemanticErrorReporter.reportToLogger(task.getMessageReporter());
         ParserTask parserTask = new ParserTask(textDocument,
                                                reporter,
                                                task.getLpRegistry());
@@ -129,6 +164,7 @@ abstract class PmdRunnable implements Runnable {
 
         Parser parser = handler.getParser();
 
+        watch.enterPhase("parsing");
         RootNode rootNode = parse(parser, parserTask);
 
         SemanticException semanticError = reporter.getFirstError();
@@ -137,7 +173,77 @@ abstract class PmdRunnable implements Runnable {
             throw semanticError;
         }
 
-        ruleSets.apply(rootNode, listener);
+        watch.enterPhase("applying rules");
+        ruleSets.apply(rootNode, listener, task.getWatchdog().getRuleTimeoutMillis());
     }
 
+    /**
+     * Drops the events of the file once it is abandoned by the watchdog.
+     * A processing error has then been reported for the file, and the
+     * listeners may be closed, but its thread may still complete later.
+     */
+    private final class UnlessAbandoned implements FileAnalysisListener {
+
+        private final FileAnalysisListener delegate;
+
+        UnlessAbandoned(FileAnalysisListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onRuleViolation(RuleViolation violation) {
+            FileWatch w = watch;
+            if (w == null) {
+                delegate.onRuleViolation(violation);
+                return;
+            }
+            synchronized (w) {
+                if (!w.isAbandoned()) {
+                    delegate.onRuleViolation(violation);
+                }
+            }
+        }
+
+        @Override
+        public void onSuppressedRuleViolation(SuppressedViolation violation) {
+            FileWatch w = watch;
+            if (w == null) {
+                delegate.onSuppressedRuleViolation(violation);
+                return;
+            }
+            synchronized (w) {
+                if (!w.isAbandoned()) {
+                    delegate.onSuppressedRuleViolation(violation);
+                }
+            }
+        }
+
+        @Override
+        public void onError(ProcessingError error) {
+            FileWatch w = watch;
+            if (w == null) {
+                delegate.onError(error);
+                return;
+            }
+            synchronized (w) {
+                if (!w.isAbandoned()) {
+                    delegate.onError(error);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            FileWatch w = watch;
+            if (w == null) {
+                delegate.close();
+                return;
+            }
+            synchronized (w) {
+                if (!w.isAbandoned()) {
+                    delegate.close();
+                }
+            }
+        }
+    }
 }
@@ -4,16 +4,27 @@
 
 package net.sourceforge.pmd.lang.impl;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
 class PmdThreadFactory implements ThreadFactory {
 
     private final AtomicInteger counter = new AtomicInteger();
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
 
     @Override
     public Thread newThread(Runnable r) {
-        return new Thread(r, "PmdThread " + counter.incrementAndGet());
+        Thread thread = new Thread(r, "PmdThread " + counter.incrementAndGet());
+        // a thread stuck on a file must not prevent the JVM from exiting
+        thread.setDaemon(true);
+        threads.add(thread);
+        return thread;
+    }
+
+    boolean isOwnThread(Thread thread) {
+        return threads.contains(thread);
     }
 
 }
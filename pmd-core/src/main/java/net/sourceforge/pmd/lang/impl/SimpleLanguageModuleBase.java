@@ -27,10 +27,19 @@ public class SimpleLanguageModuleBase extends LanguageModuleBase implements PmdC
 
     private final Function<LanguagePropertyBundle, LanguageVersionHandler> handler;
 
+    /**
+     * Create a module that uses the given handler for all processors.
+     * Prefer {@link #SimpleLanguageModuleBase(LanguageMetadata, Function)},
+     * so that the handler and the parser classes are only loaded when
+     * the language is used, not when the module is discovered.
+     */
     protected SimpleLanguageModuleBase(LanguageMetadata metadata, LanguageVersionHandler handler) {
         this(metadata, p -> handler);
     }
 
+    /**
+     * Create a module that creates a handler for each new processor.
+     */
     public SimpleLanguageModuleBase(LanguageMetadata metadata, Function<LanguagePropertyBundle, LanguageVersionHandler> makeHandler) {
         super(metadata);
         this.handler = makeHandler;
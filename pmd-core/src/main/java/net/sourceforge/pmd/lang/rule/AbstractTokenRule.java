@@ -0,0 +1,102 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import java.util.List;
+
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.lang.LanguageProcessor;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.RootNode;
+import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccTokenDocument;
+import net.sourceforge.pmd.lang.document.FileLocation;
+import net.sourceforge.pmd.lang.rule.internal.TokenRules;
+
+/**
+ * Base class for rules that only need the tokens of a file, and not
+ * its AST, eg to check a license header or to look for banned tokens.
+ * The rule is applied once per file. The tokens are computed once per
+ * file, for all the token rules.
+ *
+ * <p>The tokens are those of the {@link JavaccTokenDocument} of the file,
+ * including special tokens like comments. The language of the rule must
+ * hence be implemented with JavaCC, otherwise the rule fails to initialize
+ * and is not run.
+ *
+ * <p>If all the rules that apply to a file are token rules, the file is
+ * only tokenized, and not parsed. Otherwise, token rules are applied on
+ * the root of the AST, with the tokens of the parsed file.
+ *
+ * <p>Violations are reported with {@link RuleContext#addViolationAt(FileLocation, Object...)}.
+ * They are suppressed by a suppression comment on their line, or by the
+ * violationSuppressRegex property. If the file is parsed, they are also
+ * suppressed like violations reported on the root, eg by annotations.
+ *
+ * @since 7.0.0
+ */
+public abstract class AbstractTokenRule extends AbstractRule {
+
+    /**
+     * Checks the tokens of a file.
+     *
+     * @param tokens The tokens of the file, in order
+     * @param ctx    Context to report violations
+     */
+    public abstract void applyTokens(List<Token> tokens, RuleContext ctx);
+
+    @Override
+    public void initialize(LanguageProcessor languageProcessor) {
+        if (!TokenRules.canTokenize(languageProcessor)) {
+            throw new IllegalArgumentException("Token rules need a language implemented with JavaCC, not "
+                                                   + languageProcessor.getLanguage().getName());
+        }
+    }
+
+    @Override
+    public final void apply(Node target, RuleContext ctx) {
+        RootNode root = target.getRoot();
+        applyTokens(TokenRules.getTokens(root), ctx.withRoot(root));
+    }
+
+    /**
+     * A token of a file.
+     */
+    public static final class Token {
+
+        private final String image;
+        private final FileLocation location;
+        private final boolean comment;
+
+        public Token(String image, FileLocation location, boolean comment) {
+            this.image = image;
+            this.location = location;
+            this.comment = comment;
+        }
+
+        /**
+         * Returns the text of the token.
+         */
+        public String getImage() {
+            return image;
+        }
+
+        public FileLocation getLocation() {
+            return location;
+        }
+
+        /**
+         * Returns true if this is a special token, which is not part of
+         * the syntax of the language, eg a comment.
+         */
+        public boolean isComment() {
+            return comment;
+        }
+
+        @Override
+        public String toString() {
+            return image + " at " + location.startPosToString();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * A rule that processes the tree as a sequence of events, which are
+ * sent when a traversal of the tree enters and leaves a node. Rules that
+ * use the default {@linkplain RuleTargetSelector#forRootOnly() target selector}
+ * would otherwise each walk the whole tree themselves. Instead, all the
+ * traversal rules of a ruleset that target the root are applied
+ * together, in a single traversal of the tree.
+ *
+ * <p>Events are sent in the order of a depth-first traversal: a node
+ * is entered before its children, and left after them. The traversal
+ * of a rule may be pruned with the return value of {@link #enterNode(Node, RuleContext)}.
+ * The state of the rule may be initialized for each file by overriding
+ * {@link #start(RuleContext)}.
+ *
+ * <p>If the rule declares another target selector, then the subtree
+ * of each of the targeted nodes is traversed separately.
+ */
+public abstract class AbstractTraversalRule extends AbstractRule {
+
+    /**
+     * Applies this rule on the subtree of the given node, by sending it
+     * the traversal events. This is not used when the rule is applied
+     * with other traversal rules.
+     */
+    @Override
+    public final void apply(Node target, RuleContext ctx) {
+        if (enterNode(target, ctx)) {
+            for (Node child : target.children()) {
+                apply(child, ctx);
+            }
+        }
+        leaveNode(target, ctx);
+    }
+
+    /**
+     * Called when the traversal enters a node, before entering its
+     * children.
+     *
+     * @param node Node
+     * @param ctx  Rule context, to report violations
+     *
+     * @return True if the children of this node should be traversed,
+     *     false if this rule should not receive events for the subtree
+     *     of this node (except {@link #leaveNode(Node, RuleContext)} for
+     *     this node).
+     */
+    public abstract boolean enterNode(Node node, RuleContext ctx);
+
+    /**
+     * Called when the traversal leaves a node, after leaving all its
+     * children. Does nothing by default.
+     *
+     * @param node Node
+     * @param ctx  Rule context, to report violations
+     */
+    public void leaveNode(Node node, RuleContext ctx) {
+        // to be overridden
+    }
+}
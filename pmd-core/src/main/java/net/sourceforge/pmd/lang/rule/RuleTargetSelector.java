@@ -109,6 +109,11 @@ public abstract class RuleTargetSelector extends TargetSelectorInternal {
             return index.getByName(visits);
         }
 
+        @Override
+        protected boolean isTarget(Node node) {
+            return visits.contains(node.getXPathNodeName());
+        }
+
         @Override
         public String toString() {
             return "XPathNameVisits" + visits;
@@ -138,6 +143,21 @@ public abstract class RuleTargetSelector extends TargetSelectorInternal {
             return index.getByClass(visits);
         }
 
+        @Override
+        protected boolean isTarget(Node node) {
+            for (Class<? extends Node> visit : visits) {
+                if (visit.isInstance(node)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        protected boolean targetsRootOnly() {
+            return visits.size() == 1 && visits.contains(RootNode.class);
+        }
+
         @Override
         public String toString() {
             return "ClassVisits" + visits;
@@ -0,0 +1,94 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.internal;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * Assigns dense integer ids to node types, called kinds. Kinds are
+ * assigned the first time a type is encountered, and are the same for
+ * all analyses of this JVM. Arrays indexed by kind can therefore replace
+ * hash maps keyed by class.
+ *
+ * <p>The kinds of all the supertypes of a type (that are also node types)
+ * are computed once, along with its own kind. Indexing a node by all its
+ * supertypes then requires no reflection.
+ */
+final class NodeKinds {
+
+    private static final AtomicInteger NUM_KINDS = new AtomicInteger();
+
+    private static final ClassValue<Kind> KINDS = new ClassValue<Kind>() {
+        @Override
+        protected Kind computeValue(Class<?> type) {
+            return new Kind(NUM_KINDS.getAndIncrement(), type);
+        }
+    };
+
+    private NodeKinds() {
+        // utility class
+    }
+
+    /** Returns the kind of the given type. */
+    static int kindOf(Class<?> type) {
+        return KINDS.get(type).id;
+    }
+
+    /**
+     * Returns the kinds of the given type and of all its supertypes that
+     * are node types. The returned array must not be modified.
+     */
+    static int[] supertypeKinds(Class<?> type) {
+        return KINDS.get(type).supertypes;
+    }
+
+    /** Returns an upper bound on the kinds assigned so far. */
+    static int numKinds() {
+        return NUM_KINDS.get();
+    }
+
+    private static final class Kind {
+
+        private final int id;
+        private final int[] supertypes;
+
+        Kind(int id, Class<?> type) {
+            this.id = id;
+            Set<Class<?>> closure = supertypesOf(type);
+            this.supertypes = new int[closure.size()];
+            int i = 0;
+            for (Class<?> supertype : closure) {
+                // the type itself is first, its kind is already known
+                supertypes[i++] = supertype == type ? id : kindOf(supertype); // NOPMD CompareObjectsWithEquals
+            }
+        }
+
+        private static Set<Class<?>> supertypesOf(Class<?> type) {
+            if (!Node.class.isAssignableFrom(type)) {
+                return Collections.singleton(type);
+            }
+            Set<Class<?>> result = new LinkedHashSet<>();
+            Deque<Class<?>> todo = new ArrayDeque<>();
+            todo.add(type);
+            while (!todo.isEmpty()) {
+                Class<?> t = todo.removeFirst();
+                if (Node.class.isAssignableFrom(t) && result.add(t)) {
+                    if (t.getSuperclass() != null) {
+                        todo.add(t.getSuperclass());
+                    }
+                    Collections.addAll(todo, t.getInterfaces());
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -4,8 +4,15 @@
 
 package net.sourceforge.pmd.lang.rule.internal;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.exception.ExceptionContext;
 import org.slf4j.Logger;
@@ -20,8 +27,13 @@ import net.sourceforge.pmd.benchmark.TimedOperation;
 import net.sourceforge.pmd.benchmark.TimedOperationCategory;
 import net.sourceforge.pmd.internal.SystemProps;
 import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.ast.AnalysisInterruptedException;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.RootNode;
+import net.sourceforge.pmd.lang.ast.impl.PreorderIndex;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.rule.AbstractDelegateRule;
+import net.sourceforge.pmd.lang.rule.AbstractTraversalRule;
 import net.sourceforge.pmd.reporting.FileAnalysisListener;
 import net.sourceforge.pmd.util.AssertionUtil;
 import net.sourceforge.pmd.util.StringUtil;
@@ -30,15 +42,26 @@ import net.sourceforge.pmd.util.StringUtil;
 public class RuleApplicator {
 
     private static final Logger LOG = LoggerFactory.getLogger(RuleApplicator.class);
-    // we reuse the type lattice from run to run, eventually it converges
-    // towards the final topology (all node types have been encountered)
-    // This has excellent performance! Indexing time is insignificant
+    // we reuse the index from run to run, the indexed supertypes of a node
+    // kind are only computed the first time it is encountered, and the
+    // arrays eventually stop growing. Indexing time is insignificant
     // compared to rule application for any non-trivial ruleset. Even
     // when you use a single rule, indexing time is insignificant compared
     // to eg type resolution.
 
+    // RuleSet#getRules returns the same collection every time, so there
+    // is one table per ruleset and language version. This bounds the cache
+    // in case the rules are passed in a new collection each time.
+    private static final int MAX_DISPATCH_TABLES = 32;
+
     private final TreeIndex idx;
+    private final boolean nodeMajor = SystemProps.isNodeMajorDispatch();
+    private final Map<LanguageVersion, Map<Collection<? extends Rule>, DispatchTable>> dispatchTables = new HashMap<>();
     private LanguageVersion currentLangVer;
+    private RootNode currentRoot;
+    private long ruleTimeoutNanos;
+    // the thread that is interrupted to abort the analysis
+    private Thread analysisThread;
 
     public RuleApplicator(TreeIndex index) {
         this.idx = index;
@@ -47,41 +70,76 @@ public class RuleApplicator {
 
     public void index(RootNode root) {
         idx.reset();
-        indexTree(root, idx);
+        if (nodeMajor) {
+            // the node-major dispatch only needs the nodes in document order
+            recordTree(root, idx);
+        } else {
+            indexTree(root, idx);
+        }
+        // the tree is not modified anymore, rules may query it with the index
+        PreorderIndex.index(root);
         currentLangVer = root.getLanguageVersion();
+        currentRoot = root;
+    }
+
+    /**
+     * Sets the maximum time a rule may spend on a file. A rule that exceeds
+     * it is not applied on the rest of the file, and a processing error is
+     * reported for it. The time is checked each time the rule returns from
+     * a node. With node-major dispatch, it is the sum of the time spent
+     * in the calls of the rule, and it is only checked after each call
+     * to {@link Rule#apply(Node, RuleContext)} returns.
+     *
+     * @param timeoutMillis The timeout in milliseconds, zero if there is none
+     */
+    public void setRuleTimeout(long timeoutMillis) {
+        this.ruleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
     }
 
     public void apply(Collection<? extends Rule> rules, FileAnalysisListener listener) {
-        applyOnIndex(idx, rules, listener);
+        analysisThread = Thread.currentThread();
+        DispatchTable table = getDispatchTable(rules);
+        if (nodeMajor) {
+            applyNodeMajor(idx, table, listener);
+        } else {
+            applyRuleMajor(idx, table.rules, listener);
+        }
+
+        if (!table.traversalRules.isEmpty()) {
+            new SharedTraversal(table.traversalRules, listener).run(currentRoot);
+        }
+    }
+
+    private DispatchTable getDispatchTable(Collection<? extends Rule> rules) {
+        Map<Collection<? extends Rule>, DispatchTable> forLang =
+            dispatchTables.computeIfAbsent(currentLangVer, k -> new IdentityHashMap<>());
+        if (forLang.size() >= MAX_DISPATCH_TABLES && !forLang.containsKey(rules)) {
+            forLang.clear();
+        }
+        return forLang.computeIfAbsent(rules, rs -> new DispatchTable(rs, currentLangVer));
     }
 
-    private void applyOnIndex(TreeIndex idx, Collection<? extends Rule> rules, FileAnalysisListener listener) {
+    private void applyRuleMajor(TreeIndex idx, Rule[] rules, FileAnalysisListener listener) {
         for (Rule rule : rules) {
-            if (!RuleSet.applies(rule, currentLangVer)) {
-                continue; // No point in even trying to apply the rule
-            }
-            
             RuleContext ctx = RuleContext.create(listener, rule);
             rule.start(ctx);
             try (TimedOperation rcto = TimeTracker.startOperation(TimedOperationCategory.RULE, rule.getName())) {
 
+                String phase = "applying rule " + rule.getName();
+                long start = ruleTimeoutNanos > 0 ? System.nanoTime() : 0;
                 int nodeCounter = 0;
                 Iterator<? extends Node> targets = rule.getTargetSelector().getVisitedNodes(idx);
                 while (targets.hasNext()) {
+                    checkInterrupted(phase);
                     Node node = targets.next();
-
-                    try {
-                        nodeCounter++;
-                        rule.apply(node, ctx);
-                    } catch (RuntimeException e) {
-                        reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), true);
-                    } catch (StackOverflowError e) {
-                        reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
-                    } catch (AssertionError e) {
-                        reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
+                    nodeCounter++;
+                    applyOnNode(rule, node, ctx, listener);
+                    if (ruleTimeoutNanos > 0 && System.nanoTime() - start > ruleTimeoutNanos) {
+                        reportTimeout(listener, rule);
+                        break;
                     }
                 }
-                
+
                 rcto.close(nodeCounter);
             } finally {
                 rule.end(ctx);
@@ -89,6 +147,95 @@ public class RuleApplicator {
         }
     }
 
+    /**
+     * Applies the rules of the table in node-major order. The time each
+     * rule spends is accumulated over its calls, so the rule timeout is
+     * only checked after a call to {@link Rule#apply(Node, RuleContext)}
+     * returns. A rule stuck on a node is only stopped by the file timeout.
+     */
+    private void applyNodeMajor(TreeIndex idx, DispatchTable table, FileAnalysisListener listener) {
+        Rule[] rules = table.rules;
+        RuleContext[] contexts = new RuleContext[rules.length];
+        long[] nanos = new long[rules.length];
+        int[] nodeCounts = new int[rules.length];
+        boolean[] timedOut = new boolean[rules.length];
+        boolean timed = TimeTracker.isTrackingTime() || ruleTimeoutNanos > 0;
+
+        int started = 0;
+        try {
+            for (; started < rules.length; started++) {
+                contexts[started] = RuleContext.create(listener, rules[started]);
+                rules[started].start(contexts[started]);
+            }
+
+            int numNodes = idx.getNumNodes();
+            for (int i = 0; i < numNodes; i++) {
+                checkInterrupted("applying rules");
+                Node node = idx.getNode(i);
+                for (int r : table.getInterestedRules(node)) {
+                    if (timedOut[r]) {
+                        continue;
+                    }
+                    long start = timed ? System.nanoTime() : 0;
+                    nodeCounts[r]++;
+                    applyOnNode(rules[r], node, contexts[r], listener);
+                    if (timed) {
+                        nanos[r] += System.nanoTime() - start;
+                        if (ruleTimeoutNanos > 0 && nanos[r] > ruleTimeoutNanos) {
+                            timedOut[r] = true;
+                            reportTimeout(listener, rules[r]);
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (int r = 0; r < started; r++) {
+                rules[r].end(contexts[r]);
+                TimeTracker.recordOperation(TimedOperationCategory.RULE, rules[r].getName(), nanos[r], nodeCounts[r]);
+            }
+        }
+    }
+
+    private void applyOnNode(Rule rule, Node node, RuleContext ctx, FileAnalysisListener listener) {
+        try {
+            rule.apply(node, ctx);
+        } catch (AnalysisInterruptedException e) {
+            throw e; // abort the whole file
+        } catch (RuntimeException e) {
+            reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), true);
+        } catch (StackOverflowError e) {
+            reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
+        } catch (AssertionError e) {
+            reportOrRethrow(listener, rule, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
+        }
+    }
+
+    private void checkInterrupted(String phase) {
+        if (analysisThread.isInterrupted()) {
+            throw new AnalysisInterruptedException(phase);
+        }
+    }
+
+    private void reportTimeout(FileAnalysisListener listener, Rule rule) {
+        FileId fileId = currentRoot.getTextDocument().getFileId();
+        AnalysisInterruptedException e = AnalysisInterruptedException.timeout("applying rule " + rule.getName(),
+                                                                              TimeUnit.NANOSECONDS.toMillis(ruleTimeoutNanos));
+        e.setFileId(fileId);
+        listener.onError(new ProcessingError(e, fileId));
+        LOG.warn("Rule {} timed out on file {}, continuing with next rule", rule.getName(), fileId.getAbsolutePath());
+    }
+
+    private static boolean isTraversalOfRoot(Rule rule) {
+        return rule.getTargetSelector().targetsRootOnly() && unwrap(rule) instanceof AbstractTraversalRule;
+    }
+
+    private static Rule unwrap(Rule rule) {
+        while (rule instanceof AbstractDelegateRule) {
+            rule = ((AbstractDelegateRule) rule).getRule();
+        }
+        return rule;
+    }
+
 
     private <E extends Throwable> void reportOrRethrow(FileAnalysisListener listener, Rule rule, Node node, E e, boolean reportAndDontThrow) throws E {
         if (e instanceof ExceptionContext) {
@@ -115,6 +262,199 @@ public class RuleApplicator {
     }
 
 
+    /**
+     * The rules of a ruleset that apply to a language version, and for
+     * each {@linkplain NodeKinds kind} of node, the indices of the rules
+     * that target it. Rules that target a node by XPath name may target
+     * only some of the nodes of a class, so the entry of a kind also
+     * records the XPath name it was computed for.
+     */
+    private static final class DispatchTable {
+
+        private final Rule[] rules;
+        private final List<Rule> traversalRules = new ArrayList<>();
+        // entries by kind of node
+        private DispatchEntry[] byKind = new DispatchEntry[0];
+
+        DispatchTable(Collection<? extends Rule> allRules, LanguageVersion langVer) {
+            List<Rule> applicable = new ArrayList<>();
+            for (Rule rule : allRules) {
+                if (!RuleSet.applies(rule, langVer)) {
+                    continue; // No point in even trying to apply the rule
+                }
+                if (isTraversalOfRoot(rule)) {
+                    traversalRules.add(rule);
+                } else {
+                    applicable.add(rule);
+                }
+            }
+            this.rules = applicable.toArray(new Rule[0]);
+        }
+
+        int[] getInterestedRules(Node node) {
+            String name = node.getXPathNodeName();
+            int kind = NodeKinds.kindOf(node.getClass());
+            if (kind >= byKind.length) {
+                byKind = Arrays.copyOf(byKind, Math.max(kind + 1, NodeKinds.numKinds()));
+            }
+            DispatchEntry entry = byKind[kind];
+            if (entry == null) {
+                entry = new DispatchEntry(name, computeInterestedRules(node));
+                byKind[kind] = entry;
+            } else if (!entry.xpathName.equals(name)) {
+                // several XPath names for the same class, don't cache that
+                return computeInterestedRules(node);
+            }
+            return entry.ruleIndices;
+        }
+
+        private int[] computeInterestedRules(Node node) {
+            int[] result = new int[rules.length];
+            int n = 0;
+            for (int i = 0; i < rules.length; i++) {
+                if (rules[i].getTargetSelector().isTarget(node)) {
+                    result[n++] = i;
+                }
+            }
+            return Arrays.copyOf(result, n);
+        }
+    }
+
+    private static final class DispatchEntry {
+
+        private final String xpathName;
+        private final int[] ruleIndices;
+
+        DispatchEntry(String xpathName, int[] ruleIndices) {
+            this.xpathName = xpathName;
+            this.ruleIndices = ruleIndices;
+        }
+    }
+
+
+    /**
+     * Applies several {@linkplain AbstractTraversalRule traversal rules}
+     * with a single traversal of the tree. Each rule is timed separately,
+     * and stops receiving events if it throws an exception, as if it was
+     * applied alone.
+     */
+    private final class SharedTraversal {
+
+        private final List<Rule> rules;
+        private final AbstractTraversalRule[] handlers;
+        private final RuleContext[] contexts;
+        private final FileAnalysisListener listener;
+
+        // Per rule: the node whose subtree is pruned, or the rule itself if
+        // the rule failed and should not receive any more events.
+        private final Object[] skipped;
+        private final long[] nanos;
+        private final int[] nodeCounts;
+        private final boolean timed = TimeTracker.isTrackingTime() || ruleTimeoutNanos > 0;
+
+        SharedTraversal(List<Rule> rules, FileAnalysisListener listener) {
+            this.rules = rules;
+            this.listener = listener;
+            int n = rules.size();
+            this.handlers = new AbstractTraversalRule[n];
+            this.contexts = new RuleContext[n];
+            this.skipped = new Object[n];
+            this.nanos = new long[n];
+            this.nodeCounts = new int[n];
+            for (int i = 0; i < n; i++) {
+                handlers[i] = (AbstractTraversalRule) unwrap(rules.get(i));
+                contexts[i] = RuleContext.create(listener, rules.get(i));
+            }
+        }
+
+        void run(RootNode root) {
+            int started = 0;
+            try {
+                for (; started < handlers.length; started++) {
+                    rules.get(started).start(contexts[started]);
+                }
+                traverse(root);
+            } finally {
+                for (int i = 0; i < started; i++) {
+                    rules.get(i).end(contexts[i]);
+                    TimeTracker.recordOperation(TimedOperationCategory.RULE, rules.get(i).getName(), nanos[i], nodeCounts[i]);
+                }
+            }
+        }
+
+        private void traverse(Node node) {
+            checkInterrupted("applying rules");
+            for (int i = 0; i < handlers.length; i++) {
+                if (skipped[i] == null) {
+                    long start = timed ? System.nanoTime() : 0;
+                    nodeCounts[i]++;
+                    try {
+                        if (!handlers[i].enterNode(node, contexts[i])) {
+                            skipped[i] = node;
+                        }
+                    } catch (AnalysisInterruptedException e) {
+                        throw e;
+                    } catch (RuntimeException e) {
+                        fail(i, node, AssertionUtil.contexted(e), true);
+                    } catch (StackOverflowError e) {
+                        fail(i, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
+                    } catch (AssertionError e) {
+                        fail(i, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
+                    }
+                    recordTime(i, start);
+                }
+            }
+
+            for (Node child : node.children()) {
+                traverse(child);
+            }
+
+            for (int i = 0; i < handlers.length; i++) {
+                if (skipped[i] == node) { // NOPMD CompareObjectsWithEquals
+                    skipped[i] = null;
+                } else if (skipped[i] != null) {
+                    continue;
+                }
+                long start = timed ? System.nanoTime() : 0;
+                try {
+                    handlers[i].leaveNode(node, contexts[i]);
+                } catch (AnalysisInterruptedException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    fail(i, node, AssertionUtil.contexted(e), true);
+                } catch (StackOverflowError e) {
+                    fail(i, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
+                } catch (AssertionError e) {
+                    fail(i, node, AssertionUtil.contexted(e), SystemProps.isErrorRecoveryMode());
+                }
+                recordTime(i, start);
+            }
+        }
+
+        private void recordTime(int i, long start) {
+            if (timed) {
+                nanos[i] += System.nanoTime() - start;
+                if (ruleTimeoutNanos > 0 && nanos[i] > ruleTimeoutNanos && skipped[i] != handlers[i]) { // NOPMD CompareObjectsWithEquals
+                    // the rule receives no more events
+                    skipped[i] = handlers[i];
+                    reportTimeout(listener, rules.get(i));
+                }
+            }
+        }
+
+        private <E extends Throwable> void fail(int i, Node node, E e, boolean reportAndDontThrow) throws E {
+            skipped[i] = handlers[i]; // never equal to a node
+            reportOrRethrow(listener, rules.get(i), node, e, reportAndDontThrow);
+        }
+    }
+
+    private void recordTree(Node top, TreeIndex idx) {
+        idx.recordNode(top);
+        for (Node child : top.children()) {
+            recordTree(child, idx);
+        }
+    }
+
     private void indexTree(Node top, TreeIndex idx) {
         idx.indexNode(top);
         for (Node child : top.children()) {
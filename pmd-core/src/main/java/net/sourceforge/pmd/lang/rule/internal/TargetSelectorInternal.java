@@ -26,6 +26,25 @@ public abstract class TargetSelectorInternal {
     protected abstract Iterator<? extends Node> getVisitedNodes(TreeIndex index);
 
 
+    /**
+     * Returns true if the node is targeted by this selector. The result
+     * may only depend on the class and the XPath name of the node, so
+     * that it can be cached.
+     */
+    protected abstract boolean isTarget(Node node);
+
+
+    /**
+     * Returns true if this selector only targets the root of the tree.
+     * This is the case of {@link RuleTargetSelector#forRootOnly()}, and
+     * of the selector that {@link net.sourceforge.pmd.lang.rule.AbstractRule}
+     * builds by default.
+     */
+    protected boolean targetsRootOnly() {
+        return false;
+    }
+
+
     protected static final class ApplicatorBuilder {
 
         private final Set<String> namesToIndex = new HashSet<>();
@@ -0,0 +1,185 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.Report.ProcessingError;
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.lang.LanguageProcessor;
+import net.sourceforge.pmd.lang.ast.AnalysisInterruptedException;
+import net.sourceforge.pmd.lang.ast.GenericToken;
+import net.sourceforge.pmd.lang.ast.RootNode;
+import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccToken;
+import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccTokenDocument;
+import net.sourceforge.pmd.lang.ast.impl.javacc.JjtreeNode;
+import net.sourceforge.pmd.lang.ast.impl.javacc.JjtreeParserAdapter;
+import net.sourceforge.pmd.lang.document.TextDocument;
+import net.sourceforge.pmd.lang.impl.BatchLanguageProcessor;
+import net.sourceforge.pmd.lang.rule.AbstractDelegateRule;
+import net.sourceforge.pmd.lang.rule.AbstractTokenRule;
+import net.sourceforge.pmd.lang.rule.AbstractTokenRule.Token;
+import net.sourceforge.pmd.reporting.FileAnalysisListener;
+import net.sourceforge.pmd.util.DataMap;
+import net.sourceforge.pmd.util.DataMap.SimpleDataKey;
+
+/**
+ * Collects the tokens of files for {@link AbstractTokenRule}s, and applies
+ * those rules to files that are not parsed.
+ */
+public final class TokenRules {
+
+    private static final SimpleDataKey<List<Token>> TOKENS_KEY = DataMap.simpleDataKey("token rule tokens");
+
+    private TokenRules() {
+        // utility class
+    }
+
+    /**
+     * Whether the given rule is a token rule, possibly wrapped in a
+     * rule reference.
+     */
+    public static boolean isTokenRule(Rule rule) {
+        return unwrap(rule) instanceof AbstractTokenRule;
+    }
+
+    /**
+     * Whether the files of the language have tokens that token rules
+     * can use, ie whether the language is implemented with JavaCC.
+     */
+    public static boolean canTokenize(LanguageProcessor processor) {
+        return processor.services().getParser() instanceof JjtreeParserAdapter;
+    }
+
+    /**
+     * Returns the tokens of the file of the given tree. They are computed
+     * once for all the token rules that apply to the file.
+     *
+     * @throws IllegalArgumentException If the tree was not built by a JavaCC parser
+     */
+    public static List<Token> getTokens(RootNode root) {
+        return root.getUserMap().computeIfAbsent(TOKENS_KEY, () -> {
+            if (!(root instanceof JjtreeNode)) {
+                throw new IllegalArgumentException("Not the root of a JavaCC tree: " + root);
+            }
+            return collectTokens(((JjtreeNode<?>) root).getFirstToken().getDocument());
+        });
+    }
+
+    /**
+     * Applies the given token rules to a file without parsing it. The file
+     * is only read by the token manager of its language. Violations are
+     * suppressed by the suppression comments among its tokens.
+     *
+     * @param document  The file
+     * @param processor Processor of the language of the file
+     * @param rules     The rules that apply to the file, which must all be token rules
+     * @param listener  Listener that will handle events while analysing
+     *
+     * @return False if the language cannot tokenize files without parsing
+     *     them, in which case the rules have not been applied
+     */
+    public static boolean applyWithoutParsing(TextDocument document,
+                                              LanguageProcessor processor,
+                                              List<Rule> rules,
+                                              FileAnalysisListener listener) {
+        if (!canTokenize(processor)) {
+            return false;
+        }
+        JavaccTokenDocument tokenDocument;
+        try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.PARSER, "tokens only")) {
+            tokenDocument = ((JjtreeParserAdapter<?>) processor.services().getParser()).tokenize(document);
+        }
+        if (tokenDocument == null) {
+            return false;
+        }
+
+        List<Token> tokens = collectTokens(tokenDocument);
+        Map<Integer, String> suppressionComments = getSuppressionComments(tokens, getSuppressMarker(processor));
+        for (Rule rule : rules) {
+            RuleContext ctx = RuleContext.createWithoutTree(listener, rule, suppressionComments);
+            rule.start(ctx);
+            try (TimedOperation ignored = TimeTracker.startOperation(TimedOperationCategory.RULE, rule.getName())) {
+                ((AbstractTokenRule) unwrap(rule)).applyTokens(tokens, ctx);
+            } catch (AnalysisInterruptedException e) {
+                throw e; // abort the whole file
+            } catch (RuntimeException e) {
+                listener.onError(new ProcessingError(e, document.getFileId()));
+            } finally {
+                rule.end(ctx);
+            }
+        }
+        return true;
+    }
+
+    private static Rule unwrap(Rule rule) {
+        Rule r = rule;
+        while (r instanceof AbstractDelegateRule) {
+            r = ((AbstractDelegateRule) r).getRule();
+        }
+        return r;
+    }
+
+    private static String getSuppressMarker(LanguageProcessor processor) {
+        if (processor instanceof BatchLanguageProcessor) {
+            return ((BatchLanguageProcessor<?>) processor).getProperties().getSuppressMarker();
+        }
+        return PMDConfiguration.DEFAULT_SUPPRESS_MARKER;
+    }
+
+    /**
+     * Returns the text that follows the suppress marker in the comments
+     * that contain it, by the line on which the comment starts.
+     */
+    static Map<Integer, String> getSuppressionComments(List<Token> tokens, String suppressMarker) {
+        Map<Integer, String> comments = new HashMap<>();
+        for (Token token : tokens) {
+            if (token.isComment()) {
+                int startOfMarker = token.getImage().indexOf(suppressMarker);
+                if (startOfMarker != -1) {
+                    comments.put(token.getLocation().getStartLine(),
+                                 token.getImage().substring(startOfMarker + suppressMarker.length()));
+                }
+            }
+        }
+        return comments;
+    }
+
+    private static List<Token> collectTokens(JavaccTokenDocument document) {
+        List<Token> tokens = new ArrayList<>();
+        JavaccToken token = document.getFirstToken();
+        while (token != null) {
+            addSpecialTokens(token, tokens);
+            if (token.isEof()) {
+                break;
+            }
+            if (!token.isImplicit()) {
+                tokens.add(new Token(token.getImage(), token.getReportLocation(), false));
+            }
+            token = token.getNext();
+        }
+        return Collections.unmodifiableList(tokens);
+    }
+
+    private static void addSpecialTokens(JavaccToken token, List<Token> tokens) {
+        // the special tokens of a token are linked from the last one to the first one
+        int start = tokens.size();
+        for (JavaccToken special : GenericToken.previousSpecials(token)) {
+            if (!special.isImplicit()) {
+                tokens.add(new Token(special.getImage(), special.getReportLocation(), true));
+            }
+        }
+        Collections.reverse(tokens.subList(start, tokens.size()));
+    }
+}
@@ -4,68 +4,246 @@
 
 package net.sourceforge.pmd.lang.rule.internal;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import net.sourceforge.pmd.lang.ast.Node;
-import net.sourceforge.pmd.util.IteratorUtil;
 
 /**
  * Index of an AST, for use by the {@link RuleApplicator}.
+ *
+ * <p>Nodes are recorded in document order. The indexed classes and names
+ * each have a slot, which records the positions of the matching nodes,
+ * in increasing order. The slots of the classes a node belongs to are
+ * found with its {@linkplain NodeKinds kind}, and are computed once per
+ * kind. All arrays are reused from one tree to the next.
  */
 public class TreeIndex {
 
-    private final LatticeRelation<Class<?>, Node, Iterable<Node>> byClass;
-    private final Set<String> interestingNames;
-    private final Map<String, List<Node>> byName;
+    private static final int[] NO_SLOTS = new int[0];
+
+    // slot of each indexed class, by kind, -1 if not indexed
+    private int[] classSlotByKind;
+    // slots of the indexed supertypes of a node, by kind of the node
+    private int[][] classSlotsByKind = new int[0][];
+    private final int[][] byClass;
+    private final int[] byClassSize;
+
+    private final Map<String, Integer> nameSlots;
+    private final int[][] byName;
+    private final int[] byNameSize;
+
+    // all nodes, in document order
+    private Node[] nodes = new Node[256];
+    private int numNodes;
 
 
     public TreeIndex(Set<String> namesToIndex,
                      Set<Class<? extends Node>> classesToIndex) {
 
-        byClass = new LatticeRelation<>(
-            TopoOrder.TYPE_HIERARCHY_ORDERING,
-            classesToIndex,
-            Class::getSimpleName,
-            Collectors.toSet()
-        );
-        this.interestingNames = namesToIndex;
-        byName = new HashMap<>();
+        int maxKind = -1;
+        int[] kinds = new int[classesToIndex.size()];
+        int i = 0;
+        for (Class<? extends Node> klass : classesToIndex) {
+            kinds[i] = NodeKinds.kindOf(klass);
+            maxKind = Math.max(maxKind, kinds[i]);
+            i++;
+        }
+        classSlotByKind = new int[maxKind + 1];
+        Arrays.fill(classSlotByKind, -1);
+        for (int slot = 0; slot < kinds.length; slot++) {
+            classSlotByKind[kinds[slot]] = slot;
+        }
+        byClass = newSlots(kinds.length);
+        byClassSize = new int[kinds.length];
+
+        nameSlots = new HashMap<>();
+        for (String name : namesToIndex) {
+            nameSlots.put(name, nameSlots.size());
+        }
+        byName = newSlots(nameSlots.size());
+        byNameSize = new int[nameSlots.size()];
+    }
+
+    private static int[][] newSlots(int n) {
+        int[][] slots = new int[n][];
+        Arrays.fill(slots, NO_SLOTS);
+        return slots;
     }
 
     void indexNode(Node n) {
-        if (interestingNames.contains(n.getXPathNodeName())) {
-            byName.computeIfAbsent(n.getXPathNodeName(), k -> new ArrayList<>()).add(n);
+        int pos = numNodes;
+        recordNode(n);
+        if (!nameSlots.isEmpty()) {
+            Integer nameSlot = nameSlots.get(n.getXPathNodeName());
+            if (nameSlot != null) {
+                add(byName, byNameSize, nameSlot, pos);
+            }
+        }
+        for (int slot : getClassSlots(n.getClass())) {
+            add(byClass, byClassSize, slot, pos);
         }
-        byClass.put(n.getClass(), n);
+    }
+
+    private int[] getClassSlots(Class<?> nodeClass) {
+        int kind = NodeKinds.kindOf(nodeClass);
+        if (kind >= classSlotsByKind.length) {
+            classSlotsByKind = Arrays.copyOf(classSlotsByKind, Math.max(kind + 1, NodeKinds.numKinds()));
+        }
+        int[] slots = classSlotsByKind[kind];
+        if (slots == null) {
+            int[] supertypes = NodeKinds.supertypeKinds(nodeClass);
+            slots = new int[supertypes.length];
+            int n = 0;
+            for (int superKind : supertypes) {
+                if (superKind < classSlotByKind.length && classSlotByKind[superKind] >= 0) {
+                    slots[n++] = classSlotByKind[superKind];
+                }
+            }
+            slots = n == 0 ? NO_SLOTS : Arrays.copyOf(slots, n);
+            classSlotsByKind[kind] = slots;
+        }
+        return slots;
+    }
+
+    private static void add(int[][] slots, int[] sizes, int slot, int pos) {
+        int[] positions = slots[slot];
+        int size = sizes[slot];
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(16, 2 * size));
+            slots[slot] = positions;
+        }
+        positions[size] = pos;
+        sizes[slot] = size + 1;
+    }
+
+    /**
+     * Only record the node in the list of all nodes, without indexing
+     * it by class or name.
+     */
+    void recordNode(Node n) {
+        if (numNodes == nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * numNodes);
+        }
+        nodes[numNodes++] = n;
     }
 
     void reset() {
-        byClass.clearValues();
-        byName.clear();
+        Arrays.fill(byClassSize, 0);
+        Arrays.fill(byNameSize, 0);
+        // don't retain the previous tree
+        Arrays.fill(nodes, 0, numNodes, null);
+        numNodes = 0;
+    }
+
+    int getNumNodes() {
+        return numNodes;
+    }
+
+    /** Returns the node at the given index in document order. */
+    Node getNode(int i) {
+        return nodes[i];
     }
 
     Iterator<Node> getByName(String n) {
-        return byName.getOrDefault(n, Collections.emptyList()).iterator();
+        Integer slot = nameSlots.get(n);
+        return slot == null ? nodesAt(NO_SLOTS, 0) : nodesAt(byName[slot], byNameSize[slot]);
     }
 
     Iterator<Node> getByClass(Class<? extends Node> n) {
-        return byClass.get(n).iterator();
+        int kind = NodeKinds.kindOf(n);
+        int slot = kind < classSlotByKind.length ? classSlotByKind[kind] : -1;
+        return slot < 0 ? nodesAt(NO_SLOTS, 0) : nodesAt(byClass[slot], byClassSize[slot]);
+    }
+
+
+    /**
+     * Returns the nodes that have one of the given names, in document order.
+     */
+    public Iterator<Node> getByName(Collection<String> names) {
+        if (names.size() == 1) {
+            return getByName(names.iterator().next());
+        }
+        int[] positions = NO_SLOTS;
+        int size = 0;
+        for (String name : names) {
+            Integer slot = nameSlots.get(name);
+            if (slot != null) {
+                positions = union(positions, size, byName[slot], byNameSize[slot]);
+                size = positions.length;
+            }
+        }
+        return nodesAt(positions, size);
     }
 
+    /**
+     * Returns the nodes that are instances of one of the given classes,
+     * in document order. A node that is an instance of several of the
+     * classes is only returned once.
+     */
+    public Iterator<Node> getByClass(Collection<? extends Class<? extends Node>> classes) {
+        if (classes.size() == 1) {
+            return getByClass(classes.iterator().next());
+        }
+        int[] positions = NO_SLOTS;
+        int size = 0;
+        for (Class<? extends Node> klass : classes) {
+            int kind = NodeKinds.kindOf(klass);
+            int slot = kind < classSlotByKind.length ? classSlotByKind[kind] : -1;
+            if (slot >= 0) {
+                positions = union(positions, size, byClass[slot], byClassSize[slot]);
+                size = positions.length;
+            }
+        }
+        return nodesAt(positions, size);
+    }
 
-    public Iterator<Node> getByName(Collection<String> n) {
-        return IteratorUtil.flatMap(n.iterator(), this::getByName);
+    /** Merges two sorted arrays of positions, without duplicates. */
+    private static int[] union(int[] a, int aSize, int[] b, int bSize) {
+        int[] result = new int[aSize + bSize];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < aSize && j < bSize) {
+            if (a[i] < b[j]) {
+                result[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[n++] = b[j++];
+            } else {
+                result[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < aSize) {
+            result[n++] = a[i++];
+        }
+        while (j < bSize) {
+            result[n++] = b[j++];
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
     }
 
-    public Iterator<Node> getByClass(Collection<? extends Class<? extends Node>> n) {
-        return IteratorUtil.flatMap(n.iterator(), this::getByClass);
+    private Iterator<Node> nodesAt(int[] positions, int size) {
+        return new Iterator<Node>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public Node next() {
+                if (i >= size) {
+                    throw new NoSuchElementException();
+                }
+                return nodes[positions[i++]];
+            }
+        };
     }
 }
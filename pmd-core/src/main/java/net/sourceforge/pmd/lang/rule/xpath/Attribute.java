@@ -7,14 +7,11 @@ package net.sourceforge.pmd.lang.rule.xpath;
 import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
-import java.util.List;
 import java.util.Objects;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.xpath.impl.AttributeAccessor;
 
 /**
  * Represents an XPath attribute of a specific node.
@@ -27,13 +24,11 @@ import net.sourceforge.pmd.lang.ast.Node;
  * @author daniels
  */
 public class Attribute {
-    private static final Logger LOG = LoggerFactory.getLogger(Attribute.class);
 
     private final Node parent;
     private final String name;
 
-    private final MethodHandle handle;
-    private final Method method;
+    private final AttributeAccessor accessor;
     private boolean invoked;
 
     private Object value;
@@ -41,10 +36,15 @@ public class Attribute {
 
     /** Creates a new attribute belonging to the given node using its accessor. */
     public Attribute(Node parent, String name, MethodHandle handle, Method m) {
+        this(parent, new AttributeAccessor(name, handle, m));
+    }
+
+    /** Creates a new attribute belonging to the given node using a shared accessor. */
+    @InternalApi
+    public Attribute(Node parent, AttributeAccessor accessor) {
         this.parent = parent;
-        this.name = name;
-        this.handle = handle;
-        this.method = m;
+        this.name = accessor.getName();
+        this.accessor = accessor;
     }
 
     /** Creates a new attribute belonging to the given node using its string value. */
@@ -52,8 +52,7 @@ public class Attribute {
         this.parent = parent;
         this.name = name;
         this.value = value;
-        this.handle = null;
-        this.method = null;
+        this.accessor = null;
         this.stringValue = value;
         this.invoked = true;
     }
@@ -64,7 +63,7 @@ public class Attribute {
      * Gets the generic type of the value of this attribute.
      */
     public Type getType() {
-        return method == null ? String.class : method.getGenericReturnType();
+        return accessor == null ? String.class : accessor.getMethod().getGenericReturnType();
     }
 
     public String getName() {
@@ -82,21 +81,7 @@ public class Attribute {
      */
     @InternalApi
     public String replacementIfDeprecated() {
-        if (method == null) {
-            return null;
-        } else {
-            DeprecatedAttribute annot = method.getAnnotation(DeprecatedAttribute.class);
-            String result = annot != null
-                   ? annot.replaceWith()
-                   : method.isAnnotationPresent(Deprecated.class)
-                     ? DeprecatedAttribute.NO_REPLACEMENT
-                     : null;
-            if (result == null && List.class.isAssignableFrom(method.getReturnType())) {
-                // Lists are generally deprecated, see #2451
-                result = DeprecatedAttribute.NO_REPLACEMENT;
-            }
-            return result;
-        }
+        return accessor == null ? null : accessor.replacementIfDeprecated();
     }
 
     public boolean isDeprecated() {
@@ -108,15 +93,8 @@ public class Attribute {
             return this.value;
         }
 
-        Object value;
         // this lazy loading reduces calls to Method.invoke() by about 90%
-        try {
-            value = handle.invokeExact(parent);
-        } catch (Throwable iae) { // NOPMD
-            LOG.debug("Exception while fetching attribute value", iae);
-            value = null;
-        }
-        this.value = value;
+        this.value = accessor.getValue(parent);
         this.invoked = true;
         return value;
     }
@@ -37,4 +37,16 @@ public abstract class AbstractXPathFunctionDef extends ExtensionFunctionDefiniti
     public final StructuredQName getFunctionQName() {
         return qname;
     }
+
+    /**
+     * Returns true if the result of the function only depends on the
+     * context node and on the arguments, and is the same every time
+     * it is computed during the analysis of a file. Calls to such a
+     * function whose arguments are all constant are memoized for each
+     * node of the file, and shared by all the rules of the analysis.
+     * By default, this returns false.
+     */
+    public boolean isPure() {
+        return false;
+    }
 }
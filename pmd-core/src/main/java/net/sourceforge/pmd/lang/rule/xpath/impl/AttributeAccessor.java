@@ -0,0 +1,95 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath.impl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.xpath.Attribute;
+import net.sourceforge.pmd.lang.rule.xpath.DeprecatedAttribute;
+
+/**
+ * The accessor of an XPath attribute, shared by all the nodes of a class.
+ * Everything that can be known about the attribute without a node, like
+ * its name and whether it is deprecated, is computed once here, instead
+ * of once per {@link Attribute}.
+ *
+ * @see AttributeAxisIterator#getAccessors(Class)
+ */
+@InternalApi
+public final class AttributeAccessor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Attribute.class);
+
+    private final String name;
+    private final MethodHandle handle;
+    private final Method method;
+    private final @Nullable String replacement;
+
+    /**
+     * Creates a new accessor.
+     *
+     * @param name   XPath name of the attribute
+     * @param handle Handle of the method, of type {@code (Node)Object}
+     * @param method Getter method
+     */
+    public AttributeAccessor(String name, MethodHandle handle, Method method) {
+        this.name = name;
+        this.handle = handle;
+        this.method = method;
+        this.replacement = computeReplacement(method);
+    }
+
+    private static @Nullable String computeReplacement(Method method) {
+        DeprecatedAttribute annot = method.getAnnotation(DeprecatedAttribute.class);
+        String result = annot != null
+                        ? annot.replaceWith()
+                        : method.isAnnotationPresent(Deprecated.class)
+                          ? DeprecatedAttribute.NO_REPLACEMENT
+                          : null;
+        if (result == null && List.class.isAssignableFrom(method.getReturnType())) {
+            // Lists are generally deprecated, see #2451
+            result = DeprecatedAttribute.NO_REPLACEMENT;
+        }
+        return result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns null for "not deprecated", empty string for "deprecated without replacement",
+     * otherwise name of replacement attribute.
+     */
+    public @Nullable String replacementIfDeprecated() {
+        return replacement;
+    }
+
+    /**
+     * Returns the value of the attribute on the given node, which must be
+     * an instance of the class this accessor was created for. Returns
+     * null if the getter throws an exception.
+     */
+    public @Nullable Object getValue(Node node) {
+        try {
+            return handle.invokeExact(node);
+        } catch (Throwable e) { // NOPMD
+            LOG.debug("Exception while fetching attribute value", e);
+            return null;
+        }
+    }
+}
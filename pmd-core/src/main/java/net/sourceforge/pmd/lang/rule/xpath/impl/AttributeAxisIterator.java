@@ -4,7 +4,6 @@
 
 package net.sourceforge.pmd.lang.rule.xpath.impl;
 
-import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodHandles.Lookup;
 import java.lang.invoke.MethodType;
@@ -16,8 +15,10 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.impl.AbstractNode;
 import net.sourceforge.pmd.lang.rule.xpath.Attribute;
@@ -35,7 +36,10 @@ import net.sourceforge.pmd.util.AssertionUtil;
 public class AttributeAxisIterator implements Iterator<Attribute> {
 
     /** Caches the precomputed attribute accessors of a given class. */
-    private static final ConcurrentMap<Class<?>, List<MethodWrapper>> METHOD_CACHE = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, List<AttributeAccessor>> METHOD_CACHE = new ConcurrentHashMap<>();
+
+    private static final Lookup LOOKUP = MethodHandles.publicLookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Node.class);
 
     /* Constants used to determine which methods are accessors */
     private static final Set<Class<?>> CONSIDERED_RETURN_TYPES
@@ -60,7 +64,7 @@ public class AttributeAxisIterator implements Iterator<Attribute> {
                                       "getScope"));
 
     /* Iteration variables */
-    private final Iterator<MethodWrapper> iterator;
+    private final Iterator<AttributeAccessor> iterator;
     private final Node node;
 
 
@@ -74,12 +78,33 @@ public class AttributeAxisIterator implements Iterator<Attribute> {
         this.iterator = METHOD_CACHE.computeIfAbsent(contextNode.getClass(), this::getWrappersForClass).iterator();
     }
 
-    private List<MethodWrapper> getWrappersForClass(Class<?> nodeClass) {
+    /**
+     * Returns the accessors of the attributes of the given node class,
+     * in the order they are returned by an iterator created for a node
+     * of that class. This is only relevant for node classes that don't
+     * override {@link Node#getXPathAttributesIterator()}.
+     */
+    @InternalApi
+    public static List<AttributeAccessor> getAccessors(Class<? extends Node> nodeClass) {
+        return METHOD_CACHE.computeIfAbsent(nodeClass, AttributeAxisIterator::getDefaultAccessors);
+    }
+
+    private static List<AttributeAccessor> getDefaultAccessors(Class<?> nodeClass) {
+        return getAccessorsForClass(nodeClass, m -> isDefaultAttributeAccessor(nodeClass, m));
+    }
+
+    private List<AttributeAccessor> getWrappersForClass(Class<?> nodeClass) {
+        return getAccessorsForClass(nodeClass, m -> isAttributeAccessor(nodeClass, m));
+    }
+
+    private static List<AttributeAccessor> getAccessorsForClass(Class<?> nodeClass, Predicate<Method> filter) {
         return Arrays.stream(nodeClass.getMethods())
-                     .filter(m -> isAttributeAccessor(nodeClass, m))
+                     .filter(filter)
                      .map(m -> {
                          try {
-                             return new MethodWrapper(m);
+                             return new AttributeAccessor(truncateMethodName(m.getName()),
+                                                          LOOKUP.unreflect(m).asType(GETTER_TYPE),
+                                                          m);
                          } catch (IllegalAccessException e) {
                              throw AssertionUtil.shouldNotReachHere("Method should be accessible " + e);
                          }
@@ -95,6 +120,10 @@ public class AttributeAxisIterator implements Iterator<Attribute> {
      * @param method The method to test
      */
     protected boolean isAttributeAccessor(Class<?> nodeClass, Method method) {
+        return isDefaultAttributeAccessor(nodeClass, method);
+    }
+
+    private static boolean isDefaultAttributeAccessor(Class<?> nodeClass, Method method) {
         String methodName = method.getName();
 
         return !methodName.startsWith("jjt")
@@ -107,12 +136,12 @@ public class AttributeAxisIterator implements Iterator<Attribute> {
             && !isIgnored(nodeClass, method);
     }
 
-    private boolean isConsideredReturnType(Method method) {
+    private static boolean isConsideredReturnType(Method method) {
         Class<?> klass = method.getReturnType();
         return CONSIDERED_RETURN_TYPES.contains(klass) || klass.isEnum();
     }
 
-    private boolean isIgnored(Class<?> nodeClass, Method method) {
+    private static boolean isIgnored(Class<?> nodeClass, Method method) {
         Class<?> declaration = method.getDeclaringClass();
         if (method.isAnnotationPresent(NoAttribute.class)) {
             return true;
@@ -151,8 +180,7 @@ public class AttributeAxisIterator implements Iterator<Attribute> {
 
     @Override
     public Attribute next() {
-        MethodWrapper m = iterator.next();
-        return new Attribute(node, m.name, m.methodHandle, m.method);
+        return new Attribute(node, iterator.next());
     }
 
 
@@ -163,52 +191,30 @@ public class AttributeAxisIterator implements Iterator<Attribute> {
 
 
     /**
-     * Associates an attribute accessor with the XPath-accessible
-     * name of the attribute. This is used to avoid recomputing
-     * the name of the attribute for each attribute (it's only done
-     * once and put inside the {@link #METHOD_CACHE}).
+     * This method produces the actual XPath name of an attribute
+     * from the name of its accessor.
      */
-    private static class MethodWrapper {
-        static final Lookup LOOKUP = MethodHandles.publicLookup();
-        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Node.class);
-        public MethodHandle methodHandle;
-        public Method method;
-        public String name;
-
-
-        MethodWrapper(Method m) throws IllegalAccessException {
-            this.method = m;
-            this.methodHandle = LOOKUP.unreflect(m).asType(GETTER_TYPE);
-            this.name = truncateMethodName(m.getName());
+    private static String truncateMethodName(String n) {
+        // about 70% of the methods start with 'get', so this case goes
+        // first
+        if (n.startsWith("get")) {
+            return n.substring("get".length());
         }
-
-
-        /**
-         * This method produces the actual XPath name of an attribute
-         * from the name of its accessor.
-         */
-        private String truncateMethodName(String n) {
-            // about 70% of the methods start with 'get', so this case goes
-            // first
-            if (n.startsWith("get")) {
-                return n.substring("get".length());
-            }
-            if (n.startsWith("is")) {
-                return n.substring("is".length());
-            }
-            if (n.startsWith("has")) {
-                return n.substring("has".length());
-            }
-            if (n.startsWith("uses")) {
-                return n.substring("uses".length());
-            }
-            if ("size".equals(n)) {
-                return "Size";
-            } else if ("length".equals(n)) {
-                return "Length";
-            }
-
-            return n;
+        if (n.startsWith("is")) {
+            return n.substring("is".length());
         }
+        if (n.startsWith("has")) {
+            return n.substring("has".length());
+        }
+        if (n.startsWith("uses")) {
+            return n.substring("uses".length());
+        }
+        if ("size".equals(n)) {
+            return "Size";
+        } else if ("length".equals(n)) {
+            return "Length";
+        }
+
+        return n;
     }
 }
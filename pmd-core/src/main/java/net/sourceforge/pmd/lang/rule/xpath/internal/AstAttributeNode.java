@@ -6,6 +6,7 @@ package net.sourceforge.pmd.lang.rule.xpath.internal;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import net.sourceforge.pmd.lang.rule.xpath.Attribute;
@@ -30,13 +31,23 @@ class AstAttributeNode extends BaseNodeInfo implements SiblingCountingNode {
     private final Attribute attribute;
     private AtomicSequence value;
     private final SchemaType schemaType;
+    private final Function<Object, AtomicSequence> converter;
     private final int siblingPosition;
 
 
     AstAttributeNode(AstElementNode parent, Attribute attribute, int siblingPosition) {
+        this(parent, attribute, siblingPosition, DomainConversion.buildType(attribute.getType()), DomainConversion::convert);
+    }
+
+    AstAttributeNode(AstElementNode parent,
+                     Attribute attribute,
+                     int siblingPosition,
+                     SchemaType schemaType,
+                     Function<Object, AtomicSequence> converter) {
         super(Type.ATTRIBUTE, parent.getNamePool(), attribute.getName(), parent);
         this.attribute = attribute;
-        this.schemaType = DomainConversion.buildType(attribute.getType());
+        this.schemaType = schemaType;
+        this.converter = converter;
         this.siblingPosition = siblingPosition;
         this.treeInfo = parent.getTreeInfo();
     }
@@ -70,7 +81,7 @@ class AstAttributeNode extends BaseNodeInfo implements SiblingCountingNode {
     @Override
     public AtomicSequence atomize() {
         if (value == null) {
-            value = DomainConversion.convert(attribute.getValue());
+            value = converter.apply(attribute.getValue());
         }
         return value;
     }
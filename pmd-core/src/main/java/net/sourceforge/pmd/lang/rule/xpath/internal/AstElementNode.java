@@ -46,6 +46,9 @@ public final class AstElementNode extends BaseNodeInfo implements SiblingCountin
     private final List<AstElementNode> children;
     private @Nullable Map<String, AstAttributeNode> attributes;
     private @Nullable Map<String, Attribute> lightAttributes;
+    // attributes by slot in the attribute table of the node, if it has one
+    private @Nullable Attribute @Nullable [] attributeSlots;
+    private @Nullable AstAttributeNode @Nullable [] attributeNodeSlots;
 
 
     AstElementNode(AstTreeInfo document,
@@ -81,6 +84,14 @@ public final class AstElementNode extends BaseNodeInfo implements SiblingCountin
 
     public Map<String, AstAttributeNode> makeAttributes(Node wrappedNode) {
         Map<String, AstAttributeNode> atts = new HashMap<>();
+        AttributeTable table = AttributeTable.forNode(wrappedNode);
+        if (table != null && wrappedNode == this.wrappedNode) { // NOPMD CompareObjectsWithEquals
+            for (int i = 0; i < table.size(); i++) {
+                AstAttributeNode attr = getAttributeNode(table, i);
+                atts.put(attr.getLocalPart(), attr);
+            }
+            return atts;
+        }
         Iterator<Attribute> it = wrappedNode.getXPathAttributesIterator();
 
         int attrIdx = 0;
@@ -102,12 +113,44 @@ public final class AstElementNode extends BaseNodeInfo implements SiblingCountin
     public Map<String, Attribute> getLightAttributes() {
         if (lightAttributes == null) {
             lightAttributes = new HashMap<>();
+            AttributeTable table = AttributeTable.forNode(wrappedNode);
+            if (table != null) {
+                for (int i = 0; i < table.size(); i++) {
+                    Attribute attr = getAttribute(table, i);
+                    lightAttributes.put(attr.getName(), attr);
+                }
+                return lightAttributes;
+            }
             getUnderlyingNode().getXPathAttributesIterator()
                                .forEachRemaining(it -> lightAttributes.put(it.getName(), it));
         }
         return lightAttributes;
     }
 
+    private Attribute getAttribute(AttributeTable table, int slot) {
+        if (attributeSlots == null) {
+            attributeSlots = new Attribute[table.size()];
+        }
+        Attribute attr = attributeSlots[slot];
+        if (attr == null) {
+            attr = new Attribute(wrappedNode, table.getAccessor(slot));
+            attributeSlots[slot] = attr;
+        }
+        return attr;
+    }
+
+    private AstAttributeNode getAttributeNode(AttributeTable table, int slot) {
+        if (attributeNodeSlots == null) {
+            attributeNodeSlots = new AstAttributeNode[table.size()];
+        }
+        AstAttributeNode node = attributeNodeSlots[slot];
+        if (node == null) {
+            node = new AstAttributeNode(this, getAttribute(table, slot), slot, table.getType(slot), table.getConverter(slot));
+            attributeNodeSlots[slot] = node;
+        }
+        return node;
+    }
+
     @Override
     public boolean hasChildNodes() {
         return !children.isEmpty();
@@ -149,6 +192,11 @@ public final class AstElementNode extends BaseNodeInfo implements SiblingCountin
     protected AxisIterator iterateAttributes(Predicate<? super NodeInfo> predicate) {
         if (predicate instanceof NameTest) {
             String local = ((NameTest) predicate).getLocalPart();
+            AttributeTable table = AttributeTable.forNode(wrappedNode);
+            if (table != null) {
+                int slot = table.slotOf(local);
+                return SingleNodeIterator.makeIterator(slot < 0 ? null : getAttributeNode(table, slot));
+            }
             return SingleNodeIterator.makeIterator(getAttributes().get(local));
         }
 
@@ -175,7 +223,14 @@ public final class AstElementNode extends BaseNodeInfo implements SiblingCountin
 
     @Override
     public String getAttributeValue(String uri, String local) {
-        Attribute attribute = getLightAttributes().get(local);
+        AttributeTable table = AttributeTable.forNode(wrappedNode);
+        Attribute attribute;
+        if (table != null) {
+            int slot = table.slotOf(local);
+            attribute = slot < 0 ? null : getAttribute(table, slot);
+        } else {
+            attribute = getLightAttributes().get(local);
+        }
         if (attribute != null) {
             getTreeInfo().getLogger().recordUsageOf(attribute);
             return attribute.getStringValue();
@@ -5,6 +5,8 @@
 package net.sourceforge.pmd.lang.rule.xpath.internal;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,6 +19,7 @@ import net.sourceforge.pmd.lang.ast.RootNode;
 
 import net.sf.saxon.Configuration;
 import net.sf.saxon.om.GenericTreeInfo;
+import net.sf.saxon.om.GroundedValue;
 
 
 /**
@@ -38,6 +41,7 @@ public final class AstTreeInfo extends GenericTreeInfo {
             return size() > 1024;
         }
     };
+    private final Map<Object, Map<AstElementNode, GroundedValue>> cachedValues = new HashMap<>();
 
     /**
      * Builds an AstDocument, with the given node as the root.
@@ -108,6 +112,14 @@ public final class AstTreeInfo extends GenericTreeInfo {
     }
 
 
+    /**
+     * Returns the cached values of an expression in this tree, by context
+     * node. The key identifies the expression, see {@link MemoizedFunctionDef}.
+     */
+    Map<AstElementNode, GroundedValue> getCachedValues(Object key) {
+        return cachedValues.computeIfAbsent(key, k -> new IdentityHashMap<>());
+    }
+
     public void setAttrCtx(DeprecatedAttrLogger attrCtx) {
         this.logger = attrCtx;
     }
@@ -0,0 +1,113 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath.internal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.xpath.impl.AttributeAccessor;
+import net.sourceforge.pmd.lang.rule.xpath.impl.AttributeAxisIterator;
+
+import net.sf.saxon.om.AtomicSequence;
+import net.sf.saxon.type.SchemaType;
+
+
+/**
+ * The attributes of a node class, numbered in a fixed order. This is
+ * computed once per class, along with the XPath type and the conversion
+ * to an XPath value of each attribute, so that an {@link AstElementNode}
+ * can find its attributes by number instead of enumerating them into a
+ * map.
+ *
+ * <p>Only node classes that use the default {@link Node#getXPathAttributesIterator()}
+ * have a table. Other nodes may compute their attributes in any way, and
+ * are handled by enumerating them.
+ */
+final class AttributeTable {
+
+    private static final AttributeTable NONE = new AttributeTable();
+
+    private static final ClassValue<AttributeTable> TABLES = new ClassValue<AttributeTable>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected AttributeTable computeValue(Class<?> type) {
+            return usesDefaultAttributes(type) ? new AttributeTable((Class<? extends Node>) type) : NONE;
+        }
+    };
+
+    private final AttributeAccessor[] accessors;
+    private final SchemaType[] types;
+    private final Function<Object, AtomicSequence>[] converters;
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    private AttributeTable() {
+        this.accessors = new AttributeAccessor[0];
+        this.types = new SchemaType[0];
+        this.converters = newConverterArray(0);
+    }
+
+    private AttributeTable(Class<? extends Node> nodeClass) {
+        List<AttributeAccessor> list = AttributeAxisIterator.getAccessors(nodeClass);
+        this.accessors = list.toArray(new AttributeAccessor[0]);
+        this.types = new SchemaType[accessors.length];
+        this.converters = newConverterArray(accessors.length);
+        for (int i = 0; i < accessors.length; i++) {
+            AttributeAccessor accessor = accessors[i];
+            types[i] = DomainConversion.buildType(accessor.getMethod().getGenericReturnType());
+            converters[i] = DomainConversion.converterFor(accessor.getMethod().getReturnType());
+            // like when enumerating attributes into a map, the last one wins
+            slots.put(accessor.getName(), i);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, AtomicSequence>[] newConverterArray(int size) {
+        return new Function[size];
+    }
+
+    private static boolean usesDefaultAttributes(Class<?> type) {
+        try {
+            return type.getMethod("getXPathAttributesIterator").getDeclaringClass() == Node.class; // NOPMD CompareObjectsWithEquals
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the table of the class of the given node, or null if the
+     * node does not use the default attributes.
+     */
+    static @Nullable AttributeTable forNode(Node node) {
+        AttributeTable table = TABLES.get(node.getClass());
+        return table == NONE ? null : table; // NOPMD CompareObjectsWithEquals
+    }
+
+    int size() {
+        return accessors.length;
+    }
+
+    /** Returns the number of the attribute with the given name, or -1. */
+    int slotOf(String name) {
+        Integer slot = slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    AttributeAccessor getAccessor(int slot) {
+        return accessors[slot];
+    }
+
+    SchemaType getType(int slot) {
+        return types[slot];
+    }
+
+    Function<Object, AtomicSequence> getConverter(int slot) {
+        return converters[slot];
+    }
+}
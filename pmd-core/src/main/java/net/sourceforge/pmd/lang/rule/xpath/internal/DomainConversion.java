@@ -7,6 +7,7 @@ package net.sourceforge.pmd.lang.rule.xpath.internal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -63,6 +64,28 @@ public final class DomainConversion {
         return getAtomicRepresentation(obj);
     }
 
+    /**
+     * Returns a function that converts the values of the given type like
+     * {@link #convert(Object)}, but that does not need to find out the
+     * type of the value first.
+     */
+    public static Function<Object, AtomicSequence> converterFor(Class<?> type) {
+        Function<Object, AtomicSequence> converter;
+        if (type == int.class || type == Integer.class) {
+            converter = v -> Int64Value.makeIntegerValue((Integer) v);
+        } else if (type == boolean.class || type == Boolean.class) {
+            converter = v -> BooleanValue.get((Boolean) v);
+        } else if (type == String.class) {
+            converter = v -> new StringValue((String) v);
+        } else if (type.isEnum() || type == char.class || type == Character.class) {
+            converter = v -> new StringValue(v.toString());
+        } else {
+            return DomainConversion::convert;
+        }
+        // getters that fail produce null
+        return v -> v == null ? UntypedAtomicValue.ZERO_LENGTH_UNTYPED : converter.apply(v);
+    }
+
     public static SequenceType typeOf(Object obj) {
         if (obj instanceof Collection) {
             if (((Collection<?>) obj).isEmpty()) {
@@ -0,0 +1,159 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath.internal;
+
+import java.util.Map;
+
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.lang.rule.xpath.impl.AbstractXPathFunctionDef;
+
+import net.sf.saxon.expr.Expression;
+import net.sf.saxon.expr.Literal;
+import net.sf.saxon.expr.StaticContext;
+import net.sf.saxon.expr.XPathContext;
+import net.sf.saxon.lib.ExtensionFunctionCall;
+import net.sf.saxon.lib.ExtensionFunctionDefinition;
+import net.sf.saxon.om.GroundedValue;
+import net.sf.saxon.om.Item;
+import net.sf.saxon.om.Sequence;
+import net.sf.saxon.om.StructuredQName;
+import net.sf.saxon.trans.XPathException;
+import net.sf.saxon.value.SequenceType;
+
+/**
+ * Wraps a {@linkplain AbstractXPathFunctionDef#isPure() pure} function,
+ * to memoize its results for each node of a file. Only calls whose
+ * arguments are all literals are memoized, eg {@code pmd-java:typeIs('java.util.List')}.
+ * Calls with the same arguments share their results, even if they
+ * occur in different rules.
+ *
+ * <p>The calls are recorded in the timing report, with the number of
+ * calls that found a memoized result as counter.
+ */
+final class MemoizedFunctionDef extends ExtensionFunctionDefinition {
+
+    private final AbstractXPathFunctionDef delegate;
+    private final String label;
+
+    MemoizedFunctionDef(AbstractXPathFunctionDef delegate) {
+        this.delegate = delegate;
+        this.label = delegate.getFunctionQName().getDisplayName();
+    }
+
+    @Override
+    public StructuredQName getFunctionQName() {
+        return delegate.getFunctionQName();
+    }
+
+    @Override
+    public int getMinimumNumberOfArguments() {
+        return delegate.getMinimumNumberOfArguments();
+    }
+
+    @Override
+    public int getMaximumNumberOfArguments() {
+        return delegate.getMaximumNumberOfArguments();
+    }
+
+    @Override
+    public SequenceType[] getArgumentTypes() {
+        return delegate.getArgumentTypes();
+    }
+
+    @Override
+    public SequenceType getResultType(SequenceType[] suppliedArgumentTypes) {
+        return delegate.getResultType(suppliedArgumentTypes);
+    }
+
+    @Override
+    public boolean trustResultType() {
+        return delegate.trustResultType();
+    }
+
+    @Override
+    public boolean dependsOnFocus() {
+        return delegate.dependsOnFocus();
+    }
+
+    @Override
+    public boolean hasSideEffects() {
+        return delegate.hasSideEffects();
+    }
+
+    @Override
+    public ExtensionFunctionCall makeCallExpression() {
+        ExtensionFunctionCall call = delegate.makeCallExpression();
+        call.setDefinition(delegate);
+        return new MemoizedCall(call);
+    }
+
+    private final class MemoizedCall extends ExtensionFunctionCall {
+
+        private final ExtensionFunctionCall call;
+        // identifies the function and the arguments, null if some are not constant
+        private String memoKey;
+
+        MemoizedCall(ExtensionFunctionCall call) {
+            this.call = call;
+        }
+
+        @Override
+        public void supplyStaticContext(StaticContext context, int locationId, Expression[] arguments) throws XPathException {
+            call.supplyStaticContext(context, locationId, arguments);
+        }
+
+        @Override
+        public Expression rewrite(StaticContext context, Expression[] arguments) throws XPathException {
+            StringBuilder key = new StringBuilder(label).append('(');
+            for (Expression arg : arguments) {
+                if (!(arg instanceof Literal)) {
+                    key = null;
+                    break;
+                }
+                // this quotes strings, so that 'a' and "a" have the same key, but 1 and '1' don't
+                key.append(arg).append(',');
+            }
+            memoKey = key == null ? null : key.append(')').toString();
+            return call.rewrite(context, arguments);
+        }
+
+        @Override
+        public void copyLocalData(ExtensionFunctionCall destination) {
+            MemoizedCall copy = (MemoizedCall) destination;
+            copy.memoKey = memoKey;
+            call.copyLocalData(copy.call);
+        }
+
+        @Override
+        public Sequence call(XPathContext context, Sequence[] arguments) throws XPathException {
+            if (!TimeTracker.isTrackingTime()) {
+                return callImpl(context, arguments, null);
+            }
+            long start = System.nanoTime();
+            boolean[] hit = {false};
+            Sequence result = callImpl(context, arguments, hit);
+            TimeTracker.recordOperation(TimedOperationCategory.XPATH_FUNCTION, label, System.nanoTime() - start, hit[0] ? 1 : 0);
+            return result;
+        }
+
+        private Sequence callImpl(XPathContext context, Sequence[] arguments, boolean[] hit) throws XPathException {
+            Item item = context.getContextItem();
+            if (memoKey == null || !(item instanceof AstElementNode)) {
+                return call.call(context, arguments);
+            }
+            AstElementNode element = (AstElementNode) item;
+            Map<AstElementNode, GroundedValue> values = element.getTreeInfo().getCachedValues(memoKey);
+            GroundedValue value = values.get(element);
+            if (value == null) {
+                value = call.call(context, arguments).materialize();
+                values.put(element, value);
+            } else if (hit != null) {
+                hit[0] = true;
+            }
+            return value;
+        }
+    }
+}
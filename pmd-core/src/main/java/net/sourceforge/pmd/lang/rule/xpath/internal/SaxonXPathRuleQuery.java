@@ -21,6 +21,7 @@ import net.sourceforge.pmd.lang.rule.XPathRule;
 import net.sourceforge.pmd.lang.rule.xpath.PmdXPathException;
 import net.sourceforge.pmd.lang.rule.xpath.PmdXPathException.Phase;
 import net.sourceforge.pmd.lang.rule.xpath.XPathVersion;
+import net.sourceforge.pmd.lang.rule.xpath.impl.AbstractXPathFunctionDef;
 import net.sourceforge.pmd.lang.rule.xpath.impl.XPathHandler;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
 import net.sourceforge.pmd.util.DataMap;
@@ -202,7 +203,11 @@ public class SaxonXPathRuleQuery {
         for (ExtensionFunctionDefinition fun : xPathHandler.getRegisteredExtensionFunctions()) {
             StructuredQName qname = fun.getFunctionQName();
             staticCtx.declareNamespace(qname.getPrefix(), qname.getURI());
-            this.configuration.registerExtensionFunction(fun);
+            if (fun instanceof AbstractXPathFunctionDef && ((AbstractXPathFunctionDef) fun).isPure()) {
+                this.configuration.registerExtensionFunction(new MemoizedFunctionDef((AbstractXPathFunctionDef) fun));
+            } else {
+                this.configuration.registerExtensionFunction(fun);
+            }
         }
 
         final XPathEvaluator xpathEvaluator = new XPathEvaluator(configuration);
@@ -26,7 +26,9 @@ import net.sourceforge.pmd.util.AssertionUtil;
 public interface ListenerInitializer extends AutoCloseable {
 
     /**
-     * Notifies the total number of files collected for analysis.
+     * Notifies the total number of files collected for analysis. This
+     * is -1 if the number is not known in advance, because files are
+     * analysed while they are being collected.
      */
     default void setNumberOfFilesToAnalyze(int totalFiles) {
         // noop
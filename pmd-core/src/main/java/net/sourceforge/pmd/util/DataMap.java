@@ -4,27 +4,42 @@
 
 package net.sourceforge.pmd.util;
 
-import java.util.IdentityHashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import net.sourceforge.pmd.annotation.InternalApi;
+
 /**
  * An opaque, strongly typed heterogeneous data container. Data maps can
  * be set to accept only a certain type of key, with the type parameter.
  * The key can itself constrain the type of values, using its own type
  * parameter {@code T}.
  *
+ * <p>Several data maps may share their storage, see {@link #newSharedMap()}.
+ * This is used to store the user data of all nodes of a tree in a few
+ * arrays, instead of allocating a hash table for each node.
+ *
  * @param <K> Type of keys in this map.
  */
 public final class DataMap<K> {
 
-    private Map<DataKey<? extends K, ?>, Object> map;
+    // stored for a key explicitly mapped to null, the table uses null for missing values
+    private static final Object NULL_VALUE = new Object();
 
-    private DataMap() {
+    // lazily created, it's only needed if set() is called at least once,
+    // but get() might be called many more times, as sometimes you cache
+    // a key sparsely on some nodes, and default to the first parent for
+    // which the key is set.
+    private @Nullable Table table;
+    // index of this map in the table
+    private final int slot;
 
+    private DataMap(@Nullable Table table, int slot) {
+        this.table = table;
+        this.slot = slot;
     }
 
     /**
@@ -38,7 +53,7 @@ public final class DataMap<K> {
      */
     @SuppressWarnings("unchecked")
     public <T> @Nullable T set(DataKey<? extends K, ? super T> key, T data) {
-        return (T) getMap().put(key, data);
+        return (T) unmask(getTable().put(key, slot, data == null ? NULL_VALUE : data));
     }
 
     /**
@@ -51,12 +66,13 @@ public final class DataMap<K> {
      */
     @SuppressWarnings("unchecked")
     public <T> @Nullable T get(DataKey<? extends K, ? extends T> key) {
-        return map == null ? null : (T) map.get(key);
+        return table == null ? null : (T) unmask(table.get(key, slot));
     }
 
     @SuppressWarnings("unchecked")
     public <T> T getOrDefault(DataKey<? extends K, ? extends T> key, T defaultValue) {
-        return map == null ? defaultValue : (T) map.getOrDefault(key, defaultValue);
+        Object value = table == null ? null : table.get(key, slot);
+        return value == null ? defaultValue : (T) unmask(value);
     }
 
     /**
@@ -68,14 +84,21 @@ public final class DataMap<K> {
      *
      * @return Value associated with the key (as nullable as the
      */
-    @SuppressWarnings("unchecked")
     public <T> T computeIfAbsent(DataKey<? extends K, T> key, Supplier<? extends T> supplier) {
-        return (T) getMap().computeIfAbsent(key, k -> supplier.get());
+        T value = get(key);
+        if (value == null) {
+            value = supplier.get();
+            if (value != null) {
+                getTable().put(key, slot, value);
+            }
+        }
+        return value;
     }
 
     /**
      * Create or replace a mapping with a value computed from the current
-     * value (or null if missing).
+     * value (or null if missing). If the function returns null, the
+     * mapping is removed.
      *
      * @param key      Key
      * @param function Supplier for a value
@@ -83,37 +106,55 @@ public final class DataMap<K> {
      *
      * @return Value returned by the parameter function
      */
-    @SuppressWarnings("unchecked")
     public <T> T compute(DataKey<? extends K, T> key, Function<? super @Nullable T, ? extends T> function) {
-        return (T) getMap().compute(key, (k, v) -> function.apply((T) v));
+        T value = function.apply(get(key));
+        if (value != null || table != null) {
+            getTable().put(key, slot, value);
+        }
+        return value;
     }
 
-    private Map<DataKey<? extends K, ?>, Object> getMap() {
-        // the map is lazily created, it's only needed if set() is called
-        // at least once, but get() might be called many more times, as
-        // sometimes you cache a key sparsely on some nodes, and default
-        // to the first parent for which the key is set. The default expected
-        // max size is also 21, which is *way* bigger than what data maps
-        // typically contain (1/2 keys)
-        if (map == null) {
-            map = new IdentityHashMap<>(1);
+    private Table getTable() {
+        if (table == null) {
+            table = new Table();
+            table.newSlot();
         }
-        return map;
+        return table;
+    }
+
+    private static @Nullable Object unmask(@Nullable Object value) {
+        return value == NULL_VALUE ? null : value; // NOPMD CompareObjectsWithEquals
     }
 
     /**
-     * Returns true if the given key has a non-null value in the map.
+     * Returns true if the given key has a value in the map, even if
+     * that value is null.
      *
      * @param key Key
      *
      * @return True if some value is set
      */
     public boolean isSet(DataKey<? extends K, ?> key) {
-        return map != null && map.containsKey(key);
+        return table != null && table.get(key, slot) != null;
+    }
+
+    /**
+     * Returns a new, empty data map, which shares its storage with this
+     * map. Storing data in a shared map costs a single array slot per
+     * key, instead of a hash table per map. This is meant for the user
+     * data of AST nodes, where many maps are populated with the same few keys.
+     *
+     * <p>Shared maps must not be used concurrently by several threads,
+     * even if each thread uses a different map.
+     */
+    @InternalApi
+    public DataMap<K> newSharedMap() {
+        Table t = getTable();
+        return new DataMap<>(t, t.newSlot());
     }
 
     public static <K> DataMap<K> newDataMap() {
-        return new DataMap<>();
+        return new DataMap<>(null, 0);
     }
 
     public static <T> SimpleDataKey<T> simpleDataKey(final String name) {
@@ -132,6 +173,182 @@ public final class DataMap<K> {
 
     }
 
+    /**
+     * Storage of a set of maps. Each key of the table has a {@link Column}
+     * holding the values of the maps for that key. Tables usually have
+     * very few keys, so we use a linear search by identity to find the
+     * column of a key. A null value in a column means the key is not set.
+     */
+    private static final class Table {
+
+        private DataKey<?, ?>[] keys = new DataKey<?, ?>[0];
+        private Column[] columns = new Column[0];
+        private int numSlots;
+
+        int newSlot() {
+            return numSlots++;
+        }
+
+        @Nullable Object get(DataKey<?, ?> key, int slot) {
+            Column column = findColumn(key);
+            return column == null ? null : column.get(slot);
+        }
+
+        @Nullable Object put(DataKey<?, ?> key, int slot, @Nullable Object value) {
+            Column column = findColumn(key);
+            if (column == null) {
+                if (value == null) {
+                    return null;
+                }
+                int k = keys.length;
+                keys = Arrays.copyOf(keys, k + 1);
+                columns = Arrays.copyOf(columns, k + 1);
+                keys[k] = key;
+                column = new Column();
+                columns[k] = column;
+            }
+            return column.put(slot, value, numSlots);
+        }
+
+        private @Nullable Column findColumn(DataKey<?, ?> key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) { // NOPMD CompareObjectsWithEquals
+                    return columns[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The values of the maps of a table for one key. A column is dense,
+     * an array indexed by slot, as long as at least half of the slots up
+     * to the highest slot that has a value are set. Otherwise, eg for
+     * keys that are only set on a few nodes of a large tree, it is sparse:
+     * a sorted array of the slots that have a value, and their values.
+     */
+    private static final class Column {
+
+        private static final int[] NO_SLOTS = new int[0];
+        private static final Object[] NO_VALUES = new Object[0];
+
+        // null if the column is dense
+        private int[] slots = NO_SLOTS;
+        private Object[] values = NO_VALUES;
+        // number of non-null values
+        private int size;
+
+        @Nullable Object get(int slot) {
+            if (slots == null) {
+                return slot < values.length ? values[slot] : null;
+            }
+            int i = indexOf(slot);
+            return i >= 0 ? values[i] : null;
+        }
+
+        @Nullable Object put(int slot, @Nullable Object value, int numSlots) {
+            return slots == null ? putDense(slot, value, numSlots)
+                                 : putSparse(slot, value, numSlots);
+        }
+
+        private @Nullable Object putDense(int slot, @Nullable Object value, int numSlots) {
+            if (slot >= values.length) {
+                if (value == null) {
+                    return null;
+                }
+                if (2 * (size + 1) <= slot + 1) {
+                    toSparse();
+                    return putSparse(slot, value, numSlots);
+                }
+                // slots are allocated in increasing order, which is
+                // usually also the order in which maps are populated
+                int length = Math.max(slot + 1, values.length + (values.length >> 1));
+                values = Arrays.copyOf(values, Math.min(length, numSlots));
+            }
+            Object prev = values[slot];
+            values[slot] = value;
+            updateSize(prev, value);
+            return prev;
+        }
+
+        private @Nullable Object putSparse(int slot, @Nullable Object value, int numSlots) {
+            int i = indexOf(slot);
+            if (i >= 0) {
+                Object prev = values[i];
+                if (value == null) {
+                    System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+                    System.arraycopy(values, i + 1, values, i, size - i - 1);
+                    values[size - 1] = null;
+                    size--;
+                } else {
+                    values[i] = value;
+                }
+                return prev;
+            } else if (value == null) {
+                return null;
+            }
+
+            int highestSlot = size == 0 ? slot : Math.max(slot, slots[size - 1]);
+            if (2 * (size + 1) > highestSlot + 1) {
+                toDense(highestSlot + 1);
+                return putDense(slot, value, numSlots);
+            }
+            if (size == slots.length) {
+                int capacity = Math.max(4, 2 * size);
+                slots = Arrays.copyOf(slots, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            int insertion = -(i + 1);
+            System.arraycopy(slots, insertion, slots, insertion + 1, size - insertion);
+            System.arraycopy(values, insertion, values, insertion + 1, size - insertion);
+            slots[insertion] = slot;
+            values[insertion] = value;
+            size++;
+            return null;
+        }
+
+        /** Index of the slot in the sparse arrays, or (-insertion point - 1). */
+        private int indexOf(int slot) {
+            if (size == 0 || slot > slots[size - 1]) {
+                // maps are usually populated in increasing slot order
+                return -(size + 1);
+            }
+            return Arrays.binarySearch(slots, 0, size, slot);
+        }
+
+        private void updateSize(@Nullable Object prev, @Nullable Object value) {
+            if (prev == null && value != null) {
+                size++;
+            } else if (prev != null && value == null) {
+                size--;
+            }
+        }
+
+        private void toDense(int length) {
+            Object[] dense = new Object[length];
+            for (int i = 0; i < size; i++) {
+                dense[slots[i]] = values[i];
+            }
+            slots = null;
+            values = dense;
+        }
+
+        private void toSparse() {
+            int[] sparseSlots = new int[Math.max(4, size + 1)];
+            Object[] sparseValues = new Object[sparseSlots.length];
+            int k = 0;
+            for (int slot = 0; slot < values.length; slot++) {
+                if (values[slot] != null) {
+                    sparseSlots[k] = slot;
+                    sparseValues[k] = values[slot];
+                    k++;
+                }
+            }
+            slots = sparseSlots;
+            values = sparseValues;
+        }
+    }
+
     public static class SimpleDataKey<T> implements DataKey<SimpleDataKey<T>, T> {
 
         private final String name;
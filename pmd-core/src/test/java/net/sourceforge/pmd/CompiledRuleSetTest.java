@@ -0,0 +1,118 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd;
+
+import static net.sourceforge.pmd.util.CollectionUtil.mapOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.sourceforge.pmd.lang.rule.RuleReference;
+import net.sourceforge.pmd.lang.rule.XPathRule;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
+import net.sourceforge.pmd.util.internal.xml.SchemaConstants;
+
+class CompiledRuleSetTest extends RulesetFactoryTestBase {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testRuleReferencesAreFlattened() throws IOException {
+        RuleSet original = loadRuleSet(rulesetXml(
+            excludePattern(".*Test.*"),
+            ruleRef("rulesets/dummy/basic.xml/DummyBasicMockRule",
+                    priority("1")),
+            ruleRef("rulesets/dummy/basic.xml/SampleXPathRule")
+        ));
+        assertTrue(original.getRuleByName("SampleXPathRule") instanceof RuleReference);
+
+        RuleSet compiled = compileAndLoad(original);
+
+        assertEquals(original.getName(), compiled.getName());
+        assertEquals(original.getDescription(), compiled.getDescription());
+        assertEquals(".*Test.*", compiled.getFileExclusions().get(0).pattern());
+        assertEquals(2, compiled.size());
+
+        Rule mockRule = compiled.getRuleByName("DummyBasicMockRule");
+        assertFalse(mockRule instanceof RuleReference);
+        assertEquals(RulePriority.HIGH, mockRule.getPriority());
+        assertEquals("Test Rule 1", mockRule.getMessage());
+        assertEquals("Test Ruleset", mockRule.getRuleSetName());
+
+        Rule xpathRule = compiled.getRuleByName("SampleXPathRule");
+        assertEquals(original.getRuleByName("SampleXPathRule").getProperty(XPathRule.XPATH_DESCRIPTOR),
+                     xpathRule.getProperty(XPathRule.XPATH_DESCRIPTOR));
+    }
+
+    @Test
+    void testPropertyDefinitions() throws IOException {
+        RuleSet original = loadRuleSet(rulesetXml(
+            dummyRule(
+                attrs -> attrs.put(SchemaConstants.CLASS, XPathRule.class.getName()),
+                properties(
+                    propertyWithValueAttr("xpath", "//foo"),
+                    propertyDefWithValueAttr("rangeProp", "the description", "Integer", "5",
+                                             mapOf(SchemaConstants.PROPERTY_MIN, "0", SchemaConstants.PROPERTY_MAX, "10"))
+                )
+            )
+        ));
+
+        Rule rule = compileAndLoad(original).getRuleByName("MockRuleName");
+
+        PropertyDescriptor<?> rangeProp = rule.getPropertyDescriptor("rangeProp");
+        assertNotNull(rangeProp);
+        assertEquals(5, rule.getProperty(rangeProp));
+        assertEquals("the description", rangeProp.description());
+        assertEquals(1, rangeProp.serializer().getConstraints().size());
+        assertEquals(mapOf("min", "0", "max", "10"),
+                     rangeProp.serializer().getConstraints().get(0).getXmlConstraint());
+    }
+
+    @Test
+    void testMinimumPriorityIsApplied() throws IOException {
+        Path compiled = compile(loadRuleSet(rulesetXml(
+            ruleRef("rulesets/dummy/basic.xml/DummyBasicMockRule", priority("1")),
+            ruleRef("rulesets/dummy/basic.xml/SampleXPathRule")
+        )));
+
+        RuleSet ruleSet = new RuleSetLoader().filterAbovePriority(RulePriority.HIGH)
+                                             .loadFromResource(compiled.toString());
+        assertEquals(1, ruleSet.size());
+        assertNotNull(ruleSet.getRuleByName("DummyBasicMockRule"));
+    }
+
+    @Test
+    void testInvalidCompiledRuleSet() throws IOException {
+        Path file = tempDir.resolve("invalid" + CompiledRuleSet.FILE_EXTENSION);
+        Files.write(file, "<ruleset/>".getBytes(StandardCharsets.UTF_8));
+
+        RuleSetLoader loader = new RuleSetLoader();
+        assertThrows(RuleSetLoadException.class, () -> loader.loadFromResource(file.toString()));
+    }
+
+    private RuleSet compileAndLoad(RuleSet ruleSet) throws IOException {
+        return new RuleSetLoader().loadFromResource(compile(ruleSet).toString());
+    }
+
+    private Path compile(RuleSet ruleSet) throws IOException {
+        Path file = tempDir.resolve("ruleset" + CompiledRuleSet.FILE_EXTENSION);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            CompiledRuleSet.write(ruleSet, out);
+        }
+        return file;
+    }
+}
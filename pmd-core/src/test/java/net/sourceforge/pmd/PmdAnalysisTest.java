@@ -4,25 +4,46 @@
 
 package net.sourceforge.pmd;
 
+import static net.sourceforge.pmd.util.CollectionUtil.listOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
+import org.slf4j.event.Level;
 
 import net.sourceforge.pmd.RuleSetTest.MockRule;
+import net.sourceforge.pmd.cache.CachedRuleViolation;
 import net.sourceforge.pmd.lang.Dummy2LanguageModule;
 import net.sourceforge.pmd.lang.DummyLanguageModule;
 import net.sourceforge.pmd.lang.Language;
@@ -30,8 +51,11 @@ import net.sourceforge.pmd.lang.LanguageProcessor;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.document.FileId;
 import net.sourceforge.pmd.lang.document.SimpleTestTextFile;
+import net.sourceforge.pmd.lang.document.TextFile;
 import net.sourceforge.pmd.lang.rule.AbstractRule;
 import net.sourceforge.pmd.renderers.Renderer;
+import net.sourceforge.pmd.reporting.FileAnalysisListener;
+import net.sourceforge.pmd.reporting.GlobalAnalysisListener;
 import net.sourceforge.pmd.reporting.ReportStats;
 import net.sourceforge.pmd.util.log.MessageReporter;
 
@@ -167,6 +191,266 @@ class PmdAnalysisTest {
         }
     }
 
+    @Test
+    void testDiffFileIsResolvedAgainstRepositoryRoot(@TempDir Path tempDir) throws IOException {
+        // the tests run in the module directory, git paths start at the root of the repository
+        Path diff = writeDiff(tempDir, "pmd-core/src/test/resources/sample-source/dummy/foo.dummy");
+        PMDConfiguration config = new PMDConfiguration();
+        config.addInputPath(Paths.get("src/test/resources/sample-source/dummy"));
+        config.setDiffFile(diff);
+        MessageReporter reporter = spy(MessageReporter.quiet());
+        config.setReporter(reporter);
+
+        try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+            assertThat(pmd.files().getCollectedFiles(), hasSize(1));
+            assertTrue(pmd.files().getCollectedFiles().get(0).getFileId().getOriginalPath().endsWith("foo.dummy"));
+            pmd.performAnalysis();
+        }
+        assertEquals(0, reporter.numErrors());
+        verify(reporter, never()).logEx(eq(Level.WARN), Mockito.contains("diff"), any(), isNull());
+    }
+
+    @Test
+    void testDiffFileWithUnknownPathsIsAnError(@TempDir Path tempDir) throws IOException {
+        Path diff = writeDiff(tempDir, "sample-source/dummy/foo.dummy");
+        PMDConfiguration config = new PMDConfiguration();
+        config.addInputPath(Paths.get("src/test/resources/sample-source/dummy"));
+        config.setDiffFile(diff);
+        MessageReporter reporter = spy(MessageReporter.quiet());
+        config.setReporter(reporter);
+
+        try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+            // all files are analyzed
+            assertThat(pmd.files().getCollectedFiles(), hasSize(2));
+        }
+        verify(reporter).errorEx(Mockito.contains("changed files"), any(IOException.class));
+    }
+
+    @Test
+    void testDiffFileWithoutAnalyzedFilesIsReported(@TempDir Path tempDir) throws IOException {
+        Path diff = writeDiff(tempDir, "pmd-core/pom.xml");
+        PMDConfiguration config = new PMDConfiguration();
+        config.addInputPath(Paths.get("src/test/resources/sample-source/dummy"));
+        config.setDiffFile(diff);
+        MessageReporter reporter = spy(MessageReporter.quiet());
+        config.setReporter(reporter);
+
+        try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+            assertThat(pmd.files().getCollectedFiles(), empty());
+            pmd.performAnalysis();
+        }
+        verify(reporter).logEx(eq(Level.WARN), Mockito.contains("changed according to the diff"), any(), isNull());
+    }
+
+    @Test
+    void testFilesAreAnalyzedInOrderWithOneThread(@TempDir Path tempDir) throws IOException {
+        for (String name : listOf("c.dummy", "a.dummy", "b/b.dummy", "b/a.dummy", "b.dummy")) {
+            writeFile(tempDir.resolve(name));
+        }
+        PMDConfiguration config = new PMDConfiguration();
+        config.setThreads(0);
+        config.setIgnoreIncrementalAnalysis(true);
+        config.addInputPath(tempDir);
+        List<FileId> analyzed = Collections.synchronizedList(new ArrayList<>());
+
+        try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+            pmd.addRuleSet(RuleSet.forSingleRule(new MockRule()));
+            pmd.addListener(new RecordingListener(analyzed));
+            pmd.performAnalysis();
+        }
+        assertThat(analyzed, hasSize(5));
+        List<FileId> sorted = new ArrayList<>(analyzed);
+        Collections.sort(sorted);
+        assertEquals(sorted, analyzed);
+    }
+
+    @Test
+    void testLanguagesOfStreamedFilesAreAnalyzedConcurrently(@TempDir Path tempDir) throws IOException {
+        // more files than a language queue holds, the other language must not wait for them
+        for (int i = 0; i < 1500; i++) {
+            writeFile(tempDir.resolve("dir" + i % 10).resolve("file" + i + ".dummy"));
+        }
+        for (int i = 0; i < 10; i++) {
+            writeFile(tempDir.resolve("file" + i + ".dummy2"));
+        }
+        PMDConfiguration config = new PMDConfiguration();
+        config.setThreads(2);
+        config.setIgnoreIncrementalAnalysis(true);
+        config.addInputPath(tempDir);
+        Set<FileId> analyzed = ConcurrentHashMap.newKeySet();
+
+        assertTimeoutPreemptively(Duration.ofMinutes(1), () -> {
+            try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+                pmd.addRuleSet(RuleSet.create("rules", "rules", "rules.xml", Collections.emptyList(),
+                                              Collections.emptyList(), listOf(new MockRule(), new TestRule())));
+                pmd.addListener(new RecordingListener(analyzed));
+                pmd.performAnalysis();
+            }
+        });
+        assertEquals(1510, analyzed.size());
+    }
+
+    @Test
+    void testLanguagesOfCollectedFilesAreAnalyzedConcurrently(@TempDir Path tempDir) throws IOException {
+        // more files than the executor of a language holds, so that
+        // it blocks if the other language is not launched concurrently
+        for (int i = 0; i < 20; i++) {
+            writeFile(tempDir.resolve("file" + i + ".dummy"));
+            writeFile(tempDir.resolve("file" + i + ".dummy2"));
+        }
+        PMDConfiguration config = new PMDConfiguration();
+        config.setThreads(2);
+        config.setIgnoreIncrementalAnalysis(true);
+        config.addInputPath(tempDir);
+        RendezvousRule.reset();
+
+        Report report;
+        try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+            // the files are collected before the analysis, so they are not streamed
+            assertThat(pmd.files().getCollectedFiles(), hasSize(40));
+            pmd.addRuleSet(RuleSet.create("rules", "rules", "rules.xml", Collections.emptyList(), Collections.emptyList(),
+                                          listOf(new RendezvousRule(), new RendezvousRule2())));
+            report = pmd.performAnalysisAndCollectReport();
+        }
+        assertThat("Each language waited for the other", report.getViolations(), empty());
+    }
+
+    @Test
+    void testCachedViolationsOfStreamedFilesKeepTheirDisplayName(@TempDir Path tempDir) {
+        PMDConfiguration config = new PMDConfiguration();
+        config.setThreads(2);
+        config.setAnalysisCacheLocation(tempDir.resolve("pmd.cache").toString());
+        config.addInputPath(Paths.get("src/test/resources/sample-source/dummy/foo.dummy"));
+
+        List<RuleViolation> firstRun = analyzeWithViolationRule(config);
+        List<RuleViolation> secondRun = analyzeWithViolationRule(config);
+
+        assertThat(firstRun, hasSize(1));
+        assertThat(secondRun, hasSize(1));
+        assertThat(secondRun.get(0), instanceOf(CachedRuleViolation.class));
+        assertEquals(firstRun.get(0).getFileId().getOriginalPath(), secondRun.get(0).getFileId().getOriginalPath());
+    }
+
+    private static List<RuleViolation> analyzeWithViolationRule(PMDConfiguration config) {
+        List<RuleViolation> violations = Collections.synchronizedList(new ArrayList<>());
+        try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+            pmd.addRuleSet(RuleSet.forSingleRule(new ViolationOnRootRule()));
+            pmd.addListener(new GlobalAnalysisListener() {
+                @Override
+                public FileAnalysisListener startFileAnalysis(TextFile file) {
+                    return violations::add;
+                }
+
+                @Override
+                public void close() {
+                    // nothing to do
+                }
+            });
+            pmd.performAnalysis();
+        }
+        return violations;
+    }
+
+    private static void writeFile(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, listOf("some source"), StandardCharsets.UTF_8);
+    }
+
+    private static Path writeDiff(Path dir, String changedFile) throws IOException {
+        Path diff = dir.resolve("changes.diff");
+        Files.write(diff, listOf("--- a/" + changedFile,
+                                 "+++ b/" + changedFile,
+                                 "@@ -1 +1 @@",
+                                 "-old",
+                                 "+new"),
+                    StandardCharsets.UTF_8);
+        return diff;
+    }
+
+    private static class RecordingListener implements GlobalAnalysisListener {
+
+        private final Collection<FileId> analyzed;
+
+        RecordingListener(Collection<FileId> analyzed) {
+            this.analyzed = analyzed;
+        }
+
+        @Override
+        public FileAnalysisListener startFileAnalysis(TextFile file) {
+            analyzed.add(file.getFileId());
+            return FileAnalysisListener.noop();
+        }
+
+        @Override
+        public void close() {
+            // nothing to do
+        }
+    }
+
+    /**
+     * Reports a violation if no file of the other language is analysed
+     * while the first file of its language is.
+     */
+    private static class RendezvousRule extends AbstractRule {
+
+        private static CountDownLatch dummyStarted;
+        private static CountDownLatch dummy2Started;
+        private static volatile boolean gaveUp;
+
+        RendezvousRule() {
+            setLanguage(DummyLanguageModule.getInstance());
+            setMessage("no concurrent analysis");
+        }
+
+        static void reset() {
+            dummyStarted = new CountDownLatch(1);
+            dummy2Started = new CountDownLatch(1);
+            gaveUp = false;
+        }
+
+        @Override
+        public void apply(Node node, RuleContext ctx) {
+            rendezvous(dummyStarted, dummy2Started, node, ctx);
+        }
+
+        static void rendezvous(CountDownLatch started, CountDownLatch otherStarted, Node node, RuleContext ctx) {
+            started.countDown();
+            try {
+                if (!gaveUp && !otherStarted.await(5, TimeUnit.SECONDS)) {
+                    gaveUp = true;
+                    ctx.addViolation(node);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class RendezvousRule2 extends AbstractRule {
+
+        RendezvousRule2() {
+            setLanguage(Dummy2LanguageModule.getInstance());
+            setMessage("no concurrent analysis");
+        }
+
+        @Override
+        public void apply(Node node, RuleContext ctx) {
+            RendezvousRule.rendezvous(RendezvousRule.dummy2Started, RendezvousRule.dummyStarted, node, ctx);
+        }
+    }
+
+    private static class ViolationOnRootRule extends AbstractRule {
+        ViolationOnRootRule() {
+            setLanguage(DummyLanguageModule.getInstance());
+            setMessage("dummy test rule");
+        }
+
+        @Override
+        public void apply(Node node, RuleContext ctx) {
+            ctx.addViolation(node);
+        }
+    }
+
     private static class TestRule extends AbstractRule {
         TestRule() {
             setLanguage(Dummy2LanguageModule.getInstance());
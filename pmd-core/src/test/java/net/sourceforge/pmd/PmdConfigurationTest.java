@@ -54,6 +54,14 @@ class PmdConfigurationTest {
         assertEquals(0, configuration.getThreads(), "Changed threads");
     }
 
+    @Test
+    void testHeapBudget() {
+        PMDConfiguration configuration = new PMDConfiguration();
+        assertEquals(0, configuration.getHeapBudget(), "Default heap budget");
+        configuration.setHeapBudget(PMDConfiguration.AUTOMATIC_HEAP_BUDGET);
+        assertEquals(PMDConfiguration.AUTOMATIC_HEAP_BUDGET, configuration.getHeapBudget(), "Changed heap budget");
+    }
+
     @Test
     void testClassLoader() {
         PMDConfiguration configuration = new PMDConfiguration();
@@ -16,6 +16,7 @@ import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
@@ -25,8 +26,12 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -35,6 +40,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 
+import net.sourceforge.pmd.PMDVersion;
 import net.sourceforge.pmd.PmdCoreTestUtils;
 import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.RuleViolation;
@@ -98,6 +104,38 @@ class FileAnalysisCacheTest {
         new FileAnalysisCache(emptyCacheFile);
     }
 
+    @Test
+    void testLoadFromFileInOldFormatShouldntThrow() throws IOException {
+        // the layout of a cache file without format marker, with an entry that
+        // would be misread: the file attributes are taken for the violation count
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(newCacheFile.toPath()))) {
+            out.writeUTF(PMDVersion.VERSION);
+            out.writeLong(0);
+            out.writeLong(0);
+            out.writeLong(0);
+            out.writeUTF(sourceFileBackend.getFileId().getUriString());
+            out.writeLong(sourceFile.getCheckSum());
+            out.writeInt(Integer.MAX_VALUE);
+        }
+
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(mock(RuleSets.class), mock(ClassLoader.class), setOf(sourceFileBackend));
+        assertFalse(cache.isUpToDate(sourceFile),
+                "Cache believes a file is up to date with a cache file in another format");
+    }
+
+    @Test
+    void testLoadFromTruncatedFileShouldntThrow() throws IOException {
+        setupCacheWithFiles(newCacheFile, mock(RuleSets.class), mock(ClassLoader.class));
+        byte[] contents = Files.readAllBytes(newCacheFile.toPath());
+        Files.write(newCacheFile.toPath(), Arrays.copyOf(contents, contents.length - 4));
+
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(mock(RuleSets.class), mock(ClassLoader.class), setOf(sourceFileBackend));
+        assertFalse(cache.isUpToDate(sourceFile),
+                "Cache believes a file is up to date with a truncated cache file");
+    }
+
     @Test
     void testStoreCreatesFile() throws Exception {
         final FileAnalysisCache cache = new FileAnalysisCache(unexistingCacheFile);
@@ -175,19 +213,21 @@ class FileAnalysisCacheTest {
             cache.persist();
         }
 
-        reloadWithOneViolation(mockFile);
+        reloadWithOneViolation(mockFile, setOf(mockFile));
+        // when files are streamed to the analysis, the cache does not know them beforehand
+        reloadWithOneViolation(mockFile, Collections.emptySet());
     }
 
-    private void reloadWithOneViolation(TextFile mockFile) throws IOException {
+    private void reloadWithOneViolation(TextFile mockFile, Collection<TextFile> knownFiles) throws IOException {
         final FileAnalysisCache reloadedCache = new FileAnalysisCache(newCacheFile);
-        reloadedCache.checkValidity(mock(RuleSets.class), mock(ClassLoader.class), setOf(mockFile));
+        reloadedCache.checkValidity(mock(RuleSets.class), mock(ClassLoader.class), knownFiles);
         try (TextDocument doc1 = TextDocument.create(mockFile)) {
             assertTrue(reloadedCache.isUpToDate(doc1),
                        "Cache believes unmodified file with violations is not up to date");
             List<RuleViolation> cachedViolations = reloadedCache.getCachedViolations(doc1);
             assertEquals(1, cachedViolations.size(), "Cached rule violations count mismatch");
             final RuleViolation cachedViolation = cachedViolations.get(0);
-            assertEquals(mockFile.getFileId(), cachedViolation.getLocation().getFileId());
+            assertSame(mockFile.getFileId(), cachedViolation.getLocation().getFileId());
         }
     }
 
@@ -451,6 +491,57 @@ class FileAnalysisCacheTest {
                 "Cache believes a known, changed file is up to date");
     }
 
+    @Test
+    void testUnchangedFileIsUpToDateWithoutReading() throws IOException {
+        setLastModified(TimeUnit.HOURS.toMillis(1));
+        setupCacheWithFiles(newCacheFile, mock(RuleSets.class), mock(ClassLoader.class));
+
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(mock(RuleSets.class), mock(ClassLoader.class), setOf(sourceFileBackend));
+        assertTrue(cache.isUpToDateWithoutReading(sourceFileBackend),
+                "Cache believes a known file with unchanged attributes is not up to date");
+        assertTrue(cache.getCachedViolations(sourceFileBackend.getFileId()).isEmpty());
+    }
+
+    @Test
+    void testTouchedFileIsCheckedWithChecksum() throws IOException {
+        setLastModified(TimeUnit.HOURS.toMillis(1));
+        setupCacheWithFiles(newCacheFile, mock(RuleSets.class), mock(ClassLoader.class));
+        setLastModified(TimeUnit.MINUTES.toMillis(1));
+
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(mock(RuleSets.class), mock(ClassLoader.class), setOf(sourceFileBackend));
+        assertFalse(cache.isUpToDateWithoutReading(sourceFileBackend),
+                "Cache believes a file with a new modification time is up to date without reading it");
+        assertTrue(cache.isUpToDate(sourceFile),
+                "Cache believes a touched file with unchanged contents is not up to date");
+        cache.persist();
+
+        // the new attributes are recorded
+        final FileAnalysisCache reloadedCache = new FileAnalysisCache(newCacheFile);
+        reloadedCache.checkValidity(mock(RuleSets.class), mock(ClassLoader.class), setOf(sourceFileBackend));
+        assertTrue(reloadedCache.isUpToDateWithoutReading(sourceFileBackend),
+                "Cache believes a known file with unchanged attributes is not up to date");
+    }
+
+    @Test
+    void testRecentlyModifiedFileIsNotUpToDateWithoutReading() throws IOException {
+        // the file has just been written
+        setupCacheWithFiles(newCacheFile, mock(RuleSets.class), mock(ClassLoader.class));
+
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(mock(RuleSets.class), mock(ClassLoader.class), setOf(sourceFileBackend));
+        assertFalse(cache.isUpToDateWithoutReading(sourceFileBackend),
+                "Cache trusts the attributes of a file that may be modified again in the same clock tick");
+        assertTrue(cache.isUpToDate(sourceFile),
+                "Cache believes a known, unchanged file is not up to date");
+    }
+
+    private void setLastModified(long millisAgo) throws IOException {
+        Path path = tempFolder.resolve("Source.java");
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - millisAgo));
+    }
+
     private void setupCacheWithFiles(final File cacheFile,
                                      final RuleSets ruleSets,
                                      final ClassLoader classLoader) throws IOException {
@@ -458,6 +549,7 @@ class FileAnalysisCacheTest {
         final FileAnalysisCache cache = new FileAnalysisCache(cacheFile);
         cache.checkValidity(ruleSets, classLoader, setOf(sourceFileBackend));
 
+        cache.isUpToDateWithoutReading(sourceFileBackend);
         cache.isUpToDate(sourceFile);
         cache.persist();
     }
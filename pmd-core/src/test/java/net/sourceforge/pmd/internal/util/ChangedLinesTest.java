@@ -0,0 +1,152 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.internal.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.lang.document.FileId;
+
+class ChangedLinesTest {
+
+    private static final Path BASE = Paths.get("repo").toAbsolutePath();
+
+    @Test
+    void testGitDiffWithoutContext() throws IOException {
+        ChangedLines changes = parse(
+            "diff --git a/src/Foo.java b/src/Foo.java",
+            "index 1234567..89abcde 100644",
+            "--- a/src/Foo.java",
+            "+++ b/src/Foo.java",
+            "@@ -3,0 +4,2 @@ class Foo {",
+            "+++ an added line that looks like a header",
+            "+    int y;",
+            "@@ -10,2 +11,0 @@",
+            "-    int z;",
+            "-    int w;"
+        );
+        FileId foo = file("src/Foo.java");
+        assertTrue(changes.isChanged(foo));
+        assertFalse(changes.isChanged(foo, 1, 3));
+        assertTrue(changes.isChanged(foo, 4, 4));
+        assertTrue(changes.isChanged(foo, 5, 5));
+        assertFalse(changes.isChanged(foo, 6, 10));
+        assertTrue(changes.isChanged(foo, 1, 100));
+        // around the deletion
+        assertTrue(changes.isChanged(foo, 11, 11));
+        assertTrue(changes.isChanged(foo, 12, 12));
+        assertFalse(changes.isChanged(foo, 13, 20));
+        assertFalse(changes.isChanged(file("src/Bar.java")));
+    }
+
+    @Test
+    void testDiffWithContext() throws IOException {
+        ChangedLines changes = parse(
+            "--- a/Foo.java",
+            "+++ b/Foo.java",
+            "@@ -1,4 +1,4 @@",
+            " class Foo {",
+            "-    int x;",
+            "+    int y;",
+            " ",
+            "",
+            "\\ No newline at end of file"
+        );
+        FileId foo = file("Foo.java");
+        assertFalse(changes.isChanged(foo, 3, 4));
+        assertTrue(changes.isChanged(foo, 2, 2));
+    }
+
+    @Test
+    void testNewAndDeletedFiles() throws IOException {
+        ChangedLines changes = parse(
+            "--- /dev/null",
+            "+++ b/New.java",
+            "@@ -0,0 +1 @@",
+            "+class New {}",
+            "--- a/Old.java",
+            "+++ /dev/null",
+            "@@ -1 +0,0 @@",
+            "-class Old {}"
+        );
+        assertTrue(changes.isChanged(file("New.java"), 1, 1));
+        assertFalse(changes.isChanged(file("Old.java")));
+    }
+
+    @Test
+    void testDiffFileIsResolvedAgainstRepoOfWorkingDir(@TempDir Path tempDir) throws IOException {
+        Path repo = Files.createDirectories(tempDir.resolve("repo/.git")).getParent();
+        Path src = Files.createDirectories(repo.resolve("src"));
+        Path foo = Files.write(src.resolve("Foo.java"), "class Foo {}\n".getBytes(StandardCharsets.UTF_8));
+        Path diff = Files.write(repo.resolve("changes.diff"), Arrays.asList(
+            "--- a/src/Foo.java",
+            "+++ b/src/Foo.java",
+            "@@ -1 +1 @@",
+            "-class Bar {}",
+            "+class Foo {}"
+        ), StandardCharsets.UTF_8);
+
+        PMDConfiguration configuration = new PMDConfiguration();
+        configuration.setDiffFile(diff);
+        configuration.setDiffWorkingDir(src);
+        ChangedLines changes = ChangedLines.fromConfiguration(configuration);
+        assertTrue(changes.isChanged(FileId.fromPath(foo), 1, 1));
+
+        // none of the files exist relative to another directory
+        configuration.setDiffWorkingDir(Files.createDirectories(tempDir.resolve("other")));
+        assertThrows(IOException.class, () -> ChangedLines.fromConfiguration(configuration));
+    }
+
+    @Test
+    void testGitDiffIgnoresPrefixConfiguration(@TempDir Path repo) throws IOException, InterruptedException {
+        git(repo, "init", "-q");
+        git(repo, "config", "diff.noprefix", "true");
+        Path src = Files.createDirectories(repo.resolve("src"));
+        Path foo = Files.write(src.resolve("Foo.java"), Arrays.asList("class Foo {", "}"), StandardCharsets.UTF_8);
+        git(repo, "add", ".");
+        git(repo, "-c", "user.name=pmd", "-c", "user.email=pmd@example.com",
+            "-c", "commit.gpgsign=false", "commit", "-q", "-m", "Initial");
+        Files.write(foo, Arrays.asList("class Foo {", "    int x;", "}"), StandardCharsets.UTF_8);
+
+        PMDConfiguration configuration = new PMDConfiguration();
+        configuration.setDiffBase("HEAD");
+        configuration.setDiffWorkingDir(src);
+        ChangedLines changes = ChangedLines.fromConfiguration(configuration);
+        assertTrue(changes.isChanged(FileId.fromPath(foo), 2, 2));
+        assertFalse(changes.isChanged(FileId.fromPath(foo), 3, 3));
+    }
+
+    private static void git(Path dir, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command).directory(dir.toFile()).inheritIO().start();
+        assertEquals(0, process.waitFor(), "Failed: " + command);
+    }
+
+    private static FileId file(String path) {
+        return FileId.fromPath(BASE.resolve(path));
+    }
+
+    private static ChangedLines parse(String... lines) throws IOException {
+        return ChangedLines.parse(new StringReader(String.join("\n", lines)), BASE);
+    }
+}
@@ -5,6 +5,7 @@
 package net.sourceforge.pmd.lang;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -33,6 +34,29 @@ class LanguageProcessorRegistryTest {
         }
     }
 
+    @Test
+    void lazyRegistryStartsProcessorsWhenRequested() throws Exception {
+        Map<String, String> env = new HashMap<>();
+        env.put("PMD_DUMMY_ROOT_DIRECTORY", "theValue");
+
+        Language dummyLanguage = DummyLanguageModule.getInstance().getDefaultVersion().getLanguage();
+        LanguageRegistry languageRegistry = LanguageRegistry.singleton(dummyLanguage);
+
+        Map<Language, LanguagePropertyBundle> languageProperties = new HashMap<>();
+        DummyLanguagePropertyBundle bundle = new DummyLanguagePropertyBundle(dummyLanguage);
+        languageProperties.put(dummyLanguage, bundle);
+
+        try (LanguageProcessorRegistry registry = LanguageProcessorRegistry.createLazily(languageRegistry, languageProperties, MessageReporter.quiet(), env)) {
+            assertEquals(languageRegistry.getLanguages(), registry.getLanguages().getLanguages());
+            // the environment is read when the processor is created
+            assertEquals("", bundle.getRootDirectory());
+
+            LanguageProcessor processor = registry.getProcessor(dummyLanguage);
+            assertEquals("theValue", bundle.getRootDirectory());
+            assertSame(processor, registry.getProcessor(dummyLanguage));
+        }
+    }
+
     private static class DummyLanguagePropertyBundle extends LanguagePropertyBundle {
         private static final PropertyDescriptor<String> ROOT_DIRECTORY = PropertyFactory.stringProperty("rootDirectory")
                 .desc("Test")
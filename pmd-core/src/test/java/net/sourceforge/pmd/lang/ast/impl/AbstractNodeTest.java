@@ -8,10 +8,13 @@ import static net.sourceforge.pmd.lang.ast.impl.DummyTreeUtil.node;
 import static net.sourceforge.pmd.lang.ast.impl.DummyTreeUtil.root;
 import static net.sourceforge.pmd.lang.ast.impl.DummyTreeUtil.tree;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -22,6 +25,9 @@ import org.junit.jupiter.params.provider.MethodSource;
 import net.sourceforge.pmd.lang.ast.DummyNode;
 import net.sourceforge.pmd.lang.ast.DummyNode.DummyRootNode;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.util.DataMap;
+import net.sourceforge.pmd.util.DataMap.DataKey;
+import net.sourceforge.pmd.util.DataMap.SimpleDataKey;
 
 /**
  * Unit test for {@link AbstractNode}.
@@ -218,4 +224,62 @@ class AbstractNodeTest {
         assertEquals(0, grandChild.getNumChildren());
     }
 
+    @Test
+    void testUserMapsAreIndependent() {
+        SimpleDataKey<String> key1 = DataMap.simpleDataKey("key1");
+        SimpleDataKey<Integer> key2 = DataMap.simpleDataKey("key2");
+
+        List<DummyNode> nodes = rootNode.descendantsOrSelf().toList();
+        for (int i = nodes.size() - 1; i >= 0; i -= 2) {
+            nodes.get(i).getUserMap().set(key2, i);
+        }
+        for (int i = 0; i < nodes.size(); i += 3) {
+            nodes.get(i).getUserMap().set(key1, "n" + i);
+        }
+
+        for (int i = 0; i < nodes.size(); i++) {
+            DataMap<DataKey<?, ?>> map = nodes.get(i).getUserMap();
+            assertEquals(i % 3 == 0 ? "n" + i : null, map.get(key1));
+            assertEquals((nodes.size() - 1 - i) % 2 == 0 ? Integer.valueOf(i) : null, map.get(key2));
+            assertEquals(i % 3 == 0, map.isSet(key1));
+        }
+
+        DataMap<DataKey<?, ?>> map = nodes.get(1).getUserMap();
+        assertEquals(Integer.valueOf(2), map.compute(key2, v -> v == null ? 2 : v + 1));
+        assertEquals("x", map.computeIfAbsent(key1, () -> "x"));
+        assertEquals("x", map.computeIfAbsent(key1, () -> "y"));
+        assertEquals("x", map.set(key1, null));
+        // a key mapped to null is still set
+        assertTrue(map.isSet(key1));
+        assertNull(map.get(key1));
+        assertNull(map.getOrDefault(key1, "default"));
+        assertNull(map.compute(key1, v -> null));
+        assertFalse(map.isSet(key1));
+        assertEquals("default", map.getOrDefault(key1, "default"));
+        assertTrue(nodes.get(0).getUserMap().isSet(key1));
+    }
+
+    @Test
+    void testSparseUserData() {
+        SimpleDataKey<Integer> key = DataMap.simpleDataKey("key");
+        DataMap<DataKey<?, ?>> rootMap = rootNode.getUserMap();
+        List<DataMap<DataKey<?, ?>>> maps = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            maps.add(rootMap.newSharedMap());
+        }
+
+        // only a few maps have a value, in decreasing order of slots
+        for (int i = maps.size() - 1; i >= 0; i -= 97) {
+            maps.get(i).set(key, i);
+        }
+        // then the key becomes dense
+        for (int i = 0; i < maps.size(); i++) {
+            assertEquals(i % 97 == (maps.size() - 1) % 97 ? Integer.valueOf(i) : null, maps.get(i).get(key));
+            maps.get(i).compute(key, v -> v == null ? -1 : v);
+        }
+        for (int i = 0; i < maps.size(); i++) {
+            assertEquals(i % 97 == (maps.size() - 1) % 97 ? i : -1, maps.get(i).get(key).intValue());
+        }
+        assertFalse(rootMap.isSet(key));
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.ast.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pmd.lang.ast.DummyNode;
+import net.sourceforge.pmd.lang.ast.DummyNode.DummyNodeTypeB;
+import net.sourceforge.pmd.lang.ast.DummyNode.DummyRootNode;
+
+class PreorderIndexTest {
+
+    @Test
+    void testIndexedDescendantsAreTheSame() {
+        DummyRootNode root = bigTree();
+
+        List<DummyNodeTypeB> bs = root.descendants(DummyNodeTypeB.class).toList();
+        List<DummyNodeTypeB> crossing = root.descendants(DummyNodeTypeB.class).crossFindBoundaries().toList();
+        List<DummyNode> orSelf = root.descendantsOrSelf().filterIs(DummyNode.class).toList();
+        List<DummyNodeTypeB> fromBoundary = root.getChild(2).descendants(DummyNodeTypeB.class).toList();
+
+        PreorderIndex.index(root);
+        assertNotNull(PreorderIndex.forSubtree(root));
+
+        assertEquals(bs, root.descendants(DummyNodeTypeB.class).toList());
+        assertEquals(crossing, root.descendants(DummyNodeTypeB.class).crossFindBoundaries().toList());
+        assertEquals(orSelf, root.descendantsOrSelf().filterIs(DummyNode.class).toList());
+        assertEquals(fromBoundary, root.getChild(2).descendants(DummyNodeTypeB.class).toList());
+        assertEquals(bs.get(0), root.descendants(DummyNodeTypeB.class).first());
+        assertEquals(bs.size(), root.descendants().filterIs(DummyNodeTypeB.class).count());
+    }
+
+    @Test
+    void testSmallSubtreesAreNotIndexed() {
+        DummyRootNode root = bigTree();
+        PreorderIndex.index(root);
+
+        assertNull(PreorderIndex.forSubtree(root.getChild(0)));
+        assertNull(PreorderIndex.forSubtree(root.getChild(0).getChild(0)));
+    }
+
+    @Test
+    void testModificationDropsIndex() {
+        DummyRootNode root = bigTree();
+        PreorderIndex.index(root);
+        int before = root.descendants(DummyNodeTypeB.class).count();
+
+        DummyNode parent = (DummyNode) root.getChild(0);
+        parent.addChild(new DummyNodeTypeB(), parent.getNumChildren());
+
+        assertNull(PreorderIndex.forSubtree(root));
+        assertEquals(before + 1, root.descendants(DummyNodeTypeB.class).count());
+    }
+
+    /**
+     * A root with 5 children, each with 8 children of alternating types.
+     * The third child of the root is a find boundary.
+     */
+    private static DummyRootNode bigTree() {
+        DummyRootNode root = new DummyRootNode();
+        for (int i = 0; i < 5; i++) {
+            DummyNode parent = new DummyNode(i == 2);
+            parent.setImage(String.valueOf(i));
+            for (int j = 0; j < 8; j++) {
+                DummyNode child = j % 2 == 0 ? new DummyNode() : new DummyNodeTypeB();
+                child.setImage(i + "" + j);
+                DummyNode grandChild = new DummyNodeTypeB();
+                grandChild.setImage(i + "" + j + "0");
+                child.addChild(grandChild, 0);
+                parent.addChild(child, j);
+            }
+            root.addChild(parent, i);
+        }
+        return root;
+    }
+}
@@ -133,6 +133,26 @@ class CharStreamTest {
         assertThrows(IllegalArgumentException.class, () -> stream.backup(10));
     }
 
+    @Test
+    void testTokenImages() throws IOException {
+
+        CharStream stream = javaCharStream("ab \\u00a0_");
+        JavaccTokenDocument doc = stream.getTokenDocument();
+
+        stream.markTokenStart();
+        stream.readChar();
+        JavaccToken literal = doc.createToken(1, stream, "ab");
+        assertEquals("ab", literal.getImage());
+
+        stream.readChar();
+        stream.markTokenStart();
+        stream.readChar();
+        JavaccToken sliced = doc.createToken(2, stream, null);
+        assertEquals("\u00a0_", sliced.getImage());
+        assertEquals("\u00a0_", sliced.getImageCs().toString());
+        assertEquals("\u00a0_", sliced.withKind(3).getImage());
+    }
+
 
     CharStream simpleCharStream(String abcd) {
         return CharStream.create(TextDocument.readOnlyString(abcd, dummyVersion), TokenDocumentBehavior.DEFAULT);
@@ -10,8 +10,11 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -90,7 +93,118 @@ class FileCollectorTest {
         assertCollected(collector, listOf(FileId.fromPath(foo), FileId.fromPath(bar)));
     }
 
+    @Test
+    void testAddDirectoryNotRecursive() throws IOException {
+        Path root = tempFolder;
+        Path foo = newFile(root, "src/foo.dummy");
+        newFile(root, "src/x/bar.dummy");
+
+        FileCollector collector = newCollector();
+
+        collector.addDirectory(root.resolve("src"), false);
+
+        assertCollected(collector, listOf(FileId.fromPath(foo)));
+    }
+
+    @Test
+    void testExcludedDirectoryIsNotExplored() throws IOException {
+        Path root = tempFolder;
+        Path foo = newFile(root, "src/foo.dummy");
+        newFile(root, "src/x/bar.dummy");
+        newFile(root, "src/y/baz.dummy");
+
+        FileCollector collector = newCollector();
+        collector.excludePath(root.resolve("src/x"));
+        collector.excludePath(root.resolve("src/./y/baz.dummy"));
+
+        collector.addDirectory(root.resolve("src"));
+        assertFalse(collector.addDirectory(root.resolve("src/x")));
 
+        assertCollected(collector, listOf(FileId.fromPath(foo)));
+        assertNoErrors(collector);
+    }
+
+    @Test
+    void testAddDirectoryWithGitIgnore() throws IOException {
+        Path root = tempFolder;
+        writeFile(root, "src/.gitignore", "# generated\ngen/\n*.bak.dummy\n/top.dummy\n");
+        writeFile(root, "src/x/.gitignore", "!keep.bak.dummy\n");
+        Path foo = newFile(root, "src/foo.dummy");
+        newFile(root, "src/top.dummy");
+        newFile(root, "src/foo.bak.dummy");
+        newFile(root, "src/gen/gen.dummy");
+        Path xTop = newFile(root, "src/x/top.dummy");
+        newFile(root, "src/x/gen/gen.dummy");
+        newFile(root, "src/x/other.bak.dummy");
+        Path keep = newFile(root, "src/x/keep.bak.dummy");
+
+        FileCollector collector = newCollector();
+        collector.setUseGitIgnore(true);
+
+        collector.addDirectory(root.resolve("src"));
+
+        assertCollected(collector, listOf(FileId.fromPath(foo), FileId.fromPath(keep), FileId.fromPath(xTop)));
+    }
+
+    @Test
+    void testGitIgnoreOfParentDirectories() throws IOException {
+        Path root = tempFolder;
+        Files.createDirectories(root.resolve(".git"));
+        writeFile(root, ".gitignore", "src/x/\n");
+        Path foo = newFile(root, "src/foo.dummy");
+        newFile(root, "src/x/bar.dummy");
+
+        FileCollector collector = newCollector();
+        collector.addDirectory(root.resolve("src"));
+        assertEquals(2, collector.getCollectedFiles().size());
+
+        collector = newCollector();
+        collector.setUseGitIgnore(true);
+        collector.addDirectory(root.resolve("src"));
+        assertCollected(collector, listOf(FileId.fromPath(foo)));
+    }
+
+    @Test
+    void testDeferredDirectoryIsFiltered() throws IOException {
+        Path root = tempFolder;
+        Path foo = newFile(root, "src/foo.dummy");
+        Path bar = newFile(root, "src/x/bar.dummy");
+
+        FileCollector collector = newCollector();
+        collector.setDeferDirectories(true);
+        collector.addDirectory(root.resolve("src"));
+        assertTrue(collector.hasPendingDirectories());
+
+        collector.filterFiles(id -> !id.equals(FileId.fromPath(bar)));
+
+        assertCollected(collector, listOf(FileId.fromPath(foo)));
+        assertFalse(collector.hasPendingDirectories());
+    }
+
+    @Test
+    void testStreamFiles() throws IOException {
+        Path root = tempFolder;
+        Path foo = newFile(root, "src/foo.dummy");
+        Path bar = newFile(root, "src/x/bar.dummy");
+
+        FileCollector collector = newCollector();
+        collector.setDeferDirectories(true);
+        collector.addFile(foo);
+        collector.addDirectory(root.resolve("src"));
+
+        List<FileId> streamed = Collections.synchronizedList(new ArrayList<>());
+        collector.streamFiles(file -> streamed.add(file.getFileId()));
+
+        // the explicit file comes first, and is not streamed twice
+        assertEquals(listOf(FileId.fromPath(foo), FileId.fromPath(bar)), streamed);
+        assertCollected(collector, Collections.emptyList());
+    }
+
+    private Path writeFile(Path root, String path, String contents) throws IOException {
+        Path resolved = newFile(root, path);
+        Files.write(resolved, contents.getBytes(StandardCharsets.UTF_8));
+        return resolved;
+    }
 
     private Path newFile(Path root, String path) throws IOException {
         Path resolved = root.resolve(path);
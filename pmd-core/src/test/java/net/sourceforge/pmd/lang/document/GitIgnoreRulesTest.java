@@ -0,0 +1,97 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.document;
+
+import static net.sourceforge.pmd.util.CollectionUtil.listOf;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class GitIgnoreRulesTest {
+
+    private static final Path BASE = Paths.get("base").toAbsolutePath();
+
+    @Test
+    void testUnanchoredPattern() {
+        GitIgnoreRules rules = rules("*.log", "build");
+        assertTrue(isIgnored(rules, "a.log"));
+        assertTrue(isIgnored(rules, "x/y/a.log"));
+        assertTrue(isIgnored(rules, "build"));
+        assertTrue(isIgnored(rules, "x/build"));
+        assertFalse(isIgnored(rules, "a.log.txt"));
+        assertFalse(isIgnored(rules, "builder"));
+    }
+
+    @Test
+    void testAnchoredPattern() {
+        GitIgnoreRules rules = rules("/a.txt", "doc/*.html");
+        assertTrue(isIgnored(rules, "a.txt"));
+        assertFalse(isIgnored(rules, "x/a.txt"));
+        assertTrue(isIgnored(rules, "doc/index.html"));
+        assertFalse(isIgnored(rules, "doc/api/index.html"));
+        assertFalse(isIgnored(rules, "x/doc/index.html"));
+    }
+
+    @Test
+    void testDoubleStar() {
+        GitIgnoreRules rules = rules("**/gen", "out/**", "a/**/b");
+        assertTrue(isIgnored(rules, "gen"));
+        assertTrue(isIgnored(rules, "x/y/gen"));
+        assertTrue(isIgnored(rules, "out/x/y"));
+        assertFalse(isIgnored(rules, "out"));
+        assertTrue(isIgnored(rules, "a/b"));
+        assertTrue(isIgnored(rules, "a/x/y/b"));
+        assertFalse(isIgnored(rules, "a/xb"));
+    }
+
+    @Test
+    void testDirectoryOnly() {
+        GitIgnoreRules rules = rules("target/");
+        assertTrue(rules.isIgnored(BASE.resolve("target"), true));
+        assertFalse(rules.isIgnored(BASE.resolve("target"), false));
+    }
+
+    @Test
+    void testWildcards() {
+        GitIgnoreRules rules = rules("file?.[ch]", "x[!0-9]");
+        assertTrue(isIgnored(rules, "file1.c"));
+        assertTrue(isIgnored(rules, "fileA.h"));
+        assertFalse(isIgnored(rules, "file10.c"));
+        assertFalse(isIgnored(rules, "file1.java"));
+        assertTrue(isIgnored(rules, "xa"));
+        assertFalse(isIgnored(rules, "x1"));
+    }
+
+    @Test
+    void testNegationAndComments() {
+        GitIgnoreRules rules = rules("# comment", "", "*.txt", "!keep.txt", "\\#hash");
+        assertTrue(isIgnored(rules, "a.txt"));
+        assertFalse(isIgnored(rules, "keep.txt"));
+        assertFalse(isIgnored(rules, "# comment"));
+        assertTrue(isIgnored(rules, "#hash"));
+    }
+
+    @Test
+    void testRulesOfSubdirectoryTakePrecedence() {
+        GitIgnoreRules parent = rules("*.txt");
+        GitIgnoreRules child = GitIgnoreRules.parse(BASE.resolve("sub"), listOf("!keep.txt"), parent);
+        assertTrue(child.isIgnored(BASE.resolve("sub/a.txt"), false));
+        assertFalse(child.isIgnored(BASE.resolve("sub/keep.txt"), false));
+        assertTrue(parent.isIgnored(BASE.resolve("sub/keep.txt"), false));
+    }
+
+    private static GitIgnoreRules rules(String... lines) {
+        return GitIgnoreRules.parse(BASE, Arrays.asList(lines), null);
+    }
+
+    private static boolean isIgnored(GitIgnoreRules rules, String relativePath) {
+        return rules.isIgnored(BASE.resolve(relativePath), false);
+    }
+}
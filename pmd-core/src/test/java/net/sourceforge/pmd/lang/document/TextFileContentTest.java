@@ -132,6 +132,34 @@ class TextFileContentTest {
         assertEquals("\r", content.getLineTerminator());
     }
 
+    @Test
+    void testBytesAreDecodedIfNotAscii() throws IOException {
+        // the non-ASCII char comes after a line terminator was normalized
+        String text = "a\r\nb\r\n\u00e9\r\n";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        TextFileContent content = TextFileContent.fromBytes(bytes, StandardCharsets.UTF_8, LINESEP_SENTINEL);
+        assertEquals(Chars.wrap("a\nb\n\u00e9\n"), content.getNormalizedText());
+        assertEquals("\r\n", content.getLineTerminator());
+        assertEquals(3, content.getPositioner().lineNumberFromOffset(4));
+        assertEquals(TextContentOrigin.INPUT_STREAM.normalize(text).getCheckSum(), content.getCheckSum());
+    }
+
+    @Test
+    void testAsciiBytesWithOtherEncoding() throws IOException {
+        Charset utf16 = StandardCharsets.UTF_16LE;
+        byte[] bytes = "ab\ncd".getBytes(utf16);
+        TextFileContent content = TextFileContent.fromBytes(bytes, utf16, LINESEP_SENTINEL);
+        assertEquals(Chars.wrap("ab\ncd"), content.getNormalizedText());
+    }
+
+    @ParameterizedTest
+    @EnumSource
+    void testChecksumIsComputedOnBytes(TextContentOrigin origin) throws IOException {
+        String text = "a\r\nb\r\n";
+        assertEquals(TextContentOrigin.INPUT_STREAM.normalize(text).getCheckSum(),
+                     origin.normalize(text).getCheckSum());
+    }
+
     enum TextContentOrigin {
         INPUT_STREAM {
             @Override
@@ -145,6 +173,13 @@ class TextFileContentTest {
                 return content;
             }
         },
+        BYTES {
+            @Override
+            TextFileContent normalize(String text) throws IOException {
+                Charset charset = StandardCharsets.UTF_8;
+                return TextFileContent.fromBytes(text.getBytes(charset), charset, LINESEP_SENTINEL);
+            }
+        },
         READER {
             @Override
             TextFileContent normalize(String input) throws IOException {
@@ -0,0 +1,222 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.PmdAnalysis;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.Report.ProcessingError;
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.RuleViolation;
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.ast.AnalysisInterruptedException;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.rule.AbstractRule;
+import net.sourceforge.pmd.reporting.FileAnalysisListener;
+import net.sourceforge.pmd.reporting.GlobalAnalysisListener;
+
+class AnalysisWatchdogTest {
+
+    @Test
+    void testNoTimeouts() {
+        assertEquals(AnalysisWatchdog.none(), AnalysisWatchdog.withTimeouts(0, 0));
+    }
+
+    @Test
+    void testRuleTimeout() {
+        PMDConfiguration config = newConfiguration(1);
+        config.setRuleTimeout(Duration.ofMillis(10));
+
+        ProcessingError error = analyseWithSingleError(config, new SlowRule(100));
+
+        AnalysisInterruptedException exception = (AnalysisInterruptedException) error.getError();
+        assertEquals("applying rule SlowRule", exception.getPhase());
+        assertThat(exception.getMessage(), containsString("timed out after 10 ms while applying rule SlowRule"));
+    }
+
+    @Test
+    void testFileTimeoutInterruptsAnalysis() {
+        PMDConfiguration config = newConfiguration(0);
+        config.setFileTimeout(Duration.ofMillis(100));
+
+        ProcessingError error = analyseWithSingleError(config, new InterruptibleRule());
+
+        AnalysisInterruptedException exception = (AnalysisInterruptedException) error.getError();
+        assertEquals("applying rules", exception.getPhase());
+        assertThat(exception.getMessage(), containsString("timed out after 100 ms while applying rules"));
+        assertEquals("test.dummy", exception.getFileId().getOriginalPath());
+    }
+
+    @Test
+    void testStuckFileIsAbandoned() {
+        PMDConfiguration config = newConfiguration(1);
+        config.setFileTimeout(Duration.ofMillis(100));
+
+        StuckRule rule = new StuckRule();
+        try {
+            ProcessingError error = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> analyseWithSingleError(config, rule));
+            assertThat(error.getError(), instanceOf(AnalysisInterruptedException.class));
+            assertThat(error.getError().getMessage(), containsString("timed out after 100 ms while applying rules"));
+        } finally {
+            rule.released = true;
+        }
+    }
+
+    @Test
+    void testAbandonedFileReportsNothingWhenItCompletes() throws InterruptedException {
+        PMDConfiguration config = newConfiguration(1);
+        config.setFileTimeout(Duration.ofMillis(100));
+
+        StuckRule rule = new StuckRule();
+        LateEventCounter lateEvents = new LateEventCounter();
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> analyseWithSingleError(config, rule, lateEvents));
+        } finally {
+            rule.released = true;
+        }
+        // the rule now reports a violation, and the thread completes the file
+        rule.thread.join(10_000);
+        assertFalse(rule.thread.isAlive(), "The stuck thread should have completed");
+        assertEquals(0, lateEvents.count.get(), "Events reported after the analysis");
+    }
+
+    private static PMDConfiguration newConfiguration(int threads) {
+        PMDConfiguration config = new PMDConfiguration();
+        config.setThreads(threads);
+        config.setIgnoreIncrementalAnalysis(true);
+        return config;
+    }
+
+    private static ProcessingError analyseWithSingleError(PMDConfiguration config, Rule rule) {
+        return analyseWithSingleError(config, rule, GlobalAnalysisListener.noop());
+    }
+
+    private static ProcessingError analyseWithSingleError(PMDConfiguration config, Rule rule, GlobalAnalysisListener listener) {
+        try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+            pmd.files().addSourceFile(FileId.fromPathLikeString("test.dummy"), "(a(b)(c))");
+            pmd.addRuleSet(RuleSet.forSingleRule(rule));
+            pmd.addListener(listener);
+            Report report = pmd.performAnalysisAndCollectReport();
+
+            List<ProcessingError> errors = report.getProcessingErrors();
+            assertThat(errors, hasSize(1));
+            assertThat(errors.get(0).getError(), instanceOf(AnalysisInterruptedException.class));
+            return errors.get(0);
+        }
+    }
+
+    private abstract static class DummyRule extends AbstractRule {
+
+        DummyRule() {
+            setLanguage(DummyLanguageModule.getInstance());
+            setName(getClass().getSimpleName());
+            setMessage("message");
+        }
+    }
+
+    /** Takes some time without checking for interruption. */
+    private static class SlowRule extends DummyRule {
+
+        private final long millis;
+
+        SlowRule(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public void apply(Node target, RuleContext ctx) {
+            long end = System.nanoTime() + millis * 1_000_000;
+            while (System.nanoTime() < end) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /** Waits until it is interrupted, and preserves the interruption. */
+    private static class InterruptibleRule extends DummyRule {
+
+        @Override
+        public void apply(Node target, RuleContext ctx) {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Ignores interruption until it is released, then reports a violation. */
+    private static class StuckRule extends DummyRule {
+
+        private volatile boolean released;
+        private volatile Thread thread;
+
+        @Override
+        public void apply(Node target, RuleContext ctx) {
+            thread = Thread.currentThread();
+            while (!released) {
+                Thread.yield();
+            }
+            ctx.addViolation(target);
+        }
+    }
+
+    /** Counts the events of files that happen after the analysis is closed. */
+    private static class LateEventCounter implements GlobalAnalysisListener {
+
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile boolean closed;
+
+        @Override
+        public FileAnalysisListener startFileAnalysis(TextFile file) {
+            countIfClosed();
+            return new FileAnalysisListener() {
+                @Override
+                public void onRuleViolation(RuleViolation violation) {
+                    countIfClosed();
+                }
+
+                @Override
+                public void onError(ProcessingError error) {
+                    countIfClosed();
+                }
+
+                @Override
+                public void close() {
+                    countIfClosed();
+                }
+            };
+        }
+
+        private void countIfClosed() {
+            if (closed) {
+                count.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
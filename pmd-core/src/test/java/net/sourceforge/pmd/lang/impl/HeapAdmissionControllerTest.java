@@ -0,0 +1,157 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.impl.HeapAdmissionController.Admission;
+
+class HeapAdmissionControllerTest {
+
+    private final Language language = DummyLanguageModule.getInstance();
+
+    @Test
+    void testNoBudgetIsUnlimited() {
+        assertSame(HeapAdmissionController.unlimited(), HeapAdmissionController.withBudget(0));
+        assertSame(HeapAdmissionController.unlimited(), HeapAdmissionController.withBudget(-1));
+        assertEquals(0, HeapAdmissionController.unlimited().getBudget());
+    }
+
+    @Test
+    void testEstimateBeforeHistory() {
+        HeapAdmissionController controller = HeapAdmissionController.withBudget(1000);
+        assertEquals((long) (10 * HeapAdmissionController.DEFAULT_BYTES_PER_CHAR), controller.estimate(language, 10));
+    }
+
+    @Test
+    void testRatioStartsFromDefaultAndIsCapped() {
+        HeapAdmissionController controller = HeapAdmissionController.withBudget(1000);
+        // eg the first file of a language, which initializes caches
+        controller.recordUsage(language, 1_000_000);
+        double expected = HeapAdmissionController.DEFAULT_BYTES_PER_CHAR * 0.8
+            + HeapAdmissionController.MAX_BYTES_PER_CHAR * 0.2;
+        assertEquals(100 * expected, controller.estimate(language, 100), 1.0);
+    }
+
+    @Test
+    void testOrdinaryMultiThreadedRunIsNotSerialized() throws InterruptedException {
+        // half of a 1 GB heap
+        HeapAdmissionController controller = HeapAdmissionController.withBudget(512L * 1024 * 1024);
+        for (int i = 0; i < 100; i++) {
+            // all files allocate much more than they retain
+            controller.recordUsage(language, 100_000);
+        }
+
+        int threads = 8;
+        CountDownLatch allAdmitted = new CountDownLatch(threads);
+        AtomicInteger concurrent = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                // a large source file
+                try (Admission ignored = controller.admit(language, 100_000)) {
+                    allAdmitted.countDown();
+                    if (allAdmitted.await(10, TimeUnit.SECONDS)) {
+                        concurrent.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(threads, concurrent.get(), "All files should be analysed concurrently");
+    }
+
+    @Test
+    void testFileLargerThanBudgetIsAdmittedAlone() throws InterruptedException {
+        HeapAdmissionController controller = HeapAdmissionController.withBudget(10);
+        try (Admission ignored = controller.admit(language, 1000)) {
+            // not blocked
+        }
+        try (Admission ignored = controller.admit(language, 1000)) {
+            // still not blocked, the first admission was released
+        }
+    }
+
+    @Test
+    void testFileWaitsUntilBudgetIsReleased() throws InterruptedException {
+        long budget = budgetForChars(100);
+        HeapAdmissionController controller = HeapAdmissionController.withBudget(budget);
+
+        CountDownLatch admitted = new CountDownLatch(1);
+        Thread second;
+        try (Admission ignored = controller.admit(language, 60)) {
+            second = new Thread(() -> {
+                try (Admission ignored2 = controller.admit(language, 60)) {
+                    admitted.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            second.start();
+
+            assertFalse(admitted.await(200, TimeUnit.MILLISECONDS), "Second file should wait for the first one");
+        }
+        assertTrue(admitted.await(10, TimeUnit.SECONDS), "Second file should be admitted after the first one");
+        second.join();
+    }
+
+    @Test
+    void testSmallFilesAreAdmittedConcurrently() throws InterruptedException {
+        HeapAdmissionController controller = HeapAdmissionController.withBudget(budgetForChars(100));
+        try (Admission ignored = controller.admit(language, 30);
+             Admission ignored2 = controller.admit(language, 30);
+             Admission ignored3 = controller.admit(language, 30)) {
+            // all fit into the budget
+        }
+    }
+
+    @Test
+    void testInterruptedWhileWaiting() throws InterruptedException {
+        HeapAdmissionController controller = HeapAdmissionController.withBudget(budgetForChars(100));
+
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try (Admission ignored = controller.admit(language, 60)) {
+            Thread waiting = new Thread(() -> {
+                try (Admission ignored2 = controller.admit(language, 60)) {
+                    // not expected
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            });
+            waiting.start();
+            waiting.interrupt();
+            assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+            waiting.join();
+        }
+
+        // the interrupted thread left the line
+        try (Admission ignored = controller.admit(language, 60)) {
+            // not blocked
+        }
+    }
+
+    private static long budgetForChars(int chars) {
+        return (long) (chars * HeapAdmissionController.DEFAULT_BYTES_PER_CHAR);
+    }
+}
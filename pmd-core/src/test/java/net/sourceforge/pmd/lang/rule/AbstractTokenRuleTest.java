@@ -0,0 +1,89 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.PmdAnalysis;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.document.FileId;
+
+class AbstractTokenRuleTest {
+
+    @Test
+    void testTokenRuleIsNotRunForOtherLanguages() {
+        // the dummy language is not implemented with JavaCC
+        Report report = analyse("(a(foo)(bar))", new BannedTokenRule("foo"), astRule());
+
+        assertThat(report.getProcessingErrors(), hasSize(0));
+        assertThat(report.getViolations(), hasSize(1));
+        assertEquals("RootRule", report.getViolations().get(0).getRule().getName());
+    }
+
+    private static Report analyse(String source, Rule... rules) {
+        PMDConfiguration config = new PMDConfiguration();
+        config.setThreads(0);
+        config.setIgnoreIncrementalAnalysis(true);
+        try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+            pmd.addRuleSet(RuleSet.create("tokens", "Token rules", "tokens.xml",
+                                          emptyList(), emptyList(), Arrays.asList(rules)));
+            pmd.files().addSourceFile(FileId.fromPathLikeString("file.dummy"), source);
+            return pmd.performAnalysisAndCollectReport();
+        }
+    }
+
+    private static Rule astRule() {
+        return new RootRule();
+    }
+
+    public static class RootRule extends AbstractRule {
+
+        public RootRule() {
+            setName("RootRule");
+            setMessage("Root");
+            setLanguage(DummyLanguageModule.getInstance());
+        }
+
+        @Override
+        public void apply(Node target, RuleContext ctx) {
+            ctx.addViolation(target);
+        }
+    }
+
+    private static class BannedTokenRule extends AbstractTokenRule {
+
+        private final String banned;
+
+        BannedTokenRule(String banned) {
+            this.banned = banned;
+            setName("Banned" + banned);
+            setMessage("Banned token {0}");
+            setLanguage(DummyLanguageModule.getInstance());
+        }
+
+        @Override
+        public void applyTokens(List<Token> tokens, RuleContext ctx) {
+            for (Token token : tokens) {
+                if (banned.equals(token.getImage())) {
+                    ctx.addViolationAt(token.getLocation(), token.getImage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import static java.util.Collections.emptyList;
+import static net.sourceforge.pmd.ReportTestUtil.getReportForRuleApply;
+import static net.sourceforge.pmd.ReportTestUtil.getReportForRuleSetApply;
+import static net.sourceforge.pmd.util.CollectionUtil.listOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import net.sourceforge.pmd.DummyParsingHelper;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.ast.DummyNode.DummyRootNode;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.RootNode;
+
+class AbstractTraversalRuleTest {
+
+    @RegisterExtension
+    private final DummyParsingHelper helper = new DummyParsingHelper();
+
+    @Test
+    void testRulesShareTraversal() {
+        DummyRootNode root = helper.parse("(a(b(x)(y))(c))");
+
+        EventRecorder rule1 = new EventRecorder("rule1", "b");
+        EventRecorder rule2 = new EventRecorder("rule2", null);
+        Report report = getReportForRuleSetApply(ruleSetOf(rule1, rule2), root);
+
+        assertEquals(listOf("+", "+a", "+b", "-b", "+c", "-c", "-a", "-"), rule1.events);
+        assertEquals(listOf("+", "+a", "+b", "+x", "-x", "+y", "-y", "-b", "+c", "-c", "-a", "-"), rule2.events);
+        assertThat(report.getViolations(), hasSize(2));
+    }
+
+    @Test
+    void testRulesAreAppliedInOneTraversal() {
+        DummyRootNode root = helper.parse("(a(b))");
+
+        List<String> log = new ArrayList<>();
+        EventRecorder rule1 = new EventRecorder("rule1", null, log);
+        EventRecorder rule2 = new EventRecorder("rule2", null, log);
+        getReportForRuleSetApply(ruleSetOf(rule1, rule2), root);
+
+        assertEquals(listOf("rule1+", "rule2+", "rule1+a", "rule2+a", "rule1+b", "rule2+b"), log.subList(0, 6));
+    }
+
+    @Test
+    void testDefaultTargetSelector() {
+        RuleTargetSelector selector = new EventRecorder("rule", null).getTargetSelector();
+        // the selector built by AbstractRule by default is a rulechain visit of the root
+        assertTrue(selector.isRuleChain());
+        assertTrue(RuleTargetSelector.forTypes(RootNode.class).isRuleChain());
+        assertFalse(RuleTargetSelector.forRootOnly().isRuleChain());
+    }
+
+    @Test
+    void testSharedTraversalIsEquivalentToApply() {
+        DummyRootNode root = helper.parse("(a(b(x)(y))(c))");
+
+        EventRecorder shared = new EventRecorder("rule", "b");
+        getReportForRuleSetApply(ruleSetOf(shared, new EventRecorder("other", null)), root);
+
+        EventRecorder alone = new EventRecorder("rule", "b");
+        getReportForRuleApply(alone, root);
+
+        assertEquals(alone.events, shared.events);
+    }
+
+    @Test
+    void testFailingRuleDoesNotStopOtherRules() {
+        DummyRootNode root = helper.parse("(a(b(x)(y))(c))");
+
+        EventRecorder failing = new EventRecorder("failing", null) {
+            @Override
+            public boolean enterNode(Node node, RuleContext ctx) {
+                if ("x".equals(node.getImage())) {
+                    throw new IllegalStateException("Test exception while applying rule");
+                }
+                return super.enterNode(node, ctx);
+            }
+        };
+        EventRecorder other = new EventRecorder("other", null);
+        Report report = getReportForRuleSetApply(ruleSetOf(failing, other), root);
+
+        assertThat(report.getProcessingErrors(), hasSize(1));
+        assertThat(report.getProcessingErrors().get(0).getMsg(), containsString("Rule applied on node=dummyNode[@Image=x]"));
+        assertEquals(listOf("+", "+a", "+b"), failing.events);
+        assertEquals(12, other.events.size());
+    }
+
+    private static RuleSet ruleSetOf(AbstractTraversalRule... rules) {
+        return RuleSet.create("traversal", "Traversal rules", "traversal.xml",
+                              emptyList(), emptyList(), Arrays.asList(rules));
+    }
+
+    /**
+     * Records events, and reports a violation on the pruned node.
+     */
+    private static class EventRecorder extends AbstractTraversalRule {
+
+        private final List<String> events = new ArrayList<>();
+        private final String prunedImage;
+        private final List<String> sharedLog;
+
+        EventRecorder(String name, String prunedImage) {
+            this(name, prunedImage, new ArrayList<>());
+        }
+
+        EventRecorder(String name, String prunedImage, List<String> sharedLog) {
+            this.prunedImage = prunedImage;
+            this.sharedLog = sharedLog;
+            setName(name);
+            setMessage("Violation");
+            setLanguage(DummyLanguageModule.getInstance());
+        }
+
+        @Override
+        public boolean enterNode(Node node, RuleContext ctx) {
+            events.add("+" + node.getImage());
+            sharedLog.add(getName() + "+" + node.getImage());
+            if (node.getImage().equals(prunedImage)) {
+                ctx.addViolation(node);
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void leaveNode(Node node, RuleContext ctx) {
+            events.add("-" + node.getImage());
+            sharedLog.add(getName() + "-" + node.getImage());
+            if (node instanceof DummyRootNode && prunedImage == null) {
+                ctx.addViolation(node);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.internal;
+
+import static java.util.Collections.emptyList;
+import static net.sourceforge.pmd.ReportTestUtil.getReportForRuleSetApply;
+import static net.sourceforge.pmd.util.CollectionUtil.listOf;
+import static net.sourceforge.pmd.util.CollectionUtil.setOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import net.sourceforge.pmd.DummyParsingHelper;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.internal.SystemProps;
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.ast.DummyNode;
+import net.sourceforge.pmd.lang.ast.DummyNode.DummyRootNode;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.AbstractRule;
+import net.sourceforge.pmd.lang.rule.RuleTargetSelector;
+
+class RuleApplicatorTest {
+
+    @RegisterExtension
+    private final DummyParsingHelper helper = new DummyParsingHelper();
+
+    @Test
+    void testRulesAreAppliedInTurnByDefault() {
+        DummyRootNode root = helper.parse("(a(b(x))(c))");
+
+        List<String> events = new ArrayList<>();
+        Rule first = new EventRecorder("first", events, RuleTargetSelector.forXPathNames(setOf("dummyNode")));
+        Rule second = new EventRecorder("second", events, RuleTargetSelector.forXPathNames(setOf("dummyNode")));
+        getReportForRuleSetApply(ruleSetOf(first, second), root);
+
+        assertEquals(listOf("first:a", "first:b", "first:x", "first:c",
+                            "second:a", "second:b", "second:x", "second:c"),
+                     events);
+    }
+
+    @Test
+    void testNodesAreVisitedInDocumentOrder() {
+        DummyRootNode root = helper.parse("(a(b(x))(c))");
+
+        List<String> events = new ArrayList<>();
+        Rule byClass = new EventRecorder("byClass", events, RuleTargetSelector.forTypes(DummyNode.class, DummyRootNode.class));
+        Rule byName = new EventRecorder("byName", events, RuleTargetSelector.forXPathNames(setOf("dummyNode")));
+        applyNodeMajor(ruleSetOf(byClass, byName), root);
+
+        // the root matches two classes but is only visited once
+        assertEquals(listOf("byClass:",
+                            "byClass:a", "byName:a",
+                            "byClass:b", "byName:b",
+                            "byClass:x", "byName:x",
+                            "byClass:c", "byName:c"),
+                     events);
+    }
+
+    @Test
+    void testFailingRuleContinuesWithNextNode() {
+        DummyRootNode root = helper.parse("(a(b(x))(c))");
+
+        List<String> events = new ArrayList<>();
+        Rule failing = new EventRecorder("failing", events, RuleTargetSelector.forXPathNames(setOf("dummyNode"))) {
+            @Override
+            public void apply(Node target, RuleContext ctx) {
+                if ("b".equals(target.getImage())) {
+                    throw new IllegalStateException("Test exception while applying rule");
+                }
+                super.apply(target, ctx);
+            }
+        };
+        Rule other = new EventRecorder("other", events, RuleTargetSelector.forXPathNames(setOf("dummyNode")));
+        Report report = applyNodeMajor(ruleSetOf(failing, other), root);
+
+        assertThat(report.getProcessingErrors(), hasSize(1));
+        assertThat(report.getProcessingErrors().get(0).getMsg(), containsString("Rule applied on node=dummyNode[@Image=b]"));
+        assertEquals(listOf("failing:a", "other:a",
+                            "other:b",
+                            "failing:x", "other:x",
+                            "failing:c", "other:c"),
+                     events);
+        assertThat(report.getViolations(), hasSize(7));
+    }
+
+    private static Report applyNodeMajor(RuleSet ruleSet, DummyRootNode root) {
+        System.setProperty(SystemProps.PMD_NODE_MAJOR_DISPATCH, "true");
+        try {
+            return getReportForRuleSetApply(ruleSet, root);
+        } finally {
+            System.clearProperty(SystemProps.PMD_NODE_MAJOR_DISPATCH);
+        }
+    }
+
+    private static RuleSet ruleSetOf(Rule... rules) {
+        return RuleSet.create("dispatch", "Dispatch rules", "dispatch.xml",
+                              emptyList(), emptyList(), Arrays.asList(rules));
+    }
+
+    /**
+     * Records the nodes it is applied on, and reports a violation on each.
+     */
+    private static class EventRecorder extends AbstractRule {
+
+        private final List<String> events;
+        private final RuleTargetSelector selector;
+
+        EventRecorder(String name, List<String> events, RuleTargetSelector selector) {
+            this.events = events;
+            this.selector = selector;
+            setName(name);
+            setMessage("Violation");
+            setLanguage(DummyLanguageModule.getInstance());
+        }
+
+        @Override
+        protected @NonNull RuleTargetSelector buildTargetSelector() {
+            return selector;
+        }
+
+        @Override
+        public void apply(Node target, RuleContext ctx) {
+            events.add(getName() + ":" + target.getImage());
+            ctx.addViolationWithMessage(target, target.getImage());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.internal;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static net.sourceforge.pmd.util.CollectionUtil.listOf;
+import static net.sourceforge.pmd.util.CollectionUtil.setOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import net.sourceforge.pmd.DummyParsingHelper;
+import net.sourceforge.pmd.lang.ast.DummyNode;
+import net.sourceforge.pmd.lang.ast.DummyNode.DummyRootNode;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.RootNode;
+
+class TreeIndexTest {
+
+    @RegisterExtension
+    private final DummyParsingHelper helper = new DummyParsingHelper();
+
+    @Test
+    void testIndexBySupertypes() {
+        TreeIndex index = new TreeIndex(emptySet(), setOf(DummyNode.class, RootNode.class));
+        indexTree(index, helper.parse("(a(b)(c))"));
+
+        assertEquals(listOf("", "a", "b", "c"), images(index.getByClass(DummyNode.class)));
+        assertEquals(listOf(""), images(index.getByClass(RootNode.class)));
+        assertEquals(emptyList(), images(index.getByClass(DummyRootNode.class)));
+        // nodes matching several classes are returned once, in document order
+        assertEquals(listOf("", "a", "b", "c"), images(index.getByClass(listOf(RootNode.class, DummyNode.class))));
+    }
+
+    @Test
+    void testIndexByName() {
+        TreeIndex index = new TreeIndex(setOf("dummyNode", "dummyRootNode"), emptySet());
+        indexTree(index, helper.parse("(a(b)(c))"));
+
+        assertEquals(listOf("a", "b", "c"), images(index.getByName("dummyNode")));
+        assertEquals(listOf("", "a", "b", "c"), images(index.getByName(listOf("dummyNode", "dummyRootNode"))));
+        assertEquals(emptyList(), images(index.getByName("other")));
+    }
+
+    @Test
+    void testResetIndex() {
+        TreeIndex index = new TreeIndex(setOf("dummyNode"), setOf(DummyNode.class));
+        indexTree(index, helper.parse("(a(b)(c))"));
+        index.reset();
+        indexTree(index, helper.parse("(d)"));
+
+        assertEquals(2, index.getNumNodes());
+        assertEquals(listOf("", "d"), images(index.getByClass(DummyNode.class)));
+        assertEquals(listOf("d"), images(index.getByName("dummyNode")));
+    }
+
+    private static void indexTree(TreeIndex index, Node node) {
+        index.indexNode(node);
+        for (Node child : node.children()) {
+            indexTree(index, child);
+        }
+    }
+
+    private static List<String> images(Iterator<Node> nodes) {
+        List<String> result = new ArrayList<>();
+        nodes.forEachRemaining(n -> result.add(n.getImage()));
+        return result;
+    }
+}
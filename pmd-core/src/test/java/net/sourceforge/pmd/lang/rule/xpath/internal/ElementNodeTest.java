@@ -7,6 +7,7 @@ package net.sourceforge.pmd.lang.rule.xpath.internal;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -16,6 +17,7 @@ import org.junit.jupiter.api.extension.RegisterExtension;
 import net.sourceforge.pmd.DummyParsingHelper;
 import net.sourceforge.pmd.lang.ast.DummyNode;
 import net.sourceforge.pmd.lang.ast.DummyNode.DummyRootNode;
+import net.sourceforge.pmd.lang.ast.DummyNodeWithDeprecatedAttribute;
 
 import net.sf.saxon.Configuration;
 import net.sf.saxon.type.Type;
@@ -107,4 +109,10 @@ class ElementNodeTest {
         assertSame(elementComment, treeInfo.findWrapperFor(c1));
     }
 
+    @Test
+    void testNodeWithCustomAttributesHasNoTable() {
+        // attributes of nodes overriding getXPathAttributesIterator are enumerated
+        assertNull(AttributeTable.forNode(new DummyNodeWithDeprecatedAttribute()));
+    }
+
 }
@@ -17,6 +17,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.hamcrest.CoreMatchers;
@@ -139,6 +140,30 @@ class SaxonXPathRuleQueryTest {
         assertQuery(0, "(/)[self::document-node(element(DummyNodeX))]", dummy);
     }
 
+    @Test
+    void testPureFunctionsAreMemoized() {
+        DummyRootNode tree = helper.parse("(a(b)(c))");
+        AtomicInteger numCalls = new AtomicInteger();
+        AbstractXPathFunctionDef fun = countingImageIsFunction(numCalls);
+        SaxonXPathRuleQuery query1 = createQuery("//dummyNode[pmd-dummy:countingImageIs('b')]", fun);
+        SaxonXPathRuleQuery query2 = createQuery("//dummyNode[pmd-dummy:countingImageIs(\"b\")]", fun);
+        SaxonXPathRuleQuery query3 = createQuery("//dummyNode[pmd-dummy:countingImageIs('c')]", fun);
+        SaxonXPathRuleQuery query4 = createQuery("//dummyNode[pmd-dummy:countingImageIs(@Image)]", fun);
+
+        assertEquals(1, query1.evaluate(tree).size());
+        int callsForAllNodes = numCalls.get();
+        // same argument
+        assertEquals(1, query2.evaluate(tree).size());
+        assertEquals(callsForAllNodes, numCalls.get());
+        // other argument
+        assertEquals(1, query3.evaluate(tree).size());
+        assertEquals(2 * callsForAllNodes, numCalls.get());
+        // non-constant argument
+        assertEquals(3, query4.evaluate(tree).size());
+        assertEquals(3, query4.evaluate(tree).size());
+        assertEquals(4 * callsForAllNodes, numCalls.get());
+    }
+
     @Test
     void ruleChainVisits() {
         SaxonXPathRuleQuery query = createQuery("//dummyNode[@Image='baz']/foo | //bar[@Public = 'true'] | //dummyNode[@Public = false()] | //dummyNode");
@@ -421,6 +446,53 @@ class SaxonXPathRuleQueryTest {
         );
     }
 
+    private static SaxonXPathRuleQuery createQuery(String xpath, AbstractXPathFunctionDef function) {
+        return new SaxonXPathRuleQuery(
+            xpath,
+            XPathVersion.DEFAULT,
+            new HashMap<>(),
+            XPathHandler.getHandlerForFunctionDefs(function),
+            DeprecatedAttrLogger.noop()
+        );
+    }
+
+    @NonNull
+    private static AbstractXPathFunctionDef countingImageIsFunction(AtomicInteger numCalls) {
+        return new AbstractXPathFunctionDef("countingImageIs", DummyLanguageModule.getInstance()) {
+            @Override
+            public SequenceType[] getArgumentTypes() {
+                return new SequenceType[] {SequenceType.SINGLE_STRING};
+            }
+
+            @Override
+            public SequenceType getResultType(SequenceType[] suppliedArgumentTypes) {
+                return SequenceType.SINGLE_BOOLEAN;
+            }
+
+            @Override
+            public boolean dependsOnFocus() {
+                return true;
+            }
+
+            @Override
+            public boolean isPure() {
+                return true;
+            }
+
+            @Override
+            public ExtensionFunctionCall makeCallExpression() {
+                return new ExtensionFunctionCall() {
+                    @Override
+                    public Sequence call(XPathContext context, Sequence[] arguments) throws XPathException {
+                        numCalls.incrementAndGet();
+                        Node contextNode = ((AstElementNode) context.getContextItem()).getUnderlyingNode();
+                        return BooleanValue.get(arguments[0].head().getStringValue().equals(contextNode.getImage()));
+                    }
+                };
+            }
+        };
+    }
+
     @NonNull
     private static AbstractXPathFunctionDef imageIsFunction() {
         return new AbstractXPathFunctionDef("imageIs", DummyLanguageModule.getInstance()) {
@@ -76,4 +76,23 @@ if defined CLASSPATH (
     set pmd_classpath=%CLASSPATH%;%pmd_classpath%
 )
 
-java %PMD_JAVA_OPTS% %jreopts% -classpath %pmd_classpath% %OPTS% %MAIN_CLASS% %*
+rem class data sharing: PMD_CDS_ARCHIVE names an archive of the classes loaded by PMD,
+rem which makes the JVM start faster. The first run with a new archive file is a training run,
+rem which creates the archive. Dynamic archives need java 13.
+set "cdsopts="
+if defined PMD_CDS_ARCHIVE (
+    if not [%COMMAND%] == [designer] (
+        if %jver% GEQ 190 (
+            rem the archive is also recreated when it doesn't match this JVM or classpath anymore
+            set cdsopts=-XX:+AutoCreateSharedArchive "-XX:SharedArchiveFile=%PMD_CDS_ARCHIVE%"
+        ) else if %jver% GEQ 130 (
+            if exist "%PMD_CDS_ARCHIVE%" (
+                set cdsopts="-XX:SharedArchiveFile=%PMD_CDS_ARCHIVE%" -Xshare:auto
+            ) else (
+                set cdsopts="-XX:ArchiveClassesAtExit=%PMD_CDS_ARCHIVE%"
+            )
+        )
+    )
+)
+
+java %PMD_JAVA_OPTS% %jreopts% %cdsopts% -classpath %pmd_classpath% %OPTS% %MAIN_CLASS% %*
@@ -7,21 +7,31 @@ package net.sourceforge.pmd.it;
 import static net.sourceforge.pmd.util.CollectionUtil.listOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.matchesRegex;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import org.apache.commons.lang3.JavaVersion;
+import org.apache.commons.lang3.SystemUtils;
 import org.junit.jupiter.api.Test;
 
 import net.sourceforge.pmd.PMDVersion;
@@ -181,6 +191,88 @@ class BinaryDistributionIT extends AbstractBinaryDistributionTest {
         result.assertErrorOutputContains("[main] INFO net.sourceforge.pmd.cli - Log level is at TRACE");
     }
 
+    @Test
+    void testPmdSingleFileStartup() throws Exception {
+        // the rulesets apply to several languages, but only the languages
+        // of the analyzed files are started, the timing report measures the startup
+        String rulesets = "rulesets/java/quickstart.xml,category/xml/errorprone.xml,category/apex/errorprone.xml,"
+            + "category/plsql/errorprone.xml,category/jsp/errorprone.xml,category/vm/errorprone.xml";
+        ExecutionResult singleFile = PMDExecutor.runPMD(createTemporaryReportFile(), tempDir,
+                "-d", srcDir + "/JumbledIncrementer.java",
+                "-R", rulesets,
+                "--benchmark", "--debug", "--no-progress");
+        singleFile.assertExitCode(4);
+        singleFile.assertErrorOutputContains("Starting language processors for [java]");
+
+        // with a file of each language, all processors are started, as
+        // they were for a single file before
+        String samples = new File(".", "src/test/resources/sample-source/").getAbsolutePath();
+        ExecutionResult allLanguages = PMDExecutor.runPMD(createTemporaryReportFile(), tempDir,
+                "-d", srcDir + "/JumbledIncrementer.java",
+                "-d", samples + "/xml/samplecode.xml",
+                "-d", samples + "/apex/TableGridController.cls",
+                "-d", samples + "/plsql/SampleCode.pls",
+                "-d", samples + "/jsp/SampleCode.jsp",
+                "-d", samples + "/velocitytemplate/helloworld.vm",
+                "-R", rulesets,
+                "--benchmark", "--debug", "--no-progress");
+        allLanguages.assertExitCode(4);
+
+        assertThat("Startup of the processors for a single file, compared to one file per language",
+                   processorStartupSeconds(singleFile), lessThan(processorStartupSeconds(allLanguages)));
+    }
+
+    /**
+     * Returns the total time of the summary row of the processor startup
+     * in the timing report.
+     */
+    private static double processorStartupSeconds(ExecutionResult result) {
+        Matcher matcher = Pattern.compile("\\RStart Language Processors +(\\d+)[.,](\\d{4}) +\\d+[.,]\\d{4}")
+                                 .matcher(result.getErrorOutput());
+        assertTrue(matcher.find(), "No processor startup time in the timing report:\n" + result);
+        return Double.parseDouble(matcher.group(1) + "." + matcher.group(2));
+    }
+
+    @Test
+    void testPmdWithClassDataSharingArchive() throws Exception {
+        assumeTrue(SystemUtils.isJavaVersionAtLeast(JavaVersion.JAVA_13), "Dynamic CDS archives need Java 13");
+
+        Path archive = tempDir.resolve("pmd.jsa");
+        List<String> args = listOf("-d", srcDir, "-R", "src/test/resources/rulesets/sample-ruleset.xml", "--no-progress");
+        List<String> timedArgs = new ArrayList<>(args);
+        timedArgs.add("--benchmark");
+        Map<String, String> env = new HashMap<>();
+        env.put("PMD_CDS_ARCHIVE", archive.toString());
+
+        ExecutionResult withoutArchive = PMDExecutor.runCommand(tempDir, "check", timedArgs).assertExitCode(4);
+
+        // training run
+        PMDExecutor.runCommand(tempDir, "check", args, null, env).assertExitCode(4);
+        assertTrue(Files.isRegularFile(archive), "Archive should have been created");
+
+        ExecutionResult withArchive = PMDExecutor.runCommand(tempDir, "check", timedArgs, null, env).assertExitCode(4);
+        // most classes of PMD are loaded after the timing starts, so the
+        // archive shows in the wall clock time of the analysis
+        assertThat("Wall clock time with the archive, compared to without it",
+                   wallClockSeconds(withArchive), lessThan(wallClockSeconds(withoutArchive)));
+
+        Map<String, String> loggingEnv = new HashMap<>(env);
+        loggingEnv.put("PMD_JAVA_OPTS", "-Dpicocli.ansi=false -Xlog:class+load=info");
+        PMDExecutor.runCommand(tempDir, "check", args, null, loggingEnv)
+                   .assertExitCode(4)
+                   .assertStdOut(containsString("net.sourceforge.pmd.cli.PmdCli source: shared objects file"));
+    }
+
+    /**
+     * Returns the wall clock time in the timing report.
+     */
+    private static double wallClockSeconds(ExecutionResult result) {
+        Matcher matcher = Pattern.compile("\\RWall Clock Time +(\\d+)[.,](\\d{4})")
+                                 .matcher(result.getErrorOutput());
+        assertTrue(matcher.find(), "No wall clock time in the timing report:\n" + result);
+        return Double.parseDouble(matcher.group(1) + "." + matcher.group(2));
+    }
+
     @Test
     void runPMDWithError() throws Exception {
         String srcDir = new File(".", "src/test/resources/sample-source/unparsable/").getAbsolutePath();
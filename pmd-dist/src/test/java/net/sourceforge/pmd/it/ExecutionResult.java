@@ -62,6 +62,10 @@ public class ExecutionResult {
         return output;
     }
 
+    public String getErrorOutput() {
+        return errorOutput;
+    }
+
     /**
      * Asserts that the given error message is not in the error output.
      *
@@ -11,7 +11,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.SystemUtils;
@@ -40,6 +42,11 @@ public class PMDExecutor {
     }
 
     static ExecutionResult runCommand(Path tempDir, String cmd, List<String> arguments, Path reportFile) throws Exception {
+        return runCommand(tempDir, cmd, arguments, reportFile, Collections.emptyMap());
+    }
+
+    static ExecutionResult runCommand(Path tempDir, String cmd, List<String> arguments, Path reportFile,
+                                      Map<String, String> environment) throws Exception {
         final String pmdScript;
         if (SystemUtils.IS_OS_WINDOWS) {
             pmdScript = tempDir.resolve(AbstractBinaryDistributionTest.PMD_BIN_PREFIX + "/bin/pmd.bat").toAbsolutePath().toString();
@@ -54,6 +61,7 @@ public class PMDExecutor {
         
         // Ensure no ANSI output so tests can properly look at it
         pb.environment().put("PMD_JAVA_OPTS", "-Dpicocli.ansi=false");
+        pb.environment().putAll(environment);
         
         final Process process = pb.start();
         final ExecutionResult.Builder result = new ExecutionResult.Builder();
@@ -19,7 +19,7 @@ public final class HtmlLanguageModule extends SimpleLanguageModuleBase {
                               .extensions("html", "htm", "xhtml", "xht", "shtml")
                               .addVersion("4")
                               .addDefaultVersion("5"),
-              new HtmlHandler());
+              properties -> new HtmlHandler());
     }
 
     public static HtmlLanguageModule getInstance() {
@@ -8,6 +8,7 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.lang.ast.AnalysisInterruptedException;
 import net.sourceforge.pmd.lang.ast.NodeStream;
 import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccTokenDocument;
 import net.sourceforge.pmd.lang.java.ast.ASTAssignableExpr.ASTNamedReferenceExpr;
@@ -92,6 +93,8 @@ public final class InternalApiBridge {
             .forEach(it -> {
                 try {
                     it.getTypeMirror();
+                } catch (AnalysisInterruptedException e) {
+                    throw e;
                 } catch (Exception e) {
                     processor.getLogger().warning(it, "Error during type resolution of node " + it.getXPathNodeName());
                 }
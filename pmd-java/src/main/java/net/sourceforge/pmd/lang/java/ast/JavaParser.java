@@ -5,9 +5,11 @@
 package net.sourceforge.pmd.lang.java.ast;
 
 import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.TokenManager;
 import net.sourceforge.pmd.lang.ast.AstInfo;
 import net.sourceforge.pmd.lang.ast.ParseException;
 import net.sourceforge.pmd.lang.ast.impl.javacc.CharStream;
+import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccToken;
 import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccTokenDocument.TokenDocumentBehavior;
 import net.sourceforge.pmd.lang.ast.impl.javacc.JjtreeParserAdapter;
 import net.sourceforge.pmd.lang.java.ast.internal.LanguageLevelChecker;
@@ -42,6 +44,17 @@ public class JavaParser extends JjtreeParserAdapter<ASTCompilationUnit> {
         return JavaTokenDocumentBehavior.INSTANCE;
     }
 
+    @Override
+    protected TokenManager<JavaccToken> newTokenManager(CharStream cs) {
+        JavaParserImplTokenManager tokenManager = new JavaParserImplTokenManager(null, cs);
+        // The lexer asks the parser whether a closing brace ends a block
+        // or an embedded expression of a string template. This parser is
+        // never run, so it always answers a block, and string templates
+        // (a preview feature) are not lexed exactly.
+        tokenManager.parser = new JavaParserImpl(tokenManager);
+        return tokenManager;
+    }
+
     @Override
     protected ASTCompilationUnit parseImpl(CharStream cs, ParserTask task) throws ParseException {
 
@@ -51,7 +51,14 @@ public class JavaLanguageProcessor extends BatchLanguageProcessor<JavaLanguagePr
     }
 
     public JavaLanguageProcessor(JavaLanguageProperties properties) {
-        this(properties, TypeSystem.usingClassLoaderClasspath(properties.getAnalysisClassLoader()));
+        this(properties, newTypeSystem(properties));
+    }
+
+    private static TypeSystem newTypeSystem(JavaLanguageProperties properties) {
+        TypeSystem parent = properties.getParentTypeSystem();
+        ClassLoader classLoader = properties.getAnalysisClassLoader();
+        return parent == null ? TypeSystem.usingClassLoaderClasspath(classLoader)
+                              : TypeSystem.usingClassLoaderClasspath(classLoader, parent);
     }
 
     @Override
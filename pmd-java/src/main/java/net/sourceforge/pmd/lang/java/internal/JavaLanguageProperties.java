@@ -5,11 +5,14 @@
 package net.sourceforge.pmd.lang.java.internal;
 
 import org.apache.commons.lang3.EnumUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import net.sourceforge.pmd.cpd.CpdLanguageProperties;
 import net.sourceforge.pmd.lang.JvmLanguagePropertyBundle;
 import net.sourceforge.pmd.lang.LanguageVersion;
 import net.sourceforge.pmd.lang.java.JavaLanguageModule;
+import net.sourceforge.pmd.lang.java.symbols.internal.asm.Classpath;
+import net.sourceforge.pmd.lang.java.types.TypeSystem;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
 import net.sourceforge.pmd.properties.PropertyFactory;
 
@@ -25,6 +28,8 @@ public class JavaLanguageProperties extends JvmLanguagePropertyBundle {
                        .defaultValue(InferenceLoggingVerbosity.DISABLED)
                        .build();
 
+    private @Nullable TypeSystem parentTypeSystem;
+
     public JavaLanguageProperties() {
         super(JavaLanguageModule.getInstance());
         definePropertyDescriptor(INTERNAL_INFERENCE_LOGGING_VERBOSITY);
@@ -33,6 +38,25 @@ public class JavaLanguageProperties extends JvmLanguagePropertyBundle {
         definePropertyDescriptor(CpdLanguageProperties.CPD_ANONYMIZE_LITERALS);
     }
 
+    /**
+     * Set a type system whose symbols are shared with the type system
+     * of the analysis, for the classes found at the same location on
+     * both classpaths (see {@link TypeSystem#usingClasspath(Classpath, TypeSystem)}).
+     * This is useful to analyse several modules with different auxclasspaths
+     * in the same JVM, as the JDK and common libraries are then only
+     * loaded once. If null, the analysis uses an independent type system.
+     */
+    public void setParentTypeSystem(@Nullable TypeSystem parentTypeSystem) {
+        this.parentTypeSystem = parentTypeSystem;
+    }
+
+    /**
+     * Returns the type system set with {@link #setParentTypeSystem(TypeSystem)}.
+     */
+    public @Nullable TypeSystem getParentTypeSystem() {
+        return parentTypeSystem;
+    }
+
     public static boolean isPreviewEnabled(LanguageVersion version) {
         return version.getVersion().endsWith("-preview");
     }
@@ -9,42 +9,34 @@ import static net.sourceforge.pmd.util.CollectionUtil.setOf;
 import java.sql.ResultSet;
 import java.util.Set;
 
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.java.ast.ASTIfStatement;
 import net.sourceforge.pmd.lang.java.ast.ASTMethodCall;
 import net.sourceforge.pmd.lang.java.ast.ASTReturnStatement;
 import net.sourceforge.pmd.lang.java.ast.ASTWhileStatement;
-import net.sourceforge.pmd.lang.java.rule.AbstractJavaRule;
 import net.sourceforge.pmd.lang.java.types.TypeTestUtil;
+import net.sourceforge.pmd.lang.rule.AbstractTraversalRule;
 
 /**
  * Rule that verifies, that the return values of next(), first(), last(), etc.
  * calls to a java.sql.ResultSet are actually verified.
  */
-public class CheckResultSetRule extends AbstractJavaRule {
+public class CheckResultSetRule extends AbstractTraversalRule {
 
     private static final Set<String> METHODS = setOf("next", "previous", "last", "first");
 
     @Override
-    public Object visit(ASTWhileStatement node, Object data) {
-        return data;
-    }
-
-    @Override
-    public Object visit(ASTReturnStatement node, Object data) {
-        return data;
-    }
-
-    @Override
-    public Object visit(ASTIfStatement node, Object data) {
-        return data;
-    }
-
-    @Override
-    public Object visit(ASTMethodCall node, Object data) {
-        if (isResultSetMethod(node)) {
-            addViolation(data, node);
+    public boolean enterNode(Node node, RuleContext ctx) {
+        if (node instanceof ASTWhileStatement
+            || node instanceof ASTReturnStatement
+            || node instanceof ASTIfStatement) {
+            // the result is checked
+            return false;
+        } else if (node instanceof ASTMethodCall && isResultSetMethod((ASTMethodCall) node)) {
+            ctx.addViolation(node);
         }
-        return super.visit(node, data);
+        return true;
     }
 
     private boolean isResultSetMethod(ASTMethodCall node) {
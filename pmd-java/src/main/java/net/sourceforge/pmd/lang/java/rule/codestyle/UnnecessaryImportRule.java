@@ -13,6 +13,8 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.java.ast.ASTClassOrInterfaceType;
 import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
 import net.sourceforge.pmd.lang.java.ast.ASTImportDeclaration;
@@ -23,7 +25,6 @@ import net.sourceforge.pmd.lang.java.ast.ASTVariableAccess;
 import net.sourceforge.pmd.lang.java.ast.JavaComment;
 import net.sourceforge.pmd.lang.java.ast.JavadocComment;
 import net.sourceforge.pmd.lang.java.ast.internal.PrettyPrintingUtil;
-import net.sourceforge.pmd.lang.java.rule.AbstractJavaRule;
 import net.sourceforge.pmd.lang.java.symbols.JAccessibleElementSymbol;
 import net.sourceforge.pmd.lang.java.symbols.JClassSymbol;
 import net.sourceforge.pmd.lang.java.symbols.JExecutableSymbol;
@@ -38,6 +39,7 @@ import net.sourceforge.pmd.lang.java.types.JVariableSig;
 import net.sourceforge.pmd.lang.java.types.OverloadSelectionResult;
 import net.sourceforge.pmd.lang.java.types.TypeSystem;
 import net.sourceforge.pmd.lang.java.types.TypeTestUtil;
+import net.sourceforge.pmd.lang.rule.AbstractTraversalRule;
 import net.sourceforge.pmd.util.CollectionUtil;
 
 /**
@@ -50,7 +52,7 @@ import net.sourceforge.pmd.util.CollectionUtil;
  * import is used is hard though, mostly because the API to expose
  * is unclear (we wouldn't want symbol tables to expose a mutable API).
  */
-public class UnnecessaryImportRule extends AbstractJavaRule {
+public class UnnecessaryImportRule extends AbstractTraversalRule {
 
     private static final String UNUSED_IMPORT_MESSAGE = "Unused import ''{0}''";
     private static final String UNUSED_STATIC_IMPORT_MESSAGE = "Unused static import ''{0}''";
@@ -97,7 +99,29 @@ public class UnnecessaryImportRule extends AbstractJavaRule {
     private static final Pattern[] PATTERNS = { SEE_PATTERN, LINK_PATTERNS, VALUE_PATTERN, THROWS_PATTERN, EXCEPTION_PATTERN, LINK_IN_SNIPPET };
 
     @Override
-    public Object visit(ASTCompilationUnit node, Object data) {
+    public boolean enterNode(Node node, RuleContext ctx) {
+        if (node instanceof ASTCompilationUnit) {
+            visitCompilationUnit((ASTCompilationUnit) node, ctx);
+        } else if (node instanceof ASTClassOrInterfaceType) {
+            visitType((ASTClassOrInterfaceType) node);
+        } else if (node instanceof ASTMethodCall) {
+            return visitMethodCall((ASTMethodCall) node);
+        } else if (node instanceof ASTVariableAccess) {
+            visitVariableAccess((ASTVariableAccess) node);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void leaveNode(Node node, RuleContext ctx) {
+        if (node instanceof ASTCompilationUnit) {
+            visitComments((ASTCompilationUnit) node);
+            doReporting(ctx);
+        }
+    }
+
+    private void visitCompilationUnit(ASTCompilationUnit node, RuleContext ctx) {
         this.allSingleNameImports.clear();
         this.allImportsOnDemand.clear();
         this.unnecessaryJavaLangImports.clear();
@@ -105,7 +129,7 @@ public class UnnecessaryImportRule extends AbstractJavaRule {
         String packageName = node.getPackageName();
 
         for (ASTImportDeclaration importDecl : node.children(ASTImportDeclaration.class)) {
-            visitImport(importDecl, data, packageName);
+            visitImport(importDecl, ctx, packageName);
         }
 
         for (ImportWrapper wrapper : allSingleNameImports) {
@@ -116,23 +140,16 @@ public class UnnecessaryImportRule extends AbstractJavaRule {
                 }
             }
         }
-
-        super.visit(node, data);
-        visitComments(node);
-
-        doReporting(data);
-
-        return data;
     }
 
-    private void doReporting(Object data) {
+    private void doReporting(RuleContext ctx) {
         for (ImportWrapper wrapper : allSingleNameImports) {
             String message = wrapper.isStatic() ? UNUSED_STATIC_IMPORT_MESSAGE : UNUSED_IMPORT_MESSAGE;
-            reportWithMessage(wrapper.node, data, message);
+            reportWithMessage(wrapper.node, ctx, message);
         }
         for (ImportWrapper wrapper : allImportsOnDemand) {
             String message = wrapper.isStatic() ? UNUSED_STATIC_IMPORT_MESSAGE : UNUSED_IMPORT_MESSAGE;
-            reportWithMessage(wrapper.node, data, message);
+            reportWithMessage(wrapper.node, ctx, message);
         }
 
         // remove unused ones, they have already been reported
@@ -141,10 +158,10 @@ public class UnnecessaryImportRule extends AbstractJavaRule {
         unnecessaryImportsFromSamePackage.removeAll(allSingleNameImports);
         unnecessaryImportsFromSamePackage.removeAll(allImportsOnDemand);
         for (ImportWrapper wrapper : unnecessaryJavaLangImports) {
-            reportWithMessage(wrapper.node, data, IMPORT_FROM_JAVA_LANG_MESSAGE);
+            reportWithMessage(wrapper.node, ctx, IMPORT_FROM_JAVA_LANG_MESSAGE);
         }
         for (ImportWrapper wrapper : unnecessaryImportsFromSamePackage) {
-            reportWithMessage(wrapper.node, data, IMPORT_FROM_SAME_PACKAGE_MESSAGE);
+            reportWithMessage(wrapper.node, ctx, IMPORT_FROM_SAME_PACKAGE_MESSAGE);
         }
     }
 
@@ -196,7 +213,7 @@ public class UnnecessaryImportRule extends AbstractJavaRule {
         }
     }
 
-    private void visitImport(ASTImportDeclaration node, Object data, String thisPackageName) {
+    private void visitImport(ASTImportDeclaration node, RuleContext ctx, String thisPackageName) {
         if (thisPackageName.equals(node.getPackageName())) {
             unnecessaryImportsFromSamePackage.add(new ImportWrapper(node));
         }
@@ -208,16 +225,15 @@ public class UnnecessaryImportRule extends AbstractJavaRule {
 
         if (!container.add(new ImportWrapper(node))) {
             // duplicate
-            reportWithMessage(node, data, DUPLICATE_IMPORT_MESSAGE);
+            reportWithMessage(node, ctx, DUPLICATE_IMPORT_MESSAGE);
         }
     }
 
-    private void reportWithMessage(ASTImportDeclaration node, Object data, String message) {
-        addViolationWithMessage(data, node, message, new String[] { PrettyPrintingUtil.prettyImport(node) });
+    private void reportWithMessage(ASTImportDeclaration node, RuleContext ctx, String message) {
+        ctx.addViolationWithMessage(node, message, PrettyPrintingUtil.prettyImport(node));
     }
 
-    @Override
-    public Object visit(ASTClassOrInterfaceType node, Object data) {
+    private void visitType(ASTClassOrInterfaceType node) {
         if (node.getQualifier() == null
             && !node.isFullyQualified()
             && node.getTypeMirror().isClassOrInterface()) {
@@ -227,15 +243,14 @@ public class UnnecessaryImportRule extends AbstractJavaRule {
                 node.getSymbolTable().types().iterateResults(node.getSimpleName());
             checkScopeChain(false, symbol, scopeIter, ts -> true, false);
         }
-        return super.visit(node, data);
     }
 
-    @Override
-    public Object visit(ASTMethodCall node, Object data) {
+    /** Returns false if the arguments of the call should not be visited. */
+    private boolean visitMethodCall(ASTMethodCall node) {
         if (node.getQualifier() == null) {
             OverloadSelectionResult overload = node.getOverloadSelectionInfo();
             if (overload.isFailed()) {
-                return null; // todo we're erring towards FPs
+                return false; // todo we're erring towards FPs
             }
 
             ShadowChainIterator<JMethodSig, ScopeInfo> scopeIter =
@@ -249,11 +264,10 @@ public class UnnecessaryImportRule extends AbstractJavaRule {
                             methods -> CollectionUtil.any(methods, m -> m.getSymbol().equals(symbol)),
                             true);
         }
-        return super.visit(node, data);
+        return true;
     }
 
-    @Override
-    public Object visit(ASTVariableAccess node, Object data) {
+    private void visitVariableAccess(ASTVariableAccess node) {
         JVariableSymbol sym = node.getReferencedSym();
         if (sym != null
             && sym.isField()
@@ -262,13 +276,12 @@ public class UnnecessaryImportRule extends AbstractJavaRule {
             if (node.getParent() instanceof ASTSwitchLabel
                 && node.ancestors(ASTSwitchLike.class).take(1).any(ASTSwitchLike::isEnumSwitch)) {
                 // special scoping rules, see JSymbolTable#variables doc
-                return null;
+                return;
             }
 
             ShadowChainIterator<JVariableSig, ScopeInfo> scopeIter = node.getSymbolTable().variables().iterateResults(node.getName());
             checkScopeChain(false, (JFieldSymbol) sym, scopeIter, ts -> true, true);
         }
-        return null;
     }
 
     private <T> void checkScopeChain(boolean recursive,
@@ -6,14 +6,15 @@ package net.sourceforge.pmd.lang.java.rule.design;
 
 import static net.sourceforge.pmd.properties.NumericConstraints.positive;
 
-import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.java.ast.ASTIfStatement;
-import net.sourceforge.pmd.lang.java.rule.AbstractJavaRule;
+import net.sourceforge.pmd.lang.rule.AbstractTraversalRule;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
 import net.sourceforge.pmd.properties.PropertyFactory;
 
 
-public class AvoidDeeplyNestedIfStmtsRule extends AbstractJavaRule {
+public class AvoidDeeplyNestedIfStmtsRule extends AbstractTraversalRule {
 
     private int depth;
     private int depthLimit;
@@ -28,22 +29,26 @@ public class AvoidDeeplyNestedIfStmtsRule extends AbstractJavaRule {
     }
 
     @Override
-    public Object visit(ASTCompilationUnit node, Object data) {
+    public void start(RuleContext ctx) {
         depth = 0;
         depthLimit = getProperty(PROBLEM_DEPTH_DESCRIPTOR);
-        return super.visit(node, data);
     }
 
     @Override
-    public Object visit(ASTIfStatement node, Object data) {
-        if (!node.hasElse()) {
+    public boolean enterNode(Node node, RuleContext ctx) {
+        if (node instanceof ASTIfStatement && !((ASTIfStatement) node).hasElse()) {
             depth++;
         }
-        super.visit(node, data);
-        if (depth == depthLimit) {
-            addViolation(data, node);
+        return true;
+    }
+
+    @Override
+    public void leaveNode(Node node, RuleContext ctx) {
+        if (node instanceof ASTIfStatement) {
+            if (depth == depthLimit) {
+                ctx.addViolation(node);
+            }
+            depth--;
         }
-        depth--;
-        return data;
     }
 }
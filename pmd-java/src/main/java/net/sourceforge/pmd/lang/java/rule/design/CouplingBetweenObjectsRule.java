@@ -6,9 +6,13 @@ package net.sourceforge.pmd.lang.java.rule.design;
 
 import static net.sourceforge.pmd.properties.NumericConstraints.positive;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Set;
 
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.java.ast.ASTClassOrInterfaceDeclaration;
 import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
 import net.sourceforge.pmd.lang.java.ast.ASTFieldDeclaration;
@@ -16,10 +20,10 @@ import net.sourceforge.pmd.lang.java.ast.ASTFormalParameter;
 import net.sourceforge.pmd.lang.java.ast.ASTLocalVariableDeclaration;
 import net.sourceforge.pmd.lang.java.ast.ASTMethodDeclaration;
 import net.sourceforge.pmd.lang.java.ast.ASTType;
-import net.sourceforge.pmd.lang.java.rule.AbstractJavaRule;
 import net.sourceforge.pmd.lang.java.symbols.JAccessibleElementSymbol;
 import net.sourceforge.pmd.lang.java.symbols.JTypeDeclSymbol;
 import net.sourceforge.pmd.lang.java.types.JTypeMirror;
+import net.sourceforge.pmd.lang.rule.AbstractTraversalRule;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
 import net.sourceforge.pmd.properties.PropertyFactory;
 
@@ -33,7 +37,7 @@ import net.sourceforge.pmd.properties.PropertyFactory;
  * @author aglover
  * @since Feb 20, 2003
  */
-public class CouplingBetweenObjectsRule extends AbstractJavaRule {
+public class CouplingBetweenObjectsRule extends AbstractTraversalRule {
 
     private static final PropertyDescriptor<Integer> THRESHOLD_DESCRIPTOR
         = PropertyFactory.intProperty("threshold")
@@ -42,6 +46,8 @@ public class CouplingBetweenObjectsRule extends AbstractJavaRule {
 
     private int couplingCount;
     private boolean inInterface;
+    // whether the enclosing declarations are interfaces
+    private final Deque<Boolean> enclosingInInterface = new ArrayDeque<>();
     private final Set<JTypeMirror> typesFoundSoFar = new HashSet<>();
 
     public CouplingBetweenObjectsRule() {
@@ -49,54 +55,42 @@ public class CouplingBetweenObjectsRule extends AbstractJavaRule {
     }
 
     @Override
-    public Object visit(ASTCompilationUnit cu, Object data) {
-        super.visit(cu, data);
-
-        if (couplingCount > getProperty(THRESHOLD_DESCRIPTOR)) {
-            addViolation(data, cu,
-                         "A value of " + couplingCount + " may denote a high amount of coupling within the class");
-        }
-
+    public void start(RuleContext ctx) {
         couplingCount = 0;
+        inInterface = false;
+        enclosingInInterface.clear();
         typesFoundSoFar.clear();
-        return null;
-    }
-
-    @Override
-    public Object visit(ASTClassOrInterfaceDeclaration node, Object data) {
-        boolean prev = inInterface;
-        inInterface = node.isInterface();
-        super.visit(node, data);
-        inInterface = prev;
-        return null;
-    }
-
-    @Override
-    public Object visit(ASTMethodDeclaration node, Object data) {
-        ASTType type = node.getResultTypeNode();
-        checkVariableType(type);
-        return super.visit(node, data);
     }
 
     @Override
-    public Object visit(ASTLocalVariableDeclaration node, Object data) {
-        ASTType type = node.getTypeNode();
-        checkVariableType(type);
-        return super.visit(node, data);
-    }
-
-    @Override
-    public Object visit(ASTFormalParameter node, Object data) {
-        ASTType type = node.getTypeNode();
-        checkVariableType(type);
-        return super.visit(node, data);
+    public boolean enterNode(Node node, RuleContext ctx) {
+        if (node instanceof ASTClassOrInterfaceDeclaration) {
+            enclosingInInterface.push(inInterface);
+            inInterface = ((ASTClassOrInterfaceDeclaration) node).isInterface();
+        } else if (node instanceof ASTMethodDeclaration) {
+            checkVariableType(((ASTMethodDeclaration) node).getResultTypeNode());
+        } else if (node instanceof ASTLocalVariableDeclaration) {
+            checkVariableType(((ASTLocalVariableDeclaration) node).getTypeNode());
+        } else if (node instanceof ASTFormalParameter) {
+            checkVariableType(((ASTFormalParameter) node).getTypeNode());
+        } else if (node instanceof ASTFieldDeclaration) {
+            checkVariableType(((ASTFieldDeclaration) node).getTypeNode());
+        }
+        return true;
     }
 
     @Override
-    public Object visit(ASTFieldDeclaration node, Object data) {
-        ASTType type = node.getTypeNode();
-        checkVariableType(type);
-        return super.visit(node, data);
+    public void leaveNode(Node node, RuleContext ctx) {
+        if (node instanceof ASTClassOrInterfaceDeclaration) {
+            inInterface = enclosingInInterface.pop();
+        } else if (node instanceof ASTCompilationUnit) {
+            if (couplingCount > getProperty(THRESHOLD_DESCRIPTOR)) {
+                ctx.addViolation(node,
+                                 "A value of " + couplingCount + " may denote a high amount of coupling within the class");
+            }
+            couplingCount = 0;
+            typesFoundSoFar.clear();
+        }
     }
 
     /**
@@ -41,7 +41,6 @@ import net.sourceforge.pmd.lang.java.ast.ASTVariableDeclarator;
 import net.sourceforge.pmd.lang.java.ast.ASTVariableDeclaratorId;
 import net.sourceforge.pmd.lang.java.ast.QualifiableExpression;
 import net.sourceforge.pmd.lang.java.ast.internal.PrettyPrintingUtil;
-import net.sourceforge.pmd.lang.java.rule.AbstractJavaRule;
 import net.sourceforge.pmd.lang.java.rule.internal.DataflowPass;
 import net.sourceforge.pmd.lang.java.rule.internal.DataflowPass.AssignmentEntry;
 import net.sourceforge.pmd.lang.java.rule.internal.DataflowPass.DataflowResult;
@@ -54,6 +53,7 @@ import net.sourceforge.pmd.lang.java.types.JClassType;
 import net.sourceforge.pmd.lang.java.types.JTypeMirror;
 import net.sourceforge.pmd.lang.java.types.TypeOps;
 import net.sourceforge.pmd.lang.java.types.TypeTestUtil;
+import net.sourceforge.pmd.lang.rule.AbstractTraversalRule;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
 import net.sourceforge.pmd.properties.PropertyFactory;
 
@@ -75,7 +75,7 @@ import net.sourceforge.pmd.properties.PropertyFactory;
  * @since 5.0
  *
  */
-public class LawOfDemeterRule extends AbstractJavaRule {
+public class LawOfDemeterRule extends AbstractTraversalRule {
 
 
     private static final PropertyDescriptor<Integer> TRUST_RADIUS =
@@ -94,27 +94,34 @@ public class LawOfDemeterRule extends AbstractJavaRule {
     /**
      * This cache is there to prevent recursion in case of cycles. It
      * also avoids recomputing the degree of too many nodes, as the degree
-     * of a call chain depends on the degree of the qualifier. {@link #visit(ASTMethodCall, Object)}
+     * of a call chain depends on the degree of the qualifier. {@link #visitMethodCall(ASTMethodCall, RuleContext)}
      * is called on every part of the chain, so without memoization we
      * would run in O(n2).
      */
     private final Map<ASTExpression, Integer> degreeCache = new LinkedHashMap<>();
 
     @Override
-    public void apply(Node target, RuleContext ctx) {
+    public void start(RuleContext ctx) {
         degreeCache.clear();
-        // reimplement our own traversal instead of using the rulechain,
-        // so that we have a stable traversal order.
-        ((ASTCompilationUnit) target)
-            .descendants().crossFindBoundaries()
-            .forEach(it -> {
-                if (it instanceof ASTMethodCall) {
-                    this.visit((ASTMethodCall) it, ctx);
-                } else if (it instanceof ASTFieldAccess) {
-                    this.visit((ASTFieldAccess) it, ctx);
-                }
-            });
-        degreeCache.clear(); // avoid memory leak
+    }
+
+    // Use a traversal instead of the rulechain, so that we have a
+    // stable traversal order.
+    @Override
+    public boolean enterNode(Node node, RuleContext ctx) {
+        if (node instanceof ASTMethodCall) {
+            visitMethodCall((ASTMethodCall) node, ctx);
+        } else if (node instanceof ASTFieldAccess) {
+            visitFieldAccess((ASTFieldAccess) node, ctx);
+        }
+        return true;
+    }
+
+    @Override
+    public void leaveNode(Node node, RuleContext ctx) {
+        if (node instanceof ASTCompilationUnit) {
+            degreeCache.clear(); // avoid memory leak
+        }
     }
 
     /**
@@ -125,11 +132,10 @@ public class LawOfDemeterRule extends AbstractJavaRule {
         return degree == getProperty(TRUST_RADIUS) + 1;
     }
 
-    @Override
-    public Object visit(ASTFieldAccess node, Object data) {
+    private void visitFieldAccess(ASTFieldAccess node, RuleContext ctx) {
         if (shouldReport(node)) {
-            addViolationWithMessage(
-                data, node,
+            ctx.addViolationWithMessage(
+                node,
                 FIELD_ACCESS_ON_FOREIGN_VALUE,
                 new Object[] {
                     node.getName(),
@@ -137,14 +143,12 @@ public class LawOfDemeterRule extends AbstractJavaRule {
                     foreignDegree(node.getQualifier()),
                 });
         }
-        return null;
     }
 
-    @Override
-    public Object visit(ASTMethodCall node, Object data) {
+    private void visitMethodCall(ASTMethodCall node, RuleContext ctx) {
         if (shouldReport(node)) {
-            addViolationWithMessage(
-                data, node,
+            ctx.addViolationWithMessage(
+                node,
                 METHOD_CALL_ON_FOREIGN_VALUE,
                 new Object[] {
                     node.getMethodName(),
@@ -152,7 +156,6 @@ public class LawOfDemeterRule extends AbstractJavaRule {
                     foreignDegree(node.getQualifier()),
                 });
         }
-        return null;
     }
 
     private boolean shouldReport(QualifiableExpression expr) {
@@ -6,8 +6,11 @@ package net.sourceforge.pmd.lang.java.rule.internal;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -142,12 +145,13 @@ public final class DataflowPass {
         for (ASTAnyTypeDeclaration typeDecl : node.getTypeDeclarations()) {
             GlobalAlgoState subResult = new GlobalAlgoState();
             typeDecl.acceptVisitor(ReachingDefsVisitor.ONLY_LOCALS, new SpanInfo(subResult));
-            if (subResult.usedAssignments.size() < subResult.allAssignments.size()) {
-                Set<AssignmentEntry> unused = subResult.allAssignments;
-                unused.removeAll(subResult.usedAssignments);
-                unused.removeIf(AssignmentEntry::isUnbound);
-                unused.removeIf(AssignmentEntry::isFieldDefaultValue);
-                dataflowResult.unusedAssignments.addAll(unused);
+            List<AssignmentEntry> all = subResult.allAssignments;
+            BitSet used = subResult.usedAssignments;
+            for (int i = used.nextClearBit(0); i < all.size(); i = used.nextClearBit(i + 1)) {
+                AssignmentEntry unused = all.get(i);
+                if (!unused.isUnbound() && !unused.isFieldDefaultValue()) {
+                    dataflowResult.unusedAssignments.add(unused);
+                }
             }
 
             CollectionUtil.mergeMaps(
@@ -1039,57 +1043,133 @@ public final class DataflowPass {
      */
     private static final class GlobalAlgoState {
 
-        final Set<AssignmentEntry> allAssignments;
-        final Set<AssignmentEntry> usedAssignments;
+        // Assignments are numbered densely in the order they are first
+        // seen. Sets of reaching definitions are made of those indices,
+        // see VarLocalInfo.
+        final List<AssignmentEntry> allAssignments = new ArrayList<>();
+        private final Map<AssignmentEntry, Integer> assignmentIndex = new HashMap<>();
+        final BitSet usedAssignments = new BitSet();
 
         // track which assignments kill which
         // assignment -> killers(assignment)
-        final Map<AssignmentEntry, Set<AssignmentEntry>> killRecord;
+        final Map<AssignmentEntry, Set<AssignmentEntry>> killRecord = new LinkedHashMap<>();
 
         final TargetStack breakTargets = new TargetStack();
         // continue jumps to the condition check, while break jumps to after the loop
         final TargetStack continueTargets = new TargetStack();
 
-        private GlobalAlgoState(Set<AssignmentEntry> allAssignments,
-                                Set<AssignmentEntry> usedAssignments,
-                                Map<AssignmentEntry, Set<AssignmentEntry>> killRecord) {
-            this.allAssignments = allAssignments;
-            this.usedAssignments = usedAssignments;
-            this.killRecord = killRecord;
-
-        }
-
-        private GlobalAlgoState() {
-            this(new LinkedHashSet<>(),
-                 new LinkedHashSet<>(),
-                 new LinkedHashMap<>());
+        /**
+         * Returns the index of the assignment, registering it if needed.
+         * Assignments in loops are visited several times, those are
+         * equal and share the same index.
+         */
+        int indexOf(AssignmentEntry entry) {
+            Integer idx = assignmentIndex.get(entry);
+            if (idx == null) {
+                idx = allAssignments.size();
+                allAssignments.add(entry);
+                assignmentIndex.put(entry, idx);
+            }
+            return idx;
         }
     }
 
     // Information about a variable in a code span.
     static class VarLocalInfo {
 
-        // this is not modified so can be shared between different SpanInfos.
-        final Set<AssignmentEntry> reachingDefs;
+        // Indices of the reaching definitions in GlobalAlgoState#allAssignments.
+        // The bit set is used for membership tests, the array records the
+        // order in which definitions were joined, which is the iteration
+        // order of the ReachingDefinitionSets handed out to rules.
+        private final BitSet members;
+        private int[] order;
+        private int size;
+
+        // This is shared between different SpanInfos, and may only be
+        // modified in place by its owner, as long as it has not been shared.
+        private final SpanInfo owner;
+        private final int ownerEpoch;
+
+        VarLocalInfo(int def, SpanInfo owner) {
+            this.members = new BitSet(def + 1);
+            this.members.set(def);
+            this.order = new int[] {def};
+            this.size = 1;
+            this.owner = owner;
+            this.ownerEpoch = owner.epoch;
+        }
+
+        private VarLocalInfo(VarLocalInfo toCopy, int extraCapacity, SpanInfo owner) {
+            this.members = (BitSet) toCopy.members.clone();
+            this.order = Arrays.copyOf(toCopy.order, toCopy.size + extraCapacity);
+            this.size = toCopy.size;
+            this.owner = owner;
+            this.ownerEpoch = owner.epoch;
+        }
+
+        boolean isMutableBy(SpanInfo span) {
+            return owner == span && ownerEpoch == span.epoch; // NOPMD CompareObjectsWithEquals
+        }
+
+        BitSet getMembers() {
+            return members;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /** Returns the index of the ith reaching definition. */
+        int get(int i) {
+            return order[i];
+        }
 
-        VarLocalInfo(Set<AssignmentEntry> reachingDefs) {
-            this.reachingDefs = reachingDefs;
+        Set<AssignmentEntry> toSet() {
+            Set<AssignmentEntry> result = new LinkedHashSet<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(owner.global.allAssignments.get(order[i]));
+            }
+            return result;
         }
 
-        // and produce an independent instance
-        VarLocalInfo merge(VarLocalInfo other) {
-            if (other == this) { // NOPMD #3205
+        // join the reaching defs of other into this, on behalf of the given span
+        VarLocalInfo merge(VarLocalInfo other, SpanInfo span) {
+            if (other == this || containsAll(other)) { // NOPMD #3205
                 return this;
             }
-            Set<AssignmentEntry> merged = new LinkedHashSet<>(reachingDefs.size() + other.reachingDefs.size());
-            merged.addAll(reachingDefs);
-            merged.addAll(other.reachingDefs);
-            return new VarLocalInfo(merged);
+            VarLocalInfo result = isMutableBy(span) ? this : new VarLocalInfo(this, other.size, span);
+            result.addAll(other);
+            return result;
+        }
+
+        private boolean containsAll(VarLocalInfo other) {
+            if (other.size > this.size) {
+                return false;
+            }
+            for (int i = 0; i < other.size; i++) {
+                if (!members.get(other.order[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void addAll(VarLocalInfo other) {
+            for (int i = 0; i < other.size; i++) {
+                int def = other.order[i];
+                if (!members.get(def)) {
+                    members.set(def);
+                    if (size == order.length) {
+                        order = Arrays.copyOf(order, Math.max(4, size * 2));
+                    }
+                    order[size++] = def;
+                }
+            }
         }
 
         @Override
         public String toString() {
-            return "VarLocalInfo{reachingDefs=" + reachingDefs + '}';
+            return "VarLocalInfo{reachingDefs=" + toSet() + '}';
         }
 
     }
@@ -1122,6 +1202,11 @@ public final class DataflowPass {
         final Map<JVariableSymbol, VarLocalInfo> symtable;
         private OptionalBool hasCompletedAbruptly = OptionalBool.NO;
 
+        // Incremented every time the VarLocalInfos of the symtable may
+        // become visible from another span. Those may not be modified
+        // in place anymore, see VarLocalInfo#isMutableBy.
+        private int epoch;
+
         private SpanInfo(GlobalAlgoState global) {
             this(null, global, new LinkedHashMap<>());
         }
@@ -1155,10 +1240,11 @@ public final class DataflowPass {
             AssignmentEntry entry = outOfScope || isFieldBeforeMethod
                                     ? new UnboundAssignment(var, node, rhs, isFieldBeforeMethod)
                                     : new AssignmentEntry(var, node, rhs);
-            VarLocalInfo previous = symtable.put(var, new VarLocalInfo(Collections.singleton(entry)));
+            VarLocalInfo previous = symtable.put(var, new VarLocalInfo(global.indexOf(entry), this));
             if (previous != null) {
                 // those assignments were overwritten ("killed")
-                for (AssignmentEntry killed : previous.reachingDefs) {
+                for (int i = 0; i < previous.size(); i++) {
+                    AssignmentEntry killed = global.allAssignments.get(previous.get(i));
                     if (killed.isBlankLocal()) {
                         continue;
                     }
@@ -1167,7 +1253,6 @@ public final class DataflowPass {
                                      .add(entry);
                 }
             }
-            global.allAssignments.add(entry);
         }
 
         void declareSpecialFieldValues(JClassSymbol sym) {
@@ -1200,9 +1285,9 @@ public final class DataflowPass {
             VarLocalInfo info = symtable.get(var);
             // may be null for implicit assignments, like method parameter
             if (info != null) {
-                global.usedAssignments.addAll(info.reachingDefs);
+                global.usedAssignments.or(info.getMembers());
                 if (reachingDefSink != null) {
-                    ReachingDefinitionSet reaching = new ReachingDefinitionSet(new LinkedHashSet<>(info.reachingDefs));
+                    ReachingDefinitionSet reaching = new ReachingDefinitionSet(info.toSet());
                     // need to merge into previous to account for cyclic control flow
                     reachingDefSink.getUserMap().compute(REACHING_DEFS, current -> {
                         if (current != null) {
@@ -1269,6 +1354,7 @@ public final class DataflowPass {
         }
 
         private Map<JVariableSymbol, VarLocalInfo> copyTable() {
+            epoch++; // the infos are now shared with the fork
             return new LinkedHashMap<>(this.symtable);
         }
 
@@ -1355,7 +1441,10 @@ public final class DataflowPass {
                 return this;
             }
 
-            CollectionUtil.mergeMaps(this.symtable, other.symtable, VarLocalInfo::merge);
+            other.epoch++; // its infos may be shared with this span now
+            for (Map.Entry<JVariableSymbol, VarLocalInfo> entry : other.symtable.entrySet()) {
+                this.symtable.merge(entry.getKey(), entry.getValue(), (mine, theirs) -> mine.merge(theirs, this));
+            }
             this.hasCompletedAbruptly = mergeCertitude(this.hasCompletedAbruptly, other.hasCompletedAbruptly);
             return this;
         }
@@ -59,6 +59,11 @@ public class BaseContextNodeTestFun<T extends JavaNode> extends BaseJavaXPathFun
         return true;
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public ExtensionFunctionCall makeCallExpression() {
         return new ExtensionFunctionCall() {
@@ -52,6 +52,11 @@ public final class GetModifiersFun extends BaseJavaXPathFunction {
         return true;
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public ExtensionFunctionCall makeCallExpression() {
         return new ExtensionFunctionCall() {
@@ -17,6 +17,11 @@ public final class MatchesSignatureFunction extends BaseRewrittenFunction<Invoca
         super("matchesSig", InvocationNode.class);
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     protected boolean matches(InvocationNode contextNode, String arg, InvocationMatcher parsedArg, boolean isConstant) throws XPathException {
         return parsedArg.matchesCall(contextNode);
@@ -54,6 +54,11 @@ public final class MetricFunction extends BaseJavaXPathFunction {
         return true;
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
 
     @Override
     public ExtensionFunctionCall makeCallExpression() {
@@ -39,9 +39,20 @@ public class AsmSymbolResolver implements SymbolResolver {
      */
     private final ClassStub failed;
 
+    /**
+     * Resolver whose symbols are reused for the classes that both
+     * resolvers find at the same location.
+     */
+    private final @Nullable AsmSymbolResolver parent;
+
     public AsmSymbolResolver(TypeSystem ts, Classpath classLoader) {
+        this(ts, classLoader, null);
+    }
+
+    public AsmSymbolResolver(TypeSystem ts, Classpath classLoader, @Nullable AsmSymbolResolver parent) {
         this.ts = ts;
         this.classLoader = classLoader;
+        this.parent = parent;
         this.typeLoader = new SignatureParser(this);
         this.failed = new ClassStub(this, "/*failed-lookup*/", FailedLoader.INSTANCE, 0);
     }
@@ -58,7 +69,7 @@ public class AsmSymbolResolver implements SymbolResolver {
                 return failed;
             }
 
-            return new ClassStub(this, iname, new UrlLoader(url), ClassStub.UNKNOWN_ARITY);
+            return newStub(iname, url, ClassStub.UNKNOWN_ARITY);
         });
 
         if (!found.hasCanonicalName()) {
@@ -106,8 +117,34 @@ public class AsmSymbolResolver implements SymbolResolver {
                 return prev;
             }
             @Nullable URL url = getUrlOfInternalName(iname);
-            Loader loader = url == null ? FailedLoader.INSTANCE : new UrlLoader(url);
-            return new ClassStub(this, iname, loader, observedArity);
+            if (url == null) {
+                return new ClassStub(this, iname, FailedLoader.INSTANCE, observedArity);
+            }
+            return newStub(iname, url, observedArity);
         });
     }
+
+    private @NonNull ClassStub newStub(String internalName, @NonNull URL url, int observedArity) {
+        if (parent != null && isSameLocation(url, parent.getUrlOfInternalName(internalName))) {
+            return parent.resolveFromInternalNameCannotFail(internalName, observedArity);
+        }
+        return new ClassStub(this, internalName, new UrlLoader(url), observedArity);
+    }
+
+    /**
+     * Whether the given classpath finds the class file of the given
+     * class at the same location as the classpath of this resolver.
+     * If so, the symbol of this resolver can be shared by resolvers
+     * using the other classpath.
+     */
+    public boolean findsSameClassFile(Classpath classpath, String binaryName) {
+        String internalName = getInternalName(binaryName);
+        return isSameLocation(getUrlOfInternalName(internalName),
+                              classpath.findResource(internalName + ".class"));
+    }
+
+    private static boolean isSameLocation(@Nullable URL url1, @Nullable URL url2) {
+        // note: URL::equals may perform DNS lookups
+        return url1 != null && url2 != null && url1.toExternalForm().equals(url2.toExternalForm());
+    }
 }
@@ -8,6 +8,7 @@ import static net.sourceforge.pmd.util.CollectionUtil.emptyList;
 import static net.sourceforge.pmd.util.CollectionUtil.immutableSetOf;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
@@ -23,6 +24,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import org.pcollections.HashTreePSet;
 import org.pcollections.PSet;
 
+import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.java.ast.JavaNode;
 import net.sourceforge.pmd.lang.java.symbols.JClassSymbol;
 import net.sourceforge.pmd.lang.java.symbols.JExecutableSymbol;
@@ -39,6 +41,7 @@ import net.sourceforge.pmd.lang.java.symbols.internal.asm.Classpath;
 import net.sourceforge.pmd.lang.java.types.BasePrimitiveSymbol.RealPrimitiveSymbol;
 import net.sourceforge.pmd.lang.java.types.BasePrimitiveSymbol.VoidSymbol;
 import net.sourceforge.pmd.lang.java.types.JPrimitiveType.PrimitiveTypeKind;
+import net.sourceforge.pmd.lang.java.types.internal.infer.OverloadResolutionMemo;
 import net.sourceforge.pmd.util.AssertionUtil;
 import net.sourceforge.pmd.util.CollectionUtil;
 
@@ -81,7 +84,7 @@ public final class TypeSystem {
      *
      * <p>The null type has no symbol.
      */
-    public final JTypeMirror NULL_TYPE = new NullType(this);
+    public final JTypeMirror NULL_TYPE;
 
 
     /** Primitive type {@code boolean}. */
@@ -146,7 +149,7 @@ public final class TypeSystem {
      * Sentinel value for an unresolved method. This type corresponds to
      * a method declaration in the type {@link #UNKNOWN}, returning {@link #UNKNOWN}.
      */
-    public final JMethodSig UNRESOLVED_METHOD = new UnresolvedMethodSig(this);
+    public final JMethodSig UNRESOLVED_METHOD;
 
     /*
      * Common, non-special types.
@@ -172,6 +175,8 @@ public final class TypeSystem {
 
     /** Contains special types, that must be shared to be comparable by reference. */
     private final Map<JTypeDeclSymbol, JTypeMirror> sharedTypes;
+    /** Overload resolution results shared by all files analysed with this type system. */
+    private final OverloadResolutionMemo overloadResolutionMemo = new OverloadResolutionMemo();
     // test only
     final SymbolResolver resolver;
 
@@ -199,6 +204,62 @@ public final class TypeSystem {
         return new TypeSystem(ts -> new AsmSymbolResolver(ts, bootstrapResourceLoader));
     }
 
+    /**
+     * Builds a new type system that shares the symbols of a parent type
+     * system. This is meant for analyses that use different classpaths,
+     * which all contain the same immutable entries, like the JDK, or
+     * common libraries. Those are then parsed only once, by the parent.
+     *
+     * <p>Classes are shared only if the given classpath finds their class
+     * file at the same location as the classpath of the parent. Other
+     * classes (eg those compiled from the analysed module, or those of a
+     * library that shadows the parent's) are resolved by the new type system
+     * itself. Type constants like {@link #OBJECT} are shared as well, and
+     * the symbols obtained from the parent report the parent as their
+     * {@linkplain JTypeDeclSymbol#getTypeSystem() type system}.
+     *
+     * <p>If the classpath doesn't find the classes of the type constants
+     * of the parent (like {@link Object}) at the same location, then nothing
+     * can be shared, and this returns an independent type system, like
+     * {@link #usingClasspath(Classpath)}.
+     *
+     * @param classpath Classpath used to resolve class files
+     * @param parent    Type system to share symbols with, which must
+     *                  have been created with {@link #usingClasspath(Classpath)}
+     *                  or {@link #usingClassLoaderClasspath(ClassLoader)}
+     *
+     * @throws IllegalArgumentException If the parent type system doesn't
+     *                                  read class files
+     */
+    public static TypeSystem usingClasspath(Classpath classpath, TypeSystem parent) {
+        if (!(parent.resolver instanceof AsmSymbolResolver)) {
+            throw new IllegalArgumentException("Parent type system does not read class files: " + parent.resolver);
+        }
+        AsmSymbolResolver parentResolver = (AsmSymbolResolver) parent.resolver;
+        List<JClassType> constants = new ArrayList<>();
+        Collections.addAll(constants, parent.OBJECT, parent.SERIALIZABLE, parent.CLONEABLE, parent.BOXED_VOID);
+        for (JPrimitiveType prim : parent.allPrimitives) {
+            constants.add(prim.box());
+        }
+        for (JClassType constant : constants) {
+            if (!parentResolver.findsSameClassFile(classpath, constant.getSymbol().getBinaryName())) {
+                return usingClasspath(classpath);
+            }
+        }
+        return new TypeSystem(parent, ts -> new AsmSymbolResolver(ts, classpath, parentResolver));
+    }
+
+    /**
+     * Builds a new type system that shares the symbols of a parent type
+     * system, see {@link #usingClasspath(Classpath, TypeSystem)}.
+     *
+     * @param classLoader Classloader used to resolve class files
+     * @param parent      Type system to share symbols with
+     */
+    public static TypeSystem usingClassLoaderClasspath(ClassLoader classLoader, TypeSystem parent) {
+        return usingClasspath(Classpath.forClassLoader(classLoader), parent);
+    }
+
     /**
      * Builds a new type system. Its public fields will be initialized
      * with fresh types, unrelated to other types.
@@ -217,6 +278,9 @@ public final class TypeSystem {
     public TypeSystem(Function<TypeSystem, ? extends SymbolResolver> symResolverMaker) {
         this.resolver = symResolverMaker.apply(this); // leak the this
 
+        NULL_TYPE = new NullType(this);
+        UNRESOLVED_METHOD = new UnresolvedMethodSig(this);
+
         // initialize primitives. their constructor also initializes their box + box erasure
 
         BOOLEAN = createPrimitive(PrimitiveTypeKind.BOOLEAN, Boolean.class);
@@ -292,6 +356,40 @@ public final class TypeSystem {
         UNBOUNDED_WILD = new WildcardTypeImpl(this, true, OBJECT, HashTreePSet.empty());
     }
 
+    /**
+     * Builds a type system that shares the type constants of its parent,
+     * see {@link #usingClasspath(Classpath, TypeSystem)}.
+     */
+    private TypeSystem(TypeSystem parent, Function<TypeSystem, ? extends SymbolResolver> symResolverMaker) {
+        this.resolver = symResolverMaker.apply(this); // leak the this
+
+        NULL_TYPE = parent.NULL_TYPE;
+        UNRESOLVED_METHOD = parent.UNRESOLVED_METHOD;
+
+        BOOLEAN = parent.BOOLEAN;
+        CHAR = parent.CHAR;
+        BYTE = parent.BYTE;
+        SHORT = parent.SHORT;
+        INT = parent.INT;
+        LONG = parent.LONG;
+        FLOAT = parent.FLOAT;
+        DOUBLE = parent.DOUBLE;
+        allPrimitives = parent.allPrimitives;
+        primitivesByKind = parent.primitivesByKind;
+
+        UNKNOWN = parent.UNKNOWN;
+        ERROR = parent.ERROR;
+        NO_TYPE = parent.NO_TYPE;
+
+        OBJECT = parent.OBJECT;
+        SERIALIZABLE = parent.SERIALIZABLE;
+        CLONEABLE = parent.CLONEABLE;
+        BOXED_VOID = parent.BOXED_VOID;
+        sharedTypes = parent.sharedTypes;
+
+        UNBOUNDED_WILD = parent.UNBOUNDED_WILD;
+    }
+
     /**
      * Returns the bootstrap symbol resolver. Concrete analysis passes
      * may decorate this with different resolvers.
@@ -300,6 +398,16 @@ public final class TypeSystem {
         return resolver;
     }
 
+    /**
+     * Returns the memo of overload resolution results that is shared
+     * by all files analysed with this type system. This is internal API,
+     * its counters may be used to report the hit rate.
+     */
+    @InternalApi
+    public OverloadResolutionMemo getOverloadResolutionMemo() {
+        return overloadResolutionMemo;
+    }
+
     // helpers for the constructor, cannot use typeOf, only for trusted types
 
     private JClassType addSpecial(Class<?> klass, Map<JClassSymbol, JTypeMirror> shared) {
@@ -20,6 +20,8 @@ import java.util.List;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
 import net.sourceforge.pmd.lang.java.symbols.JClassSymbol;
 import net.sourceforge.pmd.lang.java.types.JArrayType;
 import net.sourceforge.pmd.lang.java.types.JClassType;
@@ -60,6 +62,7 @@ public final class Infer {
     final MethodCtDecl FAILED_INVOCATION; // SUPPRESS CHECKSTYLE same
 
     private final SupertypeCheckCache supertypeCheckCache = new SupertypeCheckCache();
+    private final OverloadResolutionMemo overloadMemo;
 
     /**
      * Creates a new instance.
@@ -77,6 +80,8 @@ public final class Infer {
         this.NO_CTDECL = MethodCtDecl.unresolved(ts);
         this.FAILED_INVOCATION = MethodCtDecl.unresolved(ts);
 
+        this.overloadMemo = ts.getOverloadResolutionMemo();
+
         this.exprOps = new ExprOps(this);
     }
 
@@ -279,6 +284,21 @@ public final class Infer {
             return NO_CTDECL;
         }
 
+        // Calls like sb.append("") resolve the same way in every file.
+        // This is skipped when logging, so that the logs show the full resolution.
+        OverloadResolutionMemo.Key memoKey = LOG.isNoop() ? OverloadResolutionMemo.keyFor(site, potentiallyApplicable)
+                                                          : null;
+        long memoStart = memoKey != null && TimeTracker.isTrackingTime() ? System.nanoTime() : -1;
+        if (memoKey != null) {
+            MethodCtDecl memoized = overloadMemo.lookup(memoKey, potentiallyApplicable);
+            if (memoized != null) {
+                recordMemoLookup(memoStart, true);
+                JMethodSig adapted = ExprOps.adaptGetClass(memoized.getMethodType(),
+                                                           site.getExpr()::getErasedReceiverType);
+                return memoized.withMethod(adapted);
+            }
+        }
+
         for (MethodResolutionPhase phase : MethodResolutionPhase.APPLICABILITY_TESTS) {
             PhaseOverloadSet applicable = new PhaseOverloadSet(this, phase, site);
             for (JMethodSig m : potentiallyApplicable) {
@@ -293,6 +313,10 @@ public final class Infer {
 
             if (applicable.nonEmpty()) {
                 MethodCtDecl bestApplicable = applicable.getMostSpecificOrLogAmbiguity(LOG);
+                if (memoKey != null) {
+                    overloadMemo.remember(memoKey, potentiallyApplicable, bestApplicable);
+                    recordMemoLookup(memoStart, false);
+                }
                 JMethodSig adapted = ExprOps.adaptGetClass(bestApplicable.getMethodType(),
                                                            site.getExpr()::getErasedReceiverType);
                 return bestApplicable.withMethod(adapted);
@@ -301,10 +325,21 @@ public final class Infer {
 
 
         LOG.noCompileTimeDeclaration(site);
+        recordMemoLookup(memoStart, false);
 
         return NO_CTDECL;
     }
 
+    /**
+     * Records the time spent resolving a memoizable call in the timing
+     * report, whose counter is the number of calls answered by the memo.
+     */
+    private static void recordMemoLookup(long start, boolean hit) {
+        if (start >= 0) {
+            TimeTracker.recordOperation(TimedOperationCategory.OVERLOAD_RESOLUTION, null, System.nanoTime() - start, hit ? 1 : 0);
+        }
+    }
+
     @NonNull MethodCtDecl finishInstantiation(MethodCallSite site, MethodCtDecl ctdecl) {
         JMethodSig m = ctdecl.getMethodType();
         InvocationMirror expr = site.getExpr();
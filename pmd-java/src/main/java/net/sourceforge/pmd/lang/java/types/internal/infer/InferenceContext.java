@@ -22,6 +22,7 @@ import java.util.Set;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import net.sourceforge.pmd.lang.ast.AnalysisInterruptedException;
 import net.sourceforge.pmd.lang.java.types.JClassType;
 import net.sourceforge.pmd.lang.java.types.JMethodSig;
 import net.sourceforge.pmd.lang.java.types.JTypeMirror;
@@ -294,6 +295,8 @@ final class InferenceContext {
                     // for more inference to happen
 
                     // TODO investigate
+                } catch (AnalysisInterruptedException e) {
+                    throw e;
                 } catch (Exception e) {
                     e.printStackTrace();
                 } finally {
@@ -365,6 +368,8 @@ final class InferenceContext {
 
         IncorporationAction hook = incorporationActions.pollFirst();
         while (hook != null) {
+            // incorporation may not terminate in a reasonable time on pathological code
+            AnalysisInterruptedException.checkInterrupted("inferring types");
 
             if (hook.doApplyToInstVar || hook.ivar.getInst() == null) {
                 hook.apply(this);
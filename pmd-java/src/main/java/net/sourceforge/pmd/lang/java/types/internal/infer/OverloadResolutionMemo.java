@@ -0,0 +1,276 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.types.internal.infer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.sourceforge.pmd.lang.java.symbols.JTypeDeclSymbol;
+import net.sourceforge.pmd.lang.java.types.JArrayType;
+import net.sourceforge.pmd.lang.java.types.JClassType;
+import net.sourceforge.pmd.lang.java.types.JMethodSig;
+import net.sourceforge.pmd.lang.java.types.JPrimitiveType;
+import net.sourceforge.pmd.lang.java.types.JTypeMirror;
+import net.sourceforge.pmd.lang.java.types.JWildcardType;
+import net.sourceforge.pmd.lang.java.types.TypeSystem;
+import net.sourceforge.pmd.lang.java.types.internal.infer.ExprMirror.CtorInvocationMirror;
+import net.sourceforge.pmd.lang.java.types.internal.infer.ExprMirror.InvocationMirror;
+import net.sourceforge.pmd.lang.java.types.internal.infer.ExprMirror.InvocationMirror.MethodCtDecl;
+import net.sourceforge.pmd.lang.java.types.internal.infer.ExprMirror.PolyExprMirror;
+
+/**
+ * Memoizes the outcome of overload resolution for method calls that
+ * involve only classpath types, and neither inference variables nor
+ * poly expressions. For instance {@code sb.append("foo")} or {@code list.size()}
+ * are resolved the same way in every file, so after the first one,
+ * the compile-time declaration is found with a map lookup instead of
+ * going through the applicability phases again.
+ *
+ * <p>The memo is owned by the {@link TypeSystem}, and so shared by
+ * all files of an analysis. It only ever references types and symbols
+ * coming from the classpath, never AST symbols, so that it doesn't
+ * retain the AST of analysed files.
+ *
+ * <p>Entries are keyed by the erased receiver type, the method name,
+ * and the types of the arguments. Since the set of accessible candidates
+ * depends on the site of the call, each entry also records the potentially
+ * applicable candidates it was computed with. A lookup only succeeds
+ * if the candidates of the site are the same.
+ */
+public final class OverloadResolutionMemo {
+
+    private final ConcurrentMap<Key, Entry> memo = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+
+    /**
+     * Returns the memoized compile-time declaration for the given site,
+     * or null if there is none. The site must be memoizable, see {@link #keyFor(MethodCallSite, List)}.
+     */
+    @Nullable MethodCtDecl lookup(@NonNull Key key, List<JMethodSig> potentiallyApplicable) {
+        Entry entry = memo.get(key);
+        if (entry == null || !entry.matches(potentiallyApplicable)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new MethodCtDecl(potentiallyApplicable.get(entry.selected),
+                                entry.phase,
+                                true,
+                                entry.needsUncheckedConversion,
+                                false);
+    }
+
+    /**
+     * Record the result of overload resolution. The result is
+     * ignored if it cannot be reused for other call sites.
+     */
+    void remember(@NonNull Key key, List<JMethodSig> potentiallyApplicable, MethodCtDecl result) {
+        if (result.isFailed() || !result.canSkipInvocation()) {
+            return;
+        }
+        int selected = indexOf(potentiallyApplicable, result.getMethodType());
+        if (selected < 0) {
+            return;
+        }
+        memo.put(key, new Entry(potentiallyApplicable, selected, result));
+    }
+
+    /**
+     * Returns a key to memoize the resolution of the given call site,
+     * or null if the resolution of the site cannot be memoized. This
+     * is the case if the call is a constructor call, mentions poly expressions,
+     * or types that are not from the classpath, or if some candidates are generic.
+     */
+    static @Nullable Key keyFor(MethodCallSite site, List<JMethodSig> potentiallyApplicable) {
+        InvocationMirror expr = site.getExpr();
+        if (expr instanceof CtorInvocationMirror || !expr.getExplicitTypeArguments().isEmpty()) {
+            return null;
+        }
+        JTypeMirror receiver = expr.getErasedReceiverType();
+        if (receiver == null || !isClasspathType(receiver)) {
+            return null;
+        }
+
+        for (JMethodSig candidate : potentiallyApplicable) {
+            if (candidate.isGeneric() || !isClasspathType(candidate.getDeclaringType())) {
+                return null;
+            }
+            for (JTypeMirror formal : candidate.getFormalParameters()) {
+                if (!isClasspathType(formal)) {
+                    return null;
+                }
+            }
+        }
+
+        List<ExprMirror> args = expr.getArgumentExpressions();
+        List<JTypeMirror> argTypes = new ArrayList<>(args.size());
+        for (ExprMirror arg : args) {
+            if (arg instanceof PolyExprMirror) {
+                // the resolution of the call is responsible for that of
+                // nested invocations, eg new StringBuilder() in list.add(new StringBuilder())
+                return null;
+            }
+            JTypeMirror standalone = arg.getStandaloneType();
+            if (standalone == null || !isClasspathType(standalone)) {
+                return null;
+            }
+            argTypes.add(standalone);
+        }
+        return new Key(receiver, expr.getName(), argTypes);
+    }
+
+    /**
+     * Whether the type is shared by all files of the analysis, which
+     * means, it is built only from primitives and resolved classpath classes.
+     * Type variables, inference variables, and sentinel types are never
+     * considered.
+     */
+    private static boolean isClasspathType(JTypeMirror t) {
+        if (t instanceof JPrimitiveType || t == t.getTypeSystem().NULL_TYPE) { // NOPMD CompareObjectsWithEquals
+            return true;
+        } else if (t instanceof JArrayType) {
+            return isClasspathType(((JArrayType) t).getComponentType());
+        } else if (t instanceof JWildcardType) {
+            return isClasspathType(((JWildcardType) t).getBound());
+        } else if (t instanceof JClassType) {
+            JClassType classType = (JClassType) t;
+            JTypeDeclSymbol sym = classType.getSymbol();
+            if (sym.isUnresolved() || sym.tryGetNode() != null) {
+                return false;
+            }
+            JClassType enclosing = classType.getEnclosingType();
+            if (enclosing != null && !isClasspathType(enclosing)) {
+                return false;
+            }
+            for (JTypeMirror targ : classType.getTypeArgs()) {
+                if (!isClasspathType(targ)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static int indexOf(List<JMethodSig> candidates, JMethodSig selected) {
+        // non-generic methods are selected as is, and symbol equality
+        // is not precise enough to distinguish overloads
+        for (int i = 0; i < candidates.size(); i++) {
+            if (candidates.get(i) == selected) { // NOPMD CompareObjectsWithEquals
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Number of lookups that found a reusable result. */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /** Number of lookups that had to go through full overload resolution. */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /** Ratio of hits over lookups, between 0 and 1. */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /** Number of memoized entries. */
+    public int size() {
+        return memo.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OverloadResolutionMemo[size=%d, hits=%d, misses=%d, hitRate=%.1f%%]",
+                             size(), getHitCount(), getMissCount(), getHitRate() * 100);
+    }
+
+
+    static final class Key {
+
+        private final JTypeMirror erasedReceiver;
+        private final String name;
+        private final List<JTypeMirror> argTypes;
+        private final int hash;
+
+        Key(JTypeMirror erasedReceiver, String name, List<JTypeMirror> argTypes) {
+            this.erasedReceiver = erasedReceiver;
+            this.name = name;
+            this.argTypes = argTypes;
+            this.hash = Objects.hash(erasedReceiver, name, argTypes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash == key.hash
+                && name.equals(key.name)
+                && erasedReceiver.equals(key.erasedReceiver)
+                && argTypes.equals(key.argTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+
+        private final List<JMethodSig> candidates;
+        private final int selected;
+        private final MethodResolutionPhase phase;
+        private final boolean needsUncheckedConversion;
+
+        Entry(List<JMethodSig> candidates, int selected, MethodCtDecl result) {
+            this.candidates = new ArrayList<>(candidates);
+            this.selected = selected;
+            this.phase = result.getResolvePhase();
+            this.needsUncheckedConversion = result.needsUncheckedConversion();
+        }
+
+        /**
+         * The candidates of a site may differ, because the accessible
+         * methods depend on where the call is, and the formal parameters
+         * on the parameterization of the receiver.
+         */
+        boolean matches(List<JMethodSig> others) {
+            if (others.size() != candidates.size()) {
+                return false;
+            }
+            for (int i = 0; i < candidates.size(); i++) {
+                JMethodSig mine = candidates.get(i);
+                JMethodSig other = others.get(i);
+                if (!mine.getSymbol().equals(other.getSymbol())
+                    || !mine.getFormalParameters().equals(other.getFormalParameters())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.PmdAnalysis;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleViolation;
+import net.sourceforge.pmd.internal.SystemProps;
+
+import com.github.stefanbirkner.systemlambda.SystemLambda;
+
+/**
+ * Node-major dispatch must report the same violations as the default
+ * rule-major dispatch, only the order of the violations may differ.
+ */
+class RuleDispatchTest {
+
+    @Test
+    void nodeMajorDispatchReportsTheSameViolations() throws Exception {
+        List<String> ruleMajor = runAllJavaRules();
+        List<String> nodeMajor = new ArrayList<>();
+        SystemLambda.restoreSystemProperties(() -> {
+            System.setProperty(SystemProps.PMD_NODE_MAJOR_DISPATCH, "true");
+            nodeMajor.addAll(runAllJavaRules());
+        });
+
+        assertFalse(ruleMajor.isEmpty());
+        assertEquals(ruleMajor, nodeMajor);
+    }
+
+    private static List<String> runAllJavaRules() {
+        PMDConfiguration conf = new PMDConfiguration();
+        conf.addInputPath(Paths.get("src/main/java/net/sourceforge/pmd/lang/java/rule/bestpractices"));
+        conf.addRuleSet("rulesets/internal/all-java.xml");
+        conf.setThreads(0);
+        conf.setIgnoreIncrementalAnalysis(true);
+
+        try (PmdAnalysis pmd = PmdAnalysis.create(conf)) {
+            Report report = pmd.performAnalysisAndCollectReport();
+            assertEquals(0, report.getProcessingErrors().size(), "processing errors");
+            return report.getViolations().stream()
+                         .map(RuleDispatchTest::describe)
+                         .sorted()
+                         .collect(Collectors.toList());
+        }
+    }
+
+    private static String describe(RuleViolation violation) {
+        return violation.getFileId().getOriginalPath() + ":" + violation.getBeginLine() + ":" + violation.getBeginColumn()
+            + ":" + violation.getRule().getName() + ":" + violation.getDescription();
+    }
+}
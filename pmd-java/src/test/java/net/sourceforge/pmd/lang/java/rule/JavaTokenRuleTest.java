@@ -0,0 +1,195 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.rule;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.PmdAnalysis;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.RuleViolation;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.java.JavaLanguageModule;
+import net.sourceforge.pmd.lang.rule.AbstractRule;
+import net.sourceforge.pmd.lang.rule.AbstractTokenRule;
+
+class JavaTokenRuleTest {
+
+    @Test
+    void testCommentsAreTokens() {
+        String header = "/* Copyright (c) the authors */\n";
+        String code = "class Foo {\n"
+            + "  // foo comment\n"
+            + "}\n";
+
+        assertThat(analyse(header + code, new LicenseHeaderRule()).getViolations(), hasSize(0));
+
+        List<RuleViolation> violations = analyse(code, new LicenseHeaderRule()).getViolations();
+        assertThat(violations, hasSize(1));
+        assertEquals(1, violations.get(0).getBeginLine());
+        assertEquals(1, violations.get(0).getBeginColumn());
+    }
+
+    @Test
+    void testTokensAreInOrder() {
+        Report report = analyse("/* foo */ class Foo { // foo\n"
+                                    + "  int foo; /* foo */ }\n"
+                                    + "// foo\n",
+                                new BannedTokenRule("foo"));
+
+        List<RuleViolation> violations = report.getViolations();
+        assertThat(violations, hasSize(5));
+        int[][] positions = {{1, 1}, {1, 23}, {2, 7}, {2, 12}, {3, 1}};
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(positions[i][0], violations.get(i).getBeginLine(), "line of violation " + i);
+            assertEquals(positions[i][1], violations.get(i).getBeginColumn(), "column of violation " + i);
+        }
+    }
+
+    @Test
+    void testViolationsAreSuppressedByComments() {
+        String source = "class Foo {\n"
+            + "  int foo; // NOPMD\n"
+            + "  int foo2;\n"
+            + "}\n";
+
+        // without parsing, and with parsing
+        Report report = analyse(source, new BannedTokenRule("foo", "foo2"));
+        Report parsedReport = analyse(source, new BannedTokenRule("foo", "foo2"), new NoopRule());
+
+        for (Report r : Arrays.asList(report, parsedReport)) {
+            assertThat(r.getViolations(), hasSize(1));
+            assertEquals(3, r.getViolations().get(0).getBeginLine());
+            assertThat(r.getSuppressedViolations(), hasSize(1));
+        }
+    }
+
+    @Test
+    void testViolationsAreSuppressedByRegex() {
+        BannedTokenRule rule = new BannedTokenRule("foo", "foo2");
+        rule.setProperty(Rule.VIOLATION_SUPPRESS_REGEX_DESCRIPTOR, Optional.of(Pattern.compile(".*foo2")));
+        Report report = analyse("class Foo {\n"
+                                    + "  int foo;\n"
+                                    + "  int foo2;\n"
+                                    + "}\n",
+                                rule);
+
+        assertThat(report.getViolations(), hasSize(1));
+        assertEquals(2, report.getViolations().get(0).getBeginLine());
+        assertThat(report.getSuppressedViolations(), hasSize(1));
+    }
+
+    @Test
+    void testViolationsAreSuppressedByAnnotationsIfParsed() {
+        Report report = analyse("@SuppressWarnings(\"PMD.BannedTokens\")\n"
+                                    + "class Foo {\n"
+                                    + "  int foo;\n"
+                                    + "}\n",
+                                new BannedTokenRule("foo"), new NoopRule());
+
+        assertThat(report.getViolations(), hasSize(0));
+        assertThat(report.getSuppressedViolations(), hasSize(1));
+    }
+
+    @Test
+    void testFileIsNotParsedIfOnlyTokenRulesApply() {
+        String source = "class Foo { int foo = ; }";
+
+        Report report = analyse(source, new BannedTokenRule("foo"));
+        assertThat(report.getViolations(), hasSize(1));
+
+        Report parsedReport = analyseWithErrors(source, new BannedTokenRule("foo"), new NoopRule());
+        assertThat(parsedReport.getProcessingErrors(), hasSize(1));
+    }
+
+    private static Report analyse(String source, Rule... rules) {
+        Report report = analyseWithErrors(source, rules);
+        assertThat(report.getProcessingErrors(), hasSize(0));
+        return report;
+    }
+
+    private static Report analyseWithErrors(String source, Rule... rules) {
+        PMDConfiguration config = new PMDConfiguration();
+        config.setThreads(0);
+        config.setIgnoreIncrementalAnalysis(true);
+        try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+            pmd.addRuleSet(RuleSet.create("tokens", "Token rules", "tokens.xml",
+                                          emptyList(), emptyList(), Arrays.asList(rules)));
+            pmd.files().addSourceFile(FileId.fromPathLikeString("Foo.java"), source);
+            return pmd.performAnalysisAndCollectReport();
+        }
+    }
+
+    /**
+     * A rule that needs the tree, so that the file is parsed.
+     */
+    public static class NoopRule extends AbstractRule {
+
+        public NoopRule() {
+            setName("Noop");
+            setMessage("Noop");
+            setLanguage(JavaLanguageModule.getInstance());
+        }
+
+        @Override
+        public void apply(Node target, RuleContext ctx) {
+            // nothing to do
+        }
+    }
+
+    public static class LicenseHeaderRule extends AbstractTokenRule {
+
+        public LicenseHeaderRule() {
+            setName("LicenseHeader");
+            setMessage("Missing license header");
+            setLanguage(JavaLanguageModule.getInstance());
+        }
+
+        @Override
+        public void applyTokens(List<Token> tokens, RuleContext ctx) {
+            if (!tokens.isEmpty() && !(tokens.get(0).isComment() && tokens.get(0).getImage().contains("Copyright"))) {
+                ctx.addViolationAt(tokens.get(0).getLocation());
+            }
+        }
+    }
+
+    public static class BannedTokenRule extends AbstractTokenRule {
+
+        private final List<String> banned;
+
+        public BannedTokenRule(String... banned) {
+            this.banned = Arrays.asList(banned);
+            setName("BannedTokens");
+            setMessage("Banned token {0}");
+            setLanguage(JavaLanguageModule.getInstance());
+        }
+
+        @Override
+        public void applyTokens(List<Token> tokens, RuleContext ctx) {
+            for (Token token : tokens) {
+                for (String word : banned) {
+                    if (token.isComment() ? token.getImage().contains(word) : word.equals(token.getImage())) {
+                        ctx.addViolationAt(token.getLocation(), token.getImage());
+                        break;
+                    }
+                }
+            }
+        }
+    }
+}
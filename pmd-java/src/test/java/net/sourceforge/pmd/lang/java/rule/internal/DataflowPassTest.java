@@ -5,13 +5,22 @@
 package net.sourceforge.pmd.lang.java.rule.internal;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
 
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
 
 import net.sourceforge.pmd.lang.java.BaseParserTest;
 import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
+import net.sourceforge.pmd.lang.java.ast.ASTAssignableExpr.AccessType;
+import net.sourceforge.pmd.lang.java.ast.ASTVariableAccess;
+import net.sourceforge.pmd.lang.java.rule.internal.DataflowPass.AssignmentEntry;
 import net.sourceforge.pmd.lang.java.rule.internal.DataflowPass.DataflowResult;
+import net.sourceforge.pmd.lang.java.rule.internal.DataflowPass.ReachingDefinitionSet;
 
 /**
  * @author Clément Fournier
@@ -32,4 +41,47 @@ class DataflowPassTest extends BaseParserTest {
 
     }
 
+    @Test
+    void testManyLocals() {
+        // Hundreds of locals, each reassigned in a branch of nested loops,
+        // so that the bit sets of reaching definitions span several words.
+        int numLocals = 400;
+        StringBuilder code = new StringBuilder("class Big {\n int foo(boolean c) {\n");
+        for (int i = 0; i < numLocals; i++) {
+            code.append("  int v").append(i).append(" = ").append(i).append(";\n");
+        }
+        code.append("  int dead = 0;\n  dead = 1;\n");
+        code.append("  for (int i = 0; i < 10; i++) {\n   while (c) {\n");
+        for (int i = 0; i < numLocals; i += 2) {
+            code.append("    if (c) { v").append(i).append(" = v").append(i + 1).append(" + 1; }")
+                .append(" else { v").append(i + 1).append(" = v").append(i).append(" + 2; }\n");
+        }
+        code.append("   }\n  }\n  return 0");
+        for (int i = 0; i < numLocals; i++) {
+            code.append(" + v").append(i);
+        }
+        code.append(";\n }\n}\n");
+
+        ASTCompilationUnit ast = java.parse(code.toString());
+
+        DataflowResult dataflow = DataflowPass.getDataflowResult(ast);
+        assertThat(dataflow.getUnusedAssignments(), Matchers.hasSize(2));
+
+        // Every read of a local is reached by its initializer, and by its
+        // only reassignment through the loops.
+        List<ASTVariableAccess> reads = ast.descendants(ASTVariableAccess.class)
+                                           .filter(it -> it.getAccessType() == AccessType.READ)
+                                           .filter(it -> it.getName().matches("v\\d+"))
+                                           .toList();
+        assertEquals(2 * numLocals, reads.size());
+        for (ASTVariableAccess read : reads) {
+            ReachingDefinitionSet reaching = dataflow.getReachingDefinitions(read);
+            assertFalse(reaching.isNotFullyKnown(), read.getName());
+            assertThat(read.getName(), reaching.getReaching(), Matchers.hasSize(2));
+            assertTrue(reaching.getReaching().stream().allMatch(def -> def.getVarId().getName().equals(read.getName())),
+                       read.getName());
+            assertEquals(1, reaching.getReaching().stream().filter(AssignmentEntry::isInitializer).count(), read.getName());
+        }
+    }
+
 }
@@ -0,0 +1,69 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.symbols.internal.asm
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import net.sourceforge.pmd.internal.util.ClasspathClassLoader
+import net.sourceforge.pmd.lang.java.types.TypeSystem
+import java.nio.file.Paths
+
+class SharedTypeSystemTest : FunSpec({
+
+    val rootCp = Classpath.contextClasspath()
+    // the parent only knows about the JDK
+    val jdkCp = Classpath { if (it.startsWith("javasymbols/")) null else rootCp.findResource(it) }
+
+    test("Symbols found at the same location are shared") {
+        val parent = TypeSystem.usingClasspath(jdkCp)
+        val child1 = TypeSystem.usingClasspath(rootCp, parent)
+        val child2 = TypeSystem.usingClasspath(rootCp.exclude(setOf("javasymbols/testdata/SuperItf.class")), parent)
+
+        child1.OBJECT shouldBeSameInstanceAs parent.OBJECT
+        child1.INT shouldBeSameInstanceAs parent.INT
+
+        val string = parent.getClassSymbol("java.lang.String")!!
+        child1.getClassSymbol("java.lang.String") shouldBeSameInstanceAs string
+        child2.getClassSymbol("java.lang.String") shouldBeSameInstanceAs string
+        string.typeSystem shouldBeSameInstanceAs parent
+
+        child1.declaration(string).isSubtypeOf(child1.OBJECT) shouldBe true
+    }
+
+    test("Classes missing from the parent are resolved by the child") {
+        val parent = TypeSystem.usingClasspath(jdkCp)
+        val child1 = TypeSystem.usingClasspath(rootCp, parent)
+        val child2 = TypeSystem.usingClasspath(rootCp.exclude(setOf("javasymbols/testdata/SuperItf.class")), parent)
+
+        parent.getClassSymbol("javasymbols.testdata.BrokenGeneric") shouldBe null
+
+        val sym1 = child1.getClassSymbol("javasymbols.testdata.BrokenGeneric")!!
+        val sym2 = child2.getClassSymbol("javasymbols.testdata.BrokenGeneric")!!
+
+        sym1 shouldNotBeSameInstanceAs sym2
+        sym1.typeSystem shouldBeSameInstanceAs child1
+        sym1.superInterfaces[0].isUnresolved shouldBe false
+        sym2.superInterfaces[0].isUnresolved shouldBe true
+
+        // superclass of a module class is shared
+        child1.getClassSymbol("javasymbols.testdata.SuperKlass")!!.superclass shouldBeSameInstanceAs
+            parent.OBJECT.symbol
+    }
+
+    test("Classpath shadowing the parent's constants is not shared") {
+        val jar = Paths.get("src/test/resources/net/sourceforge/pmd/lang/java/symbols/custom_java_lang.jar")
+        val parent = TypeSystem.usingClasspath(jdkCp)
+
+        ClasspathClassLoader(jar.toAbsolutePath().toString(), javaClass.classLoader).use { loader ->
+            val child = TypeSystem.usingClassLoaderClasspath(loader, parent)
+
+            child.BOXED_VOID shouldNotBeSameInstanceAs parent.BOXED_VOID
+            child.BOXED_VOID.symbol.declaredMethods.map { it.simpleName } shouldBe listOf("customMethodOnJavaLangVoid")
+            child.getClassSymbol("java.lang.String") shouldNotBeSameInstanceAs parent.getClassSymbol("java.lang.String")
+        }
+    }
+})
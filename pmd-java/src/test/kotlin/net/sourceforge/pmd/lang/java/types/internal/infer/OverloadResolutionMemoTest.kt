@@ -0,0 +1,93 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.types.internal.infer
+
+import io.kotest.matchers.ints.shouldBeGreaterThan
+import io.kotest.matchers.longs.shouldBeGreaterThan
+import io.kotest.matchers.shouldBe
+import net.sourceforge.pmd.lang.java.ast.InvocationNode
+import net.sourceforge.pmd.lang.java.ast.ProcessorTestSpec
+import net.sourceforge.pmd.lang.java.types.methodCalls
+
+class OverloadResolutionMemoTest : ProcessorTestSpec({
+
+    parserTest("Test memoized overloads are reused across files") {
+
+        val code = """
+            import java.util.List;
+            class Foo {
+                void foo(StringBuilder sb, List<String> list, Object o) {
+                    sb.append("a");
+                    sb.append('c');
+                    sb.append(1L);
+                    sb.append(o);
+                    list.size();
+                    list.add("b");
+                    Math.max(1, 2);
+                }
+            }
+        """.trimIndent()
+
+        val acu1 = parser.parse(code)
+        val memo = acu1.typeSystem.overloadResolutionMemo
+
+        val sigs1 = acu1.methodCalls().toList { it.methodType }
+        val hitsBefore = memo.hitCount
+
+        val acu2 = parser.parse(code)
+        val sigs2 = acu2.methodCalls().toList { it.methodType }
+
+        memo.hitCount shouldBeGreaterThan hitsBefore
+        memo.size() shouldBeGreaterThan 0
+
+        sigs2 shouldBe sigs1
+        sigs2.map { it.symbol } shouldBe sigs1.map { it.symbol }
+        sigs2.none { it == acu2.typeSystem.UNRESOLVED_METHOD } shouldBe true
+    }
+
+    parserTest("Test receiver parameterization is respected") {
+
+        val acu = parser.parse(
+            """
+            import java.util.List;
+            class Foo {
+                void foo(List<String> strings, List<Integer> ints) {
+                    strings.get(0);
+                    ints.get(0);
+                    strings.get(0);
+                }
+            }
+            """.trimIndent()
+        )
+
+        val (s1, i, s2) = acu.methodCalls().toList()
+
+        s1.methodType.returnType.toString() shouldBe "java.lang.String"
+        i.methodType.returnType.toString() shouldBe "java.lang.Integer"
+        s2.methodType.returnType.toString() shouldBe "java.lang.String"
+    }
+
+    parserTest("Test invocations in arguments are still resolved") {
+
+        val acu = parser.parse(
+            """
+            import java.util.List;
+            class Foo {
+                void foo(List<StringBuilder> list, Object o) {
+                    list.add(new StringBuilder("a" + o));
+                    list.add(new StringBuilder("b" + o));
+                    list.add(new StringBuilder(o.toString()));
+                }
+            }
+            """.trimIndent()
+        )
+
+        val calls = acu.descendants(InvocationNode::class.java).toList()
+
+        calls.size shouldBe 7
+        calls.none { it.overloadSelectionInfo == null } shouldBe true
+        calls.none { it.methodType == acu.typeSystem.UNRESOLVED_METHOD } shouldBe true
+    }
+})
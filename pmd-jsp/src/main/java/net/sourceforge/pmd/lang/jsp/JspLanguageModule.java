@@ -23,7 +23,7 @@ public class JspLanguageModule extends SimpleLanguageModuleBase implements CpdCa
                               .extensions("jsp", "jspx", "jspf", "tag")
                               .addVersion("2")
                               .addDefaultVersion("3"),
-              new JspHandler());
+              properties -> new JspHandler());
     }
 
     public static JspLanguageModule getInstance() {
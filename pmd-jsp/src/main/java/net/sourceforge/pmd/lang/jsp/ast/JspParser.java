@@ -5,8 +5,10 @@
 package net.sourceforge.pmd.lang.jsp.ast;
 
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.lang.TokenManager;
 import net.sourceforge.pmd.lang.ast.ParseException;
 import net.sourceforge.pmd.lang.ast.impl.javacc.CharStream;
+import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccToken;
 import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccTokenDocument.TokenDocumentBehavior;
 import net.sourceforge.pmd.lang.ast.impl.javacc.JjtreeParserAdapter;
 
@@ -22,6 +24,11 @@ public final class JspParser extends JjtreeParserAdapter<ASTCompilationUnit> {
         return TOKEN_BEHAVIOR;
     }
 
+    @Override
+    protected TokenManager<JavaccToken> newTokenManager(CharStream cs) {
+        return JspTokenKinds.newTokenManager(cs);
+    }
+
     @Override
     protected ASTCompilationUnit parseImpl(CharStream cs, ParserTask task) throws ParseException {
         return new JspParserImpl(cs).CompilationUnit().makeTaskInfo(task);
@@ -26,7 +26,7 @@ public class KotlinLanguageModule extends SimpleLanguageModuleBase {
                               .addVersion("1.6")
                               .addVersion("1.7")
                               .addDefaultVersion("1.8"),
-              new KotlinHandler());
+              properties -> new KotlinHandler());
 
     }
 
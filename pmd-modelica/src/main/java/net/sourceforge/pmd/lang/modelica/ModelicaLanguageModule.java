@@ -18,7 +18,7 @@ public class ModelicaLanguageModule extends SimpleLanguageModuleBase {
                               .extensions("mo")
                               .addVersion("3.4")
                               .addDefaultVersion("3.5"),
-              new ModelicaHandler());
+              properties -> new ModelicaHandler());
     }
 
     public static ModelicaLanguageModule getInstance() {
@@ -5,8 +5,10 @@
 package net.sourceforge.pmd.lang.modelica.ast;
 
 import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.lang.TokenManager;
 import net.sourceforge.pmd.lang.ast.ParseException;
 import net.sourceforge.pmd.lang.ast.impl.javacc.CharStream;
+import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccToken;
 import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccTokenDocument.TokenDocumentBehavior;
 import net.sourceforge.pmd.lang.ast.impl.javacc.JjtreeParserAdapter;
 import net.sourceforge.pmd.lang.modelica.resolver.ModelicaSymbolFacade;
@@ -21,6 +23,11 @@ public class ModelicaParser extends JjtreeParserAdapter<ASTStoredDefinition> {
         return TOKEN_BEHAVIOR;
     }
 
+    @Override
+    protected TokenManager<JavaccToken> newTokenManager(CharStream cs) {
+        return ModelicaTokenKinds.newTokenManager(cs);
+    }
+
     @Override
     protected ASTStoredDefinition parseImpl(CharStream cs, ParserTask task) throws ParseException {
         ASTStoredDefinition root = new ModelicaParserImpl(cs).StoredDefinition().makeTaskInfo(task);
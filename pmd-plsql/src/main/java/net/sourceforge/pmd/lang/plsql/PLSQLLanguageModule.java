@@ -38,7 +38,7 @@ public class PLSQLLanguageModule extends SimpleLanguageModuleBase {
                             .addVersion("18c")
                             .addVersion("19c")
                             .addDefaultVersion("21c"),
-            new PLSQLHandler()
+            properties -> new PLSQLHandler()
         );
     }
 
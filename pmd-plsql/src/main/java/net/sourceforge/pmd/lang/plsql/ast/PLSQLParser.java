@@ -5,8 +5,10 @@
 package net.sourceforge.pmd.lang.plsql.ast;
 
 import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.lang.TokenManager;
 import net.sourceforge.pmd.lang.ast.ParseException;
 import net.sourceforge.pmd.lang.ast.impl.javacc.CharStream;
+import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccToken;
 import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccTokenDocument.TokenDocumentBehavior;
 import net.sourceforge.pmd.lang.ast.impl.javacc.JjtreeParserAdapter;
 import net.sourceforge.pmd.lang.plsql.symboltable.SymbolFacade;
@@ -20,6 +22,11 @@ public class PLSQLParser extends JjtreeParserAdapter<ASTInput> {
         return TOKEN_BEHAVIOR;
     }
 
+    @Override
+    protected TokenManager<JavaccToken> newTokenManager(CharStream cs) {
+        return PLSQLTokenKinds.newTokenManager(cs);
+    }
+
     @Override
     protected ASTInput parseImpl(CharStream cs, ParserTask task) throws ParseException {
         ASTInput root = new PLSQLParserImpl(cs).Input().addTaskInfo(task);
@@ -32,7 +32,7 @@ public class ScalaLanguageModule extends SimpleLanguageModuleBase {
                               .addVersion("2.11")
                               .addVersion("2.12")
                               .addDefaultVersion("2.13"),
-              new ScalaLanguageHandler());
+              properties -> new ScalaLanguageHandler());
     }
 
     public static ScalaLanguageModule getInstance() {
@@ -31,7 +31,7 @@ public class SwiftLanguageModule extends SimpleLanguageModuleBase {
                               .addVersion("5.5")
                               .addVersion("5.6")
                               .addDefaultVersion("5.7"),
-              new SwiftHandler());
+              properties -> new SwiftHandler());
     }
 
     public static SwiftLanguageModule getInstance() {
@@ -4,8 +4,10 @@
 
 package net.sourceforge.pmd.lang.vf.ast;
 
+import net.sourceforge.pmd.lang.TokenManager;
 import net.sourceforge.pmd.lang.ast.ParseException;
 import net.sourceforge.pmd.lang.ast.impl.javacc.CharStream;
+import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccToken;
 import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccTokenDocument.TokenDocumentBehavior;
 import net.sourceforge.pmd.lang.ast.impl.javacc.JjtreeParserAdapter;
 import net.sourceforge.pmd.lang.vf.VfLanguageProperties;
@@ -28,6 +30,11 @@ public final class VfParser extends JjtreeParserAdapter<ASTCompilationUnit> {
         return TOKEN_BEHAVIOR;
     }
 
+    @Override
+    protected TokenManager<JavaccToken> newTokenManager(CharStream cs) {
+        return VfTokenKinds.newTokenManager(cs);
+    }
+
     @Override
     protected ASTCompilationUnit parseImpl(CharStream cs, ParserTask task) throws ParseException {
         ASTCompilationUnit root = new VfParserImpl(cs).CompilationUnit().makeTaskInfo(task);
@@ -24,7 +24,7 @@ public class VmLanguageModule extends SimpleLanguageModuleBase {
                               .addVersion("2.1")
                               .addVersion("2.2")
                               .addDefaultVersion("2.3"),
-                new VmHandler());
+                properties -> new VmHandler());
     }
 
     public static VmLanguageModule getInstance() {
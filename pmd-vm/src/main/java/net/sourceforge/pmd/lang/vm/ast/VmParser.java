@@ -6,6 +6,7 @@ package net.sourceforge.pmd.lang.vm.ast;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import net.sourceforge.pmd.lang.TokenManager;
 import net.sourceforge.pmd.lang.ast.ParseException;
 import net.sourceforge.pmd.lang.ast.impl.javacc.CharStream;
 import net.sourceforge.pmd.lang.ast.impl.javacc.JavaccToken;
@@ -42,6 +43,11 @@ public class VmParser extends JjtreeParserAdapter<ASTTemplate> {
         return TOKEN_BEHAVIOR;
     }
 
+    @Override
+    protected TokenManager<JavaccToken> newTokenManager(CharStream cs) {
+        return VmTokenKinds.newTokenManager(cs);
+    }
+
     @Override
     protected ASTTemplate parseImpl(CharStream cs, ParserTask task) throws ParseException {
         return new VmParserImpl(cs).Template().makeTaskInfo(task);
@@ -18,7 +18,7 @@ public class PomLanguageModule extends SimpleLanguageModuleBase {
         super(LanguageMetadata.withId(ID).name("Maven POM")
                               .extensions("pom")
                               .addDefaultVersion("4.0.0"),
-              new XmlHandler());
+              properties -> new XmlHandler());
     }
 
     public static PomLanguageModule getInstance() {
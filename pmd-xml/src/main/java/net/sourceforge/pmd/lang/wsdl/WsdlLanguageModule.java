@@ -22,7 +22,7 @@ public class WsdlLanguageModule extends SimpleLanguageModuleBase {
                               .extensions("wsdl")
                               .addVersion("1.1")
                               .addDefaultVersion("2.0"),
-                new XmlHandler());
+                properties -> new XmlHandler());
     }
 
     public static WsdlLanguageModule getInstance() {
@@ -21,7 +21,7 @@ public class XmlLanguageModule extends SimpleLanguageModuleBase {
                               .extensions("xml")
                               .addVersion("1.0")
                               .addDefaultVersion("1.1"),
-                new XmlHandler());
+                properties -> new XmlHandler());
     }
 
     public static XmlLanguageModule getInstance() {
@@ -23,7 +23,7 @@ public class XslLanguageModule extends SimpleLanguageModuleBase {
                               .addVersion("1.0")
                               .addVersion("2.0")
                               .addDefaultVersion("3.0"),
-                new XmlHandler());
+                properties -> new XmlHandler());
     }
 
     public static XslLanguageModule getInstance() {